@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+import static com.google.common.base.Charsets.US_ASCII;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for {@link Metadata} lookups on headers received from the transport, the way a chain
+ * of interceptors reads them. Run with {@code -prof gc} to see the allocation rate per call.
+ */
+@State(Scope.Benchmark)
+public class MetadataBenchmark {
+
+  @Param({"4", "16", "32", "64"})
+  public int headerCount;
+
+  @Param({"4", "16"})
+  public int lookups;
+
+  private byte[][] received;
+  private Metadata.Key<String>[] presentKeys;
+  private Metadata.Key<String>[] absentKeys;
+
+  @SuppressWarnings("unchecked")
+  @Setup
+  public void setUp() {
+    received = new byte[headerCount * 2][];
+    for (int i = 0; i < headerCount; i++) {
+      received[i * 2] = ("x-mesh-header-" + i).getBytes(US_ASCII);
+      received[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    presentKeys = new Metadata.Key[lookups];
+    absentKeys = new Metadata.Key[lookups];
+    for (int i = 0; i < lookups; i++) {
+      // Spread the lookups over the headers, so that the linear scan is not always short
+      presentKeys[i] = Metadata.Key.of(
+          "x-mesh-header-" + (i * 7 % headerCount), Metadata.ASCII_STRING_MARSHALLER);
+      absentKeys[i] = Metadata.Key.of("x-absent-" + i, Metadata.ASCII_STRING_MARSHALLER);
+    }
+  }
+
+  /**
+   * Each interceptor reads one header that is present and checks for one that is not.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void receiveAndLookup(Blackhole bh) {
+    Metadata metadata = new Metadata(headerCount, received.clone());
+    for (int i = 0; i < lookups; i++) {
+      bh.consume(metadata.get(presentKeys[i]));
+      bh.consume(metadata.containsKey(absentKeys[i]));
+    }
+  }
+
+  /**
+   * Like {@link #receiveAndLookup}, with each interceptor also adding a header of its own.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public void receiveLookupAndPut(Blackhole bh) {
+    Metadata metadata = new Metadata(headerCount, received.clone());
+    for (int i = 0; i < lookups; i++) {
+      bh.consume(metadata.get(presentKeys[i]));
+      metadata.put(absentKeys[i], "added");
+    }
+    bh.consume(metadata);
+  }
+}
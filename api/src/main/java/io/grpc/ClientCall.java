@@ -245,6 +245,26 @@ public abstract class ClientCall<ReqT, RespT> {
    */
   public abstract void sendMessage(ReqT message);
 
+  /**
+   * Send several request messages, in order, as if by calling {@link #sendMessage} for each of
+   * them. Implementations may frame the messages together and flush the transport once after the
+   * last message instead of once per message, which reduces syscall overhead for streaming calls
+   * that produce many small messages at a time.
+   *
+   * <p>This abstract class's implementation calls {@link #sendMessage} for each message.
+   * Forwarding implementations do not forward this method, so that interceptors observing {@link
+   * #sendMessage} still see every message.
+   *
+   * @param messages messages to be sent to the server.
+   * @throws IllegalStateException if call is {@link #halfClose}d or explicitly {@link #cancel}ed
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/8499")
+  public void sendMessages(Iterable<? extends ReqT> messages) {
+    for (ReqT message : messages) {
+      sendMessage(message);
+    }
+  }
+
   /**
    * If {@code true}, indicates that the call is capable of sending additional messages
    * without requiring excessive buffering internally. This event is
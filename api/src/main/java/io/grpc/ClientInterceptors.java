@@ -132,6 +132,16 @@ public class ClientInterceptors {
             wrappedCall.sendMessage(wReq);
           }
 
+          @Override
+          public void sendMessages(Iterable<? extends ReqT> messages) {
+            List<WReqT> wReqs = new ArrayList<>();
+            for (ReqT message : messages) {
+              InputStream bytes = method.getRequestMarshaller().stream(message);
+              wReqs.add(reqMarshaller.parse(bytes));
+            }
+            wrappedCall.sendMessages(wReqs);
+          }
+
           @Override
           protected ClientCall<?, ?> delegate() {
             return wrappedCall;
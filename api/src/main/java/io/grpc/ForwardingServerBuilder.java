@@ -61,6 +61,12 @@ public abstract class ForwardingServerBuilder<T extends ServerBuilder<T>> extend
     return thisT();
   }
 
+  @Override
+  public T virtualThreadExecutor() {
+    delegate().virtualThreadExecutor();
+    return thisT();
+  }
+
   @Override
   public T callExecutor(ServerCallExecutorSupplier executorSupplier) {
     delegate().callExecutor(executorSupplier);
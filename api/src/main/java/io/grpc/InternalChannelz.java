@@ -374,6 +374,10 @@ public final class InternalChannelz {
     public final long callsSucceeded;
     public final long callsFailed;
     public final long lastCallStartedNanos;
+    /** Bytes currently buffered for retry and hedging. Only set for top level channels. */
+    public final long retryBufferUsed;
+    /** RPCs that gave up retry and hedging because a buffer limit was exceeded. */
+    public final long retryBufferLimitExceeded;
     public final List<InternalWithLogId> subchannels;
     public final List<InternalWithLogId> sockets;
 
@@ -388,6 +392,8 @@ public final class InternalChannelz {
         long callsSucceeded,
         long callsFailed,
         long lastCallStartedNanos,
+        long retryBufferUsed,
+        long retryBufferLimitExceeded,
         List<InternalWithLogId> subchannels,
         List<InternalWithLogId> sockets) {
       checkState(
@@ -401,6 +407,8 @@ public final class InternalChannelz {
       this.callsSucceeded = callsSucceeded;
       this.callsFailed = callsFailed;
       this.lastCallStartedNanos = lastCallStartedNanos;
+      this.retryBufferUsed = retryBufferUsed;
+      this.retryBufferLimitExceeded = retryBufferLimitExceeded;
       this.subchannels = checkNotNull(subchannels);
       this.sockets = checkNotNull(sockets);
     }
@@ -413,6 +421,8 @@ public final class InternalChannelz {
       private long callsSucceeded;
       private long callsFailed;
       private long lastCallStartedNanos;
+      private long retryBufferUsed;
+      private long retryBufferLimitExceeded;
       private List<InternalWithLogId> subchannels = Collections.emptyList();
       private List<InternalWithLogId> sockets = Collections.emptyList();
 
@@ -451,6 +461,16 @@ public final class InternalChannelz {
         return this;
       }
 
+      public Builder setRetryBufferUsed(long retryBufferUsed) {
+        this.retryBufferUsed = retryBufferUsed;
+        return this;
+      }
+
+      public Builder setRetryBufferLimitExceeded(long retryBufferLimitExceeded) {
+        this.retryBufferLimitExceeded = retryBufferLimitExceeded;
+        return this;
+      }
+
       /** Sets the subchannels. */
       public Builder setSubchannels(List<InternalWithLogId> subchannels) {
         checkState(sockets.isEmpty());
@@ -477,6 +497,8 @@ public final class InternalChannelz {
             callsSucceeded,
             callsFailed,
             lastCallStartedNanos,
+            retryBufferUsed,
+            retryBufferLimitExceeded,
             subchannels,
             sockets);
       }
@@ -1065,10 +1087,12 @@ public final class InternalChannelz {
     public final long lastMessageReceivedTimeNanos;
     public final long localFlowControlWindow;
     public final long remoteFlowControlWindow;
+    public final long flushes;
+    public final long writesFlushed;
     // TODO(zpencer): report socket flags and other info
 
     /**
-     * Creates an instance.
+     * Creates an instance without flush statistics.
      */
     public TransportStats(
         long streamsStarted,
@@ -1083,6 +1107,41 @@ public final class InternalChannelz {
         long lastMessageReceivedTimeNanos,
         long localFlowControlWindow,
         long remoteFlowControlWindow) {
+      this(
+          streamsStarted,
+          lastLocalStreamCreatedTimeNanos,
+          lastRemoteStreamCreatedTimeNanos,
+          streamsSucceeded,
+          streamsFailed,
+          messagesSent,
+          messagesReceived,
+          keepAlivesSent,
+          lastMessageSentTimeNanos,
+          lastMessageReceivedTimeNanos,
+          localFlowControlWindow,
+          remoteFlowControlWindow,
+          0,
+          0);
+    }
+
+    /**
+     * Creates an instance.
+     */
+    public TransportStats(
+        long streamsStarted,
+        long lastLocalStreamCreatedTimeNanos,
+        long lastRemoteStreamCreatedTimeNanos,
+        long streamsSucceeded,
+        long streamsFailed,
+        long messagesSent,
+        long messagesReceived,
+        long keepAlivesSent,
+        long lastMessageSentTimeNanos,
+        long lastMessageReceivedTimeNanos,
+        long localFlowControlWindow,
+        long remoteFlowControlWindow,
+        long flushes,
+        long writesFlushed) {
       this.streamsStarted = streamsStarted;
       this.lastLocalStreamCreatedTimeNanos = lastLocalStreamCreatedTimeNanos;
       this.lastRemoteStreamCreatedTimeNanos = lastRemoteStreamCreatedTimeNanos;
@@ -1095,6 +1154,8 @@ public final class InternalChannelz {
       this.lastMessageReceivedTimeNanos = lastMessageReceivedTimeNanos;
       this.localFlowControlWindow = localFlowControlWindow;
       this.remoteFlowControlWindow = remoteFlowControlWindow;
+      this.flushes = flushes;
+      this.writesFlushed = writesFlushed;
     }
   }
 
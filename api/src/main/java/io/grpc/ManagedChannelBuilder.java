@@ -106,6 +106,21 @@ public abstract class ManagedChannelBuilder<T extends ManagedChannelBuilder<T>>
    */
   public abstract T executor(Executor executor);
 
+  /**
+   * Runs call callbacks on virtual threads, starting a new one whenever the channel has work to do
+   * for a call instead of borrowing a pooled thread. Replaces any executor set with {@link
+   * #executor(Executor)}.
+   *
+   * @return this
+   * @throws UnsupportedOperationException if unsupported by the builder or if the JVM has no
+   *     virtual threads (they require Java 21)
+   * @since 1.53.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/8274")
+  public T virtualThreadExecutor() {
+    throw new UnsupportedOperationException();
+  }
+
   /**
    * Provides a custom executor that will be used for operations that block or are expensive.
    *
@@ -145,12 +145,29 @@ public final class Metadata {
         : "Odd number of key-value pairs " + namesAndValues.length;
     size = usedNames;
     this.namesAndValues = namesAndValues;
+    rebuildIndex();
   }
 
+  /**
+   * Header count at which {@link #get} and {@link #containsKey} switch from a linear scan to a
+   * hash index over the names.
+   */
+  @VisibleForTesting
+  static final int INDEX_THRESHOLD = 16;
+
   private Object[] namesAndValues;
   // The unscaled number of headers present.
   private int size;
 
+  // Open-addressing table over the distinct names, present whenever size is at least
+  // INDEX_THRESHOLD. Each slot holds the position + 1 of the first and last header with that name,
+  // or 0 if the slot is empty. Only mutations maintain it, so concurrent reads stay read-only.
+  @Nullable
+  private int[] indexFirst;
+  @Nullable
+  private int[] indexLast;
+  private int indexedNames;
+
   private byte[] name(int i) {
     return (byte[]) namesAndValues[i * 2];
   }
@@ -231,6 +248,9 @@ public final class Metadata {
    * prefer calling them directly and checking the return value against {@code null}.
    */
   public boolean containsKey(Key<?> key) {
+    if (indexFirst != null) {
+      return indexFirst[findSlot(key.asciiName(), key.nameHash())] != 0;
+    }
     for (int i = 0; i < size; i++) {
       if (bytesEqual(key.asciiName(), name(i))) {
         return true;
@@ -246,6 +266,10 @@ public final class Metadata {
    */
   @Nullable
   public <T> T get(Key<T> key) {
+    if (indexFirst != null) {
+      int last = indexLast[findSlot(key.asciiName(), key.nameHash())];
+      return last != 0 ? valueAsT(last - 1, key) : null;
+    }
     for (int i = size - 1; i >= 0; i--) {
       if (bytesEqual(key.asciiName(), name(i))) {
         return valueAsT(i, key);
@@ -307,6 +331,10 @@ public final class Metadata {
    */
   @Nullable
   public <T> Iterable<T> getAll(final Key<T> key) {
+    if (indexFirst != null) {
+      int first = indexFirst[findSlot(key.asciiName(), key.nameHash())];
+      return first != 0 ? new IterableAt<>(key, first - 1) : null;
+    }
     for (int i = 0; i < size; i++) {
       if (bytesEqual(key.asciiName(), name(i))) {
         return new IterableAt<>(key, i);
@@ -350,6 +378,68 @@ public final class Metadata {
       value(size, key.toBytes(value));
     }
     size++;
+    if (indexFirst != null) {
+      addToIndex(size - 1, key.nameHash());
+    } else if (size >= INDEX_THRESHOLD) {
+      buildIndex();
+    }
+  }
+
+  /** Brings the index up to date after a mutation that moved or added headers in bulk. */
+  private void rebuildIndex() {
+    if (size >= INDEX_THRESHOLD) {
+      buildIndex();
+    } else {
+      invalidateIndex();
+    }
+  }
+
+  private void buildIndex() {
+    // Keep the load factor at or below 1/2, leaving room for the names put() may add later
+    int tableSize = Integer.highestOneBit(size) << 2;
+    indexFirst = new int[tableSize];
+    indexLast = new int[tableSize];
+    indexedNames = 0;
+    for (int i = 0; i < size; i++) {
+      addToIndex(i, hashName(name(i)));
+    }
+  }
+
+  private void addToIndex(int pos, int hash) {
+    int slot = findSlot(name(pos), hash);
+    if (indexFirst[slot] == 0) {
+      if ((indexedNames + 1) * 2 > indexFirst.length) {
+        // Too full; rebuild with a bigger table, which includes pos
+        buildIndex();
+        return;
+      }
+      indexFirst[slot] = pos + 1;
+      indexedNames++;
+    }
+    indexLast[slot] = pos + 1;
+  }
+
+  /** Returns the slot holding {@code name}, or the empty slot where it would be inserted. */
+  private int findSlot(byte[] name, int hash) {
+    int mask = indexFirst.length - 1;
+    int slot = hash & mask;
+    while (true) {
+      int first = indexFirst[slot];
+      if (first == 0 || bytesEqual(name, name(first - 1))) {
+        return slot;
+      }
+      slot = (slot + 1) & mask;
+    }
+  }
+
+  private void invalidateIndex() {
+    indexFirst = null;
+    indexLast = null;
+  }
+
+  private static int hashName(byte[] name) {
+    int h = Arrays.hashCode(name);
+    return h ^ (h >>> 16);
   }
 
   private void maybeExpand() {
@@ -393,6 +483,7 @@ public final class Metadata {
       size -= 1;
       name(size, null);
       value(size, (byte[]) null);
+      rebuildIndex();
       return true;
     }
     return false;
@@ -419,7 +510,10 @@ public final class Metadata {
     int newSize = writeIdx;
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
-    size = newSize;
+    if (newSize != size) {
+      size = newSize;
+      rebuildIndex();
+    }
     return ret;
   }
 
@@ -445,7 +539,10 @@ public final class Metadata {
     int newSize = writeIdx;
     // Multiply by two since namesAndValues is interleaved.
     Arrays.fill(namesAndValues, writeIdx * 2, len(), null);
-    size = newSize;
+    if (newSize != size) {
+      size = newSize;
+      rebuildIndex();
+    }
   }
 
   /**
@@ -514,6 +611,7 @@ public final class Metadata {
     }
     System.arraycopy(other.namesAndValues, 0, namesAndValues, len(), other.len());
     size += other.size;
+    rebuildIndex();
   }
 
   /**
@@ -539,6 +637,7 @@ public final class Metadata {
         size++;
       }
     }
+    rebuildIndex();
   }
 
   @Override
@@ -716,6 +815,7 @@ public final class Metadata {
 
     private final String name;
     private final byte[] nameBytes;
+    private final int nameHash;
     private final Object marshaller;
 
     private static BitSet generateValidTChars() {
@@ -761,6 +861,7 @@ public final class Metadata {
       this.originalName = checkNotNull(name, "name");
       this.name = validateName(this.originalName.toLowerCase(Locale.ROOT), pseudo);
       this.nameBytes = this.name.getBytes(US_ASCII);
+      this.nameHash = hashName(nameBytes);
       this.marshaller = marshaller;
     }
 
@@ -791,6 +892,11 @@ public final class Metadata {
       return nameBytes;
     }
 
+    /** Hash of {@link #asciiName}, as used by the {@link Metadata} name index. */
+    final int nameHash() {
+      return nameHash;
+    }
+
     /**
      * Returns true if the two objects are both Keys, and their names match (case insensitive).
      */
@@ -74,6 +74,22 @@ public abstract class ServerBuilder<T extends ServerBuilder<T>> {
    */
   public abstract T executor(@Nullable Executor executor);
 
+  /**
+   * Runs application code on virtual threads, starting a new one whenever the server has work to
+   * do for a call instead of borrowing a pooled thread. Handlers may then block, for example on
+   * JDBC, without needing a large thread pool to keep throughput up. Replaces any executor set
+   * with {@link #executor(Executor)}.
+   *
+   * @return this
+   * @throws UnsupportedOperationException if unsupported by the builder or if the JVM has no
+   *     virtual threads (they require Java 21)
+   * @since 1.53.0
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/8274")
+  public T virtualThreadExecutor() {
+    throw new UnsupportedOperationException();
+  }
+
 
   /**
    * Allows for defining a way to provide a custom executor to handle the server call.
@@ -136,6 +136,26 @@ public abstract class ServerCall<ReqT, RespT> {
    */
   public abstract void sendMessage(RespT message);
 
+  /**
+   * Send several response messages, in order, as if by calling {@link #sendMessage} for each of
+   * them. Implementations may frame the messages together and flush the transport once after the
+   * last message instead of once per message, which reduces syscall overhead for streaming calls
+   * that produce many small messages at a time.
+   *
+   * <p>This abstract class's implementation calls {@link #sendMessage} for each message.
+   * Forwarding implementations do not forward this method, so that interceptors observing {@link
+   * #sendMessage} still see every message.
+   *
+   * @param messages response messages.
+   * @throws IllegalStateException if headers not sent or call is {@link #close}d
+   */
+  @ExperimentalApi("https://github.com/grpc/grpc-java/issues/8499")
+  public void sendMessages(Iterable<? extends RespT> messages) {
+    for (RespT message : messages) {
+      sendMessage(message);
+    }
+  }
+
   /**
    * If {@code true}, indicates that the call is capable of sending additional messages
    * without requiring excessive buffering internally. This event is
@@ -278,6 +278,16 @@ public final class ServerInterceptors {
             delegate().sendMessage(wrappedMessage);
           }
 
+          @Override
+          public void sendMessages(Iterable<? extends ORespT> messages) {
+            List<WRespT> wrappedMessages = new ArrayList<>();
+            for (ORespT message : messages) {
+              final InputStream is = originalMethod.streamResponse(message);
+              wrappedMessages.add(wrappedMethod.parseResponse(is));
+            }
+            delegate().sendMessages(wrappedMessages);
+          }
+
           @Override
           public MethodDescriptor<OReqT, ORespT> getMethodDescriptor() {
             return originalMethod;
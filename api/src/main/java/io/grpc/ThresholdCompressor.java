@@ -0,0 +1,30 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc;
+
+/**
+ * A {@link Compressor} that only pays off for messages of some minimum size. Messages whose size
+ * is known before they are sent and is below {@link #getMinimumMessageSize} are sent uncompressed,
+ * even though compression is enabled for the call. Messages of unknown size are always compressed.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
+public interface ThresholdCompressor extends Compressor {
+  /**
+   * Returns the size, in uncompressed bytes, below which messages are not compressed.
+   */
+  int getMinimumMessageSize();
+}
@@ -35,8 +35,11 @@ import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -440,6 +443,120 @@ public class MetadataTest {
     assertSame(salmon, h.get(copyKey(KEY_IMMUTABLE, IMMUTABLE_FISH_MARSHALLER)));
   }
 
+  @Test
+  public void indexedLookups() {
+    Metadata h = new Metadata();
+    Metadata.Key<String> dup = Metadata.Key.of("dup", Metadata.ASCII_STRING_MARSHALLER);
+    for (int i = 0; i < Metadata.INDEX_THRESHOLD * 3; i++) {
+      h.put(stringKey("name-" + i), "value-" + i);
+      if (i % 10 == 0) {
+        h.put(dup, "dup-" + i);
+      }
+      // Puts build the index at the threshold and keep it up to date
+      assertEquals("value-" + i, h.get(stringKey("name-" + i)));
+      assertEquals("dup-" + (i / 10 * 10), h.get(dup));
+      assertFalse(h.containsKey(stringKey("absent")));
+    }
+
+    assertTrue(h.containsKey(stringKey("name-0")));
+    assertNull(h.get(stringKey("absent")));
+    assertNull(h.getAll(stringKey("absent")));
+    assertEquals(
+        Arrays.asList("dup-0", "dup-10", "dup-20", "dup-30", "dup-40"),
+        Lists.newArrayList(h.getAll(dup)));
+  }
+
+  @Test
+  public void indexedLookupsAfterRemovalAndMerge() {
+    Metadata h = new Metadata();
+    for (int i = 0; i < Metadata.INDEX_THRESHOLD; i++) {
+      h.put(stringKey("name-" + i), "value-" + i);
+    }
+    assertEquals("value-3", h.get(stringKey("name-3")));
+
+    assertTrue(h.remove(stringKey("name-3"), "value-3"));
+    h.discardAll(stringKey("name-5"));
+    assertEquals(Arrays.asList("value-7"), Lists.newArrayList(h.removeAll(stringKey("name-7"))));
+    assertNull(h.get(stringKey("name-3")));
+    assertNull(h.get(stringKey("name-5")));
+    assertNull(h.get(stringKey("name-7")));
+    assertEquals("value-8", h.get(stringKey("name-8")));
+
+    Metadata other = new Metadata();
+    other.put(stringKey("name-3"), "merged");
+    other.put(stringKey("name-8"), "merged");
+    h.merge(other);
+    assertEquals("merged", h.get(stringKey("name-3")));
+    assertEquals(
+        Arrays.asList("value-8", "merged"), Lists.newArrayList(h.getAll(stringKey("name-8"))));
+
+    Metadata another = new Metadata();
+    another.put(stringKey("name-5"), "merged");
+    h.merge(another, Collections.<Metadata.Key<?>>singleton(stringKey("name-5")));
+    assertEquals("merged", h.get(stringKey("name-5")));
+  }
+
+  @Test
+  public void indexedLookupsOnTransportMetadata() {
+    byte[][] namesAndValues = new byte[Metadata.INDEX_THRESHOLD * 4][];
+    for (int i = 0; i < Metadata.INDEX_THRESHOLD * 2; i++) {
+      namesAndValues[i * 2] = ("name-" + (i % 20)).getBytes(US_ASCII);
+      namesAndValues[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    Metadata h = new Metadata(namesAndValues);
+
+    assertEquals("value-" + (Metadata.INDEX_THRESHOLD * 2 - 1), h.get(stringKey("name-11")));
+    assertEquals("value-19", h.get(stringKey("name-19")));
+    assertEquals(
+        Arrays.asList("value-1", "value-21"), Lists.newArrayList(h.getAll(stringKey("name-1"))));
+    h.put(stringKey("name-19"), "put");
+    assertEquals("put", h.get(stringKey("name-19")));
+  }
+
+  @Test
+  public void concurrentIndexedReads() throws Exception {
+    final int headers = Metadata.INDEX_THRESHOLD * 2;
+    byte[][] namesAndValues = new byte[headers * 2][];
+    for (int i = 0; i < headers; i++) {
+      namesAndValues[i * 2] = ("name-" + i).getBytes(US_ASCII);
+      namesAndValues[i * 2 + 1] = ("value-" + i).getBytes(US_ASCII);
+    }
+    // Reads must not build anything lazily, or readers racing on a fresh instance could see a
+    // half-filled index and miss headers that are present
+    final Metadata h = new Metadata(namesAndValues);
+    final CountDownLatch start = new CountDownLatch(1);
+    final AtomicInteger misses = new AtomicInteger();
+    Thread[] readers = new Thread[4];
+    for (int t = 0; t < readers.length; t++) {
+      readers[t] = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            start.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+          }
+          for (int i = 0; i < headers; i++) {
+            if (h.get(stringKey("name-" + i)) == null) {
+              misses.incrementAndGet();
+            }
+          }
+        }
+      });
+      readers[t].start();
+    }
+    start.countDown();
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(0, misses.get());
+  }
+
+  private static Metadata.Key<String> stringKey(String name) {
+    return Metadata.Key.of(name, Metadata.ASCII_STRING_MARSHALLER);
+  }
+
   @Test
   public void partialSerialization() {
     Metadata h = new Metadata(KEY.asciiName(), LANCE_BYTES);
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.benchmarks.qps.AsyncServer;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Benchmark for tiny unary calls made through the blocking stub, over the in-process transport so
+ * that the stub's own overhead dominates. Run with {@code -prof gc} and compare {@code
+ * gc.alloc.rate.norm} of {@link #blockingUnaryCall} against {@link #futureUnaryCall}, which goes
+ * through the {@code ListenableFuture} machinery.
+ */
+@State(Scope.Thread)
+public class BlockingUnaryCallBenchmark {
+  private static final SimpleRequest REQUEST = SimpleRequest.getDefaultInstance();
+
+  private Server server;
+  private ManagedChannel channel;
+  private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub blockingStub;
+  private BenchmarkServiceGrpc.BenchmarkServiceFutureStub futureStub;
+
+  /** Setup. */
+  @Setup
+  public void setUp() throws Exception {
+    String name = "bench" + Math.random();
+    server = InProcessServerBuilder.forName(name)
+        .directExecutor()
+        .addService(new AsyncServer.BenchmarkServiceImpl())
+        .build()
+        .start();
+    channel = InProcessChannelBuilder.forName(name).build();
+    blockingStub = BenchmarkServiceGrpc.newBlockingStub(channel);
+    futureStub =
+        BenchmarkServiceGrpc.newFutureStub(channel).withExecutor(MoreExecutors.directExecutor());
+    // Wait for channel to start
+    blockingStub.unaryCall(REQUEST);
+  }
+
+  /** Teardown. */
+  @TearDown
+  public void tearDown() throws Exception {
+    channel.shutdownNow();
+    server.shutdownNow();
+    channel.awaitTermination(1, TimeUnit.SECONDS);
+    server.awaitTermination(1, TimeUnit.SECONDS);
+  }
+
+  /** A blocking stub call, which runs callbacks on the calling thread. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public SimpleResponse blockingUnaryCall() {
+    return blockingStub.unaryCall(REQUEST);
+  }
+
+  /** The same call made with the future stub and waited on. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public SimpleResponse futureUnaryCall() throws ExecutionException, InterruptedException {
+    return futureStub.unaryCall(REQUEST).get();
+  }
+}
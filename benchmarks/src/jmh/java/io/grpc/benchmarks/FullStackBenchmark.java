@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import io.grpc.ChannelCredentials;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.Metadata;
+import io.grpc.Server;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerCredentials;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerInterceptors;
+import io.grpc.TlsChannelCredentials;
+import io.grpc.TlsServerCredentials;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.benchmarks.qps.AsyncServer;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.netty.NettyChannelBuilder;
+import io.grpc.netty.NettyServerBuilder;
+import io.grpc.okhttp.OkHttpChannelBuilder;
+import io.grpc.okhttp.OkHttpServerBuilder;
+import io.grpc.testing.TlsTesting;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Unary calls through the whole stack, from stub to service, for every combination of transport,
+ * TLS, gzip and message size. Both the request and the response carry a payload of {@link
+ * #messageSize} bytes. {@link #unaryCallLatency} reports the latency percentiles, including p99,
+ * and {@link #unaryCallThroughput} the calls per second. Run with {@code -prof gc} ({@code
+ * -PjmhProfilers=gc} with Gradle) to also report {@code gc.alloc.rate.norm}, the bytes allocated
+ * per call.
+ *
+ * <p>The in-process transport has no wire, so it ignores {@link #tls} and does not compress. The
+ * payloads are zero-filled, which is the best case for gzip.
+ */
+@State(Scope.Benchmark)
+public class FullStackBenchmark {
+  public enum Transport {
+    INPROCESS, NETTY_NIO, NETTY_EPOLL, OKHTTP
+  }
+
+  private static final String AUTHORITY = "foo.test.google.fr";
+
+  @Param({"INPROCESS", "NETTY_NIO", "NETTY_EPOLL", "OKHTTP"})
+  public Transport transport;
+  @Param({"false", "true"})
+  public boolean tls;
+  @Param({"false", "true"})
+  public boolean gzip;
+  @Param({"10", "1024", "65536", "1048576", "16777216"})
+  public int messageSize;
+
+  private ManagedChannel channel;
+  private Server server;
+  private BenchmarkServiceGrpc.BenchmarkServiceBlockingStub stub;
+  private SimpleRequest request;
+  private EventLoopGroup groupToShutdown;
+
+  @Setup
+  public void setUp() throws Exception {
+    ServerCredentials serverCreds;
+    ChannelCredentials channelCreds;
+    if (tls) {
+      try (InputStream cert = TlsTesting.loadCert("server1.pem");
+          InputStream key = TlsTesting.loadCert("server1.key");
+          InputStream ca = TlsTesting.loadCert("ca.pem")) {
+        serverCreds = TlsServerCredentials.create(cert, key);
+        channelCreds = TlsChannelCredentials.newBuilder().trustManager(ca).build();
+      }
+    } else {
+      serverCreds = InsecureServerCredentials.create();
+      channelCreds = InsecureChannelCredentials.create();
+    }
+    InetSocketAddress address = new InetSocketAddress("localhost", 0);
+    String inProcessName = "bench" + Math.random();
+    ServerBuilder<?> serverBuilder;
+    switch (transport) {
+      case INPROCESS:
+        serverBuilder = InProcessServerBuilder.forName(inProcessName);
+        break;
+      case NETTY_NIO:
+        groupToShutdown = new NioEventLoopGroup();
+        serverBuilder = NettyServerBuilder.forAddress(address, serverCreds)
+            .bossEventLoopGroup(groupToShutdown)
+            .workerEventLoopGroup(groupToShutdown)
+            .channelType(NioServerSocketChannel.class);
+        break;
+      case NETTY_EPOLL:
+        groupToShutdown = new EpollEventLoopGroup();
+        serverBuilder = NettyServerBuilder.forAddress(address, serverCreds)
+            .bossEventLoopGroup(groupToShutdown)
+            .workerEventLoopGroup(groupToShutdown)
+            .channelType(EpollServerSocketChannel.class);
+        break;
+      case OKHTTP:
+        serverBuilder = OkHttpServerBuilder.forPort(address, serverCreds);
+        break;
+      default:
+        throw new Exception("Unknown transport: " + transport);
+    }
+    ServerInterceptor compression = new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        call.setCompression("gzip");
+        return next.startCall(call, headers);
+      }
+    };
+    server = serverBuilder
+        .addService(gzip
+            ? ServerInterceptors.intercept(new AsyncServer.BenchmarkServiceImpl(), compression)
+            : new AsyncServer.BenchmarkServiceImpl().bindService())
+        .maxInboundMessageSize(Integer.MAX_VALUE)
+        .build()
+        .start();
+
+    ManagedChannelBuilder<?> channelBuilder;
+    switch (transport) {
+      case INPROCESS:
+        channelBuilder = InProcessChannelBuilder.forName(inProcessName);
+        break;
+      case NETTY_NIO:
+        channelBuilder =
+            NettyChannelBuilder.forAddress("localhost", server.getPort(), channelCreds)
+                .eventLoopGroup(groupToShutdown)
+                .channelType(NioSocketChannel.class);
+        break;
+      case NETTY_EPOLL:
+        channelBuilder =
+            NettyChannelBuilder.forAddress("localhost", server.getPort(), channelCreds)
+                .eventLoopGroup(groupToShutdown)
+                .channelType(EpollSocketChannel.class);
+        break;
+      case OKHTTP:
+        channelBuilder =
+            OkHttpChannelBuilder.forAddress("localhost", server.getPort(), channelCreds);
+        break;
+      default:
+        throw new Exception("Unknown transport: " + transport);
+    }
+    if (tls) {
+      channelBuilder.overrideAuthority(AUTHORITY);
+    }
+    channel = channelBuilder.maxInboundMessageSize(Integer.MAX_VALUE).build();
+    stub = BenchmarkServiceGrpc.newBlockingStub(channel);
+    if (gzip) {
+      stub = stub.withCompression("gzip");
+    }
+    request = Utils.makeRequest(Messages.PayloadType.COMPRESSABLE, messageSize, messageSize);
+    // Wait for channel to start
+    stub.unaryCall(SimpleRequest.getDefaultInstance());
+  }
+
+  @TearDown
+  public void tearDown() throws Exception {
+    channel.shutdown();
+    server.shutdown();
+    channel.awaitTermination(1, TimeUnit.SECONDS);
+    server.awaitTermination(1, TimeUnit.SECONDS);
+    if (!channel.isTerminated()) {
+      throw new Exception("failed to shut down channel");
+    }
+    if (!server.isTerminated()) {
+      throw new Exception("failed to shut down server");
+    }
+    if (groupToShutdown != null) {
+      Future<?> unused = groupToShutdown.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+      groupToShutdown.awaitTermination(1, TimeUnit.SECONDS);
+      if (!groupToShutdown.isTerminated()) {
+        throw new Exception("failed to shut down event loop group.");
+      }
+      groupToShutdown = null;
+    }
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public SimpleResponse unaryCallLatency() {
+    return stub.unaryCall(request);
+  }
+
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  public SimpleResponse unaryCallThroughput() {
+    return stub.unaryCall(request);
+  }
+}
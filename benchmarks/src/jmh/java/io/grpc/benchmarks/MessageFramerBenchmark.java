@@ -0,0 +1,264 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import io.grpc.Drainable;
+import io.grpc.HasByteBuffer;
+import io.grpc.KnownLength;
+import io.grpc.internal.MessageFramer;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.WritableBuffer;
+import io.grpc.internal.WritableBufferAllocator;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark for framing large known-length messages with {@link MessageFramer}.
+ *
+ * <p>The counters report how many bytes were copied into transport buffers and how many were
+ * copied into intermediate arrays on the way there; divide them by the op count for a per-message
+ * figure. Run with {@code -prof gc} to see the allocation rate per message.
+ */
+@State(Scope.Thread)
+public class MessageFramerBenchmark {
+  /** How the message exposes its serialized content to the framer. */
+  public enum MessageSource {
+    /** A heap array drained through {@link Drainable}. */
+    DRAINABLE,
+    /** A direct buffer read through {@link InputStream#read(byte[], int, int)}. */
+    STREAM,
+    /** A direct buffer exposed through {@link HasByteBuffer}. */
+    BYTE_BUFFER
+  }
+
+  @Param({"1024", "1048576", "16777216"})
+  public int messageSize;
+
+  @Param({"DRAINABLE", "STREAM", "BYTE_BUFFER"})
+  public MessageSource source;
+
+  private byte[] heapContent;
+  private ByteBuffer directContent;
+  private PooledAllocator allocator;
+  private MessageFramer framer;
+  private Counters counters;
+
+  /** Copy counters, reset every iteration. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.EVENTS)
+  public static class Counters {
+    public long transportBytesCopied;
+    public long intermediateBytesCopied;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+      transportBytesCopied = 0;
+      intermediateBytesCopied = 0;
+    }
+  }
+
+  /** Setup. */
+  @Setup(Level.Trial)
+  public void setUp() {
+    heapContent = new byte[messageSize];
+    directContent = ByteBuffer.allocateDirect(messageSize);
+    directContent.put(heapContent).flip();
+    allocator = new PooledAllocator();
+    framer = new MessageFramer(new MessageFramer.Sink() {
+      @Override
+      public void deliverFrame(
+          WritableBuffer frame, boolean endOfStream, boolean flush, int numMessages) {
+        if (frame != null) {
+          frame.release();
+        }
+      }
+    }, allocator, StatsTraceContext.NOOP);
+  }
+
+  /** Frame and flush a single message. */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public void writePayload(Counters counters) {
+    this.counters = counters;
+    InputStream message;
+    switch (source) {
+      case DRAINABLE:
+        message = new DrainableMessage(heapContent);
+        break;
+      case STREAM:
+        message = new DirectMessage(directContent.duplicate(), false);
+        break;
+      case BYTE_BUFFER:
+        message = new DirectMessage(directContent.duplicate(), true);
+        break;
+      default:
+        throw new AssertionError();
+    }
+    framer.writePayload(message);
+    framer.flush();
+  }
+
+  private final class DrainableMessage extends InputStream implements KnownLength, Drainable {
+    private final byte[] content;
+    private boolean drained;
+
+    DrainableMessage(byte[] content) {
+      this.content = content;
+    }
+
+    @Override
+    public int drainTo(OutputStream target) throws IOException {
+      target.write(content, 0, content.length);
+      drained = true;
+      return content.length;
+    }
+
+    @Override
+    public int read() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int available() {
+      return drained ? 0 : content.length;
+    }
+  }
+
+  private final class DirectMessage extends InputStream implements KnownLength, HasByteBuffer {
+    private final ByteBuffer content;
+    private final boolean byteBufferSupported;
+
+    DirectMessage(ByteBuffer content, boolean byteBufferSupported) {
+      this.content = content;
+      this.byteBufferSupported = byteBufferSupported;
+    }
+
+    @Override
+    public int read() {
+      return content.hasRemaining() ? content.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!content.hasRemaining()) {
+        return -1;
+      }
+      int length = Math.min(len, content.remaining());
+      content.get(b, off, length);
+      counters.intermediateBytesCopied += length;
+      return length;
+    }
+
+    @Override
+    public long skip(long n) {
+      int length = (int) Math.min(n, content.remaining());
+      content.position(content.position() + length);
+      return length;
+    }
+
+    @Override
+    public int available() {
+      return content.remaining();
+    }
+
+    @Override
+    public boolean byteBufferSupported() {
+      return byteBufferSupported;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return content.hasRemaining() ? content.duplicate() : null;
+    }
+  }
+
+  /**
+   * Hands out reusable direct buffers capped at 1 MiB, like the Netty transport's allocator, so
+   * that only the framer's own allocations show up in the GC profile.
+   */
+  private final class PooledAllocator implements WritableBufferAllocator {
+    private static final int MAX_BUFFER = 1024 * 1024;
+    private final ArrayDeque<ByteBuffer> pool = new ArrayDeque<>();
+
+    @Override
+    public WritableBuffer allocate(int capacityHint) {
+      ByteBuffer buffer = pool.poll();
+      if (buffer == null) {
+        buffer = ByteBuffer.allocateDirect(MAX_BUFFER);
+      }
+      buffer.clear();
+      buffer.limit(Math.max(4096, Math.min(capacityHint, MAX_BUFFER)));
+      return new PooledBuffer(buffer);
+    }
+
+    private final class PooledBuffer implements WritableBuffer {
+      private final ByteBuffer buffer;
+
+      PooledBuffer(ByteBuffer buffer) {
+        this.buffer = buffer;
+      }
+
+      @Override
+      public void write(byte[] src, int srcIndex, int length) {
+        buffer.put(src, srcIndex, length);
+        counters.transportBytesCopied += length;
+      }
+
+      @Override
+      public void write(ByteBuffer src) {
+        counters.transportBytesCopied += src.remaining();
+        buffer.put(src);
+      }
+
+      @Override
+      public void write(byte b) {
+        buffer.put(b);
+        counters.transportBytesCopied++;
+      }
+
+      @Override
+      public int writableBytes() {
+        return buffer.remaining();
+      }
+
+      @Override
+      public int readableBytes() {
+        return buffer.position();
+      }
+
+      @Override
+      public void release() {
+        pool.add(buffer);
+      }
+    }
+  }
+}
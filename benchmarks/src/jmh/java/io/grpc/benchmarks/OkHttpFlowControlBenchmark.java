@@ -0,0 +1,231 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import static io.grpc.benchmarks.Utils.pickUnusedPort;
+
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.InsecureServerCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.Server;
+import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
+import io.grpc.benchmarks.proto.Messages.SimpleRequest;
+import io.grpc.benchmarks.proto.Messages.SimpleResponse;
+import io.grpc.benchmarks.qps.AsyncServer;
+import io.grpc.okhttp.OkHttpChannelBuilder;
+import io.grpc.okhttp.OkHttpServerBuilder;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Streaming throughput of the OkHttp transport over a link with injected latency, with and without
+ * BDP-based flow control window tuning. Without tuning a stream is capped at window / RTT; the
+ * results are in KiB per second.
+ */
+@State(Scope.Benchmark)
+public class OkHttpFlowControlBenchmark {
+  private static final int RESPONSE_SIZE = 16 * 1024;
+
+  @Param({"10", "50"})
+  public int rttMillis;
+  @Param({"true", "false"})
+  public boolean autoFlowControl;
+
+  private LatencyInjectingProxy proxy;
+  private Server server;
+  private ManagedChannel channel;
+  private Iterator<SimpleResponse> responses;
+  private CancellableInterceptor cancellableInterceptor;
+
+  /** Setup. */
+  @Setup
+  public void setUp() throws Exception {
+    int serverPort = pickUnusedPort();
+    OkHttpServerBuilder serverBuilder =
+        OkHttpServerBuilder.forPort(serverPort, InsecureServerCredentials.create());
+    if (autoFlowControl) {
+      serverBuilder.initialFlowControlWindow(OkHttpChannelBuilder.DEFAULT_FLOW_CONTROL_WINDOW);
+    }
+    server = serverBuilder
+        .addService(new AsyncServer.BenchmarkServiceImpl())
+        .build()
+        .start();
+
+    proxy = new LatencyInjectingProxy(serverPort, TimeUnit.MILLISECONDS.toNanos(rttMillis) / 2);
+    OkHttpChannelBuilder channelBuilder = OkHttpChannelBuilder
+        .forAddress("localhost", proxy.getPort(), InsecureChannelCredentials.create());
+    if (autoFlowControl) {
+      channelBuilder.initialFlowControlWindow(OkHttpChannelBuilder.DEFAULT_FLOW_CONTROL_WINDOW);
+    }
+    channel = channelBuilder.build();
+
+    cancellableInterceptor = new CancellableInterceptor();
+    responses = BenchmarkServiceGrpc.newBlockingStub(channel)
+        .withInterceptors(cancellableInterceptor)
+        .streamingFromServer(SimpleRequest.newBuilder().setResponseSize(RESPONSE_SIZE).build());
+  }
+
+  /** Teardown. */
+  @TearDown
+  public void tearDown() throws Exception {
+    cancellableInterceptor.cancel("Normal tear-down", null);
+    try {
+      while (responses.hasNext()) {
+        responses.next();
+      }
+    } catch (RuntimeException expected) {
+      // Cancelled
+    }
+    channel.shutdownNow();
+    server.shutdownNow();
+    channel.awaitTermination(5, TimeUnit.SECONDS);
+    server.awaitTermination(5, TimeUnit.SECONDS);
+    proxy.close();
+  }
+
+  /** Receives one 16 KiB message of a server stream. */
+  @Benchmark
+  @BenchmarkMode(Mode.Throughput)
+  @OutputTimeUnit(TimeUnit.SECONDS)
+  @OperationsPerInvocation(RESPONSE_SIZE / 1024)
+  public SimpleResponse serverStreamingThroughput() {
+    return responses.next();
+  }
+
+  /**
+   * A TCP proxy that delays the bytes going through it by a fixed amount in each direction, without
+   * limiting bandwidth.
+   */
+  private static final class LatencyInjectingProxy {
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private final ServerSocket serverSocket;
+    private final int targetPort;
+    private final long delayNanos;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    LatencyInjectingProxy(int targetPort, long delayNanos) throws IOException {
+      this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+      this.targetPort = targetPort;
+      this.delayNanos = delayNanos;
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          acceptLoop();
+        }
+      });
+    }
+
+    int getPort() {
+      return serverSocket.getLocalPort();
+    }
+
+    private void acceptLoop() {
+      try {
+        while (true) {
+          Socket client = serverSocket.accept();
+          Socket target = new Socket(InetAddress.getLoopbackAddress(), targetPort);
+          client.setTcpNoDelay(true);
+          target.setTcpNoDelay(true);
+          pipe(client, target);
+          pipe(target, client);
+        }
+      } catch (IOException e) {
+        // Closed
+      }
+    }
+
+    private void pipe(final Socket from, final Socket to) {
+      final BlockingQueue<Chunk> queue = new LinkedBlockingQueue<>();
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          byte[] buf = new byte[CHUNK_SIZE];
+          try (InputStream in = from.getInputStream()) {
+            int read;
+            while ((read = in.read(buf)) != -1) {
+              queue.add(new Chunk(System.nanoTime() + delayNanos, Arrays.copyOf(buf, read)));
+            }
+          } catch (IOException e) {
+            // Closed
+          } finally {
+            queue.add(Chunk.EOF);
+          }
+        }
+      });
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
+          try (OutputStream out = to.getOutputStream()) {
+            while (true) {
+              Chunk chunk = queue.take();
+              if (chunk == Chunk.EOF) {
+                return;
+              }
+              long remaining;
+              while ((remaining = chunk.sendTime - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+              }
+              out.write(chunk.data);
+            }
+          } catch (IOException | InterruptedException e) {
+            // Closed
+          }
+        }
+      });
+    }
+
+    void close() throws IOException {
+      serverSocket.close();
+      executor.shutdownNow();
+    }
+
+    private static final class Chunk {
+      static final Chunk EOF = new Chunk(0, new byte[0]);
+
+      final long sendTime;
+      final byte[] data;
+
+      Chunk(long sendTime, byte[] data) {
+        this.sendTime = sendTime;
+        this.data = data;
+      }
+    }
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The intended start times of the RPCs of an open-loop load, which arrive at a fixed average rate
+ * regardless of how fast the server responds.
+ *
+ * <p>Latencies should be measured from the intended start time rather than from when the RPC was
+ * actually sent. A client that falls behind its schedule, for example because the server stalled,
+ * otherwise sends the delayed RPCs late and records them as fast, hiding the stall. This is known
+ * as coordinated omission.
+ *
+ * <p>Not thread-safe; each sending thread or stream should have its own schedule.
+ */
+public final class ArrivalSchedule {
+  /** How the intervals between arrivals are distributed. */
+  public enum Distribution {
+    /** Exponentially distributed intervals, as for independent users. */
+    POISSON,
+    /** Equal intervals. */
+    CONSTANT
+  }
+
+  private static final double MIN_UNIFORM = Math.nextUp(0d);
+
+  private final Distribution distribution;
+  private final double meanIntervalNanos;
+  private final Random random;
+  private final long originNanos;
+  // Kept unrounded and relative to the origin, so that rounding to whole nanoseconds does not
+  // accumulate and shift the rate.
+  private double nextOffsetNanos;
+  private long arrivals;
+
+  /**
+   * Creates a schedule whose first arrival is now.
+   *
+   * @param ratePerSecond the average number of arrivals per second
+   */
+  public ArrivalSchedule(Distribution distribution, double ratePerSecond) {
+    this(distribution, ratePerSecond, new Random(), System.nanoTime());
+  }
+
+  @VisibleForTesting
+  ArrivalSchedule(
+      Distribution distribution, double ratePerSecond, Random random, long originNanos) {
+    checkArgument(ratePerSecond > 0, "ratePerSecond must be positive");
+    this.distribution = checkNotNull(distribution, "distribution");
+    this.meanIntervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+    this.random = checkNotNull(random, "random");
+    this.originNanos = originNanos;
+  }
+
+  /**
+   * Returns the intended start time of the next RPC, as a {@link System#nanoTime} value, without
+   * waiting for it. It may be in the past if the caller fell behind.
+   */
+  public long next() {
+    long start = originNanos + Math.round(nextOffsetNanos);
+    arrivals++;
+    nextOffsetNanos = offsetOfNextArrival();
+    return start;
+  }
+
+  /**
+   * Waits until the intended start time of the next RPC, and returns it. Returns immediately if
+   * the caller fell behind.
+   */
+  public long awaitNext() {
+    long start = next();
+    long remaining;
+    while ((remaining = start - System.nanoTime()) > 0) {
+      LockSupport.parkNanos(remaining);
+    }
+    return start;
+  }
+
+  private double offsetOfNextArrival() {
+    switch (distribution) {
+      case POISSON:
+        return nextOffsetNanos
+            - Math.log(Math.max(random.nextDouble(), MIN_UNIFORM)) * meanIntervalNanos;
+      case CONSTANT:
+        // Multiplied rather than summed, so floating-point error cannot build up either.
+        return arrivals * meanIntervalNanos;
+      default:
+        throw new AssertionError(distribution);
+    }
+  }
+}
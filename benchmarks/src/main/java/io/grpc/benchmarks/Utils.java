@@ -34,6 +34,8 @@ import io.grpc.benchmarks.proto.Messages.SimpleResponse;
 import io.grpc.netty.NettyChannelBuilder;
 import io.grpc.okhttp.OkHttpChannelBuilder;
 import io.grpc.testing.TlsTesting;
+import io.netty.channel.Channel;
+import io.netty.channel.EventLoopGroup;
 import io.netty.channel.epoll.EpollDomainSocketChannel;
 import io.netty.channel.epoll.EpollEventLoopGroup;
 import io.netty.channel.epoll.EpollSocketChannel;
@@ -52,6 +54,7 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory;
 import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 import javax.annotation.Nullable;
 import org.HdrHistogram.Histogram;
@@ -140,6 +143,24 @@ public final class Utils {
             .channelType(EpollSocketChannel.class);
         break;
 
+      case NETTY_IO_URING:
+        try {
+          // These classes are only available with the incubator transport.
+          Class<?> groupClass =
+              Class.forName("io.netty.incubator.channel.uring.IOUringEventLoopGroup");
+          Class<? extends Channel> channelClass =
+              Class.forName("io.netty.incubator.channel.uring.IOUringSocketChannel")
+                  .asSubclass(Channel.class);
+          builder
+              .eventLoopGroup((EventLoopGroup) groupClass
+                  .getConstructor(int.class, ThreadFactory.class)
+                  .newInstance(0, tf))
+              .channelType(channelClass);
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+        break;
+
       case NETTY_UNIX_DOMAIN_SOCKET:
         // These classes only work on Linux.
         builder
@@ -23,6 +23,7 @@ import io.grpc.ClientCall;
 import io.grpc.ManagedChannel;
 import io.grpc.Metadata;
 import io.grpc.Status;
+import io.grpc.benchmarks.ArrivalSchedule;
 import io.grpc.benchmarks.Transport;
 import io.grpc.benchmarks.Utils;
 import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
@@ -36,20 +37,23 @@ import io.netty.buffer.ByteBuf;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.channel.epoll.Epoll;
 import io.netty.util.concurrent.DefaultThreadFactory;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
 import java.lang.management.ManagementFactory;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
 import org.HdrHistogram.LogarithmicIterator;
 import org.HdrHistogram.Recorder;
-import org.apache.commons.math3.distribution.ExponentialDistribution;
 
 /**
  * Implements the client-side contract for the load testing scenarios.
@@ -60,7 +64,13 @@ class LoadClient {
   private ByteBuf genericRequest;
 
   private final Control.ClientConfig config;
-  private final ExponentialDistribution distribution;
+  private final ArrivalSchedule.Distribution arrival;
+  // Offered load of each worker thread for open-loop scenarios, 0 for closed-loop ones
+  private final double workerOfferedLoad;
+  @Nullable
+  private final ScheduledExecutorService pingScheduler;
+  @Nullable
+  private final HistogramLogWriter histogramLog;
   private volatile boolean shutdown;
   private final int threadCount;
 
@@ -74,8 +84,22 @@ class LoadClient {
   private long lastMarkCpuTime;
 
   LoadClient(Control.ClientConfig config) throws Exception {
+    this(config, ArrivalSchedule.Distribution.POISSON, null);
+  }
+
+  /**
+   * Creates a client.
+   *
+   * @param arrival how the RPCs of open-loop scenarios are spread over time
+   * @param histogramLogFile if not {@code null}, where to write the latency histogram of every
+   *     interval between two calls to {@link #getStats}, in HdrHistogram log format
+   */
+  LoadClient(
+      Control.ClientConfig config, ArrivalSchedule.Distribution arrival,
+      @Nullable String histogramLogFile) throws Exception {
     log.log(Level.INFO, "Client Config \n" + config.toString());
     this.config = config;
+    this.arrival = arrival;
     // Create the channels
     channels = new ManagedChannel[config.getClientChannels()];
     for (int i = 0; i < config.getClientChannels(); i++) {
@@ -120,19 +144,25 @@ class LoadClient {
     // Create the load distribution
     switch (config.getLoadParams().getLoadCase()) {
       case CLOSED_LOOP:
-        distribution = null;
+        workerOfferedLoad = 0;
         break;
       case LOAD_NOT_SET:
-        distribution = null;
+        workerOfferedLoad = 0;
         break;
       case POISSON:
-        // Mean of exp distribution per thread is <no threads> / <offered load per second>
-        distribution = new ExponentialDistribution(
-            threadCount / config.getLoadParams().getPoisson().getOfferedLoad());
+        // The offered load is for the whole client, so it is split among the threads
+        workerOfferedLoad = config.getLoadParams().getPoisson().getOfferedLoad() / threadCount;
         break;
       default:
         throw new IllegalArgumentException("Scenario not implemented");
     }
+    if (workerOfferedLoad > 0 && config.getRpcType() == Control.RpcType.STREAMING) {
+      // Sends the pings that are not due yet when the previous pong arrives
+      pingScheduler = Executors.newSingleThreadScheduledExecutor(
+          new DefaultThreadFactory("client-ping-scheduler", true));
+    } else {
+      pingScheduler = null;
+    }
 
     // Create payloads
     switch (config.getPayloadConfig().getPayloadCase()) {
@@ -166,6 +196,21 @@ class LoadClient {
 
     // Create the histogram recorder
     recorder = new Recorder((long) config.getHistogramParams().getMaxPossible(), 3);
+    if (histogramLogFile != null) {
+      histogramLog = newHistogramLog(histogramLogFile);
+    } else {
+      histogramLog = null;
+    }
+  }
+
+  private static HistogramLogWriter newHistogramLog(String file) throws FileNotFoundException {
+    HistogramLogWriter writer = new HistogramLogWriter(new PrintStream(file));
+    long now = System.currentTimeMillis();
+    writer.outputLogFormatVersion();
+    writer.outputStartTime(now);
+    writer.setBaseTime(now);
+    writer.outputLegend();
+    return writer;
   }
 
   /**
@@ -228,6 +273,9 @@ class LoadClient {
    */
   Stats.ClientStats getStats() {
     Histogram intervalHistogram = recorder.getIntervalHistogram();
+    if (histogramLog != null) {
+      histogramLog.outputIntervalHistogram(intervalHistogram);
+    }
 
     Stats.ClientStats.Builder statsBuilder = Stats.ClientStats.newBuilder();
     Stats.HistogramData.Builder latenciesBuilder = statsBuilder.getLatenciesBuilder();
@@ -281,25 +329,36 @@ class LoadClient {
       }
     }
     fixedThreadPool.shutdownNow();
+    if (pingScheduler != null) {
+      pingScheduler.shutdownNow();
+    }
+    if (histogramLog != null) {
+      histogramLog.close();
+    }
   }
 
   /**
-   * Record the event elapsed time to the histogram and delay initiation of the next event based
-   * on the load distribution.
+   * Record the event elapsed time to the histogram.
    */
-  void delay(long alreadyElapsed) {
-    recorder.recordValue(alreadyElapsed);
-    if (distribution != null) {
-      long nextPermitted = Math.round(distribution.sample() * 1000000000.0);
-      if (nextPermitted > alreadyElapsed) {
-        LockSupport.parkNanos(nextPermitted - alreadyElapsed);
-      }
+  void recordLatency(long elapsed) {
+    recorder.recordValue(elapsed);
+  }
+
+  /**
+   * Returns the arrival schedule for {@code rpcs} concurrent RPCs of a worker thread, or {@code
+   * null} for closed-loop scenarios.
+   */
+  @Nullable
+  private ArrivalSchedule newSchedule(int rpcs) {
+    if (workerOfferedLoad == 0) {
+      return null;
     }
+    return new ArrivalSchedule(arrival, workerOfferedLoad / rpcs);
   }
 
   /**
    * Worker which executes blocking unary calls. Event timing is the duration between sending the
-   * request and receiving the response.
+   * request, or when it was due in open-loop scenarios, and receiving the response.
    */
   class BlockingUnaryWorker implements Runnable {
     final BenchmarkServiceGrpc.BenchmarkServiceBlockingStub stub;
@@ -310,17 +369,18 @@ class LoadClient {
 
     @Override
     public void run() {
+      ArrivalSchedule schedule = newSchedule(1);
       while (!shutdown) {
-        long now = System.nanoTime();
+        long start = schedule != null ? schedule.awaitNext() : System.nanoTime();
         stub.unaryCall(simpleRequest);
-        delay(System.nanoTime() - now);
+        recordLatency(System.nanoTime() - start);
       }
     }
   }
 
   /**
    * Worker which executes async unary calls. Event timing is the duration between sending the
-   * request and receiving the response.
+   * request, or when it was due in open-loop scenarios, and receiving the response.
    */
   private class AsyncUnaryWorker implements Runnable {
     final BenchmarkServiceGrpc.BenchmarkServiceStub stub;
@@ -332,14 +392,17 @@ class LoadClient {
 
     @Override
     public void run() {
+      ArrivalSchedule schedule = newSchedule(1);
       while (true) {
+        // Time spent waiting for an outstanding RPC to finish counts towards open-loop latency
+        long due = schedule != null ? schedule.awaitNext() : 0;
         maxOutstanding.acquireUninterruptibly();
         if (shutdown) {
           maxOutstanding.release();
           return;
         }
+        final long start = schedule != null ? due : System.nanoTime();
         stub.unaryCall(simpleRequest, new StreamObserver<Messages.SimpleResponse>() {
-          long now = System.nanoTime();
           @Override
           public void onNext(Messages.SimpleResponse value) {
 
@@ -354,7 +417,7 @@ class LoadClient {
 
           @Override
           public void onCompleted() {
-            delay(System.nanoTime() - now);
+            recordLatency(System.nanoTime() - start);
             maxOutstanding.release();
           }
         });
@@ -362,9 +425,57 @@ class LoadClient {
     }
   }
 
+  /**
+   * Sends the pings of a streaming ping-pong call. In open-loop scenarios, a ping that is not due
+   * yet when the previous pong arrives is sent later from {@link #pingScheduler} rather than by
+   * blocking the thread delivering the pong.
+   */
+  private abstract class PingPacer {
+    @Nullable
+    private final ArrivalSchedule schedule = newSchedule(config.getOutstandingRpcsPerChannel());
+    private final Runnable sendPing = new Runnable() {
+      @Override
+      public void run() {
+        sendPing();
+      }
+    };
+    private long start;
+
+    /** Sends the first ping now. */
+    void start() {
+      start = schedule != null ? schedule.next() : System.nanoTime();
+      sendPing();
+    }
+
+    /** Records the latency of the ping that was answered and sends the next one when it is due. */
+    void pongReceived() {
+      long now = System.nanoTime();
+      recordLatency(now - start);
+      if (shutdown) {
+        finish();
+        return;
+      }
+      if (schedule == null) {
+        start = now;
+        sendPing();
+        return;
+      }
+      start = schedule.next();
+      if (start - now <= 0) {
+        sendPing();
+      } else {
+        pingScheduler.schedule(sendPing, start - now, TimeUnit.NANOSECONDS);
+      }
+    }
+
+    abstract void sendPing();
+
+    abstract void finish();
+  }
+
   /**
    * Worker which executes a streaming ping-pong call. Event timing is the duration between
-   * sending the ping and receiving the pong.
+   * sending the ping, or when it was due in open-loop scenarios, and receiving the pong.
    */
   private class AsyncPingPongWorker implements Runnable {
     final BenchmarkServiceGrpc.BenchmarkServiceStub stub;
@@ -380,20 +491,27 @@ class LoadClient {
         maxOutstanding.acquireUninterruptibly();
         final AtomicReference<StreamObserver<Messages.SimpleRequest>> requestObserver =
             new AtomicReference<>();
+        final PingPacer pacer = new PingPacer() {
+          @Override
+          void sendPing() {
+            if (shutdown) {
+              finish();
+              return;
+            }
+            requestObserver.get().onNext(simpleRequest);
+          }
+
+          @Override
+          void finish() {
+            requestObserver.get().onCompleted();
+            // Must not send another request.
+          }
+        };
         requestObserver.set(stub.streamingCall(
             new StreamObserver<Messages.SimpleResponse>() {
-              long now = System.nanoTime();
-
               @Override
               public void onNext(Messages.SimpleResponse value) {
-                delay(System.nanoTime() - now);
-                if (shutdown) {
-                  requestObserver.get().onCompleted();
-                  // Must not send another request.
-                  return;
-                }
-                requestObserver.get().onNext(simpleRequest);
-                now = System.nanoTime();
+                pacer.pongReceived();
               }
 
               @Override
@@ -409,14 +527,14 @@ class LoadClient {
                 maxOutstanding.release();
               }
             }));
-        requestObserver.get().onNext(simpleRequest);
+        pacer.start();
       }
     }
   }
 
   /**
    * Worker which executes generic blocking unary calls. Event timing is the duration between
-   * sending the request and receiving the response.
+   * sending the request, or when it was due in open-loop scenarios, and receiving the response.
    */
   private class GenericBlockingUnaryWorker implements Runnable {
     final Channel channel;
@@ -427,20 +545,21 @@ class LoadClient {
 
     @Override
     public void run() {
-      long now;
+      ArrivalSchedule schedule = newSchedule(1);
+      long start;
       while (!shutdown) {
-        now = System.nanoTime();
+        start = schedule != null ? schedule.awaitNext() : System.nanoTime();
         ClientCalls.blockingUnaryCall(channel, LoadServer.GENERIC_UNARY_METHOD,
             CallOptions.DEFAULT,
             genericRequest.slice());
-        delay(System.nanoTime() - now);
+        recordLatency(System.nanoTime() - start);
       }
     }
   }
 
   /**
    * Worker which executes generic async unary calls. Event timing is the duration between
-   * sending the request and receiving the response.
+   * sending the request, or when it was due in open-loop scenarios, and receiving the response.
    */
   private class GenericAsyncUnaryWorker implements Runnable {
     final Channel channel;
@@ -452,18 +571,20 @@ class LoadClient {
 
     @Override
     public void run() {
+      ArrivalSchedule schedule = newSchedule(1);
       while (true) {
+        // Time spent waiting for an outstanding RPC to finish counts towards open-loop latency
+        long due = schedule != null ? schedule.awaitNext() : 0;
         maxOutstanding.acquireUninterruptibly();
         if (shutdown) {
           maxOutstanding.release();
           return;
         }
+        final long start = schedule != null ? due : System.nanoTime();
         ClientCalls.asyncUnaryCall(
             channel.newCall(LoadServer.GENERIC_UNARY_METHOD, CallOptions.DEFAULT),
             genericRequest.slice(),
             new StreamObserver<ByteBuf>() {
-              long now = System.nanoTime();
-
               @Override
               public void onNext(ByteBuf value) {
 
@@ -478,7 +599,7 @@ class LoadClient {
 
               @Override
               public void onCompleted() {
-                delay(System.nanoTime() - now);
+                recordLatency(System.nanoTime() - start);
                 maxOutstanding.release();
               }
             });
@@ -488,7 +609,7 @@ class LoadClient {
 
   /**
    * Worker which executes a streaming ping-pong call. Event timing is the duration between
-   * sending the ping and receiving the pong.
+   * sending the ping, or when it was due in open-loop scenarios, and receiving the pong.
    */
   private class GenericAsyncPingPongWorker implements Runnable {
     final Semaphore maxOutstanding = new Semaphore(config.getOutstandingRpcsPerChannel());
@@ -508,19 +629,26 @@ class LoadClient {
         }
         final ClientCall<ByteBuf, ByteBuf> call =
             channel.newCall(LoadServer.GENERIC_STREAMING_PING_PONG_METHOD, CallOptions.DEFAULT);
-        call.start(new ClientCall.Listener<ByteBuf>() {
-          long now = System.nanoTime();
-
+        final PingPacer pacer = new PingPacer() {
           @Override
-          public void onMessage(ByteBuf message) {
-            delay(System.nanoTime() - now);
+          void sendPing() {
             if (shutdown) {
-              call.cancel("Shutting down", null);
+              finish();
               return;
             }
             call.request(1);
             call.sendMessage(genericRequest.slice());
-            now = System.nanoTime();
+          }
+
+          @Override
+          void finish() {
+            call.cancel("Shutting down", null);
+          }
+        };
+        call.start(new ClientCall.Listener<ByteBuf>() {
+          @Override
+          public void onMessage(ByteBuf message) {
+            pacer.pongReceived();
           }
 
           @Override
@@ -532,8 +660,7 @@ class LoadClient {
             }
           }
         }, new Metadata());
-        call.request(1);
-        call.sendMessage(genericRequest.slice());
+        pacer.start();
       }
     }
   }
@@ -20,6 +20,7 @@ import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.grpc.InsecureServerCredentials;
 import io.grpc.Server;
 import io.grpc.Status;
+import io.grpc.benchmarks.ArrivalSchedule;
 import io.grpc.benchmarks.proto.Control;
 import io.grpc.benchmarks.proto.Control.ClientArgs;
 import io.grpc.benchmarks.proto.Control.ServerArgs;
@@ -31,6 +32,7 @@ import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 
 /**
  * A load worker process which a driver can use to create clients and servers. The worker
@@ -41,10 +43,21 @@ public class LoadWorker {
   private static final Logger log = Logger.getLogger(LoadWorker.class.getName());
 
   private final int serverPort;
+  private final ArrivalSchedule.Distribution arrival;
+  @Nullable
+  private final String histogramLogFile;
   private final Server driverServer;
 
   LoadWorker(int driverPort, int serverPort) throws Exception {
+    this(driverPort, serverPort, ArrivalSchedule.Distribution.POISSON, null);
+  }
+
+  LoadWorker(
+      int driverPort, int serverPort, ArrivalSchedule.Distribution arrival,
+      @Nullable String histogramLogFile) throws Exception {
     this.serverPort = serverPort;
+    this.arrival = arrival;
+    this.histogramLogFile = histogramLogFile;
     NioEventLoopGroup singleThreadGroup = new NioEventLoopGroup(1,
         new ThreadFactoryBuilder()
             .setDaemon(true)
@@ -70,6 +83,8 @@ public class LoadWorker {
     boolean usage = false;
     int serverPort = 0;
     int driverPort = 0;
+    ArrivalSchedule.Distribution arrival = ArrivalSchedule.Distribution.POISSON;
+    String histogramLogFile = null;
     for (String arg : args) {
       if (!arg.startsWith("--")) {
         System.err.println("All arguments must start with '--': " + arg);
@@ -92,6 +107,10 @@ public class LoadWorker {
         serverPort = Integer.valueOf(value);
       } else if ("driver_port".equals(key)) {
         driverPort = Integer.valueOf(value);
+      } else if ("arrival".equals(key)) {
+        arrival = ArrivalSchedule.Distribution.valueOf(value.toUpperCase());
+      } else if ("histogram_log".equals(key)) {
+        histogramLogFile = value;
       } else {
         System.err.println("Unknown argument: " + key);
         usage = true;
@@ -106,10 +125,17 @@ public class LoadWorker {
               + "\n    Port to expose grpc.testing.WorkerService, used by driver to initiate work."
               + "\n  --server_port=<port>"
               + "\n    Port to start load servers on, if not specified by the server config"
-              + "\n    message. Defaults to any available port.");
+              + "\n    message. Defaults to any available port."
+              + "\n  --arrival=<poisson|constant>"
+              + "\n    How the RPCs of open-loop (Poisson) client configs are spread over time."
+              + "\n    Defaults to poisson."
+              + "\n  --histogram_log=<file>"
+              + "\n    Write the client latencies of every interval between two stats requests"
+              + "\n    to file, in HdrHistogram log format.");
       System.exit(1);
     }
-    LoadWorker loadWorker = new LoadWorker(driverPort, serverPort);
+    LoadWorker loadWorker =
+        new LoadWorker(driverPort, serverPort, arrival, histogramLogFile);
     loadWorker.start();
     loadWorker.driverServer.awaitTermination();
     log.log(Level.INFO, "DriverServer has terminated.");
@@ -195,7 +221,7 @@ public class LoadWorker {
           try {
             ClientArgs.ArgtypeCase argTypeCase = value.getArgtypeCase();
             if (argTypeCase == ClientArgs.ArgtypeCase.SETUP && workerClient == null) {
-              workerClient = new LoadClient(value.getSetup());
+              workerClient = new LoadClient(value.getSetup(), arrival, histogramLogFile);
               workerClient.start();
               responseObserver.onNext(Control.ClientStatus.newBuilder().build());
             } else if (argTypeCase == ClientArgs.ArgtypeCase.MARK && workerClient != null) {
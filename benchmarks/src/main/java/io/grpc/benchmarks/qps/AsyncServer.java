@@ -124,6 +124,30 @@ public class AsyncServer {
           throw new RuntimeException(e);
         }
       }
+      case NETTY_IO_URING: {
+        try {
+          // These classes are only available with the incubator transport.
+          Class<?> groupClass =
+              Class.forName("io.netty.incubator.channel.uring.IOUringEventLoopGroup");
+          @SuppressWarnings("unchecked")
+          Class<? extends ServerChannel> channelClass = (Class<? extends ServerChannel>)
+              Class.forName("io.netty.incubator.channel.uring.IOUringServerSocketChannel");
+          boss =
+              (EventLoopGroup)
+                  groupClass
+                      .getConstructor(int.class, ThreadFactory.class)
+                      .newInstance(1, tf);
+          worker =
+              (EventLoopGroup)
+                  groupClass
+                      .getConstructor(int.class, ThreadFactory.class)
+                      .newInstance(0, tf);
+          channelType = channelClass;
+          break;
+        } catch (Exception e) {
+          throw new RuntimeException(e);
+        }
+      }
       case NETTY_UNIX_DOMAIN_SOCKET: {
         try {
           // These classes are only available on linux.
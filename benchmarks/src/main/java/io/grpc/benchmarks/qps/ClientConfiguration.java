@@ -21,6 +21,7 @@ import static java.lang.Integer.parseInt;
 import static java.util.Arrays.asList;
 
 import io.grpc.ManagedChannel;
+import io.grpc.benchmarks.ArrivalSchedule;
 import io.grpc.benchmarks.Transport;
 import io.grpc.benchmarks.Utils;
 import io.grpc.benchmarks.proto.Control.RpcType;
@@ -56,7 +57,9 @@ public class ClientConfiguration implements Configuration {
   // seconds
   int warmupDuration = 10;
   int targetQps;
+  ArrivalSchedule.Distribution arrival = ArrivalSchedule.Distribution.POISSON;
   String histogramFile;
+  String histogramLogFile;
   RpcType rpcType = RpcType.UNARY;
   PayloadType payloadType = PayloadType.COMPRESSABLE;
 
@@ -198,6 +201,20 @@ public class ClientConfiguration implements Configuration {
         config.histogramFile = value;
       }
     },
+    HISTOGRAM_LOG("FILE", "Write a histogram of the latencies of every second to file, in "
+        + "HdrHistogram log format.", null) {
+      @Override
+      protected void setClientValue(ClientConfiguration config, String value) {
+        config.histogramLogFile = value;
+      }
+    },
+    ARRIVAL("STR", "How the intervals between RPCs are distributed: poisson or constant.",
+        DEFAULT.arrival.name().toLowerCase()) {
+      @Override
+      protected void setClientValue(ClientConfiguration config, String value) {
+        config.arrival = ArrivalSchedule.Distribution.valueOf(value.toUpperCase());
+      }
+    },
     STREAMING_RPCS("", "Use Streaming RPCs.", "false") {
       @Override
       protected void setClientValue(ClientConfiguration config, String value) {
@@ -21,9 +21,11 @@ import static io.grpc.benchmarks.Utils.HISTOGRAM_MAX_VALUE;
 import static io.grpc.benchmarks.Utils.HISTOGRAM_PRECISION;
 import static io.grpc.benchmarks.Utils.saveHistogram;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.ADDRESS;
+import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.ARRIVAL;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.CLIENT_PAYLOAD;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.DURATION;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.FLOW_CONTROL_WINDOW;
+import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.HISTOGRAM_LOG;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.SAVE_HISTOGRAM;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.SERVER_PAYLOAD;
 import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.TARGET_QPS;
@@ -34,19 +36,27 @@ import static io.grpc.benchmarks.qps.ClientConfiguration.ClientParam.TRANSPORT;
 import io.grpc.Channel;
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
+import io.grpc.benchmarks.ArrivalSchedule;
 import io.grpc.benchmarks.proto.BenchmarkServiceGrpc;
 import io.grpc.benchmarks.proto.Messages.SimpleRequest;
 import io.grpc.benchmarks.proto.Messages.SimpleResponse;
 import io.grpc.stub.StreamObserver;
-import java.util.Random;
+import java.io.PrintStream;
 import java.util.concurrent.Callable;
-import org.HdrHistogram.AtomicHistogram;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.Nullable;
 import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
 
 /**
  * Tries to generate traffic that closely resembles user-generated RPC traffic. This is done using
  * a Poisson Process to average at a target QPS and the delays between calls are randomized using
- * an exponential variate.
+ * an exponential variate. Calls may also be sent at a constant rate instead.
+ *
+ * <p>Latencies are measured from when each call was due according to the schedule, so that they
+ * include the time the client spent catching up after falling behind.
  *
  * @see <a href="http://en.wikipedia.org/wiki/Poisson_process">Poisson Process</a>
  * @see <a href="http://en.wikipedia.org/wiki/Exponential_distribution">Exponential Distribution</a>
@@ -65,7 +75,7 @@ public class OpenLoopClient {
   public static void main(String... args) throws Exception {
     ClientConfiguration.Builder configBuilder = ClientConfiguration.newBuilder(
         ADDRESS, TARGET_QPS, CLIENT_PAYLOAD, SERVER_PAYLOAD, TLS,
-        TESTCA, TRANSPORT, DURATION, SAVE_HISTOGRAM, FLOW_CONTROL_WINDOW);
+        TESTCA, TRANSPORT, DURATION, SAVE_HISTOGRAM, FLOW_CONTROL_WINDOW, ARRIVAL, HISTOGRAM_LOG);
     ClientConfiguration config;
     try {
       config = configBuilder.build(args);
@@ -89,8 +99,17 @@ public class OpenLoopClient {
     config.directExecutor = true;
     ManagedChannel ch = config.newChannel();
     SimpleRequest req = config.newRequest();
-    LoadGenerationWorker worker =
-        new LoadGenerationWorker(ch, req, config.targetQps, config.duration);
+    HistogramLogWriter histogramLog = null;
+    if (config.histogramLogFile != null) {
+      histogramLog = new HistogramLogWriter(new PrintStream(config.histogramLogFile));
+      long now = System.currentTimeMillis();
+      histogramLog.outputLogFormatVersion();
+      histogramLog.outputStartTime(now);
+      histogramLog.setBaseTime(now);
+      histogramLog.outputLegend();
+    }
+    LoadGenerationWorker worker = new LoadGenerationWorker(
+        ch, req, config.targetQps, config.duration, config.arrival, histogramLog);
     final long start = System.nanoTime();
     Histogram histogram = worker.call();
     final long end = System.nanoTime();
@@ -98,6 +117,9 @@ public class OpenLoopClient {
     if (config.histogramFile != null) {
       saveHistogram(histogram, config.histogramFile);
     }
+    if (histogramLog != null) {
+      histogramLog.close();
+    }
     ch.shutdown();
   }
 
@@ -125,19 +147,27 @@ public class OpenLoopClient {
   }
 
   static class LoadGenerationWorker implements Callable<Histogram> {
-    final Histogram histogram = new AtomicHistogram(HISTOGRAM_MAX_VALUE, HISTOGRAM_PRECISION);
+    private static final long LOG_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    final Recorder recorder = new Recorder(HISTOGRAM_MAX_VALUE, HISTOGRAM_PRECISION);
+    final Histogram histogram = new Histogram(HISTOGRAM_MAX_VALUE, HISTOGRAM_PRECISION);
     final BenchmarkServiceGrpc.BenchmarkServiceStub stub;
     final SimpleRequest request;
-    final Random rnd;
-    final int targetQps;
+    final ArrivalSchedule schedule;
+    @Nullable
+    final HistogramLogWriter histogramLog;
     final long numRpcs;
+    final AtomicLong completedRpcs = new AtomicLong();
+    private Histogram intervalHistogram;
 
-    LoadGenerationWorker(Channel channel, SimpleRequest request, int targetQps, int duration) {
+    LoadGenerationWorker(
+        Channel channel, SimpleRequest request, int targetQps, int duration,
+        ArrivalSchedule.Distribution arrival, @Nullable HistogramLogWriter histogramLog) {
       stub = BenchmarkServiceGrpc.newStub(checkNotNull(channel, "channel"));
       this.request = checkNotNull(request, "request");
-      this.targetQps = targetQps;
+      this.schedule = new ArrivalSchedule(arrival, targetQps);
+      this.histogramLog = histogramLog;
       numRpcs = (long) targetQps * duration;
-      rnd = new Random();
     }
 
     /**
@@ -159,27 +189,40 @@ public class OpenLoopClient {
     @Override
     public Histogram call() throws Exception {
       long now = System.nanoTime();
-      long nextRpc = now;
+      long nextRpc = schedule.next();
+      long nextInterval = now + LOG_INTERVAL_NANOS;
       long i = 0;
       while (i < numRpcs) {
         now = System.nanoTime();
         if (nextRpc - now <= 0) {
           // TODO: Add option to print how far we have been off from the target delay in micros.
-          nextRpc += nextDelay(targetQps);
-          newRpc(stub);
+          newRpc(stub, nextRpc);
+          nextRpc = schedule.next();
           i++;
         }
+        if (nextInterval - now <= 0) {
+          nextInterval += LOG_INTERVAL_NANOS;
+          takeInterval();
+        }
       }
 
       waitForRpcsToComplete(1);
+      takeInterval();
 
       return histogram;
     }
 
-    private void newRpc(BenchmarkServiceGrpc.BenchmarkServiceStub stub) {
-      stub.unaryCall(request, new StreamObserver<SimpleResponse>() {
+    /** Adds the latencies recorded since the previous call to the total, and logs them. */
+    private void takeInterval() {
+      intervalHistogram = recorder.getIntervalHistogram(intervalHistogram);
+      histogram.add(intervalHistogram);
+      if (histogramLog != null) {
+        histogramLog.outputIntervalHistogram(intervalHistogram);
+      }
+    }
 
-        private final long start = System.nanoTime();
+    private void newRpc(BenchmarkServiceGrpc.BenchmarkServiceStub stub, final long start) {
+      stub.unaryCall(request, new StreamObserver<SimpleResponse>() {
 
         @Override
         public void onNext(SimpleResponse value) {
@@ -195,7 +238,8 @@ public class OpenLoopClient {
         @Override
         public void onCompleted() {
           final long end = System.nanoTime();
-          histogram.recordValue((end - start) / 1000);
+          recorder.recordValue((end - start) / 1000);
+          completedRpcs.incrementAndGet();
         }
       });
     }
@@ -203,17 +247,9 @@ public class OpenLoopClient {
     private void waitForRpcsToComplete(int duration) {
       long now = System.nanoTime();
       long end = now + duration * 1000 * 1000 * 1000;
-      while (histogram.getTotalCount() < numRpcs && end - now > 0) {
+      while (completedRpcs.get() < numRpcs && end - now > 0) {
         now = System.nanoTime();
       }
     }
-
-    private static final double DELAY_EPSILON = Math.nextUp(0d);
-
-    private long nextDelay(int targetQps) {
-      double seconds = -Math.log(Math.max(rnd.nextDouble(), DELAY_EPSILON)) / targetQps;
-      double nanos = seconds * 1000 * 1000 * 1000;
-      return Math.round(nanos);
-    }
   }
 }
@@ -94,6 +94,10 @@ class ServerConfiguration implements Configuration {
         + "OpenSSL be installed and configured as described in "
         + "http://netty.io/wiki/forked-tomcat-native.html. Only supported on Linux.",
         SocketAddressValidator.INET),
+    NETTY_IO_URING(true, "The Netty incubator io_uring transport. Requires "
+        + "netty-incubator-transport-native-io_uring on the classpath. Only supported on Linux "
+        + "5.9 and later.",
+        SocketAddressValidator.INET),
     NETTY_UNIX_DOMAIN_SOCKET(false, "The Netty Unix Domain Socket transport. This currently "
         + "does not support TLS.",
         SocketAddressValidator.UDS);
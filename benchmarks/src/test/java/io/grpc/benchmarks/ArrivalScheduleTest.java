@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.benchmarks;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.benchmarks.ArrivalSchedule.Distribution;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link ArrivalSchedule}.
+ */
+@RunWith(JUnit4.class)
+public class ArrivalScheduleTest {
+  private static final long ORIGIN_NANOS = 1234567L;
+
+  @Test
+  public void poissonIntervals_haveExpectedMean() {
+    int samples = 100000;
+    double meanIntervalNanos = TimeUnit.MILLISECONDS.toNanos(1);
+    ArrivalSchedule schedule =
+        new ArrivalSchedule(Distribution.POISSON, 1000, new Random(1), ORIGIN_NANOS);
+
+    assertEquals(ORIGIN_NANOS, schedule.next());
+    long previous = ORIGIN_NANOS;
+    double sum = 0;
+    double sumOfSquares = 0;
+    for (int i = 0; i < samples; i++) {
+      long start = schedule.next();
+      long interval = start - previous;
+      assertTrue(interval >= 0);
+      sum += interval;
+      sumOfSquares += (double) interval * interval;
+      previous = start;
+    }
+    double mean = sum / samples;
+    double stddev = Math.sqrt(sumOfSquares / samples - mean * mean);
+    // The standard error of the mean is 0.3% here; exponential intervals have stddev == mean.
+    assertEquals(meanIntervalNanos, mean, meanIntervalNanos * 0.01);
+    assertEquals(meanIntervalNanos, stddev, meanIntervalNanos * 0.02);
+  }
+
+  @Test
+  public void constantIntervals_doNotDrift() {
+    // One third of a second is not a whole number of nanoseconds, so rounding every interval
+    // would move the schedule by 1/3 ns per arrival.
+    ArrivalSchedule schedule =
+        new ArrivalSchedule(Distribution.CONSTANT, 3, new Random(), ORIGIN_NANOS);
+
+    for (long second = 0; second < 1000000; second++) {
+      assertEquals(ORIGIN_NANOS + TimeUnit.SECONDS.toNanos(second), schedule.next());
+      schedule.next();
+      schedule.next();
+    }
+    assertEquals(ORIGIN_NANOS + TimeUnit.SECONDS.toNanos(1000000), schedule.next());
+  }
+
+  @Test
+  public void awaitNext_whenBehind_keepsIntendedStartTimes() {
+    long intervalNanos = TimeUnit.MILLISECONDS.toNanos(10);
+    long origin = System.nanoTime() - TimeUnit.SECONDS.toNanos(10);
+    ArrivalSchedule schedule =
+        new ArrivalSchedule(Distribution.CONSTANT, 100, new Random(), origin);
+
+    // The caller is 10 seconds behind: arrivals are returned at once, at their intended times
+    // rather than at when they were awaited, so the time spent behind is counted in latency.
+    for (int i = 0; i < 100; i++) {
+      long start = schedule.awaitNext();
+      assertEquals(origin + i * intervalNanos, start);
+      assertTrue(start < System.nanoTime());
+    }
+  }
+}
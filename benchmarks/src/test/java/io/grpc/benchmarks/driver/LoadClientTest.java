@@ -58,16 +58,16 @@ public class LoadClientTest {
     config.addServerTargets("localhost:9999");
 
     loadClient = new LoadClient(config.build());
-    loadClient.delay(1);
-    loadClient.delay(10);
-    loadClient.delay(10);
-    loadClient.delay(100);
-    loadClient.delay(100);
-    loadClient.delay(100);
-    loadClient.delay(1000);
-    loadClient.delay(1000);
-    loadClient.delay(1000);
-    loadClient.delay(1000);
+    loadClient.recordLatency(1);
+    loadClient.recordLatency(10);
+    loadClient.recordLatency(10);
+    loadClient.recordLatency(100);
+    loadClient.recordLatency(100);
+    loadClient.recordLatency(100);
+    loadClient.recordLatency(1000);
+    loadClient.recordLatency(1000);
+    loadClient.recordLatency(1000);
+    loadClient.recordLatency(1000);
 
     Stats.ClientStats stats = loadClient.getStats();
 
@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientCall;
+import io.grpc.ClientInterceptor;
+import io.grpc.ExperimentalApi;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Chooses the message encoding of each method, for example to use a zstd dictionary trained on
+ * the messages of one service, LZ4 for the rest, and no compression for methods whose payloads are
+ * already compressed.
+ *
+ * <p>Each method has a list of encodings in order of preference, looked up by full method name,
+ * then by service name, then falling back to the defaults. Requests are compressed with the first
+ * encoding of the list, which the server must support. Responses are compressed with the first
+ * encoding of the list that the client advertised it accepts, or not at all if there is none.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
+public final class MethodCompression {
+  @VisibleForTesting
+  static final Metadata.Key<String> MESSAGE_ACCEPT_ENCODING_KEY =
+      Metadata.Key.of("grpc-accept-encoding", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Splitter ACCEPT_ENCODING_SPLITTER =
+      Splitter.on(',').trimResults().omitEmptyStrings();
+
+  private final ImmutableList<String> defaultEncodings;
+  private final ImmutableMap<String, ImmutableList<String>> encodings;
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private MethodCompression(Builder builder) {
+    defaultEncodings = builder.defaultEncodings;
+    encodings = ImmutableMap.copyOf(builder.encodings);
+  }
+
+  /** Returns the encodings of a method, most preferred first. */
+  @VisibleForTesting
+  List<String> getEncodings(String fullMethodName) {
+    ImmutableList<String> methodEncodings = encodings.get(fullMethodName);
+    if (methodEncodings == null) {
+      String serviceName = MethodDescriptor.extractFullServiceName(fullMethodName);
+      methodEncodings = serviceName == null ? null : encodings.get(serviceName);
+    }
+    return methodEncodings == null ? defaultEncodings : methodEncodings;
+  }
+
+  /**
+   * Returns an interceptor compressing the requests of each method with its most preferred
+   * encoding. Calls that already have a compressor set in their {@link CallOptions} keep it.
+   */
+  public ClientInterceptor newClientInterceptor() {
+    return new ClientInterceptor() {
+      @Override
+      public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+          MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        List<String> methodEncodings = getEncodings(method.getFullMethodName());
+        if (callOptions.getCompressor() == null && !methodEncodings.isEmpty()) {
+          callOptions = callOptions.withCompression(methodEncodings.get(0));
+        }
+        return next.newCall(method, callOptions);
+      }
+    };
+  }
+
+  /**
+   * Returns an interceptor compressing the responses of each method with its most preferred
+   * encoding that the client accepts. The encodings must be in the server's {@link
+   * io.grpc.CompressorRegistry}.
+   */
+  public ServerInterceptor newServerInterceptor() {
+    return new ServerInterceptor() {
+      @Override
+      public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+          ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+        String acceptEncoding = headers.get(MESSAGE_ACCEPT_ENCODING_KEY);
+        if (acceptEncoding != null) {
+          List<String> accepted = ACCEPT_ENCODING_SPLITTER.splitToList(acceptEncoding);
+          for (String encoding : getEncodings(call.getMethodDescriptor().getFullMethodName())) {
+            if (accepted.contains(encoding)) {
+              call.setCompression(encoding);
+              break;
+            }
+          }
+        }
+        return next.startCall(call, headers);
+      }
+    };
+  }
+
+  /** Builder for {@link MethodCompression}. */
+  public static final class Builder {
+    private ImmutableList<String> defaultEncodings = ImmutableList.of();
+    private final Map<String, ImmutableList<String>> encodings = new HashMap<>();
+
+    private Builder() {}
+
+    /**
+     * Sets the encodings of the methods that have none of their own. By default such methods are
+     * not compressed.
+     */
+    public Builder setDefaultEncodings(String... encodings) {
+      defaultEncodings = ImmutableList.copyOf(encodings);
+      return this;
+    }
+
+    /**
+     * Sets the encodings of a method or of all the methods of a service, most preferred first.
+     * Without encodings, the methods are not compressed.
+     *
+     * @param serviceOrMethod a fully qualified service name, or a full method name
+     */
+    public Builder setEncodings(String serviceOrMethod, String... encodings) {
+      checkArgument(!checkNotNull(serviceOrMethod, "serviceOrMethod").isEmpty(),
+          "Empty serviceOrMethod");
+      this.encodings.put(serviceOrMethod, ImmutableList.copyOf(encodings));
+      return this;
+    }
+
+    public MethodCompression build() {
+      return new MethodCompression(this);
+    }
+  }
+}
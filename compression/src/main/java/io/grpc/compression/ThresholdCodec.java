@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.Codec;
+import io.grpc.ExperimentalApi;
+import io.grpc.ThresholdCompressor;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A codec that sends messages smaller than a threshold uncompressed. Compressing small messages
+ * costs CPU for little or no saving on the wire. It otherwise behaves like, and has the same
+ * message encoding as, the codec it wraps, so it is registered in its place.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
+public final class ThresholdCodec implements Codec, ThresholdCompressor {
+  private final Codec delegate;
+  private final int minimumMessageSize;
+
+  /**
+   * Returns a codec compressing with {@code codec} only the messages of at least {@code
+   * minimumMessageSize} bytes.
+   */
+  public static ThresholdCodec wrap(Codec codec, int minimumMessageSize) {
+    checkArgument(minimumMessageSize >= 0, "minimumMessageSize must not be negative");
+    return new ThresholdCodec(checkNotNull(codec, "codec"), minimumMessageSize);
+  }
+
+  private ThresholdCodec(Codec delegate, int minimumMessageSize) {
+    this.delegate = delegate;
+    this.minimumMessageSize = minimumMessageSize;
+  }
+
+  @Override
+  public String getMessageEncoding() {
+    return delegate.getMessageEncoding();
+  }
+
+  @Override
+  public int getMinimumMessageSize() {
+    return minimumMessageSize;
+  }
+
+  @Override
+  public OutputStream compress(OutputStream os) throws IOException {
+    return delegate.compress(os);
+  }
+
+  @Override
+  public InputStream decompress(InputStream is) throws IOException {
+    return delegate.decompress(is);
+  }
+}
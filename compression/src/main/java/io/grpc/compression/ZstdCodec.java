@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.github.luben.zstd.RecyclingBufferPool;
+import com.github.luben.zstd.ZstdDictCompress;
+import com.github.luben.zstd.ZstdDictDecompress;
+import com.github.luben.zstd.ZstdInputStreamNoFinalizer;
+import com.github.luben.zstd.ZstdOutputStreamNoFinalizer;
+import io.grpc.Codec;
+import io.grpc.ExperimentalApi;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.regex.Pattern;
+import javax.annotation.Nullable;
+
+/**
+ * Compresses messages with Zstandard. Requires {@code com.github.luben:zstd-jni} on the
+ * classpath, which this module does not pull in.
+ *
+ * <p>Without a dictionary the message encoding is {@code "zstd"}. A codec built with a pre-shared
+ * dictionary uses the encoding {@code "zstd-<dictionary id>"}, so peers only select it when both
+ * have the same dictionary registered. Dictionaries greatly improve the ratio for small messages,
+ * which have too little content of their own to learn from.
+ *
+ * <p>Streams borrow their buffers from a shared pool, and the dictionaries are digested once when
+ * the codec is built.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1704")
+public final class ZstdCodec implements Codec {
+  public static final int DEFAULT_LEVEL = 3;
+
+  private static final Pattern DICTIONARY_ID = Pattern.compile("[A-Za-z0-9._]+");
+
+  private final String messageEncoding;
+  private final int level;
+  @Nullable
+  private final ZstdDictCompress compressDictionary;
+  @Nullable
+  private final ZstdDictDecompress decompressDictionary;
+
+  /** Creates a codec without a dictionary, at the default level. */
+  public static ZstdCodec create() {
+    return newBuilder().build();
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  private ZstdCodec(Builder builder) {
+    level = builder.level;
+    if (builder.dictionary != null) {
+      messageEncoding = "zstd-" + builder.dictionaryId;
+      compressDictionary = new ZstdDictCompress(builder.dictionary, level);
+      decompressDictionary = new ZstdDictDecompress(builder.dictionary);
+    } else {
+      messageEncoding = "zstd";
+      compressDictionary = null;
+      decompressDictionary = null;
+    }
+  }
+
+  @Override
+  public String getMessageEncoding() {
+    return messageEncoding;
+  }
+
+  @Override
+  public OutputStream compress(OutputStream os) throws IOException {
+    ZstdOutputStreamNoFinalizer out =
+        new ZstdOutputStreamNoFinalizer(os, RecyclingBufferPool.INSTANCE);
+    out.setLevel(level);
+    if (compressDictionary != null) {
+      out.setDict(compressDictionary);
+    }
+    return out;
+  }
+
+  @Override
+  public InputStream decompress(InputStream is) throws IOException {
+    ZstdInputStreamNoFinalizer in =
+        new ZstdInputStreamNoFinalizer(is, RecyclingBufferPool.INSTANCE);
+    if (decompressDictionary != null) {
+      in.setDict(decompressDictionary);
+    }
+    return in;
+  }
+
+  /** Builder for {@link ZstdCodec}. */
+  public static final class Builder {
+    private int level = DEFAULT_LEVEL;
+    private String dictionaryId;
+    private byte[] dictionary;
+
+    private Builder() {}
+
+    /** Sets the compression level. Defaults to {@link #DEFAULT_LEVEL}. */
+    public Builder setLevel(int level) {
+      this.level = level;
+      return this;
+    }
+
+    /**
+     * Sets a dictionary shared with the peers, for example one trained with {@code zstd --train}
+     * on sample messages. The id becomes part of the message encoding and must change whenever
+     * the dictionary does, as messages cannot be decompressed with a different dictionary.
+     *
+     * @param dictionaryId letters, digits, {@code '.'} and {@code '_'}
+     */
+    public Builder setDictionary(String dictionaryId, byte[] dictionary) {
+      checkArgument(DICTIONARY_ID.matcher(checkNotNull(dictionaryId, "dictionaryId")).matches(),
+          "Invalid dictionary id: %s", dictionaryId);
+      checkArgument(checkNotNull(dictionary, "dictionary").length > 0, "Empty dictionary");
+      this.dictionaryId = dictionaryId;
+      this.dictionary = dictionary.clone();
+      return this;
+    }
+
+    public ZstdCodec build() {
+      return new ZstdCodec(this);
+    }
+  }
+}
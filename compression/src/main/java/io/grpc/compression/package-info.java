@@ -0,0 +1,25 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+/**
+ * Message compressors other than gzip.
+ *
+ * <p>A codec has to be registered on both sides before calls can use it. Add it to the {@link
+ * io.grpc.CompressorRegistry} and, advertised, to the {@link io.grpc.DecompressorRegistry} given
+ * to the channel and server builders. {@link io.grpc.compression.MethodCompression} then selects
+ * the encoding of each method.
+ */
+package io.grpc.compression;
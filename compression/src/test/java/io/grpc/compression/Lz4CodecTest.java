@@ -0,0 +1,139 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.io.ByteStreams;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link Lz4Codec}. */
+@RunWith(JUnit4.class)
+public class Lz4CodecTest {
+  private final Lz4Codec codec = new Lz4Codec();
+
+  @Test
+  public void messageEncoding() {
+    assertThat(codec.getMessageEncoding()).isEqualTo("lz4");
+  }
+
+  @Test
+  public void roundTrip() throws IOException {
+    byte[] message = "hello hello hello hello hello hello hello hello"
+        .getBytes(StandardCharsets.UTF_8);
+
+    byte[] compressed = compress(message);
+
+    assertThat(compressed.length).isLessThan(message.length);
+    assertThat(decompress(compressed)).isEqualTo(message);
+  }
+
+  @Test
+  public void roundTripSpanningBlocks() throws IOException {
+    byte[] message = new byte[200 * 1024];
+    for (int i = 0; i < message.length; i++) {
+      message[i] = (byte) (i % 251);
+    }
+
+    assertThat(decompress(compress(message))).isEqualTo(message);
+  }
+
+  @Test
+  public void roundTripEmpty() throws IOException {
+    assertThat(decompress(compress(new byte[0]))).isEmpty();
+  }
+
+  @Test
+  public void roundTripIncompressible() throws IOException {
+    byte[] message = new byte[100 * 1024];
+    new Random(1).nextBytes(message);
+
+    byte[] compressed = compress(message);
+
+    // Two blocks stored as is, each after its 8-byte header
+    assertThat(compressed.length).isEqualTo(message.length + 16);
+    assertThat(decompress(compressed)).isEqualTo(message);
+  }
+
+  @Test
+  public void roundTripByteAtATime() throws IOException {
+    byte[] message = new byte[70 * 1024];
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressing = codec.compress(out)) {
+      for (byte b : message) {
+        compressing.write(b);
+      }
+    }
+
+    try (InputStream in = codec.decompress(new ByteArrayInputStream(out.toByteArray()))) {
+      for (int i = 0; i < message.length; i++) {
+        assertThat(in.read()).isEqualTo(0);
+      }
+      assertThat(in.read()).isEqualTo(-1);
+    }
+  }
+
+  @Test
+  public void decompressTruncated() throws IOException {
+    byte[] compressed = compress(new byte[1024]);
+
+    assertThrows(IOException.class, () -> decompress(Arrays.copyOf(compressed, 4)));
+    assertThrows(IOException.class,
+        () -> decompress(Arrays.copyOf(compressed, compressed.length - 1)));
+  }
+
+  @Test
+  public void decompressMalformedHeader() {
+    // Compressed length larger than the uncompressed length
+    byte[] compressed = {0, 0, 0, 1, 0, 0, 0, 2, 0, 0};
+
+    assertThrows(IOException.class, () -> decompress(compressed));
+  }
+
+  @Test
+  public void decompressMalformedBlock() throws IOException {
+    byte[] compressed = compress(new byte[1024]);
+    Arrays.fill(compressed, 8, compressed.length, (byte) 0xff);
+
+    assertThrows(IOException.class, () -> decompress(compressed));
+  }
+
+  private byte[] compress(byte[] message) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressing = codec.compress(out)) {
+      compressing.write(message);
+    }
+    return out.toByteArray();
+  }
+
+  private byte[] decompress(byte[] compressed) throws IOException {
+    try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed))) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.grpc.compression.MethodCompression.MESSAGE_ACCEPT_ENCODING_KEY;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.grpc.CallOptions;
+import io.grpc.Channel;
+import io.grpc.ClientInterceptor;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.testing.TestMethodDescriptors;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/** Tests for {@link MethodCompression}. */
+@RunWith(JUnit4.class)
+public class MethodCompressionTest {
+  private static final MethodDescriptor<Void, Void> ORDERS_GET =
+      TestMethodDescriptors.voidMethod().toBuilder()
+          .setFullMethodName("shop.Orders/Get")
+          .build();
+
+  @Rule public final MockitoRule mocks = MockitoJUnit.rule();
+
+  @Mock private Channel channel;
+  @Mock private ServerCallHandler<Void, Void> handler;
+
+  private final MethodCompression compression = MethodCompression.newBuilder()
+      .setDefaultEncodings("lz4", "gzip")
+      .setEncodings("shop.Orders", "zstd-orders", "lz4")
+      .setEncodings("shop.Orders/Upload")
+      .build();
+
+  @Test
+  public void encodingsLookup() {
+    assertThat(compression.getEncodings("shop.Orders/Get"))
+        .containsExactly("zstd-orders", "lz4").inOrder();
+    assertThat(compression.getEncodings("shop.Orders/Upload")).isEmpty();
+    assertThat(compression.getEncodings("shop.Carts/Get"))
+        .containsExactly("lz4", "gzip").inOrder();
+    assertThat(MethodCompression.newBuilder().build().getEncodings("shop.Carts/Get")).isEmpty();
+  }
+
+  @Test
+  public void clientUsesMostPreferredEncoding() {
+    ClientInterceptor interceptor = compression.newClientInterceptor();
+
+    interceptor.interceptCall(ORDERS_GET, CallOptions.DEFAULT, channel);
+
+    ArgumentCaptor<CallOptions> callOptions = ArgumentCaptor.forClass(CallOptions.class);
+    verify(channel).newCall(same(ORDERS_GET), callOptions.capture());
+    assertThat(callOptions.getValue().getCompressor()).isEqualTo("zstd-orders");
+  }
+
+  @Test
+  public void clientKeepsCompressorOfCall() {
+    ClientInterceptor interceptor = compression.newClientInterceptor();
+    CallOptions callOptions = CallOptions.DEFAULT.withCompression("identity");
+
+    interceptor.interceptCall(ORDERS_GET, callOptions, channel);
+
+    verify(channel).newCall(ORDERS_GET, callOptions);
+  }
+
+  @Test
+  public void clientDoesNotCompressMethodWithoutEncodings() {
+    ClientInterceptor interceptor = compression.newClientInterceptor();
+    MethodDescriptor<Void, Void> upload =
+        ORDERS_GET.toBuilder().setFullMethodName("shop.Orders/Upload").build();
+
+    interceptor.interceptCall(upload, CallOptions.DEFAULT, channel);
+
+    verify(channel).newCall(upload, CallOptions.DEFAULT);
+  }
+
+  @Test
+  public void serverUsesMostPreferredAcceptedEncoding() {
+    ServerCall<Void, Void> call = newCall();
+    Metadata headers = new Metadata();
+    headers.put(MESSAGE_ACCEPT_ENCODING_KEY, "gzip, lz4");
+
+    compression.newServerInterceptor().interceptCall(call, headers, handler);
+
+    verify(call).setCompression("lz4");
+    verify(handler).startCall(call, headers);
+  }
+
+  @Test
+  public void serverDoesNotCompressWhenNoEncodingAccepted() {
+    ServerInterceptor interceptor = compression.newServerInterceptor();
+    ServerCall<Void, Void> call = newCall();
+    Metadata headers = new Metadata();
+    headers.put(MESSAGE_ACCEPT_ENCODING_KEY, "gzip");
+
+    interceptor.interceptCall(call, headers, handler);
+    interceptor.interceptCall(call, new Metadata(), handler);
+
+    verify(call, never()).setCompression(anyString());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ServerCall<Void, Void> newCall() {
+    ServerCall<Void, Void> call = mock(ServerCall.class);
+    when(call.getMethodDescriptor()).thenReturn(ORDERS_GET);
+    return call;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.io.ByteStreams;
+import io.grpc.Codec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ThresholdCodec}. */
+@RunWith(JUnit4.class)
+public class ThresholdCodecTest {
+  @Test
+  public void behavesLikeWrappedCodec() throws IOException {
+    ThresholdCodec codec = ThresholdCodec.wrap(new Codec.Gzip(), 1024);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressing = codec.compress(out)) {
+      compressing.write(new byte[2048]);
+    }
+    byte[] decompressed;
+    try (InputStream in = new Codec.Gzip().decompress(
+        new ByteArrayInputStream(out.toByteArray()))) {
+      decompressed = ByteStreams.toByteArray(in);
+    }
+
+    assertThat(codec.getMessageEncoding()).isEqualTo("gzip");
+    assertThat(codec.getMinimumMessageSize()).isEqualTo(1024);
+    assertThat(decompressed).isEqualTo(new byte[2048]);
+  }
+
+  @Test
+  public void negativeThreshold() {
+    assertThrows(
+        IllegalArgumentException.class, () -> ThresholdCodec.wrap(new Codec.Gzip(), -1));
+  }
+}
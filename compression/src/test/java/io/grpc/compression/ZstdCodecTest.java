@@ -0,0 +1,112 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.compression;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import com.google.common.io.ByteStreams;
+import io.grpc.Codec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Tests for {@link ZstdCodec}. */
+@RunWith(JUnit4.class)
+public class ZstdCodecTest {
+  private static final byte[] DICTIONARY =
+      "{\"orderId\": \"\", \"customer\": \"\", \"status\": \"SHIPPED\", \"items\": []}"
+          .getBytes(StandardCharsets.UTF_8);
+  private static final byte[] MESSAGE =
+      "{\"orderId\": \"1234\", \"customer\": \"alice\", \"status\": \"SHIPPED\", \"items\": []}"
+          .getBytes(StandardCharsets.UTF_8);
+
+  @Test
+  public void roundTrip() throws IOException {
+    ZstdCodec codec = ZstdCodec.create();
+
+    assertThat(codec.getMessageEncoding()).isEqualTo("zstd");
+    assertThat(decompress(codec, compress(codec, MESSAGE))).isEqualTo(MESSAGE);
+  }
+
+  @Test
+  public void roundTripWithDictionary() throws IOException {
+    ZstdCodec codec = ZstdCodec.newBuilder().setDictionary("orders.v1", DICTIONARY).build();
+
+    byte[] compressed = compress(codec, MESSAGE);
+
+    assertThat(codec.getMessageEncoding()).isEqualTo("zstd-orders.v1");
+    assertThat(compressed.length).isLessThan(compress(ZstdCodec.create(), MESSAGE).length);
+    assertThat(decompress(codec, compressed)).isEqualTo(MESSAGE);
+  }
+
+  @Test
+  public void dictionaryIsCopied() throws IOException {
+    byte[] dictionary = DICTIONARY.clone();
+    ZstdCodec codec = ZstdCodec.newBuilder().setDictionary("orders", dictionary).build();
+    byte[] compressed = compress(codec, MESSAGE);
+
+    dictionary[0] = 'x';
+
+    assertThat(decompress(
+        ZstdCodec.newBuilder().setDictionary("orders", DICTIONARY).build(), compressed))
+        .isEqualTo(MESSAGE);
+  }
+
+  @Test
+  public void roundTripAtLevel() throws IOException {
+    ZstdCodec codec = ZstdCodec.newBuilder().setLevel(19).build();
+
+    assertThat(decompress(codec, compress(codec, MESSAGE))).isEqualTo(MESSAGE);
+  }
+
+  @Test
+  public void invalidDictionaryId() {
+    ZstdCodec.Builder builder = ZstdCodec.newBuilder();
+
+    assertThrows(
+        IllegalArgumentException.class, () -> builder.setDictionary("orders,v1", DICTIONARY));
+    assertThrows(IllegalArgumentException.class, () -> builder.setDictionary("", DICTIONARY));
+  }
+
+  @Test
+  public void emptyDictionary() {
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> ZstdCodec.newBuilder().setDictionary("orders", new byte[0]));
+  }
+
+  private static byte[] compress(Codec codec, byte[] message) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try (OutputStream compressing = codec.compress(out)) {
+      compressing.write(message);
+    }
+    return out.toByteArray();
+  }
+
+  private static byte[] decompress(Codec codec, byte[] compressed) throws IOException {
+    try (InputStream in = codec.decompress(new ByteArrayInputStream(compressed))) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
+}
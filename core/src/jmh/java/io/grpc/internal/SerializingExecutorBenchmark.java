@@ -16,16 +16,21 @@
 
 package io.grpc.internal;
 
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Phaser;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
 import org.openjdk.jmh.annotations.Mode;
 import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
 import org.openjdk.jmh.annotations.TearDown;
 
@@ -36,12 +41,36 @@ import org.openjdk.jmh.annotations.TearDown;
  * it is a gauge that the code is behaving roughly as expected, to increase confidence that our
  * understanding of the code is correct (and will behave as expected in other cases). Even more
  * helpfully it pushes the implementation, which should weed out many multithreading bugs.
+ *
+ * <p>{@code LEGACY} is the previous {@link ConcurrentLinkedQueue} based implementation, kept here
+ * for comparison. Run with {@code -prof gc} to compare allocation per task.
  */
 @State(Scope.Thread)
 public class SerializingExecutorBenchmark {
 
+  public enum Implementation {
+    MPSC, LEGACY
+  }
+
+  @Param({"MPSC", "LEGACY"})
+  public Implementation implementation;
+
   private ExecutorService executorService = Executors.newSingleThreadExecutor();
-  private Executor executor = new SerializingExecutor(executorService);
+  private Executor executor;
+
+  @Setup
+  public void setUp() {
+    switch (implementation) {
+      case MPSC:
+        executor = new SerializingExecutor(executorService);
+        break;
+      case LEGACY:
+        executor = new LegacySerializingExecutor(executorService);
+        break;
+      default:
+        throw new AssertionError();
+    }
+  }
 
   private static class IncrRunnable implements Runnable {
     int val;
@@ -95,4 +124,42 @@ public class SerializingExecutorBenchmark {
       throw new AssertionError();
     }
   }
+
+  /** The SerializingExecutor implementation prior to the MPSC queue, minus the Android fallback. */
+  private static final class LegacySerializingExecutor implements Executor, Runnable {
+    private final Executor executor;
+    private final Queue<Runnable> runQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    LegacySerializingExecutor(Executor executor) {
+      this.executor = executor;
+    }
+
+    @Override
+    public void execute(Runnable r) {
+      runQueue.add(r);
+      schedule();
+    }
+
+    private void schedule() {
+      if (running.compareAndSet(false, true)) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      Runnable r;
+      try {
+        while ((r = runQueue.poll()) != null) {
+          r.run();
+        }
+      } finally {
+        running.set(false);
+      }
+      if (!runQueue.isEmpty()) {
+        schedule();
+      }
+    }
+  }
 }
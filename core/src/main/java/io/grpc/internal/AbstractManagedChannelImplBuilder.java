@@ -89,6 +89,12 @@ public abstract class AbstractManagedChannelImplBuilder
     return thisT();
   }
 
+  @Override
+  public T virtualThreadExecutor() {
+    delegate().virtualThreadExecutor();
+    return thisT();
+  }
+
   @Override
   public T offloadExecutor(Executor executor) {
     delegate().offloadExecutor(executor);
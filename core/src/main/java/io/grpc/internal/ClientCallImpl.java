@@ -54,6 +54,7 @@ import io.perfmark.PerfMark;
 import io.perfmark.Tag;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.Iterator;
 import java.util.Locale;
 import java.util.concurrent.CancellationException;
 import java.util.concurrent.Executor;
@@ -517,13 +518,34 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
   public void sendMessage(ReqT message) {
     PerfMark.startTask("ClientCall.sendMessage", tag);
     try {
-      sendMessageInternal(message);
+      sendMessageInternal(message, true);
     } finally {
       PerfMark.stopTask("ClientCall.sendMessage", tag);
     }
   }
 
-  private void sendMessageInternal(ReqT message) {
+  @Override
+  public void sendMessages(Iterable<? extends ReqT> messages) {
+    PerfMark.startTask("ClientCall.sendMessages", tag);
+    try {
+      Iterator<? extends ReqT> it = messages.iterator();
+      while (it.hasNext()) {
+        ReqT message = it.next();
+        // Only the last message of the batch flushes the transport.
+        if (!sendMessageInternal(message, !it.hasNext())) {
+          break;
+        }
+      }
+    } finally {
+      PerfMark.stopTask("ClientCall.sendMessages", tag);
+    }
+  }
+
+  /**
+   * Returns {@code false} if the message could not be sent and the stream has been cancelled as a
+   * result.
+   */
+  private boolean sendMessageInternal(ReqT message, boolean flush) {
     checkState(stream != null, "Not started");
     checkState(!cancelCalled, "call was cancelled");
     checkState(!halfCloseCalled, "call was half-closed");
@@ -537,7 +559,7 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
       }
     } catch (RuntimeException e) {
       stream.cancel(Status.CANCELLED.withCause(e).withDescription("Failed to stream message"));
-      return;
+      return false;
     } catch (Error e) {
       stream.cancel(Status.CANCELLED.withDescription("Client sendMessage() failed with Error"));
       throw e;
@@ -545,9 +567,10 @@ final class ClientCallImpl<ReqT, RespT> extends ClientCall<ReqT, RespT> {
     // For unary requests, we don't flush since we know that halfClose should be coming soon. This
     // allows us to piggy-back the END_STREAM=true on the last message frame without opening the
     // possibility of broken applications forgetting to call halfClose without noticing.
-    if (!unaryRequest) {
+    if (flush && !unaryRequest) {
       stream.flush();
     }
+    return true;
   }
 
   @Override
@@ -350,6 +350,26 @@ public class DelayedClientCall<ReqT, RespT> extends ClientCall<ReqT, RespT> {
     }
   }
 
+  @Override
+  public final void sendMessages(Iterable<? extends ReqT> messages) {
+    if (passThrough) {
+      realCall.sendMessages(messages);
+    } else {
+      // Copy now, since the caller may reuse the Iterable once this returns. The batch is replayed
+      // as a single sendMessages() so the real call still flushes once.
+      final List<ReqT> batch = new ArrayList<>();
+      for (ReqT message : messages) {
+        batch.add(message);
+      }
+      delayOrExecute(new Runnable() {
+        @Override
+        public void run() {
+          realCall.sendMessages(batch);
+        }
+      });
+    }
+  }
+
   @Override
   public final void setMessageCompression(final boolean enable) {
     if (passThrough) {
@@ -0,0 +1,400 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Longs;
+import com.google.common.util.concurrent.AbstractFuture;
+import io.grpc.Deadline;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A {@link ScheduledExecutorService} whose one-shot {@link #schedule(Runnable, long, TimeUnit)}
+ * tasks are kept in a hashed timing wheel instead of the heap of a {@code
+ * ScheduledThreadPoolExecutor}. Scheduling and cancelling are O(1) and don't take a lock, which
+ * suits per-call deadlines: nearly all of them are cancelled long before they fire.
+ *
+ * <p>The wheel advances from a single periodic task on the delegate executor, which also runs the
+ * expired tasks. Tasks may run up to one tick late, never early. Every other method is forwarded to
+ * the delegate. The delegate is not owned; call {@link #stop()} instead of {@code shutdown()} when
+ * done with the timer.
+ */
+final class HashedWheelTimer implements ScheduledExecutorService {
+  private static final Logger log = Logger.getLogger(HashedWheelTimer.class.getName());
+
+  @VisibleForTesting
+  static final int DEFAULT_WHEEL_SIZE = 512;
+
+  /**
+   * Default tick for channels and servers, from the {@code
+   * io.grpc.internal.deadlineTimerTickMillis} system property. Zero, the default, keeps deadlines
+   * on the transport's executor.
+   */
+  static final long CONFIGURED_TICK_NANOS = getConfiguredTickNanos();
+
+  private static long getConfiguredTickNanos() {
+    String value = System.getProperty("io.grpc.internal.deadlineTimerTickMillis");
+    if (value == null) {
+      return 0;
+    }
+    try {
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, Long.parseLong(value)));
+    } catch (NumberFormatException e) {
+      log.log(Level.WARNING, "Ignoring invalid deadline timer tick: " + value, e);
+      return 0;
+    }
+  }
+
+  private final ScheduledExecutorService delegate;
+  private final Deadline.Ticker ticker;
+  private final long tickNanos;
+  private final Bucket[] wheel;
+  private final int mask;
+  /** {@link Deadline.Ticker#nanoTime()} at construction. Deadlines are relative to it. */
+  private final long startNanos;
+  private final Queue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<>();
+  private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+  private final AtomicBoolean started = new AtomicBoolean();
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private ScheduledFuture<?> tickFuture;
+  @GuardedBy("lock")
+  private boolean stopped;
+
+  // Only accessed from the tick task, which the delegate never runs concurrently with itself.
+  /** Next tick to process, or -1 before the first tick. */
+  private long tick = -1;
+
+  HashedWheelTimer(ScheduledExecutorService delegate, long tickDuration, TimeUnit unit) {
+    this(delegate, Deadline.getSystemTicker(), tickDuration, unit, DEFAULT_WHEEL_SIZE);
+  }
+
+  @VisibleForTesting
+  HashedWheelTimer(
+      ScheduledExecutorService delegate, Deadline.Ticker ticker, long tickDuration,
+      TimeUnit unit, int wheelSize) {
+    checkArgument(tickDuration > 0, "tickDuration must be positive");
+    checkArgument(Integer.bitCount(wheelSize) == 1, "wheelSize must be a power of two");
+    this.delegate = checkNotNull(delegate, "delegate");
+    this.ticker = checkNotNull(ticker, "ticker");
+    this.tickNanos = unit.toNanos(tickDuration);
+    this.wheel = new Bucket[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      wheel[i] = new Bucket();
+    }
+    this.mask = wheelSize - 1;
+    this.startNanos = ticker.nanoTime();
+  }
+
+  @Override
+  public ScheduledFuture<?> schedule(Runnable cmd, long delay, TimeUnit unit) {
+    Timeout timeout = new Timeout(
+        checkNotNull(cmd, "cmd"), ticker.nanoTime() - startNanos + unit.toNanos(delay));
+    pendingTimeouts.add(timeout);
+    if (!started.get() && started.compareAndSet(false, true)) {
+      start();
+    }
+    return timeout;
+  }
+
+  private void start() {
+    synchronized (lock) {
+      if (stopped) {
+        return;
+      }
+      tickFuture = delegate.scheduleAtFixedRate(new Runnable() {
+        @Override
+        public void run() {
+          advance();
+        }
+      }, tickNanos, tickNanos, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  /**
+   * Stops advancing the wheel. Tasks that have not run yet never will. The delegate is left
+   * running.
+   */
+  void stop() {
+    synchronized (lock) {
+      stopped = true;
+      if (tickFuture != null) {
+        tickFuture.cancel(false);
+        tickFuture = null;
+      }
+    }
+  }
+
+  /** Processes every tick whose time has fully passed. */
+  private void advance() {
+    long elapsedTicks = (ticker.nanoTime() - startNanos) / tickNanos;
+    if (tick == -1) {
+      tick = Math.max(0, elapsedTicks - 1);
+    }
+    // Tick t covers deadlines in [t * tickNanos, (t + 1) * tickNanos)
+    while (tick < elapsedTicks) {
+      transferPendingTimeouts();
+      removeCancelledTimeouts();
+      wheel[(int) (tick & mask)].expire();
+      tick++;
+    }
+  }
+
+  private void transferPendingTimeouts() {
+    Timeout timeout;
+    while ((timeout = pendingTimeouts.poll()) != null) {
+      if (timeout.isCancelled()) {
+        continue;
+      }
+      long deadlineTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+      timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+      wheel[(int) (deadlineTick & mask)].add(timeout);
+    }
+  }
+
+  private void removeCancelledTimeouts() {
+    Timeout timeout;
+    while ((timeout = cancelledTimeouts.poll()) != null) {
+      if (timeout.bucket != null) {
+        timeout.bucket.remove(timeout);
+      }
+    }
+  }
+
+  /** Number of scheduled tasks that have not run or been cancelled. Not thread-safe. */
+  @VisibleForTesting
+  int activeTimeouts() {
+    int count = 0;
+    for (Timeout timeout : pendingTimeouts) {
+      if (!timeout.isCancelled()) {
+        count++;
+      }
+    }
+    for (Bucket bucket : wheel) {
+      for (Timeout timeout = bucket.head; timeout != null; timeout = timeout.next) {
+        if (!timeout.isCancelled()) {
+          count++;
+        }
+      }
+    }
+    return count;
+  }
+
+  /** Doubly-linked list of timeouts. Only accessed from the tick task. */
+  private static final class Bucket {
+    @Nullable Timeout head;
+    @Nullable Timeout tail;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      if (head == null) {
+        head = tail = timeout;
+      } else {
+        tail.next = timeout;
+        timeout.prev = tail;
+        tail = timeout;
+      }
+    }
+
+    void remove(Timeout timeout) {
+      if (timeout.prev != null) {
+        timeout.prev.next = timeout.next;
+      } else {
+        head = timeout.next;
+      }
+      if (timeout.next != null) {
+        timeout.next.prev = timeout.prev;
+      } else {
+        tail = timeout.prev;
+      }
+      timeout.prev = null;
+      timeout.next = null;
+      timeout.bucket = null;
+    }
+
+    void expire() {
+      Timeout timeout = head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.remainingRounds <= 0) {
+          remove(timeout);
+          timeout.expire();
+        } else if (timeout.isCancelled()) {
+          remove(timeout);
+        } else {
+          timeout.remainingRounds--;
+        }
+        timeout = next;
+      }
+    }
+  }
+
+  private final class Timeout extends AbstractFuture<Void> implements ScheduledFuture<Void> {
+    final Runnable task;
+    final long deadlineNanos;
+    // Only accessed from the tick task
+    long remainingRounds;
+    @Nullable Bucket bucket;
+    @Nullable Timeout prev;
+    @Nullable Timeout next;
+
+    Timeout(Runnable task, long deadlineNanos) {
+      this.task = task;
+      this.deadlineNanos = deadlineNanos;
+    }
+
+    void expire() {
+      if (isDone()) {
+        return;
+      }
+      try {
+        task.run();
+        set(null);
+      } catch (Throwable t) {
+        log.log(Level.SEVERE, "Exception while running timer task " + task, t);
+        setException(t);
+      }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+      if (!super.cancel(mayInterruptIfRunning)) {
+        return false;
+      }
+      cancelledTimeouts.add(this);
+      return true;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(
+          startNanos + deadlineNanos - ticker.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Longs.compare(
+          getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+    }
+  }
+
+  @Override
+  public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+    return delegate.schedule(callable, delay, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleAtFixedRate(
+      Runnable command, long initialDelay, long period, TimeUnit unit) {
+    return delegate.scheduleAtFixedRate(command, initialDelay, period, unit);
+  }
+
+  @Override
+  public ScheduledFuture<?> scheduleWithFixedDelay(
+      Runnable command, long initialDelay, long delay, TimeUnit unit) {
+    return delegate.scheduleWithFixedDelay(command, initialDelay, delay, unit);
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException {
+    return delegate.invokeAll(tasks);
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(
+      Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException {
+    return delegate.invokeAll(tasks, timeout, unit);
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks)
+      throws InterruptedException, ExecutionException {
+    return delegate.invokeAny(tasks);
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+      throws InterruptedException, ExecutionException, TimeoutException {
+    return delegate.invokeAny(tasks, timeout, unit);
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return delegate.isShutdown();
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public void shutdown() {
+    throw new UnsupportedOperationException("Use stop() instead");
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    throw new UnsupportedOperationException("Use stop() instead");
+  }
+
+  @Override
+  public <T> Future<T> submit(Callable<T> task) {
+    return delegate.submit(task);
+  }
+
+  @Override
+  public Future<?> submit(Runnable task) {
+    return delegate.submit(task);
+  }
+
+  @Override
+  public <T> Future<T> submit(Runnable task, T result) {
+    return delegate.submit(task, result);
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    delegate.execute(command);
+  }
+}
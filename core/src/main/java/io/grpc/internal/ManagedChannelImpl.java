@@ -79,6 +79,7 @@ import io.grpc.SynchronizationContext.ScheduledHandle;
 import io.grpc.internal.AutoConfiguredLoadBalancerFactory.AutoConfiguredLoadBalancer;
 import io.grpc.internal.ClientCallImpl.ClientStreamProvider;
 import io.grpc.internal.ClientTransportFactory.SwapChannelCredentialsResult;
+import io.grpc.internal.ManagedChannelImplBuilder.ChannelExecutorProvider;
 import io.grpc.internal.ManagedChannelImplBuilder.ClientTransportFactoryBuilder;
 import io.grpc.internal.ManagedChannelImplBuilder.FixedPortProvider;
 import io.grpc.internal.ManagedChannelServiceConfig.MethodInfo;
@@ -166,6 +167,9 @@ final class ManagedChannelImpl extends ManagedChannel implements
   private final ClientTransportFactory transportFactory;
   private final ClientTransportFactory oobTransportFactory;
   private final RestrictedScheduledExecutor scheduledExecutor;
+  /** Timer for call deadlines, if one was configured instead of the transport's executor. */
+  @Nullable
+  private final HashedWheelTimer deadlineTimer;
   private final Executor executor;
   private final ObjectPool<? extends Executor> executorPool;
   private final ObjectPool<? extends Executor> balancerRpcExecutorPool;
@@ -325,6 +329,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
         ChannelStats.Builder builder = new InternalChannelz.ChannelStats.Builder();
         channelCallTracer.updateBuilder(builder);
         channelTracer.updateBuilder(builder);
+        channelBufferUsed.updateBuilder(builder);
         builder.setTarget(target).setState(channelStateManager.getState());
         List<InternalWithLogId> children = new ArrayList<>();
         children.addAll(subchannels);
@@ -617,7 +622,12 @@ final class ManagedChannelImpl extends ManagedChannel implements
     this.target = checkNotNull(builder.target, "target");
     this.logId = InternalLogId.allocate("Channel", target);
     this.timeProvider = checkNotNull(timeProvider, "timeProvider");
-    this.executorPool = checkNotNull(builder.executorPool, "executorPool");
+    Executor transportExecutor = clientTransportFactory instanceof ChannelExecutorProvider
+        ? ((ChannelExecutorProvider) clientTransportFactory).getChannelExecutor()
+        : null;
+    this.executorPool = transportExecutor != null
+        ? new FixedObjectPool<>(transportExecutor)
+        : checkNotNull(builder.executorPool, "executorPool");
     this.executor = checkNotNull(executorPool.getObject(), "executor");
     this.originalChannelCreds = builder.channelCredentials;
     this.originalTransportFactory = clientTransportFactory;
@@ -629,6 +639,11 @@ final class ManagedChannelImpl extends ManagedChannel implements
         clientTransportFactory, null, this.offloadExecutorHolder);
     this.scheduledExecutor =
         new RestrictedScheduledExecutor(transportFactory.getScheduledExecutorService());
+    this.deadlineTimer = builder.deadlineTimerTickNanos > 0
+        ? new HashedWheelTimer(
+            transportFactory.getScheduledExecutorService(), builder.deadlineTimerTickNanos,
+            TimeUnit.NANOSECONDS)
+        : null;
     maxTraceEvents = builder.maxTraceEvents;
     channelTracer = new ChannelTracer(
         logId, builder.maxTraceEvents, timeProvider.currentTimeNanos(),
@@ -951,7 +966,7 @@ final class ManagedChannelImpl extends ManagedChannel implements
             getCallExecutor(callOptions),
             callOptions,
             transportProvider,
-            terminated ? null : transportFactory.getScheduledExecutorService(),
+            terminated ? null : getDeadlineCancellationExecutor(),
             channelCallTracer,
             null)
             .setFullStreamDecompression(fullStreamDecompression)
@@ -1240,6 +1255,12 @@ final class ManagedChannelImpl extends ManagedChannel implements
         delegate.cancel(message, cause);
       }
     }
+
+    @Override
+    public void sendMessages(Iterable<? extends ReqT> messages) {
+      // Nothing here observes messages, so the batch goes through whole and is flushed once
+      delegate().sendMessages(messages);
+    }
   }
 
   private static final ClientCall<Object, Object> NOOP_CALL = new ClientCall<Object, Object>() {
@@ -1279,6 +1300,9 @@ final class ManagedChannelImpl extends ManagedChannel implements
       executorPool.returnObject(executor);
       balancerRpcExecutorHolder.release();
       offloadExecutorHolder.release();
+      if (deadlineTimer != null) {
+        deadlineTimer.stop();
+      }
       // Release the transport factory so that it can deallocate any resources.
       transportFactory.close();
 
@@ -1287,6 +1311,10 @@ final class ManagedChannelImpl extends ManagedChannel implements
     }
   }
 
+  private ScheduledExecutorService getDeadlineCancellationExecutor() {
+    return deadlineTimer != null ? deadlineTimer : transportFactory.getScheduledExecutorService();
+  }
+
   // Must be called from syncContext
   private void handleInternalSubchannelState(ConnectivityStateInfo newState) {
     if (newState.getState() == TRANSIENT_FAILURE || newState.getState() == IDLE) {
@@ -95,6 +95,9 @@ public final class ManagedChannelImplBuilder
   private static final ObjectPool<? extends Executor> DEFAULT_EXECUTOR_POOL =
       SharedResourcePool.forResource(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
 
+  private static final ObjectPool<? extends Executor> VIRTUAL_THREAD_EXECUTOR_POOL =
+      SharedResourcePool.forResource(VirtualThreads.SHARED_EXECUTOR);
+
   private static final DecompressorRegistry DEFAULT_DECOMPRESSOR_REGISTRY =
       DecompressorRegistry.getDefaultInstance();
 
@@ -145,6 +148,8 @@ public final class ManagedChannelImplBuilder
   long perRpcBufferLimit = DEFAULT_PER_RPC_BUFFER_LIMIT_IN_BYTES;
   boolean retryEnabled = true;
 
+  long deadlineTimerTickNanos = HashedWheelTimer.CONFIGURED_TICK_NANOS;
+
   InternalChannelz channelz = InternalChannelz.instance();
   int maxTraceEvents;
 
@@ -174,6 +179,18 @@ public final class ManagedChannelImplBuilder
     ClientTransportFactory buildClientTransportFactory();
   }
 
+  /**
+   * Optionally implemented by a {@link ClientTransportFactory} whose channel must use a particular
+   * application executor, for example one bound to the event loop its transports run on. The
+   * executor replaces the builder's {@link #executor} for the channel built with that factory
+   * only; the builder itself is not changed.
+   */
+  public interface ChannelExecutorProvider {
+    /** Returns the channel's executor, or {@code null} to use the builder's. */
+    @Nullable
+    Executor getChannelExecutor();
+  }
+
   /**
    * Convenience ClientTransportFactoryBuilder, throws UnsupportedOperationException().
    */
@@ -327,6 +344,15 @@ public final class ManagedChannelImplBuilder
     return this;
   }
 
+  @Override
+  public ManagedChannelImplBuilder virtualThreadExecutor() {
+    if (!VirtualThreads.isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+    this.executorPool = VIRTUAL_THREAD_EXECUTOR_POOL;
+    return this;
+  }
+
   @Override
   public ManagedChannelImplBuilder offloadExecutor(Executor executor) {
     if (executor != null) {
@@ -552,6 +578,17 @@ public final class ManagedChannelImplBuilder
     return this;
   }
 
+  /**
+   * Tracks call deadlines in a hashed timing wheel that advances every {@code tick}, instead of
+   * scheduling a task per call on the transport's executor. Deadlines may fire up to one tick late.
+   * Zero disables the wheel, which is the default unless the {@code
+   * io.grpc.internal.deadlineTimerTickMillis} system property is set.
+   */
+  public void setDeadlineTimerTick(long tick, TimeUnit unit) {
+    checkArgument(tick >= 0, "tick must be non-negative");
+    deadlineTimerTickNanos = unit.toNanos(tick);
+  }
+
   /**
    * Disable or enable stats features. Enabled by default.
    *
@@ -25,8 +25,10 @@ import com.google.common.io.ByteStreams;
 import io.grpc.Codec;
 import io.grpc.Compressor;
 import io.grpc.Drainable;
+import io.grpc.HasByteBuffer;
 import io.grpc.KnownLength;
 import io.grpc.Status;
+import io.grpc.ThresholdCompressor;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -136,7 +138,7 @@ public class MessageFramer implements Framer {
     int messageLength = -2;
     try {
       messageLength = getKnownLength(message);
-      if (messageLength != 0 && compressed) {
+      if (messageLength != 0 && compressed && !belowCompressionThreshold(messageLength)) {
         written = writeCompressed(message, messageLength);
       } else {
         written = writeUncompressed(message, messageLength);
@@ -203,6 +205,12 @@ public class MessageFramer implements Framer {
     return written;
   }
 
+  private boolean belowCompressionThreshold(int messageLength) {
+    return messageLength != -1
+        && compressor instanceof ThresholdCompressor
+        && messageLength < ((ThresholdCompressor) compressor).getMinimumMessageSize();
+  }
+
   private int getKnownLength(InputStream inputStream) throws IOException {
     if (inputStream instanceof KnownLength || inputStream instanceof ByteArrayInputStream) {
       return inputStream.available();
@@ -230,9 +238,44 @@ public class MessageFramer implements Framer {
       buffer = bufferAllocator.allocate(headerScratch.position() + messageLength);
     }
     writeRaw(headerScratch.array(), 0, headerScratch.position());
+    if (message instanceof HasByteBuffer && ((HasByteBuffer) message).byteBufferSupported()) {
+      return writeByteBuffers(message);
+    }
     return writeToOutputStream(message, outputStreamAdapter);
   }
 
+  /**
+   * Write a message that exposes its content as {@link ByteBuffer}s. Each buffer is copied once,
+   * directly into the transport's buffers, instead of going through an intermediate
+   * {@code byte[]} as {@link #writeToOutputStream} does.
+   */
+  private int writeByteBuffers(InputStream message) throws IOException {
+    HasByteBuffer hasByteBuffer = (HasByteBuffer) message;
+    int written = 0;
+    ByteBuffer byteBuffer;
+    while ((byteBuffer = hasByteBuffer.getByteBuffer()) != null) {
+      int length = byteBuffer.remaining();
+      if (length == 0) {
+        break;
+      }
+      writeRaw(byteBuffer);
+      skipFully(message, length);
+      written += length;
+    }
+    // Anything the stream did not expose as a ByteBuffer is written the regular way.
+    return written + writeToOutputStream(message, outputStreamAdapter);
+  }
+
+  private static void skipFully(InputStream message, long length) throws IOException {
+    while (length > 0) {
+      long skipped = message.skip(length);
+      if (skipped <= 0) {
+        throw new IOException("Unable to skip " + length + " bytes of message");
+      }
+      length -= skipped;
+    }
+  }
+
   /**
    * Write a message that has been serialized to a sequence of buffers.
    */
@@ -295,6 +338,23 @@ public class MessageFramer implements Framer {
     }
   }
 
+  private void writeRaw(ByteBuffer src) {
+    int originalLimit = src.limit();
+    while (src.hasRemaining()) {
+      if (buffer != null && buffer.writableBytes() == 0) {
+        commitToSink(false, false);
+      }
+      if (buffer == null) {
+        // Request a buffer allocation using the remaining length as a hint.
+        buffer = bufferAllocator.allocate(src.remaining());
+      }
+      int toWrite = min(src.remaining(), buffer.writableBytes());
+      src.limit(src.position() + toWrite);
+      buffer.write(src);
+      src.limit(originalLimit);
+    }
+  }
+
   /**
    * Flushes any buffered data in the framer to the sink.
    */
@@ -22,16 +22,20 @@ import static com.google.common.base.Preconditions.checkState;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Objects;
+import com.google.common.io.ByteStreams;
 import io.grpc.Attributes;
 import io.grpc.ClientStreamTracer;
 import io.grpc.Compressor;
 import io.grpc.Deadline;
 import io.grpc.DecompressorRegistry;
+import io.grpc.InternalChannelz.ChannelStats;
+import io.grpc.KnownLength;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.Status;
 import io.grpc.SynchronizationContext;
 import io.grpc.internal.ClientStreamListener.RpcProgress;
+import java.io.IOException;
 import java.io.InputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
 import java.util.ArrayList;
@@ -558,18 +562,75 @@ abstract class RetriableStream<ReqT> implements ClientStream {
       return;
     }
 
-    class SendMessageEntry implements BufferEntry {
-      @Override
-      public void runWith(Substream substream) {
-        substream.stream.writeMessage(method.streamRequest(message));
-        // TODO(ejona): Workaround Netty memory leak. Message writes always need to be followed by
-        // flushes (or half close), but retry appears to have a code path that the flushes may
-        // not happen. The code needs to be fixed and this removed. See #9340.
-        substream.stream.flush();
+    SendMessageEntry entry = new SendMessageEntry(message);
+    Collection<Substream> savedDrainedSubstreams;
+    synchronized (lock) {
+      if (!state.passThrough) {
+        state.buffer.add(entry);
+      }
+      savedDrainedSubstreams = state.drainedSubstreams;
+    }
+    // Attempts that are already running get the message as the marshaller streams it, as they
+    // would without retry. Only attempts that replay the buffer later need the serialized copy.
+    for (Substream substream : savedDrainedSubstreams) {
+      substream.stream.writeMessage(method.streamRequest(message));
+      // TODO(ejona): Workaround Netty memory leak. Message writes always need to be followed by
+      // flushes (or half close), but retry appears to have a code path that the flushes may
+      // not happen. The code needs to be fixed and this removed. See #9340.
+      substream.stream.flush();
+    }
+  }
+
+  /**
+   * A buffered message, replayed to attempts that start after it was sent. It is serialized once,
+   * when the first such attempt needs it, and every replay then reads the same bytes, so no
+   * attempt marshals it again and the buffer holds compact bytes rather than the message.
+   */
+  private final class SendMessageEntry implements BufferEntry {
+    @GuardedBy("this")
+    @Nullable
+    private ReqT message;
+    @GuardedBy("this")
+    @Nullable
+    private byte[] serialized;
+
+    SendMessageEntry(ReqT message) {
+      this.message = message;
+    }
+
+    @Override
+    public void runWith(Substream substream) {
+      substream.stream.writeMessage(
+          ReadableBuffers.openStream(ReadableBuffers.wrap(serialized()), true));
+      // TODO(ejona): Workaround Netty memory leak. Message writes always need to be followed by
+      // flushes (or half close), but retry appears to have a code path that the flushes may
+      // not happen. The code needs to be fixed and this removed. See #9340.
+      substream.stream.flush();
+    }
+
+    private synchronized byte[] serialized() {
+      if (serialized == null) {
+        serialized = serialize(message);
+        message = null;
       }
+      return serialized;
     }
+  }
 
-    delayOrExecute(new SendMessageEntry());
+  private byte[] serialize(ReqT message) {
+    try (InputStream stream = method.streamRequest(message)) {
+      if (stream instanceof KnownLength) {
+        byte[] bytes = new byte[stream.available()];
+        ByteStreams.readFully(stream, bytes);
+        return bytes;
+      }
+      return ByteStreams.toByteArray(stream);
+    } catch (IOException e) {
+      throw Status.INTERNAL
+          .withDescription("Failed to serialize message")
+          .withCause(e)
+          .asRuntimeException();
+    }
   }
 
   @Override
@@ -1379,6 +1440,7 @@ abstract class RetriableStream<ReqT> implements ClientStream {
         }
 
         if (substream.bufferLimitExceeded) {
+          channelBufferUsed.reportBufferLimitExceeded();
           postCommitTask = commit(substream);
         }
       }
@@ -1395,11 +1457,28 @@ abstract class RetriableStream<ReqT> implements ClientStream {
    */
   static final class ChannelBufferMeter {
     private final AtomicLong bufferUsed = new AtomicLong();
+    private final LongCounter bufferLimitExceeded = LongCounterFactory.create();
 
     @VisibleForTesting
     long addAndGet(long newBytesUsed) {
       return bufferUsed.addAndGet(newBytesUsed);
     }
+
+    /** Records that an RPC gave up retry and hedging because a buffer limit was exceeded. */
+    void reportBufferLimitExceeded() {
+      bufferLimitExceeded.add(1);
+    }
+
+    @VisibleForTesting
+    long getBufferLimitExceeded() {
+      return bufferLimitExceeded.value();
+    }
+
+    void updateBuilder(ChannelStats.Builder builder) {
+      builder
+          .setRetryBufferUsed(bufferUsed.get())
+          .setRetryBufferLimitExceeded(bufferLimitExceeded.value());
+    }
   }
 
   /**
@@ -18,11 +18,11 @@ package io.grpc.internal;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.annotation.Nullable;
@@ -31,6 +31,13 @@ import javax.annotation.Nullable;
  * Executor ensuring that all {@link Runnable} tasks submitted are executed in order
  * using the provided {@link Executor}, and serially such that no two will ever be
  * running at the same time.
+ *
+ * <p>Tasks are kept in an intrusive multi-producer, single-consumer linked queue: producers only
+ * swap the tail, and the thread holding the {@code RUNNING} state is the only one that advances the
+ * head. The node a drain steps past is recycled for the next {@link #execute}, so a call whose
+ * callbacks arrive one at a time does not allocate per task. A single run executes at most {@link
+ * #DRAIN_BUDGET} tasks before handing itself back to the underlying executor, so a busy call cannot
+ * keep a pooled thread to itself.
  */
 // TODO(madongfly): figure out a way to not expose it or move it to transport package.
 public final class SerializingExecutor implements Executor, Runnable {
@@ -58,11 +65,24 @@ public final class SerializingExecutor implements Executor, Runnable {
   private static final int STOPPED = 0;
   private static final int RUNNING = -1;
 
+  /** Maximum number of tasks run before yielding the underlying executor's thread. */
+  @VisibleForTesting
+  static final int DRAIN_BUDGET = 256;
+
   /** Underlying executor that all submitted Runnable objects are run on. */
   private Executor executor;
 
-  /** A list of Runnables to be run in order. */
-  private final Queue<Runnable> runQueue = new ConcurrentLinkedQueue<>();
+  /**
+   * Already consumed node whose {@code next} is the oldest pending task. Only accessed while
+   * holding the {@code RUNNING} state.
+   */
+  private Node head;
+
+  /** Most recently enqueued node. */
+  private final AtomicReference<Node> tail;
+
+  /** A consumed node, ready to be reused by the next call to {@link #execute}. */
+  private final AtomicReference<Node> spareNode = new AtomicReference<>();
 
   private volatile int runState = STOPPED;
 
@@ -74,6 +94,8 @@ public final class SerializingExecutor implements Executor, Runnable {
   public SerializingExecutor(Executor executor) {
     Preconditions.checkNotNull(executor, "'executor' must not be null.");
     this.executor = executor;
+    this.head = new Node();
+    this.tail = new AtomicReference<>(head);
   }
 
   /**
@@ -91,11 +113,18 @@ public final class SerializingExecutor implements Executor, Runnable {
    */
   @Override
   public void execute(Runnable r) {
-    runQueue.add(checkNotNull(r, "'r' must not be null."));
-    schedule(r);
+    checkNotNull(r, "'r' must not be null.");
+    Node node = spareNode.get() != null ? spareNode.getAndSet(null) : null;
+    if (node == null) {
+      node = new Node();
+    }
+    node.task = r;
+    Node prev = tail.getAndSet(node);
+    prev.next = node;
+    schedule(node);
   }
 
-  private void schedule(@Nullable Runnable removable) {
+  private void schedule(@Nullable Node removable) {
     if (atomicHelper.runStateCompareAndSet(this, STOPPED, RUNNING)) {
       boolean success = false;
       try {
@@ -109,13 +138,10 @@ public final class SerializingExecutor implements Executor, Runnable {
         if (!success) {
           if (removable != null) {
             // This case can only be reached if 'this' was not currently running, and we failed to
-            // reschedule.  The item should still be in the queue for removal.
-            // ConcurrentLinkedQueue claims that null elements are not allowed, but seems to not
-            // throw if the item to remove is null.  If removable is present in the queue twice,
-            // the wrong one may be removed.  It doesn't seem possible for this case to exist today.
-            // This is important to run in case of RejectedExectuionException, so that future calls
-            // to execute don't succeed and accidentally run a previous runnable.
-            runQueue.remove(removable);
+            // reschedule, so no one can be consuming the node. Clearing it makes the next drain
+            // skip it. This is important to run in case of RejectedExectuionException, so that
+            // future calls to execute don't succeed and accidentally run a previous runnable.
+            removable.task = null;
           }
           atomicHelper.runStateSet(this, STOPPED);
         }
@@ -125,10 +151,24 @@ public final class SerializingExecutor implements Executor, Runnable {
 
   @Override
   public void run() {
-    Runnable r;
+    Node h = head;
     try {
       Executor oldExecutor = executor;
-      while (oldExecutor == executor && (r = runQueue.poll()) != null ) {
+      int budget = DRAIN_BUDGET;
+      Node next;
+      while (oldExecutor == executor && budget > 0 && (next = h.next) != null) {
+        Runnable r = next.task;
+        next.task = null;
+        // The producer that linked 'next' is done with 'h', so it can be handed out again.
+        h.next = null;
+        spareNode.lazySet(h);
+        h = next;
+        head = h;
+        if (r == null) {
+          // Removed after the executor rejected it.
+          continue;
+        }
+        budget--;
         try {
           r.run();
         } catch (RuntimeException e) {
@@ -139,12 +179,18 @@ public final class SerializingExecutor implements Executor, Runnable {
     } finally {
       atomicHelper.runStateSet(this, STOPPED);
     }
-    if (!runQueue.isEmpty()) {
-      // we didn't enqueue anything but someone else did.
+    if (h.next != null) {
+      // Either we yielded or someone else enqueued after we stopped looking.
       schedule(null);
     }
   }
 
+  private static final class Node {
+    // Written before the node is published through tail and cleared by the consumer.
+    Runnable task;
+    volatile Node next;
+  }
+
   private abstract static class AtomicHelper {
     public abstract boolean runStateCompareAndSet(SerializingExecutor obj, int expect, int update);
 
@@ -44,6 +44,7 @@ import io.grpc.Status;
 import io.perfmark.PerfMark;
 import io.perfmark.Tag;
 import java.io.InputStream;
+import java.util.Iterator;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -151,36 +152,59 @@ final class ServerCallImpl<ReqT, RespT> extends ServerCall<ReqT, RespT> {
   public void sendMessage(RespT message) {
     PerfMark.startTask("ServerCall.sendMessage", tag);
     try {
-      sendMessageInternal(message);
+      sendMessageInternal(message, true);
     } finally {
       PerfMark.stopTask("ServerCall.sendMessage", tag);
     }
   }
 
-  private void sendMessageInternal(RespT message) {
+  @Override
+  public void sendMessages(Iterable<? extends RespT> messages) {
+    PerfMark.startTask("ServerCall.sendMessages", tag);
+    try {
+      Iterator<? extends RespT> it = messages.iterator();
+      while (it.hasNext()) {
+        RespT message = it.next();
+        // Only the last message of the batch flushes the transport.
+        if (!sendMessageInternal(message, !it.hasNext())) {
+          break;
+        }
+      }
+    } finally {
+      PerfMark.stopTask("ServerCall.sendMessages", tag);
+    }
+  }
+
+  /**
+   * Returns {@code false} if the message could not be sent and the call has been closed as a
+   * result.
+   */
+  private boolean sendMessageInternal(RespT message, boolean flush) {
     checkState(sendHeadersCalled, "sendHeaders has not been called");
     checkState(!closeCalled, "call is closed");
 
     if (method.getType().serverSendsOneMessage() && messageSent) {
       internalClose(Status.INTERNAL.withDescription(TOO_MANY_RESPONSES));
-      return;
+      return false;
     }
 
     messageSent = true;
     try {
       InputStream resp = method.streamResponse(message);
       stream.writeMessage(resp);
-      if (!getMethodDescriptor().getType().serverSendsOneMessage()) {
+      if (flush && !getMethodDescriptor().getType().serverSendsOneMessage()) {
         stream.flush();
       }
     } catch (RuntimeException e) {
       close(Status.fromThrowable(e), new Metadata());
+      return false;
     } catch (Error e) {
       close(
           Status.CANCELLED.withDescription("Server sendMessage() failed with Error"),
           new Metadata());
       throw e;
     }
+    return true;
   }
 
   @Override
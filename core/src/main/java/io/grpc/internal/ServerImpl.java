@@ -71,9 +71,11 @@ import java.util.Set;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 
 /**
@@ -129,6 +131,16 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
   private final CallTracer serverCallTracer;
   private final Deadline.Ticker ticker;
   private final ServerCallExecutorSupplier executorSupplier;
+  private final long deadlineTimerTickNanos;
+  private final ObjectPool<ScheduledExecutorService> timerServicePool =
+      SharedResourcePool.forResource(GrpcUtil.TIMER_SERVICE);
+  /** Backs {@link #deadlineTimer}. Safe to read after {@link #start()}. */
+  @Nullable private ScheduledExecutorService timerService;
+  /**
+   * Shared timer for call deadlines, or {@code null} to use the transport's executor. Safe to read
+   * after {@link #start()}.
+   */
+  @Nullable private HashedWheelTimer deadlineTimer;
 
   /**
    * Construct a server.
@@ -164,6 +176,7 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
     this.ticker = checkNotNull(builder.ticker, "ticker");
     channelz.addServer(this);
     this.executorSupplier = builder.executorSupplier;
+    this.deadlineTimerTickNanos = builder.deadlineTimerTickNanos;
   }
 
   /**
@@ -183,6 +196,12 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
       ServerListenerImpl listener = new ServerListenerImpl();
       transportServer.start(listener);
       executor = Preconditions.checkNotNull(executorPool.getObject(), "executor");
+      if (deadlineTimerTickNanos > 0) {
+        timerService = timerServicePool.getObject();
+        deadlineTimer = new HashedWheelTimer(
+            timerService, ticker, deadlineTimerTickNanos, NANOSECONDS,
+            HashedWheelTimer.DEFAULT_WHEEL_SIZE);
+      }
       started = true;
       return this;
     }
@@ -358,6 +377,10 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
         if (executor != null) {
           executor = executorPool.returnObject(executor);
         }
+        if (deadlineTimer != null) {
+          deadlineTimer.stop();
+          timerService = timerServicePool.returnObject(timerService);
+        }
         lock.notifyAll();
       }
     }
@@ -661,7 +684,7 @@ public final class ServerImpl extends io.grpc.Server implements InternalInstrume
       Context.CancellableContext context =
           baseContext.withDeadline(
               Deadline.after(timeoutNanos, NANOSECONDS, ticker),
-              transport.getScheduledExecutorService());
+              deadlineTimer != null ? deadlineTimer : transport.getScheduledExecutorService());
 
       return context;
     }
@@ -67,6 +67,8 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
   // defaults
   private static final ObjectPool<? extends Executor> DEFAULT_EXECUTOR_POOL =
       SharedResourcePool.forResource(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+  private static final ObjectPool<? extends Executor> VIRTUAL_THREAD_EXECUTOR_POOL =
+      SharedResourcePool.forResource(VirtualThreads.SHARED_EXECUTOR);
   private static final HandlerRegistry DEFAULT_FALLBACK_REGISTRY = new DefaultFallbackRegistry();
   private static final DecompressorRegistry DEFAULT_DECOMPRESSOR_REGISTRY =
       DecompressorRegistry.getDefaultInstance();
@@ -97,6 +99,7 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
   CallTracer.Factory callTracerFactory = CallTracer.getDefaultFactory();
   @Nullable
   ServerCallExecutorSupplier executorSupplier;
+  long deadlineTimerTickNanos = HashedWheelTimer.CONFIGURED_TICK_NANOS;
 
   /**
    * An interface to provide to provide transport specific information for the server. This method
@@ -126,6 +129,16 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
     return this;
   }
 
+  @Override
+  public ServerImplBuilder virtualThreadExecutor() {
+    if (!VirtualThreads.isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+    // Each call's SerializingExecutor then drains on a fresh virtual thread
+    this.executorPool = VIRTUAL_THREAD_EXECUTOR_POOL;
+    return this;
+  }
+
   @Override
   public ServerImplBuilder callExecutor(ServerCallExecutorSupplier executorSupplier) {
     this.executorSupplier = checkNotNull(executorSupplier);
@@ -192,6 +205,17 @@ public final class ServerImplBuilder extends ServerBuilder<ServerImplBuilder> {
     return this;
   }
 
+  /**
+   * Tracks call deadlines in a hashed timing wheel shared by the whole server that advances every
+   * {@code tick}, instead of scheduling a task per call on the transport's executor. Deadlines may
+   * fire up to one tick late. Zero disables the wheel, which is the default unless the {@code
+   * io.grpc.internal.deadlineTimerTickMillis} system property is set.
+   */
+  public void setDeadlineTimerTick(long tick, TimeUnit unit) {
+    checkArgument(tick >= 0, "tick must be non-negative");
+    deadlineTimerTickNanos = unit.toNanos(tick);
+  }
+
   /**
    * Disable or enable stats features.  Enabled by default.
    */
@@ -36,6 +36,8 @@ public final class TransportTracer {
   private long streamsSucceeded;
   private long streamsFailed;
   private long keepAlivesSent;
+  private long flushes;
+  private long writesFlushed;
   private FlowControlReader flowControlWindowReader;
 
   private long messagesSent;
@@ -72,7 +74,9 @@ public final class TransportTracer {
         lastMessageSentTimeNanos,
         lastMessageReceivedTimeNanos,
         localFlowControlWindow,
-        remoteFlowControlWindow);
+        remoteFlowControlWindow,
+        flushes,
+        writesFlushed);
   }
 
   /**
@@ -128,6 +132,15 @@ public final class TransportTracer {
     keepAlivesSent++;
   }
 
+  /**
+   * Reports that the transport flushed {@code writes} queued writes to the socket at once.
+   * Comparing the totals gives the number of writes per flush.
+   */
+  public void reportFlush(int writes) {
+    flushes++;
+    writesFlushed += writes;
+  }
+
   /**
    * Registers a {@link FlowControlReader} that can be used to read the local and remote flow
    * control window sizes.
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import io.grpc.internal.SharedResourceHolder.Resource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+
+/**
+ * Access to virtual threads (JDK 21+) through reflection, so that grpc-core keeps building and
+ * running on Java 8.
+ */
+public final class VirtualThreads {
+  private static final Logger log = Logger.getLogger(VirtualThreads.class.getName());
+
+  /** {@code Thread.ofVirtual()}, or {@code null} if virtual threads are unavailable. */
+  @Nullable
+  private static final Method OF_VIRTUAL;
+  @Nullable
+  private static final Method BUILDER_NAME;
+  @Nullable
+  private static final Method BUILDER_FACTORY;
+  @Nullable
+  private static final Method NEW_THREAD_PER_TASK_EXECUTOR;
+  @Nullable
+  private static final Method IS_VIRTUAL;
+
+  static {
+    Method ofVirtual = null;
+    Method builderName = null;
+    Method builderFactory = null;
+    Method newThreadPerTaskExecutor = null;
+    Method isVirtual = null;
+    try {
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      ofVirtual = Thread.class.getMethod("ofVirtual");
+      builderName = builderClass.getMethod("name", String.class, long.class);
+      builderFactory = builderClass.getMethod("factory");
+      newThreadPerTaskExecutor =
+          Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+      isVirtual = Thread.class.getMethod("isVirtual");
+      // Preview builds of JDK 19 and 20 have the methods but throw when they are used
+      ofVirtual.invoke(null);
+    } catch (ClassNotFoundException | NoSuchMethodException e) {
+      // Expected before JDK 21
+      ofVirtual = null;
+    } catch (IllegalAccessException | InvocationTargetException | RuntimeException e) {
+      log.log(Level.FINE, "Virtual threads are not available", e);
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    BUILDER_NAME = ofVirtual != null ? builderName : null;
+    BUILDER_FACTORY = ofVirtual != null ? builderFactory : null;
+    NEW_THREAD_PER_TASK_EXECUTOR = ofVirtual != null ? newThreadPerTaskExecutor : null;
+    IS_VIRTUAL = ofVirtual != null ? isVirtual : null;
+  }
+
+  /**
+   * Shared executor that runs every task on a new virtual thread. Only usable if {@link
+   * #isSupported()}.
+   */
+  public static final Resource<Executor> SHARED_EXECUTOR =
+      new Resource<Executor>() {
+        private static final String NAME = "grpc-virtual-executor";
+
+        @Override
+        public Executor create() {
+          return newThreadPerTaskExecutor("grpc-virtual-");
+        }
+
+        @Override
+        public void close(Executor instance) {
+          ((ExecutorService) instance).shutdown();
+        }
+
+        @Override
+        public String toString() {
+          return NAME;
+        }
+      };
+
+  private VirtualThreads() {}
+
+  /** Returns {@code true} if the running JVM supports virtual threads. */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /** Returns {@code true} if the current thread is a virtual thread. */
+  public static boolean isCurrentThreadVirtual() {
+    if (IS_VIRTUAL == null) {
+      return false;
+    }
+    try {
+      return (Boolean) IS_VIRTUAL.invoke(Thread.currentThread());
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new AssertionError(e);
+    }
+  }
+
+  /**
+   * Creates an executor that starts a new virtual thread for each task, with thread names made of
+   * {@code namePrefix} and a counter.
+   *
+   * @throws UnsupportedOperationException if virtual threads are not supported
+   */
+  public static ExecutorService newThreadPerTaskExecutor(String namePrefix) {
+    if (!isSupported()) {
+      throw new UnsupportedOperationException("Virtual threads require Java 21 or later");
+    }
+    try {
+      Object builder = BUILDER_NAME.invoke(OF_VIRTUAL.invoke(null), namePrefix, 0L);
+      ThreadFactory factory = (ThreadFactory) BUILDER_FACTORY.invoke(builder);
+      return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, factory);
+    } catch (IllegalAccessException | InvocationTargetException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
@@ -16,6 +16,8 @@
 
 package io.grpc.internal;
 
+import java.nio.ByteBuffer;
+
 /**
  * An interface for a byte buffer that can only be written to.
  * {@link WritableBuffer}s are a generic way to transfer bytes to
@@ -35,6 +37,16 @@ public interface WritableBuffer {
    */
   void write(byte[] src, int srcIndex, int length);
 
+  /**
+   * Appends all of the remaining bytes of {@code src} to the buffer, advancing the position of
+   * {@code src} to its limit. Implementations should copy directly from {@code src} so that
+   * callers holding a {@link ByteBuffer} do not need an intermediate {@code byte[]}.
+   *
+   * @throws IndexOutOfBoundsException
+   *         if {@code src.remaining()} is greater than {@link #writableBytes()}
+   */
+  void write(ByteBuffer src);
+
   /**
    * Appends a single byte to the buffer.  This is slow so don't call it.
    */
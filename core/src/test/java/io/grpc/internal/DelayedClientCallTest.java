@@ -36,7 +36,9 @@ import io.grpc.Status;
 import io.grpc.StatusException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.Rule;
@@ -158,6 +160,22 @@ public class DelayedClientCallTest {
     verify(listener).onMessage(1);
   }
 
+  @Test
+  public void sendMessagesThenSetCall_replayedAsOneBatch() {
+    DelayedClientCall<String, Integer> delayedClientCall = new DelayedClientCall<>(
+        callExecutor, fakeClock.getScheduledExecutorService(), null);
+    delayedClientCall.start(listener, new Metadata());
+    List<String> messages = new ArrayList<>(Arrays.asList("a", "b"));
+    delayedClientCall.sendMessages(messages);
+    // The caller may reuse its list once sendMessages() returns.
+    messages.clear();
+    Runnable r = delayedClientCall.setCall(mockRealCall);
+    assertThat(r).isNotNull();
+    r.run();
+    verify(mockRealCall).sendMessages(Arrays.asList("a", "b"));
+    verify(mockRealCall, never()).sendMessage(any(String.class));
+  }
+
   @Test
   @SuppressWarnings("unchecked")
   public void cancelThenSetCall() {
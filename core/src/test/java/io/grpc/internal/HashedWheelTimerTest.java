@@ -0,0 +1,172 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.internal;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link HashedWheelTimer}. */
+@RunWith(JUnit4.class)
+public class HashedWheelTimerTest {
+  private static final int WHEEL_SIZE = 8;
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final HashedWheelTimer timer = new HashedWheelTimer(
+      fakeClock.getScheduledExecutorService(), fakeClock.getDeadlineTicker(), 10, MILLISECONDS,
+      WHEEL_SIZE);
+  private final List<String> runs = new ArrayList<>();
+
+  private Runnable record(final String name) {
+    return new Runnable() {
+      @Override
+      public void run() {
+        runs.add(name);
+      }
+    };
+  }
+
+  /** Forwards time one tick at a time, so that each tick is processed on its own. */
+  private void forwardTicks(int ticks) {
+    for (int i = 0; i < ticks; i++) {
+      fakeClock.forwardTime(10, MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void noTickingUntilFirstSchedule() {
+    assertEquals(0, fakeClock.numPendingTasks());
+
+    ScheduledFuture<?> unused = timer.schedule(record("a"), 25, MILLISECONDS);
+
+    assertEquals(1, fakeClock.numPendingTasks());
+  }
+
+  @Test
+  public void runsAtOrAfterDeadlineWithinOneTick() {
+    ScheduledFuture<?> future = timer.schedule(record("a"), 25, MILLISECONDS);
+
+    forwardTicks(2);
+    assertThat(runs).isEmpty();
+    fakeClock.forwardTime(5, MILLISECONDS);
+    assertThat(runs).isEmpty();
+    fakeClock.forwardTime(5, MILLISECONDS);
+    assertThat(runs).containsExactly("a");
+    assertTrue(future.isDone());
+    assertFalse(future.isCancelled());
+  }
+
+  @Test
+  public void runsInDeadlineOrder() {
+    ScheduledFuture<?> unused1 = timer.schedule(record("b"), 35, MILLISECONDS);
+    ScheduledFuture<?> unused2 = timer.schedule(record("a"), 15, MILLISECONDS);
+    ScheduledFuture<?> unused3 = timer.schedule(record("c"), 55, MILLISECONDS);
+
+    forwardTicks(10);
+
+    assertThat(runs).containsExactly("a", "b", "c").inOrder();
+  }
+
+  @Test
+  public void deadlineBeyondOneRotation() {
+    // Lands in the same bucket as 15ms, but 2 rotations later
+    ScheduledFuture<?> unused = timer.schedule(record("a"), 15 + 2 * WHEEL_SIZE * 10, MILLISECONDS);
+
+    forwardTicks(2 * WHEEL_SIZE + 1);
+    assertThat(runs).isEmpty();
+    forwardTicks(1);
+    assertThat(runs).containsExactly("a");
+  }
+
+  @Test
+  public void catchesUpAfterStall() {
+    ScheduledFuture<?> unused1 = timer.schedule(record("a"), 15, MILLISECONDS);
+    ScheduledFuture<?> unused2 = timer.schedule(record("b"), 95, MILLISECONDS);
+
+    fakeClock.forwardTime(100, MILLISECONDS);
+
+    assertThat(runs).containsExactly("a", "b");
+  }
+
+  @Test
+  public void cancelledTaskDoesNotRunAndIsRemoved() {
+    ScheduledFuture<?> future = timer.schedule(record("a"), 50, MILLISECONDS);
+    forwardTicks(1);
+    assertEquals(1, timer.activeTimeouts());
+
+    assertTrue(future.cancel(false));
+    assertEquals(0, timer.activeTimeouts());
+    fakeClock.forwardTime(100, MILLISECONDS);
+
+    assertThat(runs).isEmpty();
+    assertTrue(future.isCancelled());
+    assertFalse(future.cancel(false));
+  }
+
+  @Test
+  public void cancelBeforeFirstTick() {
+    ScheduledFuture<?> future = timer.schedule(record("a"), 5, MILLISECONDS);
+    future.cancel(false);
+
+    fakeClock.forwardTime(100, MILLISECONDS);
+
+    assertThat(runs).isEmpty();
+  }
+
+  @Test
+  public void throwingTaskDoesNotStopWheel() {
+    ScheduledFuture<?> unused1 = timer.schedule(new Runnable() {
+      @Override
+      public void run() {
+        throw new RuntimeException("test");
+      }
+    }, 5, MILLISECONDS);
+    ScheduledFuture<?> unused2 = timer.schedule(record("a"), 25, MILLISECONDS);
+
+    fakeClock.forwardTime(100, MILLISECONDS);
+
+    assertThat(runs).containsExactly("a");
+  }
+
+  @Test
+  public void getDelay() {
+    ScheduledFuture<?> future = timer.schedule(record("a"), 50, MILLISECONDS);
+    fakeClock.forwardTime(20, MILLISECONDS);
+
+    assertEquals(30, future.getDelay(MILLISECONDS));
+  }
+
+  @Test
+  public void stop() {
+    ScheduledFuture<?> unused = timer.schedule(record("a"), 50, MILLISECONDS);
+
+    timer.stop();
+
+    assertEquals(0, fakeClock.numPendingTasks());
+    fakeClock.forwardTime(100, MILLISECONDS);
+    assertThat(runs).isEmpty();
+  }
+}
@@ -51,6 +51,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
 
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
@@ -77,6 +78,7 @@ import io.grpc.ConnectivityState;
 import io.grpc.ConnectivityStateInfo;
 import io.grpc.Context;
 import io.grpc.EquivalentAddressGroup;
+import io.grpc.ForwardingClientCall.SimpleForwardingClientCall;
 import io.grpc.InsecureChannelCredentials;
 import io.grpc.IntegerMarshaller;
 import io.grpc.InternalChannelz;
@@ -113,6 +115,7 @@ import io.grpc.StringMarshaller;
 import io.grpc.internal.ClientTransportFactory.ClientTransportOptions;
 import io.grpc.internal.ClientTransportFactory.SwapChannelCredentialsResult;
 import io.grpc.internal.InternalSubchannel.TransportLogger;
+import io.grpc.internal.ManagedChannelImplBuilder.ChannelExecutorProvider;
 import io.grpc.internal.ManagedChannelImplBuilder.ClientTransportFactoryBuilder;
 import io.grpc.internal.ManagedChannelImplBuilder.FixedPortProvider;
 import io.grpc.internal.ManagedChannelImplBuilder.UnsupportedClientTransportFactoryBuilder;
@@ -122,6 +125,7 @@ import io.grpc.stub.ClientCalls;
 import io.grpc.testing.TestMethodDescriptors;
 import io.grpc.util.ForwardingSubchannel;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.SocketAddress;
 import java.net.URI;
 import java.util.ArrayList;
@@ -533,6 +537,92 @@ public class ManagedChannelImplTest {
         TimeUnit.SECONDS.toNanos(ManagedChannelImpl.SUBCHANNEL_SHUTDOWN_DELAY_SECONDS));
   }
 
+  @Test
+  public void transportFactoryProvidesChannelExecutor() {
+    ClientTransportFactory transportFactory = mock(
+        ClientTransportFactory.class, withSettings().extraInterfaces(ChannelExecutorProvider.class));
+    when(transportFactory.getScheduledExecutorService())
+        .thenReturn(timer.getScheduledExecutorService());
+    FakeClock channelExecutor = new FakeClock();
+    when(((ChannelExecutorProvider) transportFactory).getChannelExecutor())
+        .thenReturn(channelExecutor.getScheduledExecutorService());
+    channel = new ManagedChannelImpl(
+        channelBuilder, transportFactory, new FakeBackoffPolicyProvider(),
+        balancerRpcExecutorPool, timer.getStopwatchSupplier(),
+        Collections.<ClientInterceptor>emptyList(), timer.getTimeProvider());
+
+    // The builder's executor is neither used nor replaced.
+    verify(executorPool, never()).getObject();
+    assertSame(executorPool, channelBuilder.executorPool);
+    channel.shutdownNow();
+    verify(executorPool, never()).returnObject(any());
+  }
+
+  @Test
+  public void sendMessagesBeforeNameResolution_flushesOncePerBatch() throws Exception {
+    FakeNameResolverFactory nameResolverFactory =
+        new FakeNameResolverFactory.Builder(expectedUri)
+            .setServers(ImmutableList.of(addressGroup)).build();
+    channelBuilder.nameResolverFactory(nameResolverFactory);
+    ClientInterceptor interceptor = new ClientInterceptor() {
+      @Override
+      public <ReqT, RespT> ClientCall<ReqT, RespT> interceptCall(
+          MethodDescriptor<ReqT, RespT> method, CallOptions callOptions, Channel next) {
+        // Forwarding calls send batches one message at a time unless they opt in, as this one
+        // does, since it does not observe the messages
+        return new SimpleForwardingClientCall<ReqT, RespT>(next.newCall(method, callOptions)) {
+          @Override
+          public void sendMessages(Iterable<? extends ReqT> messages) {
+            delegate().sendMessages(messages);
+          }
+        };
+      }
+    };
+    channel = new ManagedChannelImpl(
+        channelBuilder, mockTransportFactory, new FakeBackoffPolicyProvider(),
+        balancerRpcExecutorPool, timer.getStopwatchSupplier(),
+        Collections.singletonList(interceptor), timer.getTimeProvider());
+    Metadata headers = new Metadata();
+    ClientStream mockStream = mock(ClientStream.class);
+    ClientCall<String, Integer> call = channel.newCall(method, CallOptions.DEFAULT);
+    call.start(mockCallListener, headers);
+    // Buffered in the channel's pending call until the config selector is available.
+    call.sendMessages(Arrays.asList("a", "b", "c"));
+
+    ArgumentCaptor<Helper> helperCaptor = ArgumentCaptor.forClass(null);
+    verify(mockLoadBalancerProvider).newLoadBalancer(helperCaptor.capture());
+    helper = helperCaptor.getValue();
+    Subchannel subchannel =
+        createSubchannelSafely(helper, addressGroup, Attributes.EMPTY, subchannelStateListener);
+    requestConnectionSafely(helper, subchannel);
+    MockClientTransportInfo transportInfo = transports.poll();
+    ConnectionClientTransport mockTransport = transportInfo.transport;
+    ManagedClientTransport.Listener transportListener = transportInfo.listener;
+    when(mockTransport.newStream(
+            same(method), same(headers), any(CallOptions.class),
+            ArgumentMatchers.<ClientStreamTracer[]>any()))
+        .thenReturn(mockStream);
+    transportListener.transportReady();
+    when(mockPicker.pickSubchannel(any(PickSubchannelArgs.class)))
+        .thenReturn(PickResult.withSubchannel(subchannel));
+    updateBalancingStateSafely(helper, READY, mockPicker);
+    executor.runDueTasks();
+
+    verify(mockStream).start(streamListenerCaptor.capture());
+    verify(mockStream, times(3)).writeMessage(any(InputStream.class));
+    verify(mockStream, times(1)).flush();
+
+    // Once the call passes through, a batch still reaches the stream with a single flush.
+    call.sendMessages(Arrays.asList("d", "e"));
+    verify(mockStream, times(5)).writeMessage(any(InputStream.class));
+    verify(mockStream, times(2)).flush();
+
+    // Clean up as much as possible to allow the channel to terminate.
+    shutdownSafely(helper, subchannel);
+    timer.forwardNanos(
+        TimeUnit.SECONDS.toNanos(ManagedChannelImpl.SUBCHANNEL_SHUTDOWN_DELAY_SECONDS));
+  }
+
   @Test
   public void newCallWithConfigSelector() {
     FakeNameResolverFactory nameResolverFactory =
@@ -27,13 +27,21 @@ import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 import io.grpc.Codec;
+import io.grpc.HasByteBuffer;
+import io.grpc.KnownLength;
 import io.grpc.StreamTracer;
+import io.grpc.ThresholdCompressor;
 import io.grpc.internal.testing.TestStreamTracer.TestBaseStreamTracer;
 import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.ArrayDeque;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.Locale;
 import org.junit.Before;
 import org.junit.Rule;
@@ -149,6 +157,23 @@ public class MessageFramerTest {
     checkStats(8, 8);
   }
 
+  @Test
+  public void byteBufferPayloadSplitBetweenSinks() {
+    allocator = new BytesWritableBufferAllocator(12, 12);
+    framer = new MessageFramer(sink, allocator, statsTraceCtx);
+    framer.writePayload(
+        new ByteBuffersInputStream(new byte[] {3, 14, 1, 5, 9}, new byte[] {2, 6, 5}));
+    verify(sink).deliverFrame(
+        toWriteBuffer(new byte[] {0, 0, 0, 0, 8, 3, 14, 1, 5, 9, 2, 6}), false, false, 1);
+    verifyNoMoreInteractions(sink);
+
+    framer.flush();
+    verify(sink).deliverFrame(toWriteBuffer(new byte[] {5}), false, true, 0);
+    verifyNoMoreInteractions(sink);
+    assertEquals(2, allocator.allocCount);
+    checkStats(8, 8);
+  }
+
   @Test
   public void frameHeaderSplitBetweenSinks() {
     allocator = new BytesWritableBufferAllocator(12, 12);
@@ -353,6 +378,38 @@ public class MessageFramerTest {
     checkStats(0, 0);
   }
 
+  @Test
+  public void messageBelowCompressionThresholdIsNotCompressed() {
+    framer.setCompressor(new ThresholdGzip(3));
+    framer.setMessageCompression(true);
+    writeKnownLength(framer, new byte[]{3, 14});
+    framer.flush();
+    verify(sink).deliverFrame(toWriteBuffer(new byte[] {0, 0, 0, 0, 2, 3, 14}), false, true, 1);
+    checkStats(2, 2);
+  }
+
+  @Test
+  public void messageAtCompressionThresholdIsCompressed() {
+    framer.setCompressor(new ThresholdGzip(2));
+    framer.setMessageCompression(true);
+    writeKnownLength(framer, new byte[]{3, 14});
+    framer.flush();
+    // The header of a compressed message is written as a separate frame
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(0));
+    assertEquals(0x1, frameCaptor.getValue().data[0]);
+  }
+
+  @Test
+  public void messageOfUnknownLengthIsCompressedDespiteThreshold() {
+    framer.setCompressor(new ThresholdGzip(1000));
+    framer.setMessageCompression(true);
+    writeUnknownLength(framer, new byte[]{3, 14});
+    framer.flush();
+    // The header of a compressed message is written as a separate frame
+    verify(sink).deliverFrame(frameCaptor.capture(), eq(false), eq(false), eq(0));
+    assertEquals(0x1, frameCaptor.getValue().data[0]);
+  }
+
   private static WritableBuffer toWriteBuffer(byte[] data) {
     return toWriteBufferWithMinSize(data, 0);
   }
@@ -395,6 +452,59 @@ public class MessageFramerTest {
     assertEquals(expectedUncompressedSize, tracer.getOutboundUncompressedSize());
   }
 
+  /**
+   * A known-length stream that only supports being consumed through {@link HasByteBuffer}.
+   */
+  private static final class ByteBuffersInputStream extends InputStream
+      implements KnownLength, HasByteBuffer {
+    private final Deque<ByteBuffer> buffers = new ArrayDeque<>();
+
+    ByteBuffersInputStream(byte[]... chunks) {
+      for (byte[] chunk : chunks) {
+        buffers.add(ByteBuffer.wrap(chunk));
+      }
+    }
+
+    @Override
+    public int read() {
+      if (available() == 0) {
+        return -1;
+      }
+      throw new AssertionError("content should be read as ByteBuffers");
+    }
+
+    @Override
+    public long skip(long n) {
+      ByteBuffer first = buffers.peek();
+      int skipped = (int) Math.min(n, first.remaining());
+      first.position(first.position() + skipped);
+      if (!first.hasRemaining()) {
+        buffers.poll();
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      int available = 0;
+      for (ByteBuffer buffer : buffers) {
+        available += buffer.remaining();
+      }
+      return available;
+    }
+
+    @Override
+    public boolean byteBufferSupported() {
+      return true;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      ByteBuffer first = buffers.peek();
+      return first == null ? null : first.duplicate();
+    }
+  }
+
   static class ByteWritableBuffer implements WritableBuffer {
     byte[] data;
     private int writeIdx;
@@ -409,6 +519,13 @@ public class MessageFramerTest {
       writeIdx += length;
     }
 
+    @Override
+    public void write(ByteBuffer src) {
+      int length = src.remaining();
+      src.get(data, writeIdx, length);
+      writeIdx += length;
+    }
+
     @Override
     public void write(byte b) {
       data[writeIdx++] = b;
@@ -452,6 +569,30 @@ public class MessageFramerTest {
     }
   }
 
+  private static final class ThresholdGzip implements ThresholdCompressor {
+    private final Codec.Gzip gzip = new Codec.Gzip();
+    private final int minimumMessageSize;
+
+    ThresholdGzip(int minimumMessageSize) {
+      this.minimumMessageSize = minimumMessageSize;
+    }
+
+    @Override
+    public String getMessageEncoding() {
+      return gzip.getMessageEncoding();
+    }
+
+    @Override
+    public OutputStream compress(OutputStream os) throws IOException {
+      return gzip.compress(os);
+    }
+
+    @Override
+    public int getMinimumMessageSize() {
+      return minimumMessageSize;
+    }
+  }
+
   static class BytesWritableBufferAllocator implements WritableBufferAllocator {
     public int minSize;
     public int maxSize;
@@ -1105,6 +1105,7 @@ public class RetriableStreamTest {
 
     // verify channel buffer is adjusted
     assertEquals(0, channelBufferUsed.addAndGet(0));
+    assertEquals(1, channelBufferUsed.getBufferLimitExceeded());
   }
 
   @Test
@@ -1161,6 +1162,62 @@ public class RetriableStreamTest {
 
     // verify channel buffer is adjusted
     assertEquals(CHANNEL_BUFFER_LIMIT - 200, channelBufferUsed.addAndGet(0));
+    assertEquals(1, channelBufferUsed.getBufferLimitExceeded());
+  }
+
+  @Test
+  public void firstAttemptGetsMarshallerStream_retriesShareOneSerialization() {
+    final List<InputStream> marshalled = new ArrayList<>();
+    MethodDescriptor<String, String> recordingMethod = method.toBuilder()
+        .setRequestMarshaller(new StringMarshaller() {
+          @Override
+          public InputStream stream(String value) {
+            InputStream stream = super.stream(value);
+            marshalled.add(stream);
+            return stream;
+          }
+        })
+        .build();
+    RetriableStream<String> stream = new RecordedRetriableStream(
+        recordingMethod, new Metadata(), channelBufferUsed, PER_RPC_BUFFER_LIMIT,
+        CHANNEL_BUFFER_LIMIT, MoreExecutors.directExecutor(),
+        fakeClock.getScheduledExecutorService(), RETRY_POLICY, null, null);
+    ClientStream mockStream1 = mock(ClientStream.class);
+    ClientStream mockStream2 = mock(ClientStream.class);
+    ClientStream mockStream3 = mock(ClientStream.class);
+    doReturn(mockStream1).when(retriableStreamRecorder).newSubstream(0);
+    doReturn(mockStream2).when(retriableStreamRecorder).newSubstream(1);
+    doReturn(mockStream3).when(retriableStreamRecorder).newSubstream(2);
+    stream.start(masterListener);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor1 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream1).start(sublistenerCaptor1.capture());
+
+    stream.sendMessage("msg1");
+    // the running attempt is written the marshaller's stream itself, nothing is copied
+    assertEquals(1, marshalled.size());
+    verify(mockStream1).writeMessage(marshalled.get(0));
+
+    sublistenerCaptor1.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime((long) (INITIAL_BACKOFF_IN_SECONDS * FAKE_RANDOM), TimeUnit.SECONDS);
+    ArgumentCaptor<ClientStreamListener> sublistenerCaptor2 =
+        ArgumentCaptor.forClass(ClientStreamListener.class);
+    verify(mockStream2).start(sublistenerCaptor2.capture());
+    ArgumentCaptor<InputStream> messageCaptor2 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream2).writeMessage(messageCaptor2.capture());
+    assertEquals("msg1", StringMarshaller.INSTANCE.parse(messageCaptor2.getValue()));
+    assertEquals(2, marshalled.size());
+
+    sublistenerCaptor2.getValue().closed(
+        Status.fromCode(RETRIABLE_STATUS_CODE_1), PROCESSED, new Metadata());
+    fakeClock.forwardTime(
+        (long) (INITIAL_BACKOFF_IN_SECONDS * BACKOFF_MULTIPLIER * FAKE_RANDOM), TimeUnit.SECONDS);
+    ArgumentCaptor<InputStream> messageCaptor3 = ArgumentCaptor.forClass(InputStream.class);
+    verify(mockStream3).writeMessage(messageCaptor3.capture());
+    assertEquals("msg1", StringMarshaller.INSTANCE.parse(messageCaptor3.getValue()));
+    // the replayed bytes were serialized once, for the first retry
+    assertEquals(2, marshalled.size());
   }
 
   @Test
@@ -183,6 +183,42 @@ public class SerializingExecutorTest {
     assertEquals(Arrays.asList(2, 3), runs);
   }
 
+  @Test
+  public void drainBudgetYieldsThread() {
+    for (int i = 0; i < SerializingExecutor.DRAIN_BUDGET + 1; i++) {
+      executor.execute(new AddToRuns(i));
+    }
+    singleExecutor.drain();
+    assertThat(runs).hasSize(SerializingExecutor.DRAIN_BUDGET);
+
+    // The remaining task was handed back to the underlying executor
+    singleExecutor.drain();
+    assertThat(runs).hasSize(SerializingExecutor.DRAIN_BUDGET + 1);
+    assertThat(runs).isInOrder();
+  }
+
+  @Test
+  public void rejectedRunnableSkippedAfterOthersQueued() {
+    ForwardingExecutor forwardingExecutor = new ForwardingExecutor(new Executor() {
+      @Override
+      public void execute(Runnable r) {
+        throw new RuntimeException();
+      }
+    });
+    executor = new SerializingExecutor(forwardingExecutor);
+    try {
+      executor.execute(new AddToRuns(1));
+      fail("expected exception");
+    } catch (RuntimeException expected) {
+    }
+    forwardingExecutor.executor = singleExecutor;
+    executor.execute(new AddToRuns(2));
+    singleExecutor.drain();
+    executor.execute(new AddToRuns(3));
+    singleExecutor.drain();
+    assertEquals(Arrays.asList(2, 3), runs);
+  }
+
   @Test
   public void direct() {
     executor = new SerializingExecutor(MoreExecutors.directExecutor());
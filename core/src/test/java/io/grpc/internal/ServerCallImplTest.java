@@ -28,6 +28,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.ArgumentMatchers.same;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -52,6 +53,7 @@ import io.perfmark.PerfMark;
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -59,6 +61,7 @@ import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
@@ -192,6 +195,33 @@ public class ServerCallImplTest {
     verify(stream).writeMessage(isA(InputStream.class));
   }
 
+  @Test
+  public void sendMessages_flushesOnce() {
+    MethodDescriptor<Long, Long> method =
+        UNARY_METHOD.toBuilder().setType(MethodType.SERVER_STREAMING).build();
+    ServerCallImpl<Long, Long> serverCall = new ServerCallImpl<>(stream, method, requestHeaders,
+        context, DecompressorRegistry.getDefaultInstance(),
+        CompressorRegistry.getDefaultInstance(), serverCallTracer, PerfMark.createTag());
+    serverCall.sendHeaders(new Metadata());
+    serverCall.sendMessages(Arrays.asList(1L, 2L, 3L));
+
+    InOrder inOrder = inOrder(stream);
+    inOrder.verify(stream, times(3)).writeMessage(isA(InputStream.class));
+    inOrder.verify(stream).flush();
+    verify(stream).flush();
+  }
+
+  @Test
+  public void sendMessages_stopsOnFailure() {
+    call.sendHeaders(new Metadata());
+    doThrow(new RuntimeException("bad")).when(stream).writeMessage(isA(InputStream.class));
+
+    call.sendMessages(Arrays.asList(1L, 2L));
+
+    verify(stream).writeMessage(isA(InputStream.class));
+    verify(stream).close(isA(Status.class), isA(Metadata.class));
+  }
+
   @Test
   public void sendMessage_failsOnClosed() {
     call.sendHeaders(new Metadata());
@@ -31,6 +31,10 @@ import io.grpc.internal.ServerImplBuilder.ClientTransportServersBuilder;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import org.junit.Before;
 import org.junit.Test;
@@ -77,6 +81,34 @@ public class ServerImplBuilderTest {
         });
   }
 
+  @Test
+  public void virtualThreadExecutor() throws Exception {
+    if (!VirtualThreads.isSupported()) {
+      try {
+        builder.virtualThreadExecutor();
+        fail("Should throw");
+      } catch (UnsupportedOperationException expected) {
+      }
+      return;
+    }
+    builder.virtualThreadExecutor();
+
+    ObjectPool<? extends Executor> executorPool = builder.getExecutorPool();
+    Executor executor = executorPool.getObject();
+    try {
+      FutureTask<Boolean> task = new FutureTask<>(new Callable<Boolean>() {
+        @Override
+        public Boolean call() {
+          return VirtualThreads.isCurrentThreadVirtual();
+        }
+      });
+      executor.execute(task);
+      assertThat(task.get(5, TimeUnit.SECONDS)).isTrue();
+    } finally {
+      executorPool.returnObject(executor);
+    }
+  }
+
   @Test
   public void getTracerFactories_default() {
     builder.addStreamTracerFactory(DUMMY_USER_TRACER);
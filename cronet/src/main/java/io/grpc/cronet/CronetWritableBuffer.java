@@ -32,6 +32,11 @@ class CronetWritableBuffer implements WritableBuffer {
     buffer.put(src, srcIndex, length);
   }
 
+  @Override
+  public void write(ByteBuffer src) {
+    buffer.put(src);
+  }
+
   @Override
   public void write(byte b) {
     buffer.put(b);
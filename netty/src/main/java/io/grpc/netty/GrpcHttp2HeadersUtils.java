@@ -38,6 +38,7 @@ import static io.netty.handler.codec.http2.Http2Error.PROTOCOL_ERROR;
 import static io.netty.handler.codec.http2.Http2Exception.connectionError;
 import static io.netty.util.AsciiString.isUpperCase;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.io.BaseEncoding;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
 import io.grpc.Metadata;
@@ -93,6 +94,34 @@ class GrpcHttp2HeadersUtils {
     private static final AsciiString binaryHeaderSuffix =
         new AsciiString(Metadata.BINARY_HEADER_SUFFIX.getBytes(US_ASCII));
 
+    /**
+     * Names that show up on most calls, mapped to a shared copy of their bytes. Decoded names often
+     * point into a larger buffer, which would otherwise be copied out for every header.
+     */
+    private static final ImmutableMap<AsciiString, byte[]> wellKnownNames = internNames(
+        "content-type",
+        "te",
+        "user-agent",
+        "accept-encoding",
+        "authorization",
+        "grpc-encoding",
+        "grpc-accept-encoding",
+        "grpc-timeout",
+        "grpc-status",
+        "grpc-message",
+        "grpc-status-details-bin",
+        "grpc-previous-rpc-attempts",
+        "grpc-retry-pushback-ms",
+        "grpc-trace-bin",
+        "grpc-tags-bin",
+        "traceparent",
+        "tracestate",
+        "x-request-id",
+        "x-forwarded-for",
+        "x-forwarded-proto",
+        "x-envoy-attempt-count",
+        "x-envoy-expected-rq-timeout-ms");
+
     private byte[][] namesAndValues;
     private AsciiString[] values;
     private int namesAndValuesIdx;
@@ -105,7 +134,7 @@ class GrpcHttp2HeadersUtils {
     }
 
     protected Http2Headers add(AsciiString name, AsciiString value) {
-      byte[] nameBytes = bytes(name);
+      byte[] nameBytes = internedName(name);
       byte[] valueBytes;
       if (!name.endsWith(binaryHeaderSuffix)) {
         valueBytes = bytes(value);
@@ -247,6 +276,20 @@ class GrpcHttp2HeadersUtils {
       return str.isEntireArrayUsed() ? str.array() : str.toByteArray();
     }
 
+    private static byte[] internedName(AsciiString name) {
+      byte[] interned = wellKnownNames.get(name);
+      return interned != null ? interned : bytes(name);
+    }
+
+    private static ImmutableMap<AsciiString, byte[]> internNames(String... names) {
+      ImmutableMap.Builder<AsciiString, byte[]> builder = ImmutableMap.builder();
+      for (String name : names) {
+        AsciiString asciiName = AsciiString.of(name);
+        builder.put(asciiName, asciiName.toByteArray());
+      }
+      return builder.build();
+    }
+
     protected static AsciiString requireAsciiString(CharSequence cs) {
       if (!(cs instanceof AsciiString)) {
         throw new IllegalArgumentException("AsciiString expected. Was: " + cs.getClass().getName());
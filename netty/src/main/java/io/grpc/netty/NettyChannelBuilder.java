@@ -45,6 +45,7 @@ import io.grpc.internal.GrpcUtil;
 import io.grpc.internal.KeepAliveManager;
 import io.grpc.internal.ManagedChannelImplBuilder;
 import io.grpc.internal.ManagedChannelImplBuilder.ChannelBuilderDefaultPortProvider;
+import io.grpc.internal.ManagedChannelImplBuilder.ChannelExecutorProvider;
 import io.grpc.internal.ManagedChannelImplBuilder.ClientTransportFactoryBuilder;
 import io.grpc.internal.ObjectPool;
 import io.grpc.internal.SharedResourcePool;
@@ -53,6 +54,7 @@ import io.grpc.netty.ProtocolNegotiators.FromChannelCredentialsResult;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFactory;
 import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ReflectiveChannelFactory;
 import io.netty.channel.socket.nio.NioSocketChannel;
@@ -105,6 +107,8 @@ public final class NettyChannelBuilder extends
   private long keepAliveTimeNanos = KEEPALIVE_TIME_NANOS_DISABLED;
   private long keepAliveTimeoutNanos = DEFAULT_KEEPALIVE_TIMEOUT_NANOS;
   private boolean keepAliveWithoutCalls;
+  private long flushCoalescingDelayNanos;
+  private boolean eventLoopAffinity;
   private ProtocolNegotiator.ClientFactory protocolNegotiatorFactory
       = new DefaultProtocolNegotiator();
   private final boolean freezeProtocolNegotiatorFactory;
@@ -484,6 +488,38 @@ public final class NettyChannelBuilder extends
     return this;
   }
 
+  /**
+   * Sets the maximum time a connection may delay flushing its writes while it is busy, so that
+   * writes from many concurrent calls are merged into fewer flushes. A connection is considered
+   * busy when many writes are queued at once or the event loop is slow to process them; idle
+   * connections always flush immediately. Defaults to {@code 0}, which disables coalescing.
+   */
+  @CanIgnoreReturnValue
+  public NettyChannelBuilder flushCoalescingDelay(long delay, TimeUnit timeUnit) {
+    checkArgument(delay >= 0L, "flush coalescing delay must be non-negative: %s", delay);
+    flushCoalescingDelayNanos = timeUnit.toNanos(delay);
+    return this;
+  }
+
+  /**
+   * Pins all transports of each channel built to a single event loop of the event loop group, and
+   * runs the channel's callbacks directly on that loop. Like {@link #directExecutor()}, this is
+   * only safe if the application's callbacks never block; unlike it, callbacks are guaranteed to
+   * run on the channel's event loop. This suits thread-per-core applications that create one
+   * channel per event loop, as no callback has to be handed to another thread. Defaults to {@code
+   * false}.
+   *
+   * <p>When enabled, this takes precedence over {@link #executor} and {@link #directExecutor()}:
+   * each channel uses its own event loop as its executor, and any executor set on this builder is
+   * ignored. The builder's executor setting is left unchanged, so it applies again if affinity is
+   * disabled before building another channel.
+   */
+  @CanIgnoreReturnValue
+  public NettyChannelBuilder eventLoopAffinity(boolean enable) {
+    eventLoopAffinity = enable;
+    return this;
+  }
+
 
   /**
    * If non-{@code null}, attempts to create connections bound to a local port.
@@ -539,9 +575,10 @@ public final class NettyChannelBuilder extends
     ProtocolNegotiator negotiator = protocolNegotiatorFactory.newNegotiator();
     return new NettyTransportFactory(
         negotiator, channelFactory, channelOptions,
-        eventLoopGroupPool, autoFlowControl, flowControlWindow, maxInboundMessageSize,
-        maxHeaderListSize, keepAliveTimeNanos, keepAliveTimeoutNanos, keepAliveWithoutCalls,
-        transportTracerFactory, localSocketPicker, useGetForSafeMethods);
+        eventLoopGroupPool, eventLoopAffinity, null, autoFlowControl, flowControlWindow,
+        maxInboundMessageSize, maxHeaderListSize, keepAliveTimeNanos, keepAliveTimeoutNanos,
+        keepAliveWithoutCalls, flushCoalescingDelayNanos, transportTracerFactory,
+        localSocketPicker, useGetForSafeMethods);
   }
 
   @VisibleForTesting
@@ -661,11 +698,16 @@ public final class NettyChannelBuilder extends
   /**
    * Creates Netty transports. Exposed for internal use, as it should be private.
    */
-  private static final class NettyTransportFactory implements ClientTransportFactory {
+  private static final class NettyTransportFactory
+      implements ClientTransportFactory, ChannelExecutorProvider {
     private final ProtocolNegotiator protocolNegotiator;
     private final ChannelFactory<? extends Channel> channelFactory;
     private final Map<ChannelOption<?>, ?> channelOptions;
     private final ObjectPool<? extends EventLoopGroup> groupPool;
+    private final EventLoopGroup pooledGroup;
+    /** Loop all transports are pinned to if event loop affinity is enabled, otherwise null. */
+    @Nullable
+    private final EventLoop affineEventLoop;
     private final EventLoopGroup group;
     private final boolean autoFlowControl;
     private final int flowControlWindow;
@@ -675,6 +717,7 @@ public final class NettyChannelBuilder extends
     private final AtomicBackoff keepAliveBackoff;
     private final long keepAliveTimeoutNanos;
     private final boolean keepAliveWithoutCalls;
+    private final long flushCoalescingDelayNanos;
     private final TransportTracer.Factory transportTracerFactory;
     private final LocalSocketPicker localSocketPicker;
     private final boolean useGetForSafeMethods;
@@ -685,15 +728,21 @@ public final class NettyChannelBuilder extends
         ProtocolNegotiator protocolNegotiator,
         ChannelFactory<? extends Channel> channelFactory,
         Map<ChannelOption<?>, ?> channelOptions, ObjectPool<? extends EventLoopGroup> groupPool,
+        boolean eventLoopAffinity, @Nullable EventLoop affineEventLoop,
         boolean autoFlowControl, int flowControlWindow, int maxMessageSize, int maxHeaderListSize,
         long keepAliveTimeNanos, long keepAliveTimeoutNanos, boolean keepAliveWithoutCalls,
-        TransportTracer.Factory transportTracerFactory, LocalSocketPicker localSocketPicker,
-        boolean useGetForSafeMethods) {
+        long flushCoalescingDelayNanos, TransportTracer.Factory transportTracerFactory,
+        LocalSocketPicker localSocketPicker, boolean useGetForSafeMethods) {
       this.protocolNegotiator = checkNotNull(protocolNegotiator, "protocolNegotiator");
       this.channelFactory = channelFactory;
       this.channelOptions = new HashMap<ChannelOption<?>, Object>(channelOptions);
       this.groupPool = groupPool;
-      this.group = groupPool.getObject();
+      this.pooledGroup = groupPool.getObject();
+      if (eventLoopAffinity && affineEventLoop == null) {
+        affineEventLoop = pooledGroup.next();
+      }
+      this.affineEventLoop = affineEventLoop;
+      this.group = affineEventLoop != null ? affineEventLoop : pooledGroup;
       this.autoFlowControl = autoFlowControl;
       this.flowControlWindow = flowControlWindow;
       this.maxMessageSize = maxMessageSize;
@@ -702,6 +751,7 @@ public final class NettyChannelBuilder extends
       this.keepAliveBackoff = new AtomicBackoff("keepalive time nanos", keepAliveTimeNanos);
       this.keepAliveTimeoutNanos = keepAliveTimeoutNanos;
       this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+      this.flushCoalescingDelayNanos = flushCoalescingDelayNanos;
       this.transportTracerFactory = transportTracerFactory;
       this.localSocketPicker =
           localSocketPicker != null ? localSocketPicker : new LocalSocketPicker();
@@ -737,8 +787,9 @@ public final class NettyChannelBuilder extends
           serverAddress, channelFactory, channelOptions, group,
           localNegotiator, autoFlowControl, flowControlWindow,
           maxMessageSize, maxHeaderListSize, keepAliveTimeNanosState.get(), keepAliveTimeoutNanos,
-          keepAliveWithoutCalls, options.getAuthority(), options.getUserAgent(),
-          tooManyPingsRunnable, transportTracerFactory.create(), options.getEagAttributes(),
+          keepAliveWithoutCalls, flushCoalescingDelayNanos, options.getAuthority(),
+          options.getUserAgent(), tooManyPingsRunnable, transportTracerFactory.create(),
+          options.getEagAttributes(),
           localSocketPicker, channelLogger, useGetForSafeMethods, Ticker.systemTicker());
       return transport;
     }
@@ -748,6 +799,12 @@ public final class NettyChannelBuilder extends
       return group;
     }
 
+    @Nullable
+    @Override
+    public Executor getChannelExecutor() {
+      return affineEventLoop != null ? new EventLoopAffineExecutor(affineEventLoop) : null;
+    }
+
     @Override
     public SwapChannelCredentialsResult swapChannelCredentials(ChannelCredentials channelCreds) {
       checkNotNull(channelCreds, "channelCreds");
@@ -757,9 +814,10 @@ public final class NettyChannelBuilder extends
       }
       ClientTransportFactory factory = new NettyTransportFactory(
           result.negotiator.newNegotiator(), channelFactory, channelOptions, groupPool,
-          autoFlowControl, flowControlWindow, maxMessageSize, maxHeaderListSize, keepAliveTimeNanos,
-          keepAliveTimeoutNanos, keepAliveWithoutCalls, transportTracerFactory,  localSocketPicker,
-          useGetForSafeMethods);
+          affineEventLoop != null, affineEventLoop, autoFlowControl, flowControlWindow,
+          maxMessageSize, maxHeaderListSize, keepAliveTimeNanos, keepAliveTimeoutNanos,
+          keepAliveWithoutCalls, flushCoalescingDelayNanos, transportTracerFactory,
+          localSocketPicker, useGetForSafeMethods);
       return new SwapChannelCredentialsResult(factory, result.callCredentials);
     }
 
@@ -771,7 +829,32 @@ public final class NettyChannelBuilder extends
       closed = true;
 
       protocolNegotiator.close();
-      groupPool.returnObject(group);
+      groupPool.returnObject(pooledGroup);
+    }
+  }
+
+  /**
+   * Runs tasks immediately when called from its event loop, otherwise hands them to the loop.
+   */
+  private static final class EventLoopAffineExecutor implements Executor {
+    private final EventLoop eventLoop;
+
+    EventLoopAffineExecutor(EventLoop eventLoop) {
+      this.eventLoop = checkNotNull(eventLoop, "eventLoop");
+    }
+
+    @Override
+    public void execute(Runnable command) {
+      if (eventLoop.inEventLoop()) {
+        command.run();
+      } else {
+        eventLoop.execute(command);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return "EventLoopAffineExecutor(" + eventLoop + ")";
     }
   }
 }
@@ -347,8 +347,8 @@ class NettyClientHandler extends AbstractNettyHandler {
     }
   }
 
-  void startWriteQueue(Channel channel) {
-    clientWriteQueue = new WriteQueue(channel);
+  void startWriteQueue(Channel channel, long flushCoalescingDelayNanos) {
+    clientWriteQueue = new WriteQueue(channel, flushCoalescingDelayNanos, transportTracer);
   }
 
   WriteQueue getWriteQueue() {
@@ -87,6 +87,7 @@ class NettyClientTransport implements ConnectionClientTransport {
   private final long keepAliveTimeNanos;
   private final long keepAliveTimeoutNanos;
   private final boolean keepAliveWithoutCalls;
+  private final long flushCoalescingDelayNanos;
   private final AsciiString negotiationScheme;
   private final Runnable tooManyPingsRunnable;
   private NettyClientHandler handler;
@@ -111,9 +112,9 @@ class NettyClientTransport implements ConnectionClientTransport {
       ProtocolNegotiator negotiator, boolean autoFlowControl, int flowControlWindow,
       int maxMessageSize, int maxHeaderListSize,
       long keepAliveTimeNanos, long keepAliveTimeoutNanos,
-      boolean keepAliveWithoutCalls, String authority, @Nullable String userAgent,
-      Runnable tooManyPingsRunnable, TransportTracer transportTracer, Attributes eagAttributes,
-      LocalSocketPicker localSocketPicker, ChannelLogger channelLogger,
+      boolean keepAliveWithoutCalls, long flushCoalescingDelayNanos, String authority,
+      @Nullable String userAgent, Runnable tooManyPingsRunnable, TransportTracer transportTracer,
+      Attributes eagAttributes, LocalSocketPicker localSocketPicker, ChannelLogger channelLogger,
       boolean useGetForSafeMethods, Ticker ticker) {
 
     this.negotiator = Preconditions.checkNotNull(negotiator, "negotiator");
@@ -129,6 +130,7 @@ class NettyClientTransport implements ConnectionClientTransport {
     this.keepAliveTimeNanos = keepAliveTimeNanos;
     this.keepAliveTimeoutNanos = keepAliveTimeoutNanos;
     this.keepAliveWithoutCalls = keepAliveWithoutCalls;
+    this.flushCoalescingDelayNanos = flushCoalescingDelayNanos;
     this.authorityString = authority;
     this.authority = new AsciiString(authority);
     this.userAgent = new AsciiString(GrpcUtil.getGrpcUserAgent("netty", userAgent));
@@ -240,9 +242,9 @@ class NettyClientTransport implements ConnectionClientTransport {
     b.channelFactory(channelFactory);
     // For non-socket based channel, the option will be ignored.
     b.option(SO_KEEPALIVE, true);
-    // For non-epoll based channel, the option will be ignored.
+    // For non-native channels, the option will be ignored.
     if (keepAliveTimeNanos != KEEPALIVE_TIME_NANOS_DISABLED) {
-      ChannelOption<Integer> tcpUserTimeout = Utils.maybeGetTcpUserTimeoutOption();
+      ChannelOption<Integer> tcpUserTimeout = Utils.maybeGetTcpUserTimeoutOption(eventLoop);
       if (tcpUserTimeout != null) {
         b.option(tcpUserTimeout, (int) TimeUnit.NANOSECONDS.toMillis(keepAliveTimeoutNanos));
       }
@@ -286,7 +288,7 @@ class NettyClientTransport implements ConnectionClientTransport {
     }
     channel = regFuture.channel();
     // Start the write queue as soon as the channel is constructed
-    handler.startWriteQueue(channel);
+    handler.startWriteQueue(channel, flushCoalescingDelayNanos);
     // This write will have no effect, yet it will only complete once the negotiationHandler
     // flushes any pending writes. We need it to be staged *before* the `connect` so that
     // the channel can't have been closed yet, removing all handlers. This write will sit in the
@@ -113,6 +113,7 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
   private long maxConnectionAgeGraceInNanos = MAX_CONNECTION_AGE_GRACE_NANOS_INFINITE;
   private boolean permitKeepAliveWithoutCalls;
   private long permitKeepAliveTimeInNanos = TimeUnit.MINUTES.toNanos(5);
+  private long flushCoalescingDelayNanos;
   private Attributes eagAttributes = Attributes.EMPTY;
 
   /**
@@ -323,6 +324,10 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
    * soon as the main thread completes.
    * A simple solution to this problem is to call {@link io.grpc.Server#awaitTermination()} to
    * keep the main thread alive until the server has terminated.
+   *
+   * <p>Each accepted connection is bound to a single worker loop for its lifetime. Combined with
+   * {@link #directExecutor()}, all callbacks and deadline timers of the calls on a connection run
+   * on that loop, avoiding thread hand-offs for handlers that never block.
    */
   @CanIgnoreReturnValue
   public NettyServerBuilder workerEventLoopGroup(EventLoopGroup group) {
@@ -644,6 +649,19 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
     return this;
   }
 
+  /**
+   * Sets the maximum time a connection may delay flushing its writes while it is busy, so that
+   * writes from many concurrent calls are merged into fewer flushes. A connection is considered
+   * busy when many writes are queued at once or the event loop is slow to process them; idle
+   * connections always flush immediately. Defaults to {@code 0}, which disables coalescing.
+   */
+  @CanIgnoreReturnValue
+  public NettyServerBuilder flushCoalescingDelay(long delay, TimeUnit timeUnit) {
+    checkArgument(delay >= 0L, "flush coalescing delay must be non-negative: %s", delay);
+    flushCoalescingDelayNanos = timeUnit.toNanos(delay);
+    return this;
+  }
+
   /** Sets the EAG attributes available to protocol negotiators. Not for general use. */
   void eagAttributes(Attributes eagAttributes) {
     this.eagAttributes = checkNotNull(eagAttributes, "eagAttributes");
@@ -664,7 +682,7 @@ public final class NettyServerBuilder extends AbstractServerImplBuilder<NettySer
         keepAliveTimeInNanos, keepAliveTimeoutInNanos,
         maxConnectionIdleInNanos, maxConnectionAgeInNanos,
         maxConnectionAgeGraceInNanos, permitKeepAliveWithoutCalls, permitKeepAliveTimeInNanos,
-        eagAttributes, this.serverImplBuilder.getChannelz());
+        flushCoalescingDelayNanos, eagAttributes, this.serverImplBuilder.getChannelz());
   }
 
   @VisibleForTesting
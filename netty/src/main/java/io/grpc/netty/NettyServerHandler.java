@@ -124,6 +124,7 @@ class NettyServerHandler extends AbstractNettyHandler {
   private final long keepAliveTimeoutInNanos;
   private final long maxConnectionAgeInNanos;
   private final long maxConnectionAgeGraceInNanos;
+  private final long flushCoalescingDelayNanos;
   private final List<? extends ServerStreamTracer.Factory> streamTracerFactories;
   private final TransportTracer transportTracer;
   private final KeepAliveEnforcer keepAliveEnforcer;
@@ -163,6 +164,7 @@ class NettyServerHandler extends AbstractNettyHandler {
       long maxConnectionAgeGraceInNanos,
       boolean permitKeepAliveWithoutCalls,
       long permitKeepAliveTimeInNanos,
+      long flushCoalescingDelayNanos,
       Attributes eagAttributes) {
     Preconditions.checkArgument(maxHeaderListSize > 0, "maxHeaderListSize must be positive: %s",
         maxHeaderListSize);
@@ -191,6 +193,7 @@ class NettyServerHandler extends AbstractNettyHandler {
         maxConnectionAgeGraceInNanos,
         permitKeepAliveWithoutCalls,
         permitKeepAliveTimeInNanos,
+        flushCoalescingDelayNanos,
         eagAttributes,
         Ticker.systemTicker());
   }
@@ -214,6 +217,7 @@ class NettyServerHandler extends AbstractNettyHandler {
       long maxConnectionAgeGraceInNanos,
       boolean permitKeepAliveWithoutCalls,
       long permitKeepAliveTimeInNanos,
+      long flushCoalescingDelayNanos,
       Attributes eagAttributes,
       Ticker ticker) {
     Preconditions.checkArgument(maxStreams > 0, "maxStreams must be positive: %s", maxStreams);
@@ -265,6 +269,7 @@ class NettyServerHandler extends AbstractNettyHandler {
         maxConnectionAgeInNanos, maxConnectionAgeGraceInNanos,
         keepAliveEnforcer,
         autoFlowControl,
+        flushCoalescingDelayNanos,
         eagAttributes, ticker);
   }
 
@@ -285,6 +290,7 @@ class NettyServerHandler extends AbstractNettyHandler {
       long maxConnectionAgeGraceInNanos,
       final KeepAliveEnforcer keepAliveEnforcer,
       boolean autoFlowControl,
+      long flushCoalescingDelayNanos,
       Attributes eagAttributes,
       Ticker ticker) {
     super(channelUnused, decoder, encoder, settings, new ServerChannelLogger(),
@@ -326,6 +332,7 @@ class NettyServerHandler extends AbstractNettyHandler {
     this.maxConnectionIdleManager = maxConnectionIdleManager;
     this.maxConnectionAgeInNanos = maxConnectionAgeInNanos;
     this.maxConnectionAgeGraceInNanos = maxConnectionAgeGraceInNanos;
+    this.flushCoalescingDelayNanos = flushCoalescingDelayNanos;
     this.keepAliveEnforcer = checkNotNull(keepAliveEnforcer, "keepAliveEnforcer");
     this.eagAttributes = checkNotNull(eagAttributes, "eagAttributes");
 
@@ -344,7 +351,7 @@ class NettyServerHandler extends AbstractNettyHandler {
 
   @Override
   public void handlerAdded(final ChannelHandlerContext ctx) throws Exception {
-    serverWriteQueue = new WriteQueue(ctx.channel());
+    serverWriteQueue = new WriteQueue(ctx.channel(), flushCoalescingDelayNanos, transportTracer);
 
     // init max connection age monitor
     if (maxConnectionAgeInNanos != MAX_CONNECTION_AGE_NANOS_DISABLED) {
@@ -18,6 +18,7 @@ package io.grpc.netty;
 
 import io.grpc.internal.WritableBuffer;
 import io.netty.buffer.ByteBuf;
+import java.nio.ByteBuffer;
 
 /**
  * The {@link WritableBuffer} used by the Netty transport.
@@ -35,6 +36,11 @@ class NettyWritableBuffer implements WritableBuffer {
     bytebuf.writeBytes(src, srcIndex, length);
   }
 
+  @Override
+  public void write(ByteBuffer src) {
+    bytebuf.writeBytes(src);
+  }
+
   @Override
   public void write(byte b) {
     bytebuf.writeByte(b);
@@ -54,7 +54,7 @@ public final class UdsNettyChannelProvider extends ManagedChannelProvider {
     NewChannelBuilderResult result = new NettyChannelProvider().newChannelBuilder(target, creds);
     if (result.getChannelBuilder() != null) {
       ((NettyChannelBuilder) result.getChannelBuilder())
-          .eventLoopGroupPool(SharedResourcePool.forResource(Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP))
+          .eventLoopGroupPool(SharedResourcePool.forResource(Utils.EPOLL_WORKER_EVENT_LOOP_GROUP))
           .channelType(Utils.EPOLL_DOMAIN_CLIENT_CHANNEL_TYPE);
     }
     return result;
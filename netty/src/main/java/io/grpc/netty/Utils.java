@@ -74,6 +74,7 @@ import javax.net.ssl.SSLException;
  */
 class Utils {
   private static final Logger logger = Logger.getLogger(Utils.class.getName());
+  private static final String IO_URING_PACKAGE = "io.netty.incubator.channel.uring.";
 
   public static final AsciiString STATUS_OK = AsciiString.of("200");
   public static final AsciiString HTTP_METHOD = AsciiString.of(GrpcUtil.HTTP_METHOD);
@@ -106,29 +107,59 @@ class Utils {
   public static final ChannelFactory<? extends ServerChannel> DEFAULT_SERVER_CHANNEL_FACTORY;
   public static final Class<? extends Channel> DEFAULT_CLIENT_CHANNEL_TYPE;
   public static final Class<? extends Channel> EPOLL_DOMAIN_CLIENT_CHANNEL_TYPE;
+  /**
+   * Epoll worker group for the channels that only epoll supports, like domain sockets. {@code null}
+   * if Epoll is not available.
+   */
+  @Nullable
+  public static final Resource<EventLoopGroup> EPOLL_WORKER_EVENT_LOOP_GROUP;
 
   @Nullable
   private static final Constructor<? extends EventLoopGroup> EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR;
+  @Nullable
+  private static final Constructor<? extends EventLoopGroup> IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR;
 
   static {
-    // Decide default channel types and EventLoopGroup based on Epoll availability
-    if (isEpollAvailable()) {
-      DEFAULT_CLIENT_CHANNEL_TYPE = epollChannelType();
+    boolean epollAvailable = isEpollAvailable();
+    if (epollAvailable) {
       EPOLL_DOMAIN_CLIENT_CHANNEL_TYPE = epollDomainSocketChannelType();
-      DEFAULT_SERVER_CHANNEL_FACTORY = new ReflectiveChannelFactory<>(epollServerChannelType());
       EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR = epollEventLoopGroupConstructor();
+    } else {
+      EPOLL_DOMAIN_CLIENT_CHANNEL_TYPE = null;
+      EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR = null;
+    }
+    // Decide default channel types and EventLoopGroup based on native transport availability,
+    // preferring io_uring over Epoll. io_uring is only available if the incubator transport is on
+    // the classpath.
+    if (Boolean.parseBoolean(System.getProperty("io.grpc.netty.useIoUring", "true"))
+        && isIoUringAvailable()) {
+      DEFAULT_CLIENT_CHANNEL_TYPE = ioUringChannelType();
+      DEFAULT_SERVER_CHANNEL_FACTORY = new ReflectiveChannelFactory<>(ioUringServerChannelType());
+      IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR = ioUringEventLoopGroupConstructor();
+      DEFAULT_BOSS_EVENT_LOOP_GROUP = new DefaultEventLoopGroupResource(
+          1, "grpc-default-boss-ELG", EventLoopGroupType.IO_URING);
+      DEFAULT_WORKER_EVENT_LOOP_GROUP = new DefaultEventLoopGroupResource(
+          0, "grpc-default-worker-ELG", EventLoopGroupType.IO_URING);
+      EPOLL_WORKER_EVENT_LOOP_GROUP = epollAvailable
+          ? new DefaultEventLoopGroupResource(0, "grpc-epoll-worker-ELG", EventLoopGroupType.EPOLL)
+          : null;
+    } else if (epollAvailable) {
+      DEFAULT_CLIENT_CHANNEL_TYPE = epollChannelType();
+      DEFAULT_SERVER_CHANNEL_FACTORY = new ReflectiveChannelFactory<>(epollServerChannelType());
+      IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR = null;
       DEFAULT_BOSS_EVENT_LOOP_GROUP
         = new DefaultEventLoopGroupResource(1, "grpc-default-boss-ELG", EventLoopGroupType.EPOLL);
       DEFAULT_WORKER_EVENT_LOOP_GROUP
         = new DefaultEventLoopGroupResource(0,"grpc-default-worker-ELG", EventLoopGroupType.EPOLL);
+      EPOLL_WORKER_EVENT_LOOP_GROUP = DEFAULT_WORKER_EVENT_LOOP_GROUP;
     } else {
       logger.log(Level.FINE, "Epoll is not available, using Nio.", getEpollUnavailabilityCause());
       DEFAULT_SERVER_CHANNEL_FACTORY = nioServerChannelFactory();
       DEFAULT_CLIENT_CHANNEL_TYPE = NioSocketChannel.class;
-      EPOLL_DOMAIN_CLIENT_CHANNEL_TYPE = null;
       DEFAULT_BOSS_EVENT_LOOP_GROUP = NIO_BOSS_EVENT_LOOP_GROUP;
       DEFAULT_WORKER_EVENT_LOOP_GROUP = NIO_WORKER_EVENT_LOOP_GROUP;
-      EPOLL_EVENT_LOOP_GROUP_CONSTRUCTOR = null;
+      IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR = null;
+      EPOLL_WORKER_EVENT_LOOP_GROUP = null;
     }
   }
 
@@ -380,6 +411,67 @@ class Utils {
     }
   }
 
+  @VisibleForTesting
+  static boolean isIoUringAvailable() {
+    try {
+      return (boolean) (Boolean)
+          Class
+              .forName(IO_URING_PACKAGE + "IOUring")
+              .getDeclaredMethod("isAvailable")
+              .invoke(null);
+    } catch (ClassNotFoundException e) {
+      // this is normal if the netty-incubator-transport-io_uring dependency doesn't exist.
+      return false;
+    } catch (Exception e) {
+      throw new RuntimeException("Exception while checking io_uring availability", e);
+    }
+  }
+
+  // Must call when io_uring is available
+  private static Class<? extends Channel> ioUringChannelType() {
+    try {
+      return Class.forName(IO_URING_PACKAGE + "IOUringSocketChannel").asSubclass(Channel.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Cannot load IOUringSocketChannel", e);
+    }
+  }
+
+  // Must call when io_uring is available
+  private static Constructor<? extends EventLoopGroup> ioUringEventLoopGroupConstructor() {
+    try {
+      return Class
+          .forName(IO_URING_PACKAGE + "IOUringEventLoopGroup").asSubclass(EventLoopGroup.class)
+          .getConstructor(Integer.TYPE, ThreadFactory.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Cannot load IOUringEventLoopGroup", e);
+    } catch (NoSuchMethodException e) {
+      throw new RuntimeException("IOUringEventLoopGroup constructor not found", e);
+    }
+  }
+
+  // Must call when io_uring is available
+  private static Class<? extends ServerChannel> ioUringServerChannelType() {
+    try {
+      return Class
+          .forName(IO_URING_PACKAGE + "IOUringServerSocketChannel")
+          .asSubclass(ServerChannel.class);
+    } catch (ClassNotFoundException e) {
+      throw new RuntimeException("Cannot load IOUringServerSocketChannel", e);
+    }
+  }
+
+  private static EventLoopGroup createIoUringEventLoopGroup(
+      int parallelism,
+      ThreadFactory threadFactory) {
+    checkState(IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR != null, "io_uring is not available");
+
+    try {
+      return IO_URING_EVENT_LOOP_GROUP_CONSTRUCTOR.newInstance(parallelism, threadFactory);
+    } catch (Exception e) {
+      throw new RuntimeException("Cannot create io_uring EventLoopGroup", e);
+    }
+  }
+
   private static ChannelFactory<ServerChannel> nioServerChannelFactory() {
     return new ChannelFactory<ServerChannel>() {
       @Override
@@ -398,6 +490,18 @@ class Utils {
     return getEpollChannelOption("TCP_USER_TIMEOUT");
   }
 
+  /**
+   * Returns TCP_USER_TIMEOUT channel option for the native transport of the channels registered
+   * with {@code eventLoopGroup}, or null if it is not a native transport.
+   */
+  @Nullable
+  static ChannelOption<Integer> maybeGetTcpUserTimeoutOption(EventLoopGroup eventLoopGroup) {
+    if (eventLoopGroup.getClass().getName().startsWith(IO_URING_PACKAGE)) {
+      return getIoUringChannelOption("TCP_USER_TIMEOUT");
+    }
+    return maybeGetTcpUserTimeoutOption();
+  }
+
   @Nullable
   @SuppressWarnings("unchecked")
   private static <T> ChannelOption<T> getEpollChannelOption(String optionName) {
@@ -414,6 +518,21 @@ class Utils {
     return null;
   }
 
+  @Nullable
+  @SuppressWarnings("unchecked")
+  private static <T> ChannelOption<T> getIoUringChannelOption(String optionName) {
+    try {
+      return (ChannelOption<T>) Class.forName(IO_URING_PACKAGE + "IOUringChannelOption")
+          .getField(optionName)
+          .get(null);
+    } catch (NoSuchFieldException e) {
+      // Not every version of the incubator transport supports every option
+      return null;
+    } catch (Exception e) {
+      throw new RuntimeException("ChannelOption(" + optionName + ") is not available", e);
+    }
+  }
+
   private static final class DefaultEventLoopGroupResource implements Resource<EventLoopGroup> {
     private final String name;
     private final int numEventLoops;
@@ -444,6 +563,8 @@ class Utils {
           return new NioEventLoopGroup(numEventLoops, threadFactory);
         case EPOLL:
           return createEpollEventLoopGroup(numEventLoops, threadFactory);
+        case IO_URING:
+          return createIoUringEventLoopGroup(numEventLoops, threadFactory);
         default:
           throw new AssertionError("Unknown/Unsupported EventLoopGroupType: " + eventLoopGroupType);
       }
@@ -523,7 +644,8 @@ class Utils {
 
   private enum EventLoopGroupType {
     NIO,
-    EPOLL
+    EPOLL,
+    IO_URING
   }
 
   private Utils() {
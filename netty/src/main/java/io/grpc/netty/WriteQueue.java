@@ -19,6 +19,7 @@ package io.grpc.netty;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
 import com.google.errorprone.annotations.CanIgnoreReturnValue;
+import io.grpc.internal.TransportTracer;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelPromise;
@@ -26,6 +27,7 @@ import io.perfmark.Link;
 import io.perfmark.PerfMark;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -37,22 +39,59 @@ class WriteQueue {
   @VisibleForTesting
   static final int DEQUE_CHUNK_SIZE = 128;
 
+  // When flush coalescing is enabled, draining at least this many commands in one go means the
+  // connection is busy and the flush may be delayed to merge it with writes that follow.
+  @VisibleForTesting
+  static final int BUSY_QUEUE_DEPTH = 16;
+
   /**
    * {@link Runnable} used to schedule work onto the tail of the event loop.
    */
   private final Runnable later = new Runnable() {
     @Override
     public void run() {
-      flush();
+      flush(true);
+    }
+  };
+
+  /**
+   * {@link Runnable} used to perform a flush that was delayed to coalesce writes.
+   */
+  private final Runnable delayedFlush = new Runnable() {
+    @Override
+    public void run() {
+      delayedFlushPending = false;
+      flushChannel("WriteQueue.delayedFlush");
     }
   };
 
   private final Channel channel;
   private final Queue<QueuedCommand> queue;
   private final AtomicBoolean scheduled = new AtomicBoolean();
+  private final long maxFlushDelayNanos;
+  private final TransportTracer transportTracer;
+  // Written before submitting to the event loop and read on the event loop, so the executor
+  // provides the necessary happens-before.
+  private long flushScheduledNanos;
+  // Only accessed from the event loop.
+  private boolean delayedFlushPending;
+  private int unflushedWrites;
 
   public WriteQueue(Channel channel) {
+    this(channel, 0, new TransportTracer());
+  }
+
+  /**
+   * Creates a write queue that may delay flushes by up to {@code maxFlushDelayNanos} while the
+   * connection is busy, so that writes of many streams are merged into fewer flushes. A delay of
+   * {@code 0} disables coalescing and always flushes once the queue is drained.
+   */
+  public WriteQueue(Channel channel, long maxFlushDelayNanos, TransportTracer transportTracer) {
     this.channel = Preconditions.checkNotNull(channel, "channel");
+    Preconditions.checkArgument(
+        maxFlushDelayNanos >= 0, "maxFlushDelayNanos must be non-negative");
+    this.maxFlushDelayNanos = maxFlushDelayNanos;
+    this.transportTracer = Preconditions.checkNotNull(transportTracer, "transportTracer");
     queue = new ConcurrentLinkedQueue<>();
   }
 
@@ -61,6 +100,9 @@ class WriteQueue {
    */
   void scheduleFlush() {
     if (scheduled.compareAndSet(false, true)) {
+      if (maxFlushDelayNanos > 0) {
+        flushScheduledNanos = System.nanoTime();
+      }
       // Add the queue to the tail of the event loop so writes will be executed immediately
       // inside the event loop. Note DO NOT do channel.write outside the event loop as
       // it will not wake up immediately without a flush.
@@ -111,42 +153,50 @@ class WriteQueue {
     if (queue.peek() == null) {
       return;
     }
-    flush();
+    flush(false);
   }
 
   /**
    * Process the queue of commands and dispatch them to the stream. This method is only
    * called in the event loop
+   *
+   * @param mayCoalesce whether the final flush may be delayed if the connection is busy
    */
-  private void flush() {
+  private void flush(boolean mayCoalesce) {
     PerfMark.startTask("WriteQueue.periodicFlush");
     try {
+      long loopLatencyNanos = 0;
+      if (mayCoalesce && maxFlushDelayNanos > 0) {
+        loopLatencyNanos = System.nanoTime() - flushScheduledNanos;
+      }
       QueuedCommand cmd;
       int i = 0;
+      int drained = 0;
       boolean flushedOnce = false;
       while ((cmd = queue.poll()) != null) {
         cmd.run(channel);
+        drained++;
+        unflushedWrites++;
         if (++i == DEQUE_CHUNK_SIZE) {
           i = 0;
           // Flush each chunk so we are releasing buffers periodically. In theory this loop
           // might never end as new events are continuously added to the queue, if we never
           // flushed in that case we would be guaranteed to OOM.
-          PerfMark.startTask("WriteQueue.flush0");
-          try {
-            channel.flush();
-          } finally {
-            PerfMark.stopTask("WriteQueue.flush0");
-          }
+          flushChannel("WriteQueue.flush0");
           flushedOnce = true;
         }
       }
       // Must flush at least once, even if there were no writes.
       if (i != 0 || !flushedOnce) {
-        PerfMark.startTask("WriteQueue.flush1");
-        try {
-          channel.flush();
-        } finally {
-          PerfMark.stopTask("WriteQueue.flush1");
+        if (mayCoalesce && (delayedFlushPending || isBusy(drained, loopLatencyNanos))) {
+          // The delayed flush picks up whatever is written until it runs, so later drains merge
+          // into it. Scheduling only once bounds the extra latency to maxFlushDelayNanos.
+          if (!delayedFlushPending) {
+            delayedFlushPending = true;
+            channel.eventLoop().schedule(delayedFlush, maxFlushDelayNanos, TimeUnit.NANOSECONDS);
+          }
+        } else {
+          flushChannel("WriteQueue.flush1");
         }
       }
     } finally {
@@ -159,6 +209,27 @@ class WriteQueue {
     }
   }
 
+  /**
+   * Returns {@code true} if flush coalescing is enabled and either many commands were queued or
+   * the event loop took long to get to them. When the connection is idle neither holds, so flushes
+   * are never delayed.
+   */
+  private boolean isBusy(int drained, long loopLatencyNanos) {
+    return maxFlushDelayNanos > 0
+        && (drained >= BUSY_QUEUE_DEPTH || loopLatencyNanos >= maxFlushDelayNanos);
+  }
+
+  private void flushChannel(String taskName) {
+    PerfMark.startTask(taskName);
+    try {
+      channel.flush();
+    } finally {
+      PerfMark.stopTask(taskName);
+    }
+    transportTracer.reportFlush(unflushedWrites);
+    unflushedWrites = 0;
+  }
+
   private static class RunnableCommand implements QueuedCommand {
     private final Runnable runnable;
     private final Link link;
@@ -21,6 +21,8 @@ import static io.grpc.Metadata.BINARY_BYTE_MARSHALLER;
 import static io.grpc.internal.GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE;
 import static io.netty.util.AsciiString.of;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -280,6 +282,23 @@ public class GrpcHttp2HeadersUtilsTest {
         values));
   }
 
+  @Test
+  public void wellKnownNamesAreInterned() {
+    AsciiString buffer = AsciiString.of("xgrpc-encodingx");
+    GrpcHttp2RequestHeaders first = new GrpcHttp2RequestHeaders(2);
+    first.add(buffer.subSequence(1, 14, false), AsciiString.of("gzip"));
+    first.add(AsciiString.of("custom-header"), AsciiString.of("value"));
+    GrpcHttp2RequestHeaders second = new GrpcHttp2RequestHeaders(2);
+    second.add(AsciiString.of("grpc-encoding"), AsciiString.of("gzip"));
+    second.add(AsciiString.of("custom-header"), AsciiString.of("value"));
+
+    assertSame(first.namesAndValues()[0], second.namesAndValues()[0]);
+    assertNotSame(first.namesAndValues()[2], second.namesAndValues()[2]);
+    Metadata metadata = Utils.convertHeaders(first);
+    assertEquals("gzip",
+        metadata.get(Key.of("grpc-encoding", Metadata.ASCII_STRING_MARSHALLER)));
+  }
+
   @Test
   public void headerGetAll_notPresent() {
     Http2Headers http2Headers = new GrpcHttp2RequestHeaders(2);
@@ -22,20 +22,25 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import io.grpc.ChannelCredentials;
 import io.grpc.InsecureChannelCredentials;
 import io.grpc.ManagedChannel;
 import io.grpc.internal.ClientTransportFactory;
 import io.grpc.internal.ClientTransportFactory.SwapChannelCredentialsResult;
+import io.grpc.internal.ManagedChannelImplBuilder.ChannelExecutorProvider;
 import io.grpc.netty.NettyTestUtil.TrackingObjectPoolForTest;
 import io.grpc.netty.ProtocolNegotiators.PlaintextProtocolNegotiatorClientFactory;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFactory;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.local.LocalChannel;
 import io.netty.handler.ssl.SslContext;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import javax.net.ssl.SSLException;
 import org.junit.Rule;
@@ -324,4 +329,62 @@ public class NettyChannelBuilderTest {
         NettyChannelCredentials.create(new PlaintextProtocolNegotiatorClientFactory()));
     assertThat(result).isNotNull();
   }
+
+  @Test
+  public void eventLoopAffinity_pinsTransportsToOneLoop() {
+    EventLoopGroup group = new DefaultEventLoopGroup(4);
+    try {
+      NettyChannelBuilder builder = NettyChannelBuilder.forTarget("fakeTarget")
+          .eventLoopGroup(group)
+          .channelType(LocalChannel.class)
+          .eventLoopAffinity(true);
+      ClientTransportFactory transportFactory = builder.buildTransportFactory();
+
+      ScheduledExecutorService scheduler = transportFactory.getScheduledExecutorService();
+      assertThat(scheduler).isInstanceOf(EventLoop.class);
+      assertThat(((EventLoop) scheduler).parent()).isSameInstanceAs(group);
+      assertThat(((ChannelExecutorProvider) transportFactory).getChannelExecutor()).isNotNull();
+      transportFactory.close();
+    } finally {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void eventLoopAffinity_decidedEachTimeChannelIsBuilt() {
+    EventLoopGroup group = new DefaultEventLoopGroup(4);
+    try {
+      NettyChannelBuilder builder = NettyChannelBuilder.forTarget("fakeTarget")
+          .eventLoopGroup(group)
+          .channelType(LocalChannel.class)
+          .executor(MoreExecutors.directExecutor())
+          .eventLoopAffinity(true);
+      ClientTransportFactory affineFactory = builder.buildTransportFactory();
+      affineFactory.close();
+
+      builder.eventLoopAffinity(false);
+      ClientTransportFactory transportFactory = builder.buildTransportFactory();
+      // Null means the channel uses the executor configured on the builder.
+      assertThat(((ChannelExecutorProvider) transportFactory).getChannelExecutor()).isNull();
+      transportFactory.close();
+    } finally {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  public void eventLoopAffinity_disabledByDefault() {
+    EventLoopGroup group = new DefaultEventLoopGroup(4);
+    try {
+      NettyChannelBuilder builder = NettyChannelBuilder.forTarget("fakeTarget")
+          .eventLoopGroup(group)
+          .channelType(LocalChannel.class);
+      ClientTransportFactory transportFactory = builder.buildTransportFactory();
+
+      assertThat(transportFactory.getScheduledExecutorService()).isSameInstanceAs(group);
+      transportFactory.close();
+    } finally {
+      group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+  }
 }
@@ -956,7 +956,7 @@ public class NettyClientHandlerTest extends NettyHandlerTestBase<NettyClientHand
 
   @Override
   protected WriteQueue initWriteQueue() {
-    handler().startWriteQueue(channel());
+    handler().startWriteQueue(channel(), /* flushCoalescingDelayNanos= */ 0);
     return handler().getWriteQueue();
   }
 
@@ -1267,6 +1267,7 @@ public class NettyServerHandlerTest extends NettyHandlerTestBase<NettyServerHand
         maxConnectionAgeGraceInNanos,
         permitKeepAliveWithoutCalls,
         permitKeepAliveTimeInNanos,
+        /* flushCoalescingDelayNanos= */ 0,
         Attributes.EMPTY,
         fakeClock().getTicker());
   }
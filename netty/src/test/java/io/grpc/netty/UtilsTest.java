@@ -36,6 +36,7 @@ import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.handler.codec.http2.DefaultHttp2Headers;
 import io.netty.handler.codec.http2.Http2Error;
@@ -224,4 +225,42 @@ public class UtilsTest {
 
     assertThat(Utils.maybeGetTcpUserTimeoutOption()).isNotNull();
   }
+
+  @Test
+  public void defaultEventLoopGroup_whenIoUringIsAvailable() {
+    assume().that(Utils.isIoUringAvailable()).isTrue();
+
+    EventLoopGroup defaultWorkerGroup = Utils.DEFAULT_WORKER_EVENT_LOOP_GROUP.create();
+
+    assertThat(defaultWorkerGroup.getClass().getName())
+        .isEqualTo("io.netty.incubator.channel.uring.IOUringEventLoopGroup");
+    assertThat(Utils.DEFAULT_CLIENT_CHANNEL_TYPE.getName())
+        .isEqualTo("io.netty.incubator.channel.uring.IOUringSocketChannel");
+    assertThat(Utils.DEFAULT_SERVER_CHANNEL_FACTORY.toString())
+        .isEqualTo("ReflectiveChannelFactory(IOUringServerSocketChannel.class)");
+
+    defaultWorkerGroup.shutdownGracefully();
+  }
+
+  @Test
+  public void maybeGetTcpUserTimeoutOption_nioEventLoopGroup() {
+    EventLoopGroup group = new NioEventLoopGroup(1);
+    try {
+      assertThat(Utils.maybeGetTcpUserTimeoutOption(group.next()))
+          .isEqualTo(Utils.maybeGetTcpUserTimeoutOption());
+    } finally {
+      group.shutdownGracefully();
+    }
+  }
+
+  @Test
+  public void epollWorkerEventLoopGroup() {
+    assume().that(Utils.isEpollAvailable()).isTrue();
+
+    EventLoopGroup group = Utils.EPOLL_WORKER_EVENT_LOOP_GROUP.create();
+
+    assertThat(group.getClass().getName())
+        .isEqualTo("io.netty.channel.epoll.EpollEventLoopGroup");
+    group.shutdownGracefully();
+  }
 }
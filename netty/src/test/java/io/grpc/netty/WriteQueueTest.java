@@ -16,21 +16,26 @@
 
 package io.grpc.netty;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import io.grpc.internal.TransportTracer;
 import io.grpc.netty.WriteQueue.QueuedCommand;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.EventLoop;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import org.junit.Before;
 import org.junit.Rule;
@@ -38,6 +43,7 @@ import org.junit.Test;
 import org.junit.rules.Timeout;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -58,6 +64,7 @@ public class WriteQueueTest {
   @Mock
   public ChannelPromise promise;
 
+  private EventLoop eventLoop;
   private long writeCalledNanos;
   private long flushCalledNanos = writeCalledNanos;
 
@@ -69,7 +76,7 @@ public class WriteQueueTest {
     MockitoAnnotations.initMocks(this);
     when(channel.newPromise()).thenReturn(promise);
 
-    EventLoop eventLoop = Mockito.mock(EventLoop.class);
+    eventLoop = Mockito.mock(EventLoop.class);
     doAnswer(new Answer<Void>() {
       @Override
       public Void answer(InvocationOnMock invocation) throws Throwable {
@@ -201,6 +208,56 @@ public class WriteQueueTest {
     verify(channel, times(writes)).write(isA(CuteCommand.class), eq(promise));
   }
 
+  @Test
+  public void coalescing_idleQueueFlushesImmediately() {
+    TransportTracer transportTracer = new TransportTracer();
+    WriteQueue queue = new WriteQueue(channel, TimeUnit.SECONDS.toNanos(1), transportTracer);
+    queue.enqueue(new CuteCommand(), true);
+
+    verify(channel).flush();
+    verify(eventLoop, never()).schedule(any(Runnable.class), anyLong(), any(TimeUnit.class));
+    assertEquals(1, transportTracer.getStats().flushes);
+    assertEquals(1, transportTracer.getStats().writesFlushed);
+  }
+
+  @Test
+  public void coalescing_busyQueueDelaysFlush() {
+    TransportTracer transportTracer = new TransportTracer();
+    long delayNanos = TimeUnit.SECONDS.toNanos(1);
+    WriteQueue queue = new WriteQueue(channel, delayNanos, transportTracer);
+    for (int i = 0; i < WriteQueue.BUSY_QUEUE_DEPTH; i++) {
+      queue.enqueue(new CuteCommand(), false);
+    }
+    queue.scheduleFlush();
+    // More writes arriving before the delayed flush are merged into it.
+    queue.enqueue(new CuteCommand(), true);
+
+    verify(channel, times(WriteQueue.BUSY_QUEUE_DEPTH + 1))
+        .write(isA(QueuedCommand.class), eq(promise));
+    verify(channel, never()).flush();
+    ArgumentCaptor<Runnable> delayedFlush = ArgumentCaptor.forClass(Runnable.class);
+    verify(eventLoop).schedule(delayedFlush.capture(), eq(delayNanos), eq(TimeUnit.NANOSECONDS));
+
+    delayedFlush.getValue().run();
+    verify(channel).flush();
+    assertEquals(1, transportTracer.getStats().flushes);
+    assertEquals(WriteQueue.BUSY_QUEUE_DEPTH + 1, transportTracer.getStats().writesFlushed);
+  }
+
+  @Test
+  public void coalescing_disabledByDefault() {
+    TransportTracer transportTracer = new TransportTracer();
+    WriteQueue queue = new WriteQueue(channel, 0, transportTracer);
+    for (int i = 0; i < WriteQueue.BUSY_QUEUE_DEPTH; i++) {
+      queue.enqueue(new CuteCommand(), false);
+    }
+    queue.scheduleFlush();
+
+    verify(channel).flush();
+    assertEquals(1, transportTracer.getStats().flushes);
+    assertEquals(WriteQueue.BUSY_QUEUE_DEPTH, transportTracer.getStats().writesFlushed);
+  }
+
   static class CuteCommand extends WriteQueue.AbstractQueuedCommand {
 
   }
@@ -0,0 +1,118 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.okhttp;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates the bandwidth-delay product of a connection by timing PINGs against the amount of data
+ * received while they are outstanding, and grows the inbound flow control window to match. This
+ * mirrors the Netty transport's {@code AbstractNettyHandler.FlowControlPinger}.
+ *
+ * <p>Not thread-safe; it is only used from the transport's frame reader thread.
+ */
+final class BdpPinger {
+  /** Payload of the PINGs used to measure the bandwidth-delay product. */
+  static final long BDP_MEASUREMENT_PING = 1234;
+  @VisibleForTesting
+  static final int MAX_WINDOW_SIZE = 8 * 1024 * 1024;
+  private static final int MAX_BACKOFF = 10;
+
+  /** The transport operations needed by the pinger. */
+  interface Transport {
+    /** Writes a PING frame with {@link #BDP_MEASUREMENT_PING} as payload. */
+    void sendBdpPing();
+
+    /**
+     * Raises the connection window and the initial window of every stream to {@code newWindow},
+     * letting the peer know through SETTINGS and WINDOW_UPDATE frames.
+     */
+    void raiseInboundWindow(int newWindow);
+  }
+
+  private final Transport transport;
+  private final Ticker ticker;
+  private int window;
+  private boolean pinging;
+  private int dataSizeSincePing;
+  private long lastPingTime;
+  private long lastBandwidth; // bytes per second
+  private int pingFrequencyMultiplier = 1;
+  private int pingCount;
+
+  BdpPinger(int initialWindow, Transport transport, Ticker ticker) {
+    Preconditions.checkArgument(initialWindow > 0, "initialWindow must be positive");
+    this.window = initialWindow;
+    this.transport = Preconditions.checkNotNull(transport, "transport");
+    this.ticker = Preconditions.checkNotNull(ticker, "ticker");
+  }
+
+  /** Returns the current inbound window. */
+  int window() {
+    return window;
+  }
+
+  /**
+   * Accounts for a received DATA frame, sending a measurement PING if enough data has been received
+   * since the last one. Requiring data before each PING also keeps the peer's ping policing
+   * satisfied.
+   */
+  void onDataRead(int length) {
+    if (!pinging && (long) dataSizeSincePing * 2 >= (long) window * pingFrequencyMultiplier) {
+      pinging = true;
+      dataSizeSincePing = 0;
+      lastPingTime = ticker.read();
+      pingCount++;
+      transport.sendBdpPing();
+    }
+    dataSizeSincePing += length;
+  }
+
+  /**
+   * Handles a PING ack. Returns {@code true} if the ack was for the measurement PING, in which case
+   * the window may have been raised; {@code false} if it belongs to someone else.
+   */
+  boolean onPingAck(long payload) {
+    if (!pinging || payload != BDP_MEASUREMENT_PING) {
+      return false;
+    }
+    pinging = false;
+
+    long elapsedTime = Math.max(ticker.read() - lastPingTime, 1);
+    long bandwidth = dataSizeSincePing * TimeUnit.SECONDS.toNanos(1) / elapsedTime;
+    // Double the observed BDP to leave room for growth, but cap at the max window
+    int targetWindow = (int) Math.min(dataSizeSincePing * 2L, MAX_WINDOW_SIZE);
+    if (bandwidth <= lastBandwidth || targetWindow <= window) {
+      pingFrequencyMultiplier = Math.min(pingFrequencyMultiplier + 1, MAX_BACKOFF);
+      return true;
+    }
+
+    pingFrequencyMultiplier = 1; // react more quickly while the window is changing
+    lastBandwidth = bandwidth;
+    window = targetWindow;
+    transport.raiseInboundWindow(targetWindow);
+    return true;
+  }
+
+  @VisibleForTesting
+  int getPingCount() {
+    return pingCount;
+  }
+}
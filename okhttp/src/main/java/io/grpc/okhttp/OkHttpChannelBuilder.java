@@ -187,6 +187,7 @@ public final class OkHttpChannelBuilder extends
   private long keepAliveTimeNanos = KEEPALIVE_TIME_NANOS_DISABLED;
   private long keepAliveTimeoutNanos = DEFAULT_KEEPALIVE_TIMEOUT_NANOS;
   private int flowControlWindow = DEFAULT_FLOW_CONTROL_WINDOW;
+  private boolean autoFlowControl;
   private boolean keepAliveWithoutCalls;
   private int maxInboundMetadataSize = Integer.MAX_VALUE;
 
@@ -334,12 +335,28 @@ public final class OkHttpChannelBuilder extends
   }
 
   /**
-   * Sets the flow control window in bytes. If not called, the default value
-   * is {@link #DEFAULT_FLOW_CONTROL_WINDOW}).
+   * Sets the initial flow control window in bytes. Setting initial flow control window enables auto
+   * flow control tuning using bandwidth-delay product algorithm, which grows the connection and
+   * stream windows up to 8 MiB. To disable auto flow control tuning, use {@link
+   * #flowControlWindow(int)}.
+   */
+  public OkHttpChannelBuilder initialFlowControlWindow(int initialFlowControlWindow) {
+    Preconditions.checkState(
+        initialFlowControlWindow > 0, "initialFlowControlWindow must be positive");
+    this.flowControlWindow = initialFlowControlWindow;
+    this.autoFlowControl = true;
+    return this;
+  }
+
+  /**
+   * Sets the flow control window in bytes. Setting flowControlWindow disables auto flow control
+   * tuning; use {@link #initialFlowControlWindow(int)} to enable it. If not called, the default
+   * value is {@link #DEFAULT_FLOW_CONTROL_WINDOW}) without auto flow control tuning.
    */
   public OkHttpChannelBuilder flowControlWindow(int flowControlWindow) {
     Preconditions.checkState(flowControlWindow > 0, "flowControlWindow must be positive");
     this.flowControlWindow = flowControlWindow;
+    this.autoFlowControl = false;
     return this;
   }
 
@@ -530,6 +547,7 @@ public final class OkHttpChannelBuilder extends
         keepAliveTimeNanos,
         keepAliveTimeoutNanos,
         flowControlWindow,
+        autoFlowControl,
         keepAliveWithoutCalls,
         maxInboundMetadataSize,
         transportTracerFactory,
@@ -783,6 +801,7 @@ public final class OkHttpChannelBuilder extends
     private final AtomicBackoff keepAliveBackoff;
     private final long keepAliveTimeoutNanos;
     final int flowControlWindow;
+    final boolean autoFlowControl;
     private final boolean keepAliveWithoutCalls;
     final int maxInboundMetadataSize;
     final boolean useGetForSafeMethods;
@@ -800,6 +819,7 @@ public final class OkHttpChannelBuilder extends
         long keepAliveTimeNanos,
         long keepAliveTimeoutNanos,
         int flowControlWindow,
+        boolean autoFlowControl,
         boolean keepAliveWithoutCalls,
         int maxInboundMetadataSize,
         TransportTracer.Factory transportTracerFactory,
@@ -818,6 +838,7 @@ public final class OkHttpChannelBuilder extends
       this.keepAliveBackoff = new AtomicBackoff("keepalive time nanos", keepAliveTimeNanos);
       this.keepAliveTimeoutNanos = keepAliveTimeoutNanos;
       this.flowControlWindow = flowControlWindow;
+      this.autoFlowControl = autoFlowControl;
       this.keepAliveWithoutCalls = keepAliveWithoutCalls;
       this.maxInboundMetadataSize = maxInboundMetadataSize;
       this.useGetForSafeMethods = useGetForSafeMethods;
@@ -881,6 +902,7 @@ public final class OkHttpChannelBuilder extends
           keepAliveTimeNanos,
           keepAliveTimeoutNanos,
           flowControlWindow,
+          autoFlowControl,
           keepAliveWithoutCalls,
           maxInboundMetadataSize,
           transportTracerFactory,
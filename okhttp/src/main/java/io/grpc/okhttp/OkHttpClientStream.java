@@ -194,7 +194,8 @@ class OkHttpClientStream extends AbstractClientStream {
 
   class TransportState extends Http2ClientStreamTransportState
       implements OutboundFlowController.Stream {
-    private final int initialWindowSize;
+    @GuardedBy("lock")
+    private int initialWindowSize;
     private final Object lock;
     @GuardedBy("lock")
     private List<Header> requestHeaders;
@@ -298,6 +299,21 @@ class OkHttpClientStream extends AbstractClientStream {
       }
     }
 
+    /**
+     * Grows the inbound window after the transport raised the initial window size. Must be called
+     * with holding the transport lock.
+     */
+    @GuardedBy("lock")
+    void updateInitialWindowSize(int newWindowSize) {
+      int delta = newWindowSize - initialWindowSize;
+      if (delta <= 0) {
+        return;
+      }
+      initialWindowSize = newWindowSize;
+      window += delta;
+      processedWindow += delta;
+    }
+
     @Override
     @GuardedBy("lock")
     public void deframerClosed(boolean hasPartialMessage) {
@@ -25,6 +25,7 @@ import com.google.common.base.MoreObjects;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Supplier;
+import com.google.common.base.Ticker;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.Attributes;
@@ -146,7 +147,10 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
   private final Random random = new Random();
   // Returns new unstarted stopwatches
   private final Supplier<Stopwatch> stopwatchFactory;
-  private final int initialWindowSize;
+  // Only raised by the frame reader thread, while holding the lock
+  private int initialWindowSize;
+  @Nullable
+  private final BdpPinger bdpPinger;
   private final Variant variant;
   private Listener listener;
   @GuardedBy("lock")
@@ -262,6 +266,9 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     this.defaultAuthority = authority;
     this.maxMessageSize = transportFactory.maxMessageSize;
     this.initialWindowSize = transportFactory.flowControlWindow;
+    this.bdpPinger = transportFactory.autoFlowControl
+        ? new BdpPinger(initialWindowSize, new BdpTransport(), Ticker.systemTicker())
+        : null;
     this.executor = Preconditions.checkNotNull(transportFactory.executor, "executor");
     serializingExecutor = new SerializingExecutor(transportFactory.executor);
     this.scheduler = Preconditions.checkNotNull(
@@ -431,6 +438,8 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
         stream.transportState().id() == OkHttpClientStream.ABSENT_ID, "StreamId already assigned");
     streams.put(nextStreamId, stream);
     setInUse(stream);
+    // The window may have been raised while the stream was pending
+    stream.transportState().updateInitialWindowSize(initialWindowSize);
     // TODO(b/145386688): This access should be guarded by 'stream.transportState().lock'; instead
     // found: 'this.lock'
     stream.transportState().start(nextStreamId);
@@ -627,6 +636,35 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
     }
   }
 
+  /** Applies the windows chosen by {@link #bdpPinger}. Only called by the frame reader thread. */
+  private final class BdpTransport implements BdpPinger.Transport {
+    @Override
+    public void sendBdpPing() {
+      long data = BdpPinger.BDP_MEASUREMENT_PING;
+      synchronized (lock) {
+        frameWriter.ping(false, (int) (data >>> 32), (int) data);
+        frameWriter.flush();
+      }
+    }
+
+    @SuppressWarnings("GuardedBy") // streams share the transport's lock
+    @Override
+    public void raiseInboundWindow(int newWindow) {
+      synchronized (lock) {
+        int increase = newWindow - initialWindowSize;
+        initialWindowSize = newWindow;
+        for (OkHttpClientStream stream : streams.values()) {
+          stream.transportState().updateInitialWindowSize(newWindow);
+        }
+        Settings settings = new Settings();
+        OkHttpSettingsUtil.set(settings, OkHttpSettingsUtil.INITIAL_WINDOW_SIZE, newWindow);
+        frameWriter.settings(settings);
+        frameWriter.windowUpdate(Utils.CONNECTION_STREAM_ID, increase);
+        frameWriter.flush();
+      }
+    }
+  }
+
   private Socket createHttpProxySocket(InetSocketAddress address, InetSocketAddress proxyAddress,
       String proxyUsername, String proxyPassword) throws StatusException {
     Socket sock = null;
@@ -1170,6 +1208,10 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
         }
       }
 
+      if (bdpPinger != null) {
+        bdpPinger.onDataRead(length);
+      }
+
       // connection window update
       connectionUnacknowledgedBytesRead += length;
       if (connectionUnacknowledgedBytesRead >= initialWindowSize * DEFAULT_WINDOW_UPDATE_RATIO) {
@@ -1308,6 +1350,9 @@ class OkHttpClientTransport implements ConnectionClientTransport, TransportExcep
           frameWriter.ping(true, payload1, payload2);
         }
       } else {
+        if (bdpPinger != null && bdpPinger.onPingAck(ackPayload)) {
+          return;
+        }
         Http2Ping p = null;
         synchronized (lock) {
           if (ping != null) {
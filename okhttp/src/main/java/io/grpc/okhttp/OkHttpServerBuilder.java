@@ -123,6 +123,7 @@ public final class OkHttpServerBuilder extends ForwardingServerBuilder<OkHttpSer
   long keepAliveTimeNanos = GrpcUtil.DEFAULT_SERVER_KEEPALIVE_TIME_NANOS;
   long keepAliveTimeoutNanos = GrpcUtil.DEFAULT_SERVER_KEEPALIVE_TIMEOUT_NANOS;
   int flowControlWindow = DEFAULT_FLOW_CONTROL_WINDOW;
+  boolean autoFlowControl;
   int maxInboundMetadataSize = GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE;
   int maxInboundMessageSize = GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE;
   long maxConnectionIdleInNanos = MAX_CONNECTION_IDLE_NANOS_DISABLED;
@@ -311,11 +312,29 @@ public final class OkHttpServerBuilder extends ForwardingServerBuilder<OkHttpSer
   }
 
   /**
-   * Sets the flow control window in bytes. If not called, the default value is 64 KiB.
+   * Sets the initial flow control window in bytes. Setting initial flow control window enables auto
+   * flow control tuning using bandwidth-delay product algorithm, which grows the connection and
+   * stream windows up to 8 MiB. To disable auto flow control tuning, use {@link
+   * #flowControlWindow(int)}.
+   */
+  @CanIgnoreReturnValue
+  public OkHttpServerBuilder initialFlowControlWindow(int initialFlowControlWindow) {
+    Preconditions.checkState(
+        initialFlowControlWindow > 0, "initialFlowControlWindow must be positive");
+    this.flowControlWindow = initialFlowControlWindow;
+    this.autoFlowControl = true;
+    return this;
+  }
+
+  /**
+   * Sets the flow control window in bytes. Setting flowControlWindow disables auto flow control
+   * tuning; use {@link #initialFlowControlWindow(int)} to enable it. If not called, the default
+   * value is 64 KiB without auto flow control tuning.
    */
   public OkHttpServerBuilder flowControlWindow(int flowControlWindow) {
     Preconditions.checkState(flowControlWindow > 0, "flowControlWindow must be positive");
     this.flowControlWindow = flowControlWindow;
+    this.autoFlowControl = false;
     return this;
   }
 
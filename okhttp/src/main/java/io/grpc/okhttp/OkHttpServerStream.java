@@ -144,7 +144,8 @@ class OkHttpServerStream extends AbstractServerStream {
     @GuardedBy("lock")
     private final OkHttpServerTransport transport;
     private final int streamId;
-    private final int initialWindowSize;
+    @GuardedBy("lock")
+    private int initialWindowSize;
     private final Object lock;
     @GuardedBy("lock")
     private boolean cancelSent = false;
@@ -204,6 +205,18 @@ class OkHttpServerStream extends AbstractServerStream {
       }
     }
 
+    @Override
+    @GuardedBy("lock")
+    public void updateInitialWindowSize(int newWindowSize) {
+      int delta = newWindowSize - initialWindowSize;
+      if (delta <= 0) {
+        return;
+      }
+      initialWindowSize = newWindowSize;
+      window += delta;
+      processedWindow += delta;
+    }
+
     @Override
     @GuardedBy("lock")
     public void runOnTransportThread(final Runnable r) {
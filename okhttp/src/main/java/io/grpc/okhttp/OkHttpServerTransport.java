@@ -20,6 +20,7 @@ import static io.grpc.okhttp.OkHttpServerBuilder.MAX_CONNECTION_AGE_NANOS_DISABL
 import static io.grpc.okhttp.OkHttpServerBuilder.MAX_CONNECTION_IDLE_NANOS_DISABLED;
 
 import com.google.common.base.Preconditions;
+import com.google.common.base.Ticker;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
 import io.grpc.Attributes;
@@ -60,6 +61,7 @@ import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import okio.Buffer;
 import okio.BufferedSource;
@@ -100,6 +102,10 @@ final class OkHttpServerTransport implements ServerTransport,
   private MaxConnectionIdleManager maxConnectionIdleManager;
   private ScheduledFuture<?> maxConnectionAgeMonitor;
   private final KeepAliveEnforcer keepAliveEnforcer;
+  // Only raised by the frame reader thread, while holding the lock
+  private int initialWindowSize;
+  @Nullable
+  private final BdpPinger bdpPinger;
 
   private final Object lock = new Object();
   @GuardedBy("lock")
@@ -137,6 +143,10 @@ final class OkHttpServerTransport implements ServerTransport,
     this.config = Preconditions.checkNotNull(config, "config");
     this.bareSocket = Preconditions.checkNotNull(bareSocket, "bareSocket");
 
+    initialWindowSize = config.flowControlWindow;
+    bdpPinger = config.autoFlowControl
+        ? new BdpPinger(initialWindowSize, new BdpTransport(), Ticker.systemTicker())
+        : null;
     tracer = config.transportTracerFactory.create();
     tracer.setFlowControlWindowReader(this::readFlowControlWindow);
     logId = InternalLogId.allocate(getClass(), bareSocket.getRemoteSocketAddress().toString());
@@ -396,7 +406,7 @@ final class OkHttpServerTransport implements ServerTransport,
       long local = outboundFlow == null ? -1 : outboundFlow.windowUpdate(null, 0);
       // connectionUnacknowledgedBytesRead is only readable by FrameHandler, so we provide a lower
       // bound.
-      long remote = (long) (config.flowControlWindow * Utils.DEFAULT_WINDOW_UPDATE_RATIO);
+      long remote = (long) (initialWindowSize * Utils.DEFAULT_WINDOW_UPDATE_RATIO);
       return new TransportTracer.FlowControlWindows(local, remote);
     }
   }
@@ -494,6 +504,7 @@ final class OkHttpServerTransport implements ServerTransport,
     final long keepAliveTimeNanos;
     final long keepAliveTimeoutNanos;
     final int flowControlWindow;
+    final boolean autoFlowControl;
     final int maxInboundMessageSize;
     final int maxInboundMetadataSize;
     final long maxConnectionIdleNanos;
@@ -518,6 +529,7 @@ final class OkHttpServerTransport implements ServerTransport,
       keepAliveTimeNanos = builder.keepAliveTimeNanos;
       keepAliveTimeoutNanos = builder.keepAliveTimeoutNanos;
       flowControlWindow = builder.flowControlWindow;
+      autoFlowControl = builder.autoFlowControl;
       maxInboundMessageSize = builder.maxInboundMessageSize;
       maxInboundMetadataSize = builder.maxInboundMetadataSize;
       maxConnectionIdleNanos = builder.maxConnectionIdleInNanos;
@@ -761,7 +773,7 @@ final class OkHttpServerTransport implements ServerTransport,
             lock,
             frameWriter,
             outboundFlow,
-            config.flowControlWindow,
+            initialWindowSize,
             tracer,
             method);
         OkHttpServerStream streamForApp = new OkHttpServerStream(
@@ -845,10 +857,14 @@ final class OkHttpServerTransport implements ServerTransport,
         stream.inboundDataReceived(buf, length, inFinished);
       }
 
+      if (bdpPinger != null) {
+        bdpPinger.onDataRead(length);
+      }
+
       // connection window update
       connectionUnacknowledgedBytesRead += length;
       if (connectionUnacknowledgedBytesRead
-          >= config.flowControlWindow * Utils.DEFAULT_WINDOW_UPDATE_RATIO) {
+          >= initialWindowSize * Utils.DEFAULT_WINDOW_UPDATE_RATIO) {
         synchronized (lock) {
           frameWriter.windowUpdate(0, connectionUnacknowledgedBytesRead);
           frameWriter.flush();
@@ -908,12 +924,17 @@ final class OkHttpServerTransport implements ServerTransport,
 
     @Override
     public void ping(boolean ack, int payload1, int payload2) {
+      long payload = (((long) payload1) << 32) | (payload2 & 0xffffffffL);
+      // Acks of our own measurement pings are not subject to the client's ping policy
+      if (ack && bdpPinger != null && bdpPinger.onPingAck(payload)) {
+        frameLogger.logPingAck(OkHttpFrameLogger.Direction.INBOUND, payload);
+        return;
+      }
       if (!keepAliveEnforcer.pingAcceptable()) {
         abruptShutdown(ErrorCode.ENHANCE_YOUR_CALM, "too_many_pings",
             Status.RESOURCE_EXHAUSTED.withDescription("Too many pings from client"), false);
         return;
       }
-      long payload = (((long) payload1) << 32) | (payload2 & 0xffffffffL);
       if (!ack) {
         frameLogger.logPing(OkHttpFrameLogger.Direction.INBOUND, payload);
         synchronized (lock) {
@@ -1036,7 +1057,7 @@ final class OkHttpServerTransport implements ServerTransport,
 
       synchronized (lock) {
         Http2ErrorStreamState stream =
-            new Http2ErrorStreamState(streamId, lock, outboundFlow, config.flowControlWindow);
+            new Http2ErrorStreamState(streamId, lock, outboundFlow, initialWindowSize);
         if (streams.isEmpty()) {
           keepAliveEnforcer.onTransportActive();
           if (maxConnectionIdleManager != null) {
@@ -1101,6 +1122,34 @@ final class OkHttpServerTransport implements ServerTransport,
     }
   }
 
+  /** Applies the windows chosen by {@link #bdpPinger}. Only called by the frame reader thread. */
+  private final class BdpTransport implements BdpPinger.Transport {
+    @Override
+    public void sendBdpPing() {
+      long data = BdpPinger.BDP_MEASUREMENT_PING;
+      synchronized (lock) {
+        frameWriter.ping(false, (int) (data >>> 32), (int) data);
+        frameWriter.flush();
+      }
+    }
+
+    @Override
+    public void raiseInboundWindow(int newWindow) {
+      synchronized (lock) {
+        int increase = newWindow - initialWindowSize;
+        initialWindowSize = newWindow;
+        for (StreamState stream : streams.values()) {
+          stream.updateInitialWindowSize(newWindow);
+        }
+        Settings settings = new Settings();
+        OkHttpSettingsUtil.set(settings, OkHttpSettingsUtil.INITIAL_WINDOW_SIZE, newWindow);
+        frameWriter.settings(settings);
+        frameWriter.windowUpdate(Utils.CONNECTION_STREAM_ID, increase);
+        frameWriter.flush();
+      }
+    }
+  }
+
   interface StreamState {
     /** Must be holding 'lock' when calling. */
     void inboundDataReceived(Buffer frame, int windowConsumed, boolean endOfStream);
@@ -1111,6 +1160,9 @@ final class OkHttpServerTransport implements ServerTransport,
     /** Must be holding 'lock' when calling. */
     int inboundWindowAvailable();
 
+    /** Must be holding 'lock' when calling. */
+    void updateInitialWindowSize(int newWindowSize);
+
     /** Must be holding 'lock' when calling. */
     void transportReportStatus(Status status);
 
@@ -1125,6 +1177,8 @@ final class OkHttpServerTransport implements ServerTransport,
     private final Object lock;
     private final OutboundFlowController.StreamState outboundFlowState;
     @GuardedBy("lock")
+    private int initialWindowSize;
+    @GuardedBy("lock")
     private int window;
     @GuardedBy("lock")
     private boolean receivedEndOfStream;
@@ -1134,6 +1188,7 @@ final class OkHttpServerTransport implements ServerTransport,
       this.streamId = streamId;
       this.lock = lock;
       this.outboundFlowState = outboundFlow.createState(this, streamId);
+      this.initialWindowSize = initialWindowSize;
       this.window = initialWindowSize;
     }
 
@@ -1166,6 +1221,17 @@ final class OkHttpServerTransport implements ServerTransport,
       }
     }
 
+    @Override public void updateInitialWindowSize(int newWindowSize) {
+      synchronized (lock) {
+        int delta = newWindowSize - initialWindowSize;
+        if (delta <= 0) {
+          return;
+        }
+        initialWindowSize = newWindowSize;
+        window += delta;
+      }
+    }
+
     @Override public void transportReportStatus(Status status) {}
 
     @Override public void inboundRstReceived(Status status) {}
@@ -17,6 +17,8 @@
 package io.grpc.okhttp;
 
 import io.grpc.internal.WritableBuffer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import okio.Buffer;
 
 class OkHttpWritableBuffer implements WritableBuffer {
@@ -37,6 +39,19 @@ class OkHttpWritableBuffer implements WritableBuffer {
     readableBytes += length;
   }
 
+  @Override
+  public void write(ByteBuffer src) {
+    int length;
+    try {
+      length = buffer.write(src);
+    } catch (IOException e) {
+      // okio.Buffer never throws, it only inherits the declaration from WritableByteChannel
+      throw new AssertionError(e);
+    }
+    writableBytes -= length;
+    readableBytes += length;
+  }
+
   @Override
   public void write(byte b) {
     buffer.writeByte(b);
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.okhttp;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.grpc.internal.FakeClock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link BdpPinger}. */
+@RunWith(JUnit4.class)
+public class BdpPingerTest {
+  private static final int INITIAL_WINDOW = 65535;
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final FakeTransport transport = new FakeTransport();
+  private final BdpPinger pinger =
+      new BdpPinger(INITIAL_WINDOW, transport, fakeClock.getTicker());
+
+  /** Receives data until the pinger decides to send a ping. */
+  private void startPing() {
+    int pings = transport.pings;
+    while (transport.pings == pings) {
+      pinger.onDataRead(1024);
+    }
+  }
+
+  /** Receives {@code bytes} while a ping is outstanding, which is acked after {@code rttMillis}. */
+  private void roundTrip(int bytes, long rttMillis) {
+    startPing();
+    pinger.onDataRead(bytes - 1024);
+    fakeClock.forwardTime(rttMillis, TimeUnit.MILLISECONDS);
+    assertTrue(pinger.onPingAck(BdpPinger.BDP_MEASUREMENT_PING));
+  }
+
+  @Test
+  public void pingsAfterHalfAWindowOfData() {
+    pinger.onDataRead(INITIAL_WINDOW / 2);
+    pinger.onDataRead(1);
+    assertEquals(0, transport.pings);
+
+    pinger.onDataRead(1);
+    assertEquals(1, transport.pings);
+    // Only one outstanding ping at a time
+    pinger.onDataRead(INITIAL_WINDOW);
+    assertEquals(1, transport.pings);
+  }
+
+  @Test
+  public void raisesWindowWhenBdpExceedsIt() {
+    roundTrip(INITIAL_WINDOW, 100);
+
+    assertThat(transport.windows).containsExactly(2 * INITIAL_WINDOW);
+    assertEquals(2 * INITIAL_WINDOW, pinger.window());
+  }
+
+  @Test
+  public void keepsWindowWhenBdpIsSmall() {
+    roundTrip(20000, 100);
+
+    assertThat(transport.windows).isEmpty();
+    assertEquals(INITIAL_WINDOW, pinger.window());
+  }
+
+  @Test
+  public void windowIsCapped() {
+    roundTrip(INITIAL_WINDOW, 100);
+    roundTrip(100 * 1024 * 1024, 100);
+
+    assertThat(transport.windows)
+        .containsExactly(2 * INITIAL_WINDOW, BdpPinger.MAX_WINDOW_SIZE).inOrder();
+  }
+
+  @Test
+  public void keepsWindowWhenBandwidthDoesNotGrow() {
+    roundTrip(INITIAL_WINDOW, 100);
+    // More data, but at a lower rate
+    roundTrip(3 * INITIAL_WINDOW, 400);
+
+    assertThat(transport.windows).containsExactly(2 * INITIAL_WINDOW);
+  }
+
+  @Test
+  public void ignoresOtherPingAcks() {
+    assertFalse(pinger.onPingAck(BdpPinger.BDP_MEASUREMENT_PING));
+
+    startPing();
+    assertFalse(pinger.onPingAck(42));
+    assertTrue(pinger.onPingAck(BdpPinger.BDP_MEASUREMENT_PING));
+  }
+
+  private static final class FakeTransport implements BdpPinger.Transport {
+    int pings;
+    final List<Integer> windows = new ArrayList<>();
+
+    @Override
+    public void sendBdpPing() {
+      pings++;
+    }
+
+    @Override
+    public void raiseInboundWindow(int newWindow) {
+      windows.add(newWindow);
+    }
+  }
+}
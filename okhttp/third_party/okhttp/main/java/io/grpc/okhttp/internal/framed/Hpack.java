@@ -390,6 +390,8 @@ final class Hpack {
   }
 
   static final class Writer {
+    private static final int DYNAMIC_TABLE_INDEX_BUCKETS = 64;
+
     private final Buffer out;
     private boolean useCompression;
     // Visible for testing.
@@ -412,9 +414,17 @@ final class Hpack {
     private int nextDynamicTableIndex = dynamicTable.length - 1;
     private int dynamicTableByteCount;
 
-    // Disable Huffman encoding as for the CPU vs bandwidth trade-off.
+    /**
+     * Hash index over the dynamic table, so lookups don't scan it. Each bucket chains the entries
+     * whose name hashes to it, newest first. Entries are numbered in insertion order, which makes
+     * an entry's HPACK index {@code insertionCount - sequence + 1} regardless of evictions.
+     */
+    private final IndexEntry[] dynamicTableIndex = new IndexEntry[DYNAMIC_TABLE_INDEX_BUCKETS];
+    private int insertionCount;
+
+    // Huffman encoding is cheap now that it neither copies nor encodes twice.
     Writer(Buffer out) {
-      this(SETTINGS_HEADER_TABLE_SIZE, false, out);
+      this(SETTINGS_HEADER_TABLE_SIZE, true, out);
     }
 
     // Visible for testing.
@@ -462,13 +472,14 @@ final class Hpack {
         }
 
         if (headerIndex == -1) {
-          for (int j = nextDynamicTableIndex + 1; j < dynamicTable.length; j++) {
-            if (dynamicTable[j].name.equals(name)) {
-              if (dynamicTable[j].value.equals(value)) {
-                headerIndex = j - nextDynamicTableIndex + STATIC_HEADER_TABLE.length;
+          int hash = name.hashCode();
+          for (IndexEntry e = dynamicTableIndex[bucket(hash)]; e != null; e = e.next) {
+            if (e.hash == hash && e.header.name.equals(name)) {
+              if (e.header.value.equals(value)) {
+                headerIndex = dynamicIndex(e);
                 break;
               } else if (headerNameIndex == -1) {
-                headerNameIndex = j - nextDynamicTableIndex + STATIC_HEADER_TABLE.length;
+                headerNameIndex = dynamicIndex(e);
               }
             }
           }
@@ -482,7 +493,8 @@ final class Hpack {
           out.writeByte(0x40);
           writeByteString(name);
           writeByteString(value);
-          insertIntoDynamicTable(header);
+          insertIntoDynamicTable(
+              name == header.name ? header : new io.grpc.okhttp.internal.framed.Header(name, value));
         } else if (name.startsWith(PSEUDO_PREFIX) && !io.grpc.okhttp.internal.framed.Header.TARGET_AUTHORITY.equals(name)) {
           // Follow Chromes lead - only include the :authority pseudo header, but exclude all other
           // pseudo headers. Literal Header Field without Indexing - Indexed Name.
@@ -492,7 +504,8 @@ final class Hpack {
           // Literal Header Field with Incremental Indexing - Indexed Name.
           writeInt(headerNameIndex, PREFIX_6_BITS, 0x40);
           writeByteString(value);
-          insertIntoDynamicTable(header);
+          insertIntoDynamicTable(
+              name == header.name ? header : new io.grpc.okhttp.internal.framed.Header(name, value));
         }
       }
     }
@@ -519,12 +532,12 @@ final class Hpack {
     }
 
     void writeByteString(ByteString data) throws IOException {
-      if (useCompression && io.grpc.okhttp.internal.framed.Huffman.get().encodedLength(data.toByteArray()) < data.size()) {
-        Buffer huffmanBuffer = new Buffer();
-        io.grpc.okhttp.internal.framed.Huffman.get().encode(data.toByteArray(), huffmanBuffer.outputStream());
-        ByteString huffmanBytes = huffmanBuffer.readByteString();
-        writeInt(huffmanBytes.size(), PREFIX_7_BITS, 0x80);
-        out.write(huffmanBytes);
+      int huffmanLength;
+      if (useCompression
+          && (huffmanLength = io.grpc.okhttp.internal.framed.Huffman.get().encodedLength(data))
+              < data.size()) {
+        writeInt(huffmanLength, PREFIX_7_BITS, 0x80);
+        io.grpc.okhttp.internal.framed.Huffman.get().encode(data, out);
       } else {
         writeInt(data.size(), PREFIX_7_BITS, 0);
         out.write(data);
@@ -537,6 +550,7 @@ final class Hpack {
 
     private void clearDynamicTable() {
       Arrays.fill(dynamicTable, null);
+      Arrays.fill(dynamicTableIndex, null);
       nextDynamicTableIndex = dynamicTable.length - 1;
       dynamicTableHeaderCount = 0;
       dynamicTableByteCount = 0;
@@ -548,6 +562,7 @@ final class Hpack {
       if (bytesToRecover > 0) {
         // determine how many headers need to be evicted.
         for (int j = dynamicTable.length - 1; j >= nextDynamicTableIndex && bytesToRecover > 0; j--) {
+          removeFromIndex(dynamicTable[j], insertionCount - dynamicTableHeaderCount + 1);
           bytesToRecover -= dynamicTable[j].hpackSize;
           dynamicTableByteCount -= dynamicTable[j].hpackSize;
           dynamicTableHeaderCount--;
@@ -583,6 +598,34 @@ final class Hpack {
       dynamicTable[index] = entry;
       dynamicTableHeaderCount++;
       dynamicTableByteCount += delta;
+
+      int hash = entry.name.hashCode();
+      int bucket = bucket(hash);
+      dynamicTableIndex[bucket] =
+          new IndexEntry(entry, hash, ++insertionCount, dynamicTableIndex[bucket]);
+    }
+
+    private int dynamicIndex(IndexEntry e) {
+      return insertionCount - e.sequence + 1 + STATIC_HEADER_TABLE.length;
+    }
+
+    private void removeFromIndex(io.grpc.okhttp.internal.framed.Header header, int sequence) {
+      int bucket = bucket(header.name.hashCode());
+      IndexEntry prev = null;
+      for (IndexEntry e = dynamicTableIndex[bucket]; e != null; prev = e, e = e.next) {
+        if (e.sequence == sequence) {
+          if (prev == null) {
+            dynamicTableIndex[bucket] = e.next;
+          } else {
+            prev.next = e.next;
+          }
+          return;
+        }
+      }
+    }
+
+    private static int bucket(int hash) {
+      return (hash ^ (hash >>> 16)) & (DYNAMIC_TABLE_INDEX_BUCKETS - 1);
     }
 
     void resizeHeaderTable(int headerTableSizeSetting) {
@@ -613,6 +656,22 @@ final class Hpack {
     }
   }
 
+  /** A dynamic table entry in {@link Writer}'s hash index. */
+  private static final class IndexEntry {
+    final io.grpc.okhttp.internal.framed.Header header;
+    final int hash;
+    final int sequence;
+    IndexEntry next;
+
+    IndexEntry(
+        io.grpc.okhttp.internal.framed.Header header, int hash, int sequence, IndexEntry next) {
+      this.header = header;
+      this.hash = hash;
+      this.sequence = sequence;
+      this.next = next;
+    }
+  }
+
   /**
    * An HTTP/2 response cannot contain uppercase header characters and must
    * be treated as malformed.
@@ -1118,6 +1118,39 @@ public class HpackTest {
     assertEquals(2, hpackWriter.dynamicTableHeaderCount);
   }
 
+  @Test
+  public void dynamicTableIndexAfterEviction() throws IOException {
+    // Room for three 35 byte entries.
+    hpackWriter = new Hpack.Writer(110, false, bytesOut);
+    hpackWriter.writeHeaders(headerEntries("h1", "v", "h2", "v", "h3", "v", "h4", "v"));
+    bytesOut.clear();
+    assertEquals(3, hpackWriter.dynamicTableHeaderCount);
+
+    // h4 = 62, h3 = 63, h2 = 64; h1 was evicted.
+    hpackWriter.writeHeaders(headerEntries("h2", "v"));
+    assertBytes(0xc0);
+    hpackWriter.writeHeaders(headerEntries("h1", "v"));
+    assertBytes(0x40, 2, 'h', '1', 1, 'v');
+
+    // h2 was evicted in turn; h1 = 62, h4 = 63, h3 = 64.
+    hpackWriter.writeHeaders(headerEntries("h3", "v", "h2", "v"));
+    assertBytes(0xc0, 0x40, 2, 'h', '2', 1, 'v');
+  }
+
+  @Test
+  public void huffmanEncodedByDefault() throws IOException {
+    hpackWriter = new Hpack.Writer(bytesOut);
+    List<Header> headerBlock = headerEntries(
+        "custom-key", "custom-header", "user-agent", "grpc-java-okhttp", "custom-key", "other");
+    hpackWriter.writeHeaders(headerBlock);
+    // "custom-key" Huffman encoded, with its length marked as Huffman.
+    assertEquals(0x88, bytesOut.getByte(1) & 0xff);
+
+    bytesIn.writeAll(bytesOut);
+    hpackReader.readHeaders();
+    assertEquals(headerBlock, hpackReader.getAndResetHeaderList());
+  }
+
 
   private Hpack.Reader newReader(Buffer source) {
     return new Hpack.Reader(4096, source);
@@ -25,6 +25,7 @@ import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.MessageLite;
 import com.google.protobuf.Parser;
 import io.grpc.ExperimentalApi;
+import io.grpc.HasByteBuffer;
 import io.grpc.KnownLength;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor.Marshaller;
@@ -35,6 +36,9 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.lang.ref.Reference;
 import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Utility methods for using protobuf with grpc.
@@ -199,6 +203,9 @@ public final class ProtoLiteUtils {
             cis = CodedInputStream.newInstance(buf, 0, size);
           } else if (size == 0) {
             return defaultInstance;
+          } else if (size > 0) {
+            // Too large for the thread-local buffer, so avoid copying it into a new array.
+            cis = newCodedInputStreamFromByteBuffers(stream);
           }
         }
       } catch (IOException e) {
@@ -219,6 +226,45 @@ public final class ProtoLiteUtils {
       }
     }
 
+    /**
+     * Creates a {@link CodedInputStream} that reads directly from the segments backing {@code
+     * stream}, such as the transport's receive buffers, without gathering them into one array.
+     * Returns {@code null} if {@code stream} does not expose its content as {@link ByteBuffer}s.
+     *
+     * <p>The stream is marked before it is consumed, so that the segments are retained until the
+     * stream is closed. Aliasing stays disabled, so the parsed message does not refer to them.
+     */
+    private static CodedInputStream newCodedInputStreamFromByteBuffers(InputStream stream)
+        throws IOException {
+      if (!(stream instanceof HasByteBuffer)
+          || !((HasByteBuffer) stream).byteBufferSupported()
+          || !stream.markSupported()) {
+        return null;
+      }
+      HasByteBuffer hasByteBuffer = (HasByteBuffer) stream;
+      stream.mark(Integer.MAX_VALUE);
+      List<ByteBuffer> buffers = new ArrayList<>();
+      ByteBuffer buffer;
+      while ((buffer = hasByteBuffer.getByteBuffer()) != null) {
+        int length = buffer.remaining();
+        if (length == 0) {
+          // Skipping an empty segment would not move past it, so only accept one at the end
+          if (stream.available() == 0) {
+            break;
+          }
+          stream.reset();
+          return null;
+        }
+        buffers.add(buffer);
+        if (stream.skip(length) != length) {
+          // Not expected with HasByteBuffer streams, but fall back to reading the stream
+          stream.reset();
+          return null;
+        }
+      }
+      return CodedInputStream.newInstance(buffers);
+    }
+
     private T parseFrom(CodedInputStream stream) throws InvalidProtocolBufferException {
       T message = parser.parseFrom(stream, globalRegistry);
       try {
@@ -29,6 +29,7 @@ import com.google.protobuf.Enum;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Type;
 import io.grpc.Drainable;
+import io.grpc.HasByteBuffer;
 import io.grpc.KnownLength;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor.Marshaller;
@@ -40,7 +41,12 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
@@ -227,6 +233,52 @@ public class ProtoLiteUtilsTest {
     assertEquals(expect, result);
   }
 
+  @Test
+  public void parseLargeMessageFromByteBuffers() throws Exception {
+    char[] name = new char[ProtoLiteUtils.DEFAULT_MAX_MESSAGE_SIZE];
+    Arrays.fill(name, 'a');
+    Type expect = Type.newBuilder().setName(new String(name)).build();
+    byte[] serialized = expect.toByteArray();
+    List<ByteBuffer> segments = new ArrayList<>();
+    int segmentSize = serialized.length / 3 + 1;
+    for (int offset = 0; offset < serialized.length; offset += segmentSize) {
+      int length = Math.min(segmentSize, serialized.length - offset);
+      ByteBuffer segment = ByteBuffer.allocateDirect(length);
+      segment.put(serialized, offset, length).flip();
+      segments.add(segment);
+    }
+
+    Type result = marshaller.parse(new ByteBuffersInputStream(segments));
+    assertEquals(expect, result);
+  }
+
+  @Test
+  public void parseLargeMessageFromByteBuffers_emptySegments() throws Exception {
+    char[] name = new char[ProtoLiteUtils.DEFAULT_MAX_MESSAGE_SIZE];
+    Arrays.fill(name, 'a');
+    Type expect = Type.newBuilder().setName(new String(name)).build();
+    byte[] serialized = expect.toByteArray();
+    int half = serialized.length / 2;
+    ByteBuffer first = ByteBuffer.allocateDirect(half);
+    first.put(serialized, 0, half).flip();
+    ByteBuffer second = ByteBuffer.allocateDirect(serialized.length - half);
+    second.put(serialized, half, serialized.length - half).flip();
+
+    // At the end, the empty segment is ignored
+    Type result = marshaller.parse(new ByteBuffersInputStream(
+        Arrays.asList(first, second, ByteBuffer.allocate(0))));
+    assertEquals(expect, result);
+
+    // In the middle, the stream is read instead
+    first.rewind();
+    second.rewind();
+    ByteBuffersInputStream stream = new ByteBuffersInputStream(
+        Arrays.asList(first, ByteBuffer.allocate(0), second));
+    stream.allowCopy = true;
+    result = marshaller.parse(stream);
+    assertEquals(expect, result);
+  }
+
   @Test
   public void defaultMaxMessageSize() {
     assertEquals(GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE, ProtoLiteUtils.DEFAULT_MAX_MESSAGE_SIZE);
@@ -254,4 +306,95 @@ public class ProtoLiteUtilsTest {
       return source[position++];
     }
   }
+
+  /**
+   * Exposes its content through {@link HasByteBuffer}. Reading bytes fails the test unless {@link
+   * #allowCopy} is set.
+   */
+  private static final class ByteBuffersInputStream extends InputStream
+      implements KnownLength, HasByteBuffer {
+    private final List<ByteBuffer> segments;
+    private final Deque<ByteBuffer> remaining = new ArrayDeque<>();
+    boolean allowCopy;
+
+    ByteBuffersInputStream(List<ByteBuffer> segments) {
+      this.segments = segments;
+      remaining.addAll(segments);
+    }
+
+    @Override
+    public int read() {
+      byte[] b = new byte[1];
+      return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+      if (!allowCopy) {
+        throw new AssertionError("Content should not be copied");
+      }
+      while (!remaining.isEmpty() && !remaining.peek().hasRemaining()) {
+        remaining.poll();
+      }
+      if (remaining.isEmpty()) {
+        return -1;
+      }
+      int length = Math.min(len, remaining.peek().remaining());
+      remaining.peek().get(b, off, length);
+      return length;
+    }
+
+    @Override
+    public long skip(long n) {
+      long skipped = 0;
+      while (skipped < n && !remaining.isEmpty()) {
+        ByteBuffer segment = remaining.peek();
+        int length = (int) Math.min(n - skipped, segment.remaining());
+        segment.position(segment.position() + length);
+        skipped += length;
+        if (!segment.hasRemaining()) {
+          remaining.poll();
+        }
+      }
+      return skipped;
+    }
+
+    @Override
+    public int available() {
+      int available = 0;
+      for (ByteBuffer segment : remaining) {
+        available += segment.remaining();
+      }
+      return available;
+    }
+
+    @Override
+    public boolean markSupported() {
+      return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+      // Only a mark at the start is needed by these tests
+    }
+
+    @Override
+    public void reset() {
+      remaining.clear();
+      for (ByteBuffer segment : segments) {
+        segment.rewind();
+        remaining.add(segment);
+      }
+    }
+
+    @Override
+    public boolean byteBufferSupported() {
+      return true;
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+      return remaining.isEmpty() ? null : remaining.peek().duplicate();
+    }
+  }
 }
@@ -0,0 +1,377 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import io.grpc.Context;
+import io.grpc.ExperimentalApi;
+import io.grpc.ForwardingServerCallListener.SimpleForwardingServerCallListener;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Sheds load on an overloaded server by failing calls with {@link Status.Code#RESOURCE_EXHAUSTED}
+ * before their handler is started, and so before any request message is deserialized.
+ *
+ * <p>A call is rejected if any of the following holds, checked in this order:
+ * <ul>
+ *   <li>the call waited in the server's executor for longer than {@link
+ *       Builder#setMaxQueueingTime the maximum queueing time},</li>
+ *   <li>the call is {@link Criticality#SHEDDABLE} and the CPU utilization reported to a {@link
+ *       MetricRecorder} is at or above {@link Builder#setCpuUtilizationLimit the limit},</li>
+ *   <li>the server already has {@link Builder#setMaxConcurrentCalls the maximum number of calls}
+ *       in progress,</li>
+ *   <li>a token bucket configured for its method, its service or the whole server is empty.</li>
+ * </ul>
+ * The first three are signs of overload and do not apply to {@link Criticality#CRITICAL} calls.
+ * The token buckets are nested: a call takes a token from each configured level, and tokens
+ * taken from lower levels are returned if a higher level has none left.
+ *
+ * <p>Queueing time is only known if {@link #getStreamTracerFactory} is also registered with
+ * {@link io.grpc.ServerBuilder#addStreamTracerFactory}, which records when each call arrived at
+ * the transport. The interceptor should be the outermost one, so that it runs before the others.
+ *
+ * <p>Like every interceptor, this runs on the call executor, so a call has already waited in the
+ * executor's queue by the time it is checked. Rejecting it only saves the handler's work and any
+ * further queueing of its messages; it does not bound the queue itself. To limit how much work can
+ * be queued, also bound the number of concurrent streams the transport accepts, for example with
+ * {@code NettyServerBuilder.maxConcurrentCallsPerConnection}.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/9006")
+@ThreadSafe
+public final class AdmissionControlServerInterceptor implements ServerInterceptor {
+  private static final Context.Key<Long> ARRIVAL_NANOS =
+      Context.key("io.grpc.services.AdmissionControlServerInterceptor.arrivalNanos");
+
+  /** How important a call is when deciding which calls to shed. */
+  public enum Criticality {
+    /** Never shed because of overload; only subject to the configured rate limits. */
+    CRITICAL,
+    /** Shed when the server is at its concurrency limit or calls queue for too long. */
+    DEFAULT,
+    /** Additionally shed when the CPU utilization is at or above the limit. */
+    SHEDDABLE
+  }
+
+  private final Ticker ticker;
+  private final int maxConcurrentCalls;
+  private final long maxQueueingNanos;
+  @Nullable
+  private final MetricRecorder cpuRecorder;
+  private final double cpuUtilizationLimit;
+  // Keyed by full method name or service name
+  private final Map<String, Criticality> criticalities;
+  private final Map<String, TokenBucket> buckets;
+  @Nullable
+  private final TokenBucket serverBucket;
+  private final AtomicInteger callsInProgress = new AtomicInteger();
+  private final ServerStreamTracer.Factory streamTracerFactory = new ArrivalTimeTracerFactory();
+
+  private AdmissionControlServerInterceptor(Builder builder) {
+    this.ticker = builder.ticker;
+    this.maxConcurrentCalls = builder.maxConcurrentCalls;
+    this.maxQueueingNanos = builder.maxQueueingNanos;
+    this.cpuRecorder = builder.cpuRecorder;
+    this.cpuUtilizationLimit = builder.cpuUtilizationLimit;
+    this.criticalities = new HashMap<>(builder.criticalities);
+    long now = ticker.read();
+    this.buckets = new HashMap<>();
+    for (Map.Entry<String, double[]> entry : builder.rateLimits.entrySet()) {
+      buckets.put(entry.getKey(), new TokenBucket(entry.getValue(), now));
+    }
+    this.serverBucket =
+        builder.serverRateLimit != null ? new TokenBucket(builder.serverRateLimit, now) : null;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /**
+   * Returns the factory that records when calls arrive, for the maximum queueing time to be
+   * enforced.
+   */
+  public ServerStreamTracer.Factory getStreamTracerFactory() {
+    return streamTracerFactory;
+  }
+
+  /** Returns the number of admitted calls that have not completed yet. */
+  @VisibleForTesting
+  int getCallsInProgress() {
+    return callsInProgress.get();
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+    String methodName = method.getFullMethodName();
+    String serviceName = method.getServiceName();
+    String rejection = admit(methodName, serviceName);
+    if (rejection != null) {
+      call.close(Status.RESOURCE_EXHAUSTED.withDescription(rejection), new Metadata());
+      return new ServerCall.Listener<ReqT>() {};
+    }
+    ServerCall.Listener<ReqT> listener;
+    try {
+      listener = next.startCall(call, headers);
+    } catch (RuntimeException | Error e) {
+      callsInProgress.decrementAndGet();
+      throw e;
+    }
+    return new SimpleForwardingServerCallListener<ReqT>(listener) {
+      @Override
+      public void onComplete() {
+        callsInProgress.decrementAndGet();
+        super.onComplete();
+      }
+
+      @Override
+      public void onCancel() {
+        callsInProgress.decrementAndGet();
+        super.onCancel();
+      }
+    };
+  }
+
+  /**
+   * Counts the call as in progress and returns {@code null} if it may proceed, or the reason for
+   * rejecting it.
+   */
+  @Nullable
+  private String admit(String methodName, @Nullable String serviceName) {
+    Criticality criticality = criticalities.get(methodName);
+    if (criticality == null && serviceName != null) {
+      criticality = criticalities.get(serviceName);
+    }
+    if (criticality == null) {
+      criticality = Criticality.DEFAULT;
+    }
+    if (criticality != Criticality.CRITICAL) {
+      if (maxQueueingNanos != Long.MAX_VALUE) {
+        Long arrivalNanos = ARRIVAL_NANOS.get();
+        if (arrivalNanos != null && ticker.read() - arrivalNanos > maxQueueingNanos) {
+          return "Call queued for too long";
+        }
+      }
+      if (criticality == Criticality.SHEDDABLE && cpuRecorder != null
+          && cpuRecorder.getCpuUtilization() >= cpuUtilizationLimit) {
+        return "CPU utilization too high";
+      }
+    }
+    int inProgress = callsInProgress.incrementAndGet();
+    if (inProgress > maxConcurrentCalls && criticality != Criticality.CRITICAL) {
+      callsInProgress.decrementAndGet();
+      return "Too many concurrent calls";
+    }
+    if (!acquireTokens(methodName, serviceName)) {
+      callsInProgress.decrementAndGet();
+      return "Rate limit exceeded";
+    }
+    return null;
+  }
+
+  private boolean acquireTokens(String methodName, @Nullable String serviceName) {
+    if (buckets.isEmpty() && serverBucket == null) {
+      return true;
+    }
+    long now = ticker.read();
+    TokenBucket methodBucket = buckets.get(methodName);
+    if (methodBucket != null && !methodBucket.tryAcquire(now)) {
+      return false;
+    }
+    TokenBucket serviceBucket = serviceName != null ? buckets.get(serviceName) : null;
+    if (serviceBucket != null && !serviceBucket.tryAcquire(now)) {
+      if (methodBucket != null) {
+        methodBucket.release();
+      }
+      return false;
+    }
+    if (serverBucket != null && !serverBucket.tryAcquire(now)) {
+      if (serviceBucket != null) {
+        serviceBucket.release();
+      }
+      if (methodBucket != null) {
+        methodBucket.release();
+      }
+      return false;
+    }
+    return true;
+  }
+
+  private final class ArrivalTimeTracerFactory extends ServerStreamTracer.Factory {
+    @Override
+    public ServerStreamTracer newServerStreamTracer(String fullMethodName, Metadata headers) {
+      final Long arrivalNanos = ticker.read();
+      return new ServerStreamTracer() {
+        @Override
+        public Context filterContext(Context context) {
+          return context.withValue(ARRIVAL_NANOS, arrivalNanos);
+        }
+      };
+    }
+  }
+
+  /** Refills continuously at a fixed rate, up to a maximum number of tokens. */
+  private static final class TokenBucket {
+    private final double tokensPerNano;
+    private final double maxTokens;
+    @GuardedBy("this")
+    private double tokens;
+    @GuardedBy("this")
+    private long lastRefillNanos;
+
+    TokenBucket(double[] rateAndBurst, long nowNanos) {
+      this.tokensPerNano = rateAndBurst[0] / TimeUnit.SECONDS.toNanos(1);
+      this.maxTokens = rateAndBurst[1];
+      this.tokens = maxTokens;
+      this.lastRefillNanos = nowNanos;
+    }
+
+    synchronized boolean tryAcquire(long nowNanos) {
+      long elapsed = nowNanos - lastRefillNanos;
+      if (elapsed > 0) {
+        tokens = Math.min(maxTokens, tokens + elapsed * tokensPerNano);
+        lastRefillNanos = nowNanos;
+      }
+      if (tokens < 1) {
+        return false;
+      }
+      tokens -= 1;
+      return true;
+    }
+
+    synchronized void release() {
+      tokens = Math.min(maxTokens, tokens + 1);
+    }
+  }
+
+  /** Builder for {@link AdmissionControlServerInterceptor}. */
+  public static final class Builder {
+    private Ticker ticker = Ticker.systemTicker();
+    private int maxConcurrentCalls = Integer.MAX_VALUE;
+    private long maxQueueingNanos = Long.MAX_VALUE;
+    private MetricRecorder cpuRecorder;
+    private double cpuUtilizationLimit;
+    private final Map<String, Criticality> criticalities = new HashMap<>();
+    private final Map<String, double[]> rateLimits = new HashMap<>();
+    private double[] serverRateLimit;
+
+    private Builder() {}
+
+    /**
+     * Sets the number of calls that may be in progress at once. Calls beyond that are rejected
+     * unless they are {@link Criticality#CRITICAL}. Unlimited by default.
+     */
+    public Builder setMaxConcurrentCalls(int maxConcurrentCalls) {
+      checkArgument(maxConcurrentCalls > 0, "maxConcurrentCalls must be positive");
+      this.maxConcurrentCalls = maxConcurrentCalls;
+      return this;
+    }
+
+    /**
+     * Sets how long a call may wait in the server's executor before it is started. Calls that
+     * waited longer are rejected unless they are {@link Criticality#CRITICAL}. Unlimited by
+     * default.
+     */
+    public Builder setMaxQueueingTime(long time, TimeUnit unit) {
+      checkArgument(time > 0, "time must be positive");
+      this.maxQueueingNanos = unit.toNanos(time);
+      return this;
+    }
+
+    /**
+     * Rejects {@link Criticality#SHEDDABLE} calls while the CPU utilization set on {@code
+     * recorder} is at or above {@code limit}. The recorder is typically the one also used for ORCA
+     * out-of-band reporting.
+     */
+    public Builder setCpuUtilizationLimit(MetricRecorder recorder, double limit) {
+      checkArgument(limit > 0, "limit must be positive");
+      this.cpuRecorder = checkNotNull(recorder, "recorder");
+      this.cpuUtilizationLimit = limit;
+      return this;
+    }
+
+    /**
+     * Sets the criticality of the calls to a service or method. A method's criticality takes
+     * precedence over its service's. Calls are {@link Criticality#DEFAULT} otherwise.
+     *
+     * @param serviceOrMethod a service name, or a full method name as in {@link
+     *     MethodDescriptor#getFullMethodName}
+     */
+    public Builder setCriticality(String serviceOrMethod, Criticality criticality) {
+      criticalities.put(
+          checkNotNull(serviceOrMethod, "serviceOrMethod"),
+          checkNotNull(criticality, "criticality"));
+      return this;
+    }
+
+    /**
+     * Limits the calls to a service or method with a token bucket holding up to {@code burst}
+     * tokens, refilled at {@code callsPerSecond}.
+     *
+     * @param serviceOrMethod a service name, or a full method name as in {@link
+     *     MethodDescriptor#getFullMethodName}
+     */
+    public Builder setRateLimit(String serviceOrMethod, double callsPerSecond, int burst) {
+      rateLimits.put(
+          checkNotNull(serviceOrMethod, "serviceOrMethod"), rateAndBurst(callsPerSecond, burst));
+      return this;
+    }
+
+    /**
+     * Limits all calls to the server with a token bucket holding up to {@code burst} tokens,
+     * refilled at {@code callsPerSecond}.
+     */
+    public Builder setServerRateLimit(double callsPerSecond, int burst) {
+      this.serverRateLimit = rateAndBurst(callsPerSecond, burst);
+      return this;
+    }
+
+    @VisibleForTesting
+    Builder setTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker");
+      return this;
+    }
+
+    public AdmissionControlServerInterceptor build() {
+      return new AdmissionControlServerInterceptor(this);
+    }
+
+    private static double[] rateAndBurst(double callsPerSecond, int burst) {
+      checkArgument(callsPerSecond > 0, "callsPerSecond must be positive");
+      checkArgument(burst > 0, "burst must be positive");
+      return new double[] {callsPerSecond, burst};
+    }
+  }
+}
@@ -0,0 +1,723 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.US_ASCII;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ticker;
+import com.google.common.io.ByteStreams;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.ExperimentalApi;
+import io.grpc.InternalMetadata;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.SecurityLevel;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerInterceptor;
+import io.grpc.Status;
+import io.grpc.internal.SerializingExecutor;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Runs the handler once for the hedged attempts of a unary call, instead of once per attempt.
+ *
+ * <p>A client that hedges a call sends the same request several times and keeps the first
+ * response. The attempts after the first carry a {@code grpc-previous-rpc-attempts} header, which
+ * is how the server recognizes them. When an attempt arrives while an identical call is being
+ * handled, it joins that call and receives the same response when the handler completes. A
+ * hedged attempt that arrives shortly after such a handler completed with {@code OK} is answered
+ * from a bounded cache of recent responses. Two calls are identical if they are for the same
+ * method and authority, arrived on transports with equal {@link ServerCall#getAttributes
+ * attributes}, and have the same request message and the same headers, not counting the headers
+ * that differ between attempts (hedging, timeout and tracing). The transport attributes include
+ * the peer's address and TLS session, as well as anything added by a {@link
+ * io.grpc.ServerTransportFilter}, so in practice only attempts sent on the same connection are
+ * coalesced. This keeps the callers of different connections, who may have different identities,
+ * from sharing a handler or a response, and lets the handler and any later interceptor see the
+ * same attributes and security level for every attempt it stands for. Calls whose transport
+ * attributes are unknown are never coalesced.
+ *
+ * <p>Only unary methods are coalesced, and only those marked {@link
+ * MethodDescriptor#isIdempotent idempotent} or {@link Builder#addMethod added} to the builder.
+ * Running the handler once must be as good as running it for every attempt, which is the case for
+ * the idempotent methods hedging is meant for.
+ *
+ * <p>The handler of coalesced calls runs in a {@link Context} that is not cancelled when a single
+ * attempt is, as the client usually cancels the attempts it no longer needs. It is cancelled, and
+ * its listener notified, as soon as all the attempts waiting for it have been cancelled. That
+ * context does not carry the deadline of the first attempt; each attempt is still cancelled when
+ * its own deadline expires.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/3982")
+@ThreadSafe
+public final class HedgeCoalescingServerInterceptor implements ServerInterceptor {
+  // Same as io.grpc.internal.RetriableStream.GRPC_PREVIOUS_RPC_ATTEMPTS
+  @VisibleForTesting
+  static final Metadata.Key<String> GRPC_PREVIOUS_RPC_ATTEMPTS =
+      Metadata.Key.of("grpc-previous-rpc-attempts", Metadata.ASCII_STRING_MARSHALLER);
+  // Headers that may differ between the attempts of one call. Each attempt has its own deadline
+  // and, when tracing is enabled, its own span.
+  private static final Set<String> IGNORED_HEADERS = new HashSet<>(Arrays.asList(
+      GRPC_PREVIOUS_RPC_ATTEMPTS.name(), "grpc-timeout", "grpc-trace-bin", "traceparent",
+      "tracestate"));
+
+  private final Ticker ticker;
+  private final Set<String> methods;
+  private final int maxCachedResponses;
+  private final long cacheTtlNanos;
+  private final Object lock = new Object();
+  @GuardedBy("lock")
+  private final Map<CallKey, Group<?, ?>> inFlight = new HashMap<>();
+  // In access order, so that the least recently used response is evicted first
+  @GuardedBy("lock")
+  private final LinkedHashMap<CallKey, CachedResponse<?>> cache =
+      new LinkedHashMap<>(16, 0.75f, true);
+
+  private HedgeCoalescingServerInterceptor(Builder builder) {
+    this.ticker = builder.ticker;
+    this.methods = new HashSet<>(builder.methods);
+    this.maxCachedResponses = builder.maxCachedResponses;
+    this.cacheTtlNanos = builder.cacheTtlNanos;
+  }
+
+  public static Builder newBuilder() {
+    return new Builder();
+  }
+
+  /** Returns the number of handler executions that attempts may still join. */
+  @VisibleForTesting
+  int getCallsInFlight() {
+    synchronized (lock) {
+      return inFlight.size();
+    }
+  }
+
+  /** Returns the number of responses that later attempts may be answered from. */
+  @VisibleForTesting
+  int getCachedResponses() {
+    synchronized (lock) {
+      return cache.size();
+    }
+  }
+
+  @Override
+  public <ReqT, RespT> ServerCall.Listener<ReqT> interceptCall(
+      ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+    MethodDescriptor<ReqT, RespT> method = call.getMethodDescriptor();
+    if (method.getType() != MethodDescriptor.MethodType.UNARY
+        || !(method.isIdempotent()
+            || methods.contains(method.getFullMethodName())
+            || methods.contains(method.getServiceName()))) {
+      return next.startCall(call, headers);
+    }
+    // Like ServerCalls, ask for two messages to detect clients sending more than one
+    call.request(2);
+    return new Attempt<>(call, headers, next);
+  }
+
+  private static boolean isHedged(Metadata headers) {
+    String previousAttempts = headers.get(GRPC_PREVIOUS_RPC_ATTEMPTS);
+    return previousAttempts != null && !"0".equals(previousAttempts);
+  }
+
+  /**
+   * Decides how to handle an attempt once its request is known: answers it from the cache, joins it
+   * to an identical call in flight, or starts the handler for it.
+   */
+  private <ReqT, RespT> void dispatch(Attempt<ReqT, RespT> attempt, ReqT request) {
+    Attributes transportAttrs = attempt.call.getAttributes();
+    if (transportAttrs == null) {
+      // Nothing tells the callers apart
+      startHandler(new Group<ReqT, RespT>(null, attempt, false), request);
+      return;
+    }
+    CallKey key;
+    try {
+      key = CallKey.create(attempt.call, transportAttrs, attempt.headers, request);
+    } catch (IOException e) {
+      // Not expected for in-memory streams; handle the call on its own
+      startHandler(new Group<ReqT, RespT>(null, attempt, false), request);
+      return;
+    }
+    boolean hedged = isHedged(attempt.headers);
+    Group<ReqT, RespT> group;
+    CachedResponse<RespT> cached;
+    synchronized (lock) {
+      @SuppressWarnings("unchecked")
+      CachedResponse<RespT> found = (CachedResponse<RespT>) cache.get(key);
+      cached = found;
+      if (cached != null && ticker.read() - cached.expirationNanos >= 0) {
+        cache.remove(key);
+        cached = null;
+      }
+      if (cached != null && hedged) {
+        group = null;
+      } else {
+        @SuppressWarnings("unchecked")
+        Group<ReqT, RespT> existing = (Group<ReqT, RespT>) inFlight.get(key);
+        if (existing != null && (hedged || existing.hedged)) {
+          existing.hedged = true;
+          existing.join(attempt);
+          return;
+        }
+        if (existing == null) {
+          group = new Group<>(key, attempt, hedged);
+          inFlight.put(key, group);
+        } else {
+          // An identical call the client made on purpose rather than by hedging
+          group = new Group<>(null, attempt, false);
+        }
+      }
+    }
+    if (group == null) {
+      cached.response.deliverTo(attempt.call);
+      return;
+    }
+    startHandler(group, request);
+  }
+
+  private <ReqT, RespT> void startHandler(final Group<ReqT, RespT> group, final ReqT request) {
+    final Attempt<ReqT, RespT> first = group.first;
+    group.listenerExecutor.execute(new GroupRunnable(group) {
+      @Override
+      void runInContext() {
+        ServerCall.Listener<ReqT> listener = first.next.startCall(group.call, first.headers);
+        group.handlerListener = checkNotNull(listener, "startCall() returned a null listener");
+        listener.onMessage(request);
+        listener.onHalfClose();
+        listener.onReady();
+      }
+    });
+  }
+
+  @GuardedBy("lock")
+  private void removeInFlight(Group<?, ?> group) {
+    if (group.key != null && inFlight.get(group.key) == group) {
+      inFlight.remove(group.key);
+    }
+  }
+
+  @GuardedBy("lock")
+  private void cacheResponse(CallKey key, CachedResponse<?> cached) {
+    cache.put(key, cached);
+    Iterator<CachedResponse<?>> iterator = cache.values().iterator();
+    while (cache.size() > maxCachedResponses && iterator.hasNext()) {
+      iterator.next();
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Identifies identical calls by their method, authority, transport attributes, serialized headers
+   * and serialized request.
+   */
+  @VisibleForTesting
+  static final class CallKey {
+    private final String fullMethodName;
+    @Nullable
+    private final String authority;
+    private final Attributes transportAttrs;
+    private final byte[] headers;
+    private final byte[] request;
+    private final int hashCode;
+
+    private CallKey(String fullMethodName, @Nullable String authority, Attributes transportAttrs,
+        byte[] headers, byte[] request) {
+      this.fullMethodName = fullMethodName;
+      this.authority = authority;
+      this.transportAttrs = transportAttrs;
+      this.headers = headers;
+      this.request = request;
+      this.hashCode = Objects.hash(fullMethodName, authority, transportAttrs)
+          + 31 * (31 * Arrays.hashCode(headers) + Arrays.hashCode(request));
+    }
+
+    static <ReqT> CallKey create(ServerCall<ReqT, ?> call, Attributes transportAttrs,
+        Metadata headers, ReqT request) throws IOException {
+      MethodDescriptor<ReqT, ?> method = call.getMethodDescriptor();
+      ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+      DataOutputStream out = new DataOutputStream(headerBytes);
+      byte[][] serialized = InternalMetadata.serialize(headers);
+      for (int i = 0; i < serialized.length; i += 2) {
+        if (IGNORED_HEADERS.contains(new String(serialized[i], US_ASCII))) {
+          continue;
+        }
+        out.writeInt(serialized[i].length);
+        out.write(serialized[i]);
+        out.writeInt(serialized[i + 1].length);
+        out.write(serialized[i + 1]);
+      }
+      out.flush();
+      byte[] requestBytes;
+      try (InputStream in = method.streamRequest(request)) {
+        requestBytes = ByteStreams.toByteArray(in);
+      }
+      return new CallKey(method.getFullMethodName(), call.getAuthority(), transportAttrs,
+          headerBytes.toByteArray(), requestBytes);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof CallKey)) {
+        return false;
+      }
+      CallKey that = (CallKey) o;
+      return hashCode == that.hashCode
+          && fullMethodName.equals(that.fullMethodName)
+          && Objects.equals(authority, that.authority)
+          && transportAttrs.equals(that.transportAttrs)
+          && Arrays.equals(headers, that.headers)
+          && Arrays.equals(request, that.request);
+    }
+  }
+
+  /** The listener of one attempt, which waits for the request before deciding what to do. */
+  private final class Attempt<ReqT, RespT> extends ServerCall.Listener<ReqT> {
+    final ServerCall<ReqT, RespT> call;
+    final Metadata headers;
+    final ServerCallHandler<ReqT, RespT> next;
+    // Only accessed from the call's serialized listener callbacks
+    private ReqT request;
+    private boolean received;
+    private boolean dispatched;
+    // Set once dispatched, under lock
+    @Nullable
+    private Group<ReqT, RespT> group;
+
+    Attempt(ServerCall<ReqT, RespT> call, Metadata headers, ServerCallHandler<ReqT, RespT> next) {
+      this.call = call;
+      this.headers = headers;
+      this.next = next;
+    }
+
+    @Override
+    public void onMessage(ReqT message) {
+      if (dispatched) {
+        return;
+      }
+      if (received) {
+        dispatched = true;
+        call.close(Status.INTERNAL.withDescription("Too many requests"), new Metadata());
+        return;
+      }
+      received = true;
+      request = message;
+    }
+
+    @Override
+    public void onHalfClose() {
+      if (dispatched) {
+        return;
+      }
+      dispatched = true;
+      if (!received) {
+        call.close(
+            Status.INTERNAL.withDescription("Half-closed without a request"), new Metadata());
+        return;
+      }
+      ReqT message = request;
+      request = null;
+      dispatch(this, message);
+    }
+
+    @Override
+    public void onCancel() {
+      dispatched = true;
+      Group<ReqT, RespT> group;
+      synchronized (lock) {
+        group = this.group;
+      }
+      if (group != null) {
+        group.attemptCancelled(this);
+      }
+    }
+
+    @Override
+    public void onComplete() {
+      Group<ReqT, RespT> group;
+      synchronized (lock) {
+        group = this.group;
+      }
+      if (group != null) {
+        group.attemptCompleted(this);
+      }
+    }
+
+    @Override
+    public void onReady() {
+      Group<ReqT, RespT> group;
+      synchronized (lock) {
+        group = this.group;
+      }
+      if (group != null && group.first == this) {
+        group.firstReady();
+      }
+    }
+  }
+
+  /** One execution of the handler, whose response goes to all the attempts that joined it. */
+  private final class Group<ReqT, RespT> {
+    @Nullable
+    final CallKey key;
+    final Attempt<ReqT, RespT> first;
+    final GroupCall call = new GroupCall();
+    final Context.CancellableContext context;
+    // Handler listener callbacks may come from several attempts' threads
+    final SerializingExecutor listenerExecutor =
+        new SerializingExecutor(MoreExecutors.directExecutor());
+    @GuardedBy("lock")
+    boolean hedged;
+    @GuardedBy("lock")
+    final List<Attempt<ReqT, RespT>> attempts = new ArrayList<>();
+    @GuardedBy("lock")
+    boolean closed;
+    @GuardedBy("lock")
+    boolean cancelled;
+    // Only accessed from listenerExecutor
+    ServerCall.Listener<ReqT> handlerListener;
+
+    Group(@Nullable CallKey key, Attempt<ReqT, RespT> first, boolean hedged) {
+      this.key = key;
+      this.first = first;
+      this.hedged = hedged;
+      this.context = Context.current().fork().withCancellation();
+      synchronized (lock) {
+        join(first);
+      }
+    }
+
+    @GuardedBy("lock")
+    void join(Attempt<ReqT, RespT> attempt) {
+      attempts.add(attempt);
+      attempt.group = this;
+    }
+
+    void attemptCancelled(Attempt<ReqT, RespT> attempt) {
+      synchronized (lock) {
+        if (closed || cancelled || !attempts.remove(attempt) || !attempts.isEmpty()) {
+          return;
+        }
+        // Nobody is waiting for the response any more; stop the handler right away
+        cancelled = true;
+        removeInFlight(this);
+      }
+      context.cancel(null);
+      listenerExecutor.execute(new GroupRunnable(this) {
+        @Override
+        void runInContext() {
+          if (handlerListener != null) {
+            handlerListener.onCancel();
+          }
+        }
+      });
+    }
+
+    void attemptCompleted(Attempt<ReqT, RespT> attempt) {
+      boolean last;
+      synchronized (lock) {
+        last = attempts.remove(attempt) && attempts.isEmpty();
+      }
+      if (last) {
+        context.cancel(null);
+        listenerExecutor.execute(new GroupRunnable(this) {
+          @Override
+          void runInContext() {
+            if (handlerListener != null) {
+              handlerListener.onComplete();
+            }
+          }
+        });
+      }
+    }
+
+    void firstReady() {
+      listenerExecutor.execute(new GroupRunnable(this) {
+        @Override
+        void runInContext() {
+          if (handlerListener != null) {
+            handlerListener.onReady();
+          }
+        }
+      });
+    }
+
+    /**
+     * Closes the attempts with UNKNOWN after the handler threw, as ServerImpl does for a single call,
+     * unless the handler already closed the call.
+     */
+    void handlerFailed(Throwable t) {
+      synchronized (lock) {
+        if (closed) {
+          return;
+        }
+      }
+      close(new Response<>(new Metadata(), Collections.<RespT>emptyList(),
+          Status.UNKNOWN.withCause(t), new Metadata(), null, true));
+    }
+
+    void close(Response<RespT> response) {
+      List<Attempt<ReqT, RespT>> recipients;
+      synchronized (lock) {
+        checkState(!closed, "call already closed");
+        closed = true;
+        removeInFlight(this);
+        if (key != null && hedged && response.status.isOk() && maxCachedResponses > 0) {
+          cacheResponse(key, new CachedResponse<>(response, ticker.read() + cacheTtlNanos));
+        }
+        recipients = new ArrayList<>(attempts);
+      }
+      for (Attempt<ReqT, RespT> attempt : recipients) {
+        response.deliverTo(attempt.call);
+      }
+    }
+
+    /** The call seen by the handler, standing for all the attempts. */
+    private final class GroupCall extends ServerCall<ReqT, RespT> {
+      // Only accessed by the handler, which calls serially
+      private Metadata responseHeaders = new Metadata();
+      private final List<RespT> responseMessages = new ArrayList<>(1);
+      private String compressor;
+      private boolean messageCompression = true;
+
+      @Override
+      public void request(int numMessages) {
+        // The request is already known and replayed to the handler
+      }
+
+      @Override
+      public void sendHeaders(Metadata headers) {
+        responseHeaders = checkNotNull(headers, "headers");
+      }
+
+      @Override
+      public void sendMessage(RespT message) {
+        responseMessages.add(message);
+      }
+
+      @Override
+      public void close(Status status, Metadata trailers) {
+        Group.this.close(new Response<>(
+            responseHeaders, responseMessages, status, trailers, compressor, messageCompression));
+      }
+
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public boolean isCancelled() {
+        synchronized (lock) {
+          return cancelled;
+        }
+      }
+
+      @Override
+      public void setMessageCompression(boolean enabled) {
+        messageCompression = enabled;
+      }
+
+      @Override
+      public void setCompression(String compressor) {
+        this.compressor = checkNotNull(compressor, "compressor");
+      }
+
+      // Every attempt in the group arrived on a transport with equal attributes, so the first
+      // attempt's security level and attributes hold for all of them
+
+      @Override
+      public SecurityLevel getSecurityLevel() {
+        return first.call.getSecurityLevel();
+      }
+
+      @Override
+      public Attributes getAttributes() {
+        return first.call.getAttributes();
+      }
+
+      @Override
+      @Nullable
+      public String getAuthority() {
+        return first.call.getAuthority();
+      }
+
+      @Override
+      public MethodDescriptor<ReqT, RespT> getMethodDescriptor() {
+        return first.call.getMethodDescriptor();
+      }
+    }
+  }
+
+  /**
+   * Runs in the context of a group, so that the handler does not see single attempts cancel. If the
+   * handler throws, the group is closed; listenerExecutor would only log the exception.
+   */
+  private abstract static class GroupRunnable implements Runnable {
+    private final Group<?, ?> group;
+
+    GroupRunnable(Group<?, ?> group) {
+      this.group = group;
+    }
+
+    @Override
+    public final void run() {
+      Context previous = group.context.attach();
+      try {
+        runInContext();
+      } catch (Throwable t) {
+        group.handlerFailed(t);
+        throw t;
+      } finally {
+        group.context.detach(previous);
+      }
+    }
+
+    abstract void runInContext();
+  }
+
+  /** What the handler sent, which can be replayed to any number of attempts. */
+  private static final class Response<RespT> {
+    final Metadata headers;
+    final List<RespT> messages;
+    final Status status;
+    final Metadata trailers;
+    @Nullable
+    final String compressor;
+    final boolean messageCompression;
+
+    Response(Metadata headers, List<RespT> messages, Status status, Metadata trailers,
+        @Nullable String compressor, boolean messageCompression) {
+      this.headers = headers;
+      this.messages = messages;
+      this.status = checkNotNull(status, "status");
+      this.trailers = checkNotNull(trailers, "trailers");
+      this.compressor = compressor;
+      this.messageCompression = messageCompression;
+    }
+
+    void deliverTo(ServerCall<?, RespT> call) {
+      // Transports take ownership of the Metadata they are given, so each attempt gets a copy
+      if (compressor != null) {
+        call.setCompression(compressor);
+      }
+      if (!messages.isEmpty()) {
+        Metadata headersCopy = new Metadata();
+        headersCopy.merge(headers);
+        call.sendHeaders(headersCopy);
+        call.setMessageCompression(messageCompression);
+        for (RespT message : messages) {
+          call.sendMessage(message);
+        }
+      }
+      Metadata trailersCopy = new Metadata();
+      trailersCopy.merge(trailers);
+      call.close(status, trailersCopy);
+    }
+  }
+
+  private static final class CachedResponse<RespT> {
+    final Response<RespT> response;
+    final long expirationNanos;
+
+    CachedResponse(Response<RespT> response, long expirationNanos) {
+      this.response = response;
+      this.expirationNanos = expirationNanos;
+    }
+  }
+
+  /** Builder for {@link HedgeCoalescingServerInterceptor}. */
+  public static final class Builder {
+    private Ticker ticker = Ticker.systemTicker();
+    private final Set<String> methods = new HashSet<>();
+    private int maxCachedResponses = 1000;
+    private long cacheTtlNanos = TimeUnit.SECONDS.toNanos(1);
+
+    private Builder() {}
+
+    /**
+     * Coalesces the hedged attempts of a unary service method even if it is not marked idempotent.
+     *
+     * @param serviceOrMethod a service name, or a full method name as in {@link
+     *     MethodDescriptor#getFullMethodName}
+     */
+    public Builder addMethod(String serviceOrMethod) {
+      methods.add(checkNotNull(serviceOrMethod, "serviceOrMethod"));
+      return this;
+    }
+
+    /**
+     * Sets how many responses are kept for attempts that arrive after the handler completed. The
+     * least recently used ones are evicted first. Zero disables the cache. Defaults to 1000.
+     */
+    public Builder setMaxCachedResponses(int maxCachedResponses) {
+      checkArgument(maxCachedResponses >= 0, "maxCachedResponses must not be negative");
+      this.maxCachedResponses = maxCachedResponses;
+      return this;
+    }
+
+    /**
+     * Sets for how long a response is kept for attempts that arrive after the handler completed.
+     * This should cover the client's hedging delay times the number of attempts. Defaults to one
+     * second.
+     */
+    public Builder setCacheTtl(long time, TimeUnit unit) {
+      checkArgument(time > 0, "time must be positive");
+      this.cacheTtlNanos = unit.toNanos(time);
+      return this;
+    }
+
+    @VisibleForTesting
+    Builder setTicker(Ticker ticker) {
+      this.ticker = checkNotNull(ticker, "ticker");
+      return this;
+    }
+
+    public HedgeCoalescingServerInterceptor build() {
+      return new HedgeCoalescingServerInterceptor(this);
+    }
+  }
+}
@@ -86,6 +86,10 @@ public final class MetricRecorder {
     memoryUtilization = 0;
   }
 
+  double getCpuUtilization() {
+    return cpuUtilization;
+  }
+
   MetricReport getMetricReport() {
     return new MetricReport(cpuUtilization, memoryUtilization,
         Collections.emptyMap(), Collections.unmodifiableMap(metricsData));
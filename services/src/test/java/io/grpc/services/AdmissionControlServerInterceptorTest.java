@@ -0,0 +1,205 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.grpc.Context;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.grpc.internal.FakeClock;
+import io.grpc.services.AdmissionControlServerInterceptor.Criticality;
+import io.grpc.testing.TestMethodDescriptors;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/** Tests for {@link AdmissionControlServerInterceptor}. */
+@RunWith(JUnit4.class)
+public class AdmissionControlServerInterceptorTest {
+  private static final MethodDescriptor<Void, Void> METHOD_A =
+      TestMethodDescriptors.voidMethod().toBuilder().setFullMethodName("service/a").build();
+  private static final MethodDescriptor<Void, Void> METHOD_B =
+      TestMethodDescriptors.voidMethod().toBuilder().setFullMethodName("service/b").build();
+
+  @Rule public final MockitoRule mocks = MockitoJUnit.rule();
+
+  @Mock private ServerCall<Void, Void> callA;
+  @Mock private ServerCall<Void, Void> callB;
+  @Mock private ServerCallHandler<Void, Void> handler;
+  @Mock private ServerCall.Listener<Void> handlerListener;
+
+  private final FakeClock fakeClock = new FakeClock();
+
+  private void setUpMocks() {
+    when(callA.getMethodDescriptor()).thenReturn(METHOD_A);
+    when(callB.getMethodDescriptor()).thenReturn(METHOD_B);
+    when(handler.startCall(any(), any())).thenReturn(handlerListener);
+  }
+
+  private AdmissionControlServerInterceptor.Builder newBuilder() {
+    setUpMocks();
+    return AdmissionControlServerInterceptor.newBuilder().setTicker(fakeClock.getTicker());
+  }
+
+  private static void assertRejected(ServerCall<Void, Void> call, String description) {
+    ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+    verify(call).close(status.capture(), any(Metadata.class));
+    assertThat(status.getValue().getCode()).isEqualTo(Status.Code.RESOURCE_EXHAUSTED);
+    assertThat(status.getValue().getDescription()).isEqualTo(description);
+  }
+
+  @Test
+  public void admitsAndCountsCallsInProgress() {
+    AdmissionControlServerInterceptor interceptor = newBuilder().build();
+
+    ServerCall.Listener<Void> listener = interceptor.interceptCall(callA, new Metadata(), handler);
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(1);
+    verify(handler).startCall(same(callA), any(Metadata.class));
+
+    listener.onHalfClose();
+    verify(handlerListener).onHalfClose();
+    listener.onComplete();
+    verify(handlerListener).onComplete();
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(0);
+  }
+
+  @Test
+  public void rejectsBeyondMaxConcurrentCalls() {
+    AdmissionControlServerInterceptor interceptor = newBuilder()
+        .setMaxConcurrentCalls(1)
+        .setCriticality("service/b", Criticality.CRITICAL)
+        .build();
+
+    ServerCall.Listener<Void> first = interceptor.interceptCall(callA, new Metadata(), handler);
+    ServerCall.Listener<Void> unused = interceptor.interceptCall(callA, new Metadata(), handler);
+    assertRejected(callA, "Too many concurrent calls");
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(1);
+
+    // Critical calls are not shed
+    ServerCall.Listener<Void> critical = interceptor.interceptCall(callB, new Metadata(), handler);
+    verify(callB, never()).close(any(Status.class), any(Metadata.class));
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(2);
+
+    first.onCancel();
+    critical.onComplete();
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(0);
+  }
+
+  @Test
+  public void rejectsCallsQueuedForTooLong() {
+    AdmissionControlServerInterceptor interceptor = newBuilder()
+        .setMaxQueueingTime(10, TimeUnit.MILLISECONDS)
+        .build();
+    ServerStreamTracer.Factory tracerFactory = interceptor.getStreamTracerFactory();
+    Context quick = tracerFactory.newServerStreamTracer("service/b", new Metadata())
+        .filterContext(Context.ROOT);
+    Context slow = tracerFactory.newServerStreamTracer("service/a", new Metadata())
+        .filterContext(Context.ROOT);
+
+    fakeClock.forwardTime(10, TimeUnit.MILLISECONDS);
+    Context previous = quick.attach();
+    try {
+      ServerCall.Listener<Void> unused = interceptor.interceptCall(callB, new Metadata(), handler);
+    } finally {
+      quick.detach(previous);
+    }
+    fakeClock.forwardTime(1, TimeUnit.MILLISECONDS);
+    previous = slow.attach();
+    try {
+      ServerCall.Listener<Void> unused = interceptor.interceptCall(callA, new Metadata(), handler);
+    } finally {
+      slow.detach(previous);
+    }
+
+    verify(callB, never()).close(any(Status.class), any(Metadata.class));
+    assertRejected(callA, "Call queued for too long");
+    verify(handler, never()).startCall(same(callA), any(Metadata.class));
+  }
+
+  @Test
+  public void shedsSheddableCallsOnHighCpu() {
+    MetricRecorder recorder = MetricRecorder.newInstance();
+    AdmissionControlServerInterceptor interceptor = newBuilder()
+        .setCpuUtilizationLimit(recorder, 0.8)
+        .setCriticality("service", Criticality.SHEDDABLE)
+        .setCriticality("service/b", Criticality.DEFAULT)
+        .build();
+    recorder.setCpuUtilizationMetric(0.9);
+
+    ServerCall.Listener<Void> unused1 = interceptor.interceptCall(callA, new Metadata(), handler);
+    ServerCall.Listener<Void> unused2 = interceptor.interceptCall(callB, new Metadata(), handler);
+
+    assertRejected(callA, "CPU utilization too high");
+    verify(callB, never()).close(any(Status.class), any(Metadata.class));
+  }
+
+  @Test
+  public void nestedRateLimits() {
+    AdmissionControlServerInterceptor interceptor = newBuilder()
+        .setRateLimit("service/a", 1, 1)
+        .setServerRateLimit(2, 2)
+        .build();
+
+    ServerCall.Listener<Void> unused1 = interceptor.interceptCall(callA, new Metadata(), handler);
+    // The method bucket is empty; its rejection must not consume a server token
+    ServerCall.Listener<Void> unused2 = interceptor.interceptCall(callA, new Metadata(), handler);
+    assertRejected(callA, "Rate limit exceeded");
+    ServerCall.Listener<Void> unused3 = interceptor.interceptCall(callB, new Metadata(), handler);
+    verify(callB, never()).close(any(Status.class), any(Metadata.class));
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(2);
+
+    // The server bucket is now empty too
+    ServerCall.Listener<Void> unused4 = interceptor.interceptCall(callB, new Metadata(), handler);
+    assertRejected(callB, "Rate limit exceeded");
+
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    ServerCall.Listener<Void> unused5 = interceptor.interceptCall(callA, new Metadata(), handler);
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(3);
+  }
+
+  @Test
+  public void failedStartCallIsNotCounted() {
+    AdmissionControlServerInterceptor interceptor = newBuilder().build();
+    when(handler.startCall(any(), any())).thenThrow(new IllegalStateException("boom"));
+
+    try {
+      interceptor.interceptCall(callA, new Metadata(), handler);
+      fail("Should have thrown");
+    } catch (IllegalStateException expected) {
+      // expected
+    }
+
+    assertThat(interceptor.getCallsInProgress()).isEqualTo(0);
+  }
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.services;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.grpc.services.HedgeCoalescingServerInterceptor.GRPC_PREVIOUS_RPC_ATTEMPTS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.grpc.Attributes;
+import io.grpc.Context;
+import io.grpc.Grpc;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.ServerCall;
+import io.grpc.ServerCallHandler;
+import io.grpc.Status;
+import io.grpc.internal.FakeClock;
+import io.grpc.testing.TestMethodDescriptors;
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+/** Tests for {@link HedgeCoalescingServerInterceptor}. */
+@RunWith(JUnit4.class)
+public class HedgeCoalescingServerInterceptorTest {
+  private static final MethodDescriptor<Void, Void> IDEMPOTENT_METHOD =
+      TestMethodDescriptors.voidMethod().toBuilder()
+          .setFullMethodName("service/idempotent")
+          .setIdempotent(true)
+          .build();
+  private static final MethodDescriptor<Void, Void> OTHER_METHOD =
+      TestMethodDescriptors.voidMethod().toBuilder().setFullMethodName("service/other").build();
+  private static final Metadata.Key<String> USER_KEY =
+      Metadata.Key.of("user", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Attributes.Key<String> PEER_IDENTITY_KEY =
+      Attributes.Key.create("peer-identity");
+  private static final Attributes TRANSPORT_ATTRS = transportAttrs(12345, "alice-cert");
+
+  @Rule public final MockitoRule mocks = MockitoJUnit.rule();
+
+  @Mock private ServerCallHandler<Void, Void> handler;
+  @Mock private ServerCall.Listener<Void> handlerListener;
+
+  private final FakeClock fakeClock = new FakeClock();
+  private HedgeCoalescingServerInterceptor interceptor;
+
+  @Before
+  public void setUp() {
+    when(handler.startCall(any(), any())).thenReturn(handlerListener);
+    interceptor = HedgeCoalescingServerInterceptor.newBuilder()
+        .setTicker(fakeClock.getTicker())
+        .setCacheTtl(1, TimeUnit.SECONDS)
+        .build();
+  }
+
+  private static Attributes transportAttrs(int remotePort, String peerIdentity) {
+    return Attributes.newBuilder()
+        .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, new InetSocketAddress("10.0.0.1", remotePort))
+        .set(PEER_IDENTITY_KEY, peerIdentity)
+        .build();
+  }
+
+  private static ServerCall<Void, Void> newCall(MethodDescriptor<Void, Void> method) {
+    return newCall(method, TRANSPORT_ATTRS);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static ServerCall<Void, Void> newCall(
+      MethodDescriptor<Void, Void> method, Attributes transportAttrs) {
+    ServerCall<Void, Void> call = mock(ServerCall.class);
+    when(call.getMethodDescriptor()).thenReturn(method);
+    when(call.getAttributes()).thenReturn(transportAttrs);
+    return call;
+  }
+
+  private static Metadata headers(String user, int previousAttempts) {
+    Metadata headers = new Metadata();
+    headers.put(USER_KEY, user);
+    if (previousAttempts > 0) {
+      headers.put(GRPC_PREVIOUS_RPC_ATTEMPTS, String.valueOf(previousAttempts));
+    }
+    return headers;
+  }
+
+  private ServerCall.Listener<Void> startAttempt(ServerCall<Void, Void> call, Metadata headers) {
+    ServerCall.Listener<Void> listener = interceptor.interceptCall(call, headers, handler);
+    listener.onMessage(null);
+    listener.onHalfClose();
+    return listener;
+  }
+
+  @SuppressWarnings("unchecked")
+  private ServerCall<Void, Void> handlerCall() {
+    ArgumentCaptor<ServerCall<Void, Void>> captor = ArgumentCaptor.forClass(ServerCall.class);
+    verify(handler).startCall(captor.capture(), any(Metadata.class));
+    return captor.getValue();
+  }
+
+  private static void verifyResponded(ServerCall<Void, Void> call, Status.Code code) {
+    ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+    verify(call).close(status.capture(), any(Metadata.class));
+    assertThat(status.getValue().getCode()).isEqualTo(code);
+  }
+
+  @Test
+  public void passesThroughNonIdempotentMethods() {
+    ServerCall<Void, Void> call = newCall(OTHER_METHOD);
+    Metadata headers = headers("alice", 1);
+
+    ServerCall.Listener<Void> listener = interceptor.interceptCall(call, headers, handler);
+
+    assertThat(listener).isSameInstanceAs(handlerListener);
+    verify(handler).startCall(same(call), same(headers));
+  }
+
+  @Test
+  public void coalescesHedgedAttempts() {
+    ServerCall<Void, Void> original = newCall(IDEMPOTENT_METHOD);
+    ServerCall<Void, Void> hedge = newCall(IDEMPOTENT_METHOD);
+
+    startAttempt(original, headers("alice", 0));
+    startAttempt(hedge, headers("alice", 1));
+
+    verify(handler, times(1)).startCall(any(), any());
+    verify(handlerListener).onHalfClose();
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(1);
+
+    ServerCall<Void, Void> call = handlerCall();
+    call.sendHeaders(new Metadata());
+    call.sendMessage(null);
+    call.close(Status.OK, new Metadata());
+
+    verify(original).sendMessage(null);
+    verifyResponded(original, Status.Code.OK);
+    verify(hedge).sendMessage(null);
+    verifyResponded(hedge, Status.Code.OK);
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void methodAddedToBuilderIsCoalesced() {
+    interceptor = HedgeCoalescingServerInterceptor.newBuilder().addMethod("service").build();
+
+    startAttempt(newCall(OTHER_METHOD), headers("alice", 0));
+    startAttempt(newCall(OTHER_METHOD), headers("alice", 1));
+
+    verify(handler, times(1)).startCall(any(), any());
+  }
+
+  @Test
+  public void differentHeadersAreNotCoalesced() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("bob", 1));
+
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void differentTransportsAreNotCoalesced() {
+    // Same headers and request, but another connection, possibly authenticated as someone else
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(
+        newCall(IDEMPOTENT_METHOD, transportAttrs(23456, "mallory-cert")), headers("alice", 1));
+
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void differentTransportIsNotAnsweredFromCache() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+    handlerCall().close(Status.OK, new Metadata());
+    assertThat(interceptor.getCachedResponses()).isEqualTo(1);
+
+    startAttempt(
+        newCall(IDEMPOTENT_METHOD, transportAttrs(23456, "mallory-cert")), headers("alice", 2));
+
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void unknownTransportIsNotCoalesced() {
+    startAttempt(newCall(IDEMPOTENT_METHOD, null), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD, null), headers("alice", 1));
+
+    verify(handler, times(2)).startCall(any(), any());
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void tracingHeadersAreIgnored() {
+    Metadata.Key<String> traceparent =
+        Metadata.Key.of("traceparent", Metadata.ASCII_STRING_MARSHALLER);
+    Metadata.Key<byte[]> traceBin =
+        Metadata.Key.of("grpc-trace-bin", Metadata.BINARY_BYTE_MARSHALLER);
+    Metadata originalHeaders = headers("alice", 0);
+    originalHeaders.put(traceparent, "00-0af7651916cd43dd8448eb211c80319c-b7ad6b7169203331-01");
+    originalHeaders.put(traceBin, new byte[] {0, 1});
+    Metadata hedgeHeaders = headers("alice", 1);
+    hedgeHeaders.put(traceparent, "00-0af7651916cd43dd8448eb211c80319c-00f067aa0ba902b7-01");
+    hedgeHeaders.put(traceBin, new byte[] {0, 2});
+
+    startAttempt(newCall(IDEMPOTENT_METHOD), originalHeaders);
+    startAttempt(newCall(IDEMPOTENT_METHOD), hedgeHeaders);
+
+    verify(handler, times(1)).startCall(any(), any());
+  }
+
+  @Test
+  public void handlerSeesAttemptTransportAttributes() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+
+    assertThat(handlerCall().getAttributes()).isEqualTo(TRANSPORT_ATTRS);
+  }
+
+  @Test
+  public void repeatedCallsWithoutHedgingAreNotCoalesced() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void lateHedgeIsAnsweredFromCache() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+    handlerCall().close(Status.OK, new Metadata());
+    assertThat(interceptor.getCachedResponses()).isEqualTo(1);
+
+    ServerCall<Void, Void> late = newCall(IDEMPOTENT_METHOD);
+    startAttempt(late, headers("alice", 2));
+
+    verify(handler, times(1)).startCall(any(), any());
+    verifyResponded(late, Status.Code.OK);
+  }
+
+  @Test
+  public void expiredResponseIsNotUsed() {
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+    handlerCall().close(Status.OK, new Metadata());
+
+    fakeClock.forwardTime(1, TimeUnit.SECONDS);
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 2));
+
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void failedResponseIsNotCached() {
+    ServerCall<Void, Void> original = newCall(IDEMPOTENT_METHOD);
+    ServerCall<Void, Void> hedge = newCall(IDEMPOTENT_METHOD);
+    startAttempt(original, headers("alice", 0));
+    startAttempt(hedge, headers("alice", 1));
+
+    handlerCall().close(Status.UNAVAILABLE, new Metadata());
+
+    verifyResponded(original, Status.Code.UNAVAILABLE);
+    verifyResponded(hedge, Status.Code.UNAVAILABLE);
+    assertThat(interceptor.getCachedResponses()).isEqualTo(0);
+  }
+
+  @Test
+  public void cancellingOneAttemptKeepsHandlerRunning() {
+    ServerCall<Void, Void> original = newCall(IDEMPOTENT_METHOD);
+    ServerCall<Void, Void> hedge = newCall(IDEMPOTENT_METHOD);
+    ServerCall.Listener<Void> originalListener = startAttempt(original, headers("alice", 0));
+    startAttempt(hedge, headers("alice", 1));
+
+    originalListener.onCancel();
+
+    ServerCall<Void, Void> call = handlerCall();
+    assertThat(call.isCancelled()).isFalse();
+    verify(handlerListener, never()).onCancel();
+    call.close(Status.OK, new Metadata());
+    verify(original, never()).close(any(Status.class), any(Metadata.class));
+    verifyResponded(hedge, Status.Code.OK);
+  }
+
+  @Test
+  public void cancellingAllAttemptsCancelsHandler() {
+    final AtomicBoolean contextCancelled = new AtomicBoolean();
+    when(handler.startCall(any(), any())).thenAnswer(invocation -> {
+      Context.current().addListener(
+          context -> contextCancelled.set(true), Runnable::run);
+      return handlerListener;
+    });
+    ServerCall.Listener<Void> originalListener =
+        startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 0));
+    ServerCall.Listener<Void> hedgeListener =
+        startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+
+    originalListener.onCancel();
+    hedgeListener.onCancel();
+
+    assertThat(handlerCall().isCancelled()).isTrue();
+    verify(handlerListener).onCancel();
+    assertThat(contextCancelled.get()).isTrue();
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(0);
+
+    // A new attempt starts over instead of joining the cancelled call
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 2));
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void handlerThrows_closesWithUnknownAndLeavesNothingInFlight() {
+    RuntimeException failure = new RuntimeException("handler failed");
+    doThrow(failure).when(handlerListener).onHalfClose();
+    ServerCall<Void, Void> original = newCall(IDEMPOTENT_METHOD);
+
+    startAttempt(original, headers("alice", 0));
+
+    ArgumentCaptor<Status> status = ArgumentCaptor.forClass(Status.class);
+    verify(original).close(status.capture(), any(Metadata.class));
+    assertThat(status.getValue().getCode()).isEqualTo(Status.Code.UNKNOWN);
+    assertThat(status.getValue().getCause()).isSameInstanceAs(failure);
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(0);
+
+    // A hedge starts over instead of joining the failed call
+    startAttempt(newCall(IDEMPOTENT_METHOD), headers("alice", 1));
+    verify(handler, times(2)).startCall(any(), any());
+  }
+
+  @Test
+  public void handlerThrowsLater_closesEveryAttempt() {
+    doNothing().doThrow(new RuntimeException("handler failed")).when(handlerListener).onReady();
+    ServerCall<Void, Void> original = newCall(IDEMPOTENT_METHOD);
+    ServerCall<Void, Void> hedge = newCall(IDEMPOTENT_METHOD);
+    ServerCall.Listener<Void> originalListener = startAttempt(original, headers("alice", 0));
+    startAttempt(hedge, headers("alice", 1));
+
+    originalListener.onReady();
+
+    verifyResponded(original, Status.Code.UNKNOWN);
+    verifyResponded(hedge, Status.Code.UNKNOWN);
+    assertThat(interceptor.getCallsInFlight()).isEqualTo(0);
+  }
+
+  @Test
+  public void tooManyRequests() {
+    ServerCall<Void, Void> call = newCall(IDEMPOTENT_METHOD);
+    ServerCall.Listener<Void> listener =
+        interceptor.interceptCall(call, headers("alice", 0), handler);
+    verify(call).request(2);
+
+    listener.onMessage(null);
+    listener.onMessage(null);
+
+    verifyResponded(call, Status.Code.INTERNAL);
+    verify(handler, never()).startCall(any(), any());
+  }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Orders the frames a transport writes to its connection. A frame goes straight into the ring
+ * when nothing is queued and there is room; otherwise, including before the connection is
+ * established, it is queued and a task on the transport executor writes it once the peer has
+ * freed enough space.
+ *
+ * <p>Unless noted otherwise, methods must be called while holding the transport lock.
+ */
+final class FrameWriter {
+  private static final Logger log = Logger.getLogger(FrameWriter.class.getName());
+
+  /** Notified, while holding the transport lock, once a frame has been written to the ring. */
+  interface WriteListener {
+    void frameWritten(int payloadLength);
+  }
+
+  private final Object lock;
+  private final Executor executor;
+  private final int maxFramePayload;
+  private final Runnable drainer = new Runnable() {
+    @Override
+    public void run() {
+      drain();
+    }
+  };
+
+  @GuardedBy("lock")
+  @Nullable
+  private ShmConnection connection;
+  @GuardedBy("lock")
+  private final ArrayDeque<Frame> pending = new ArrayDeque<>();
+  @GuardedBy("lock")
+  private boolean draining;
+  @GuardedBy("lock")
+  private boolean shutdown;
+  @GuardedBy("lock")
+  private boolean closed;
+
+  FrameWriter(Object lock, Executor executor, int maxFramePayload) {
+    this.lock = lock;
+    this.executor = executor;
+    this.maxFramePayload = maxFramePayload;
+  }
+
+  /** Returns the largest payload a single frame may carry. Safe to call without the lock. */
+  int maxFramePayload() {
+    return maxFramePayload;
+  }
+
+  @GuardedBy("lock")
+  void setConnection(ShmConnection connection) {
+    this.connection = connection;
+    if (!pending.isEmpty()) {
+      scheduleDrain();
+    } else if (shutdown) {
+      connection.shutdownOutput();
+    }
+  }
+
+  @GuardedBy("lock")
+  void write(byte type, byte flags, int streamId, byte[] payload) {
+    write(type, flags, streamId, payload, 0, payload.length, null);
+  }
+
+  @GuardedBy("lock")
+  void write(byte type, byte flags, int streamId, byte[] payload, int offset, int length,
+      @Nullable WriteListener listener) {
+    if (shutdown || closed) {
+      return;
+    }
+    if (pending.isEmpty() && connection != null
+        && connection.tryWrite(type, flags, streamId, payload, offset, length)) {
+      if (listener != null) {
+        listener.frameWritten(length);
+      }
+      return;
+    }
+    pending.add(new Frame(type, flags, streamId, payload, offset, length, listener));
+    scheduleDrain();
+  }
+
+  /**
+   * Shuts down the connection's output once the queued frames are written. Later writes are
+   * dropped.
+   */
+  @GuardedBy("lock")
+  void shutdownWhenDrained() {
+    if (shutdown) {
+      return;
+    }
+    shutdown = true;
+    if (pending.isEmpty() && connection != null) {
+      connection.shutdownOutput();
+    }
+  }
+
+  /** Drops the queued frames and any later writes. */
+  @GuardedBy("lock")
+  void close() {
+    closed = true;
+    pending.clear();
+  }
+
+  @GuardedBy("lock")
+  private void scheduleDrain() {
+    if (draining || connection == null) {
+      return;
+    }
+    draining = true;
+    executor.execute(drainer);
+  }
+
+  private void drain() {
+    while (true) {
+      ShmConnection connection;
+      int needed;
+      synchronized (lock) {
+        connection = this.connection;
+        Frame frame;
+        while ((frame = pending.peek()) != null
+            && connection.tryWrite(frame.type, frame.flags, frame.streamId, frame.payload,
+                frame.offset, frame.length)) {
+          pending.poll();
+          if (frame.listener != null) {
+            frame.listener.frameWritten(frame.length);
+          }
+        }
+        if (frame == null || closed) {
+          draining = false;
+          if (shutdown && !closed) {
+            connection.shutdownOutput();
+          }
+          return;
+        }
+        needed = frame.length;
+      }
+      try {
+        if (!connection.awaitWritable(needed)) {
+          synchronized (lock) {
+            draining = false;
+          }
+          return;
+        }
+      } catch (IOException e) {
+        // The reader notices the same failure and tears the transport down
+        log.log(Level.FINE, "Failed waiting for space in the ring", e);
+        synchronized (lock) {
+          draining = false;
+          close();
+        }
+        return;
+      }
+    }
+  }
+
+  private static final class Frame {
+    final byte type;
+    final byte flags;
+    final int streamId;
+    final byte[] payload;
+    final int offset;
+    final int length;
+    @Nullable final WriteListener listener;
+
+    Frame(byte type, byte flags, int streamId, byte[] payload, int offset, int length,
+        @Nullable WriteListener listener) {
+      this.type = type;
+      this.flags = flags;
+      this.streamId = streamId;
+      this.payload = payload;
+      this.offset = offset;
+      this.length = length;
+      this.listener = listener;
+    }
+  }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import java.util.ArrayDeque;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Outbound flow control for one stream. DATA beyond the window the peer has granted is held
+ * here until a WINDOW_UPDATE arrives; a trailing frame, such as the server's trailers, is held
+ * behind it so it is never written before the data.
+ *
+ * <p>Must only be used while holding the transport lock.
+ */
+@NotThreadSafe
+final class OutboundFlow {
+  private final FrameWriter writer;
+  private final int streamId;
+  private final FrameWriter.WriteListener listener;
+  private final ArrayDeque<Chunk> pending = new ArrayDeque<>();
+  private int window;
+
+  OutboundFlow(
+      FrameWriter writer, int streamId, int initialWindow, FrameWriter.WriteListener listener) {
+    this.writer = writer;
+    this.streamId = streamId;
+    this.window = initialWindow;
+    this.listener = listener;
+  }
+
+  /** Sends {@code length} bytes of {@code data}, ending the stream if {@code endOfStream}. */
+  void data(byte[] data, int offset, int length, boolean endOfStream) {
+    pending.add(new Chunk(data, offset, length, endOfStream, null, null));
+    flush();
+  }
+
+  /**
+   * Sends a frame once all the data before it has been sent, notifying {@code frameListener} when
+   * it is written.
+   */
+  void frameAfterData(
+      byte type, byte[] payload, @Nullable FrameWriter.WriteListener frameListener) {
+    pending.add(new Chunk(payload, 0, payload.length, false, type, frameListener));
+    flush();
+  }
+
+  void windowUpdate(int delta) {
+    window += delta;
+    flush();
+  }
+
+  /** Drops everything not yet sent. */
+  void clear() {
+    pending.clear();
+  }
+
+  private void flush() {
+    Chunk chunk;
+    while ((chunk = pending.peek()) != null) {
+      if (chunk.type != null) {
+        writer.write(
+            chunk.type, (byte) 0, streamId, chunk.data, 0, chunk.length, chunk.frameListener);
+        pending.poll();
+        continue;
+      }
+      int length = Math.min(chunk.length, Math.min(window, writer.maxFramePayload()));
+      if (length <= 0 && chunk.length > 0) {
+        return;
+      }
+      boolean last = length == chunk.length;
+      byte flags = last && chunk.endOfStream ? ShmFrames.FLAG_END_STREAM : 0;
+      writer.write(ShmFrames.DATA, flags, streamId, chunk.data, chunk.offset, length, listener);
+      window -= length;
+      chunk.offset += length;
+      chunk.length -= length;
+      if (last) {
+        pending.poll();
+      }
+    }
+  }
+
+  private static final class Chunk {
+    final byte[] data;
+    int offset;
+    int length;
+    final boolean endOfStream;
+    @Nullable final Byte type;
+    @Nullable final FrameWriter.WriteListener frameListener;
+
+    Chunk(byte[] data, int offset, int length, boolean endOfStream, @Nullable Byte type,
+        @Nullable FrameWriter.WriteListener frameListener) {
+      this.data = data;
+      this.offset = offset;
+      this.length = length;
+      this.endOfStream = endOfStream;
+      this.type = type;
+      this.frameListener = frameListener;
+    }
+  }
+}
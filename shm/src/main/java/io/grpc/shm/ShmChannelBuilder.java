@@ -0,0 +1,284 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.errorprone.annotations.DoNotCall;
+import io.grpc.ChannelCredentials;
+import io.grpc.ChannelLogger;
+import io.grpc.ExperimentalApi;
+import io.grpc.Internal;
+import io.grpc.ManagedChannelBuilder;
+import io.grpc.internal.AbstractManagedChannelImplBuilder;
+import io.grpc.internal.ClientTransportFactory;
+import io.grpc.internal.ConnectionClientTransport;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.ManagedChannelImplBuilder;
+import io.grpc.internal.ManagedChannelImplBuilder.ClientTransportFactoryBuilder;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.SharedResourceHolder;
+import io.grpc.internal.SharedResourcePool;
+import io.grpc.internal.TransportTracer;
+import java.net.SocketAddress;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * Builder for a channel that talks to a {@link ShmServerBuilder server} in another process on the
+ * same host through shared memory.
+ *
+ * <p>The client and server exchange frames through a pair of ring buffers in a memory-mapped file,
+ * so a message is copied once into the ring and once out of it, with no system calls on the data
+ * path. A thread waiting for the peer spins for {@link #spinTime} before backing off to parking,
+ * which keeps latency low while the connection is busy at the cost of CPU.
+ *
+ * <p>The server's directory should be on a memory-backed file system such as {@code /dev/shm};
+ * elsewhere the kernel may write the rings back to disk.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1783")
+public final class ShmChannelBuilder extends
+    AbstractManagedChannelImplBuilder<ShmChannelBuilder> {
+  static final int DEFAULT_RING_SIZE = 1024 * 1024;
+  // Spinning on a single CPU only delays the peer it is waiting for
+  static final long DEFAULT_SPIN_NANOS =
+      Runtime.getRuntime().availableProcessors() > 1 ? TimeUnit.MICROSECONDS.toNanos(50) : 0;
+  static final int DEFAULT_FLOW_CONTROL_WINDOW = 1024 * 1024;
+
+  /**
+   * Creates a channel to the server listening in the given directory.
+   */
+  public static ShmChannelBuilder forPath(String path) {
+    return forAddress(new ShmSocketAddress(checkNotNull(path, "path")));
+  }
+
+  /**
+   * Creates a channel to the server at the given address.
+   */
+  public static ShmChannelBuilder forAddress(ShmSocketAddress address) {
+    return new ShmChannelBuilder(checkNotNull(address, "address"), null);
+  }
+
+  /**
+   * Creates a channel for a target, such as {@code shm:///dev/shm/my-server}, that resolves to
+   * {@link ShmSocketAddress}es.
+   */
+  public static ShmChannelBuilder forTarget(String target) {
+    return new ShmChannelBuilder(null, checkNotNull(target, "target"));
+  }
+
+  /**
+   * Always fails. Call {@link #forPath} instead.
+   */
+  @DoNotCall("Unsupported. Use forPath() instead")
+  public static ShmChannelBuilder forAddress(String name, int port) {
+    throw new UnsupportedOperationException("call forPath() instead");
+  }
+
+  private final ManagedChannelImplBuilder managedChannelImplBuilder;
+  private int ringSize = DEFAULT_RING_SIZE;
+  private long spinNanos = DEFAULT_SPIN_NANOS;
+  private int flowControlWindow = DEFAULT_FLOW_CONTROL_WINDOW;
+  private int maxInboundMessageSize = GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE;
+  private int maxInboundMetadataSize = GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE;
+  private TransportTracer.Factory transportTracerFactory = TransportTracer.getDefaultFactory();
+
+  private ShmChannelBuilder(@Nullable ShmSocketAddress directAddress, @Nullable String target) {
+    final class ShmChannelTransportFactoryBuilder implements ClientTransportFactoryBuilder {
+      @Override
+      public ClientTransportFactory buildClientTransportFactory() {
+        return buildTransportFactory();
+      }
+    }
+
+    if (directAddress != null) {
+      managedChannelImplBuilder = new ManagedChannelImplBuilder(directAddress, "localhost",
+          new ShmChannelTransportFactoryBuilder(), null);
+    } else {
+      managedChannelImplBuilder = new ManagedChannelImplBuilder(target,
+          new ShmChannelTransportFactoryBuilder(), null);
+    }
+  }
+
+  @Internal
+  @Override
+  protected ManagedChannelBuilder<?> delegate() {
+    return managedChannelImplBuilder;
+  }
+
+  /**
+   * Sets the size in bytes of each of the connection's two rings, which must be a power of two
+   * between 64 KiB and 1 GiB. A single frame can use at most a quarter of the ring. The default is
+   * 1 MiB.
+   */
+  public ShmChannelBuilder ringSize(int bytes) {
+    checkArgument(Integer.bitCount(bytes) == 1 && bytes >= ShmConnection.MIN_RING_SIZE
+        && bytes <= ShmConnection.MAX_RING_SIZE, "invalid ring size: %s", bytes);
+    this.ringSize = bytes;
+    return this;
+  }
+
+  /**
+   * Sets how long a thread waiting for the server busy-spins before it starts parking. Zero
+   * disables spinning. The default is 50 microseconds, or zero if the host has a single CPU.
+   */
+  public ShmChannelBuilder spinTime(long time, TimeUnit unit) {
+    checkArgument(time >= 0, "spin time must be non-negative");
+    this.spinNanos = unit.toNanos(time);
+    return this;
+  }
+
+  /**
+   * Sets the per-stream flow control window in bytes. The default is 1 MiB.
+   */
+  public ShmChannelBuilder flowControlWindow(int flowControlWindow) {
+    checkArgument(flowControlWindow > 0, "flowControlWindow must be positive");
+    this.flowControlWindow = flowControlWindow;
+    return this;
+  }
+
+  @Override
+  public ShmChannelBuilder maxInboundMessageSize(int max) {
+    checkArgument(max >= 0, "negative max");
+    this.maxInboundMessageSize = max;
+    return this;
+  }
+
+  @Override
+  public ShmChannelBuilder maxInboundMetadataSize(int bytes) {
+    checkArgument(bytes > 0, "maxInboundMetadataSize must be > 0");
+    this.maxInboundMetadataSize = bytes;
+    return this;
+  }
+
+  /**
+   * Does nothing. The transport has no security of its own; access is controlled by the
+   * permissions on the server's directory.
+   */
+  @Override
+  public ShmChannelBuilder usePlaintext() {
+    return this;
+  }
+
+  /**
+   * Always fails: the transport does not support TLS.
+   */
+  @Override
+  public ShmChannelBuilder useTransportSecurity() {
+    throw new UnsupportedOperationException("TLS not supported by the shared-memory transport");
+  }
+
+  @Override
+  public ShmChannelBuilder keepAliveTime(long keepAliveTime, TimeUnit timeUnit) {
+    return this;
+  }
+
+  @Override
+  public ShmChannelBuilder keepAliveTimeout(long keepAliveTimeout, TimeUnit timeUnit) {
+    return this;
+  }
+
+  @Override
+  public ShmChannelBuilder keepAliveWithoutCalls(boolean enable) {
+    return this;
+  }
+
+  @VisibleForTesting
+  ShmChannelBuilder setTransportTracerFactory(TransportTracer.Factory transportTracerFactory) {
+    this.transportTracerFactory = transportTracerFactory;
+    return this;
+  }
+
+  ClientTransportFactory buildTransportFactory() {
+    return new ShmTransportFactory(
+        ringSize, spinNanos, flowControlWindow, maxInboundMessageSize, maxInboundMetadataSize,
+        transportTracerFactory);
+  }
+
+  static final class ShmTransportFactory implements ClientTransportFactory {
+    private final int ringSize;
+    private final long spinNanos;
+    private final int flowControlWindow;
+    private final int maxMessageSize;
+    private final int maxInboundMetadataSize;
+    private final TransportTracer.Factory transportTracerFactory;
+    private final ObjectPool<Executor> executorPool =
+        SharedResourcePool.forResource(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+    private final ScheduledExecutorService timerService =
+        SharedResourceHolder.get(GrpcUtil.TIMER_SERVICE);
+    private boolean closed;
+
+    private ShmTransportFactory(
+        int ringSize,
+        long spinNanos,
+        int flowControlWindow,
+        int maxMessageSize,
+        int maxInboundMetadataSize,
+        TransportTracer.Factory transportTracerFactory) {
+      this.ringSize = ringSize;
+      this.spinNanos = spinNanos;
+      this.flowControlWindow = flowControlWindow;
+      this.maxMessageSize = maxMessageSize;
+      this.maxInboundMetadataSize = maxInboundMetadataSize;
+      this.transportTracerFactory = transportTracerFactory;
+    }
+
+    @Override
+    public ConnectionClientTransport newClientTransport(
+        SocketAddress addr, ClientTransportOptions options, ChannelLogger channelLogger) {
+      if (closed) {
+        throw new IllegalStateException("The transport factory is closed.");
+      }
+      checkArgument(addr instanceof ShmSocketAddress, "unsupported address: %s", addr);
+      return new ShmClientTransport(
+          (ShmSocketAddress) addr,
+          options.getAuthority(),
+          options.getUserAgent(),
+          options.getEagAttributes(),
+          ringSize,
+          spinNanos,
+          maxMessageSize,
+          maxInboundMetadataSize,
+          flowControlWindow,
+          executorPool,
+          transportTracerFactory.create());
+    }
+
+    @Override
+    public ScheduledExecutorService getScheduledExecutorService() {
+      return timerService;
+    }
+
+    @Override
+    public SwapChannelCredentialsResult swapChannelCredentials(ChannelCredentials channelCreds) {
+      return null;
+    }
+
+    @Override
+    public void close() {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      SharedResourceHolder.release(GrpcUtil.TIMER_SERVICE, timerService);
+    }
+  }
+}
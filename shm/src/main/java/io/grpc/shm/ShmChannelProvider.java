@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.ChannelCredentials;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.Internal;
+import io.grpc.ManagedChannelProvider;
+import java.net.SocketAddress;
+import java.util.Collection;
+import java.util.Collections;
+
+/** Provider for {@link ShmChannelBuilder} instances, for targets with the "shm" scheme. */
+@Internal
+public final class ShmChannelProvider extends ManagedChannelProvider {
+
+  @Override
+  public boolean isAvailable() {
+    return ShmRing.isAvailable();
+  }
+
+  @Override
+  public int priority() {
+    return 3;
+  }
+
+  @Override
+  public ShmChannelBuilder builderForAddress(String name, int port) {
+    throw new UnsupportedOperationException("shm channels are addressed by path");
+  }
+
+  @Override
+  public ShmChannelBuilder builderForTarget(String target) {
+    return ShmChannelBuilder.forTarget(target);
+  }
+
+  @Override
+  public NewChannelBuilderResult newChannelBuilder(String target, ChannelCredentials creds) {
+    if (!(creds instanceof InsecureChannelCredentials)) {
+      return NewChannelBuilderResult.error(
+          "The shared-memory transport only supports InsecureChannelCredentials");
+    }
+    return NewChannelBuilderResult.channelBuilder(ShmChannelBuilder.forTarget(target));
+  }
+
+  @Override
+  protected Collection<Class<? extends SocketAddress>> getSupportedSocketAddressTypes() {
+    return Collections.singleton(ShmSocketAddress.class);
+  }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.InternalStatus;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.Status;
+import io.grpc.internal.AbstractClientStream;
+import io.grpc.internal.ClientStreamListener.RpcProgress;
+import io.grpc.internal.ReadableBuffers;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.TransportTracer;
+import io.grpc.internal.WritableBuffer;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Client stream for the shared-memory transport.
+ */
+final class ShmClientStream extends AbstractClientStream {
+  static final int ABSENT_ID = -1;
+
+  private final MethodDescriptor<?, ?> method;
+  private final Attributes attributes;
+  private final TransportState state;
+  private final Sink sink = new Sink();
+  private String authority;
+
+  ShmClientStream(
+      MethodDescriptor<?, ?> method,
+      Metadata headers,
+      ShmClientTransport transport,
+      Object lock,
+      int maxMessageSize,
+      int flowControlWindow,
+      String authority,
+      StatsTraceContext statsTraceCtx,
+      TransportTracer transportTracer,
+      CallOptions callOptions) {
+    super(
+        new ShmWritableBuffer.Allocator(),
+        statsTraceCtx,
+        transportTracer,
+        headers,
+        callOptions,
+        false);
+    this.method = method;
+    this.authority = authority;
+    this.attributes = transport.getAttributes();
+    this.state = new TransportState(
+        maxMessageSize, statsTraceCtx, transportTracer, lock, transport, flowControlWindow);
+  }
+
+  @Override
+  protected TransportState transportState() {
+    return state;
+  }
+
+  @Override
+  protected Sink abstractClientStreamSink() {
+    return sink;
+  }
+
+  @Override
+  public void setAuthority(String authority) {
+    this.authority = checkNotNull(authority, "authority");
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return attributes;
+  }
+
+  private final class Sink implements AbstractClientStream.Sink {
+    @Override
+    public void writeHeaders(Metadata metadata, byte[] payload) {
+      byte[] encoded =
+          ShmFrames.encodeRequestHeaders(method.getFullMethodName(), authority, metadata);
+      synchronized (state.lock) {
+        state.transport.startStream(ShmClientStream.this, encoded);
+      }
+    }
+
+    @Override
+    public void writeFrame(
+        WritableBuffer frame, boolean endOfStream, boolean flush, int numMessages) {
+      byte[] data = ShmFrames.EMPTY;
+      int size = 0;
+      if (frame != null) {
+        data = ((ShmWritableBuffer) frame).array();
+        size = frame.readableBytes();
+        if (size > 0) {
+          onSendingBytes(size);
+        }
+      }
+      synchronized (state.lock) {
+        state.sendData(data, size, endOfStream);
+        getTransportTracer().reportMessageSent(numMessages);
+      }
+    }
+
+    @Override
+    public void cancel(Status reason) {
+      synchronized (state.lock) {
+        state.cancel(reason);
+      }
+    }
+  }
+
+  final class TransportState extends AbstractClientStream.TransportState
+      implements FrameWriter.WriteListener {
+    private final Object lock;
+    private final ShmClientTransport transport;
+    private final int initialWindow;
+    @GuardedBy("lock")
+    private int id = ABSENT_ID;
+    @GuardedBy("lock")
+    private OutboundFlow outboundFlow;
+    @GuardedBy("lock")
+    private int window;
+    @GuardedBy("lock")
+    private int processedWindow;
+    @GuardedBy("lock")
+    private boolean headersReceived;
+    @GuardedBy("lock")
+    private boolean cancelSent;
+
+    private TransportState(
+        int maxMessageSize,
+        StatsTraceContext statsTraceCtx,
+        TransportTracer transportTracer,
+        Object lock,
+        ShmClientTransport transport,
+        int flowControlWindow) {
+      super(maxMessageSize, statsTraceCtx, transportTracer);
+      this.lock = lock;
+      this.transport = transport;
+      this.initialWindow = flowControlWindow;
+      this.window = flowControlWindow;
+      this.processedWindow = flowControlWindow;
+    }
+
+    @GuardedBy("lock")
+    void start(int streamId, OutboundFlow outboundFlow) {
+      checkState(id == ABSENT_ID, "the stream has been started with id %s", id);
+      this.id = streamId;
+      this.outboundFlow = outboundFlow;
+      onStreamAllocated();
+    }
+
+    int id() {
+      return id;
+    }
+
+    @GuardedBy("lock")
+    @Override
+    protected void onStreamAllocated() {
+      super.onStreamAllocated();
+      getTransportTracer().reportLocalStreamStarted();
+    }
+
+    @Override
+    public void frameWritten(int payloadLength) {
+      if (payloadLength > 0) {
+        onSentBytes(payloadLength);
+      }
+    }
+
+    @GuardedBy("lock")
+    private void sendData(byte[] data, int length, boolean endOfStream) {
+      if (cancelSent || id == ABSENT_ID) {
+        return;
+      }
+      outboundFlow.data(data, 0, length, endOfStream);
+    }
+
+    @GuardedBy("lock")
+    private void cancel(Status reason) {
+      if (cancelSent) {
+        return;
+      }
+      cancelSent = true;
+      if (id == ABSENT_ID) {
+        transportReportStatus(reason, true, new Metadata());
+      } else {
+        transport.finishStream(id, reason, RpcProgress.PROCESSED, true, true, null);
+      }
+    }
+
+    @GuardedBy("lock")
+    void windowUpdate(int delta) {
+      outboundFlow.windowUpdate(delta);
+    }
+
+    @GuardedBy("lock")
+    void clearOutbound() {
+      if (outboundFlow != null) {
+        outboundFlow.clear();
+      }
+    }
+
+    @GuardedBy("lock")
+    void transportHeadersReceived(Metadata headers) {
+      if (headersReceived) {
+        transport.finishStream(id,
+            Status.INTERNAL.withDescription("Received headers twice"),
+            RpcProgress.PROCESSED, true, true, null);
+        return;
+      }
+      headersReceived = true;
+      inboundHeadersReceived(headers);
+    }
+
+    @GuardedBy("lock")
+    void transportDataReceived(byte[] data) {
+      window -= data.length;
+      if (window < 0) {
+        transport.finishStream(id,
+            Status.INTERNAL.withDescription(
+                "Received data size exceeded our receiving window size"),
+            RpcProgress.PROCESSED, false, true, null);
+        return;
+      }
+      inboundDataReceived(ReadableBuffers.wrap(data));
+    }
+
+    @GuardedBy("lock")
+    void transportTrailersReceived(Metadata trailers) {
+      Status status = trailers.get(InternalStatus.CODE_KEY);
+      if (status == null) {
+        status = Status.UNKNOWN.withDescription("missing GRPC status in response");
+      } else {
+        String message = trailers.get(InternalStatus.MESSAGE_KEY);
+        if (message != null) {
+          status = status.withDescription(message);
+        }
+      }
+      trailers.discardAll(InternalStatus.CODE_KEY);
+      trailers.discardAll(InternalStatus.MESSAGE_KEY);
+      headersReceived = true;
+      inboundTrailersReceived(trailers, status);
+    }
+
+    @Override
+    @GuardedBy("lock")
+    public void deframeFailed(Throwable cause) {
+      transport.finishStream(
+          id, Status.fromThrowable(cause), RpcProgress.PROCESSED, true, true, null);
+    }
+
+    @Override
+    @GuardedBy("lock")
+    public void bytesRead(int processedBytes) {
+      processedWindow -= processedBytes;
+      if (processedWindow <= initialWindow / 2) {
+        int delta = initialWindow - processedWindow;
+        window += delta;
+        processedWindow += delta;
+        transport.windowUpdate(id, delta);
+      }
+    }
+
+    @Override
+    @GuardedBy("lock")
+    public void deframerClosed(boolean hasPartialMessage) {
+      // The server has ended the stream; reset it if the client was still sending.
+      transport.finishStream(id, null, RpcProgress.PROCESSED, false, !isOutboundClosed(), null);
+      super.deframerClosed(hasPartialMessage);
+    }
+
+    @Override
+    public void runOnTransportThread(Runnable r) {
+      synchronized (lock) {
+        r.run();
+      }
+    }
+  }
+}
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Attributes;
+import io.grpc.CallOptions;
+import io.grpc.ClientStreamTracer;
+import io.grpc.Grpc;
+import io.grpc.InternalChannelz;
+import io.grpc.InternalChannelz.SocketStats;
+import io.grpc.InternalLogId;
+import io.grpc.Metadata;
+import io.grpc.MethodDescriptor;
+import io.grpc.SecurityLevel;
+import io.grpc.Status;
+import io.grpc.internal.ClientStreamListener.RpcProgress;
+import io.grpc.internal.ConnectionClientTransport;
+import io.grpc.internal.GrpcAttributes;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.Http2Ping;
+import io.grpc.internal.InUseStateAggregator;
+import io.grpc.internal.ManagedClientTransport;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.TransportTracer;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A client transport over a shared-memory {@link ShmConnection}. Connecting, and then reading,
+ * happens on a thread from the transport executor; frames are written by the calling thread while
+ * holding the transport lock, falling back to the executor when the ring is full.
+ */
+final class ShmClientTransport implements ConnectionClientTransport {
+  private static final Logger log = Logger.getLogger(ShmClientTransport.class.getName());
+  private static final long CONNECT_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final InternalLogId logId;
+  private final ShmSocketAddress address;
+  private final String authority;
+  private final String userAgent;
+  private final int ringSize;
+  private final long spinNanos;
+  private final int maxMessageSize;
+  private final int maxInboundMetadataSize;
+  private final int flowControlWindow;
+  private final ObjectPool<? extends Executor> executorPool;
+  private final Executor executor;
+  private final TransportTracer transportTracer;
+  private final Attributes attributes;
+  private final Random random = new Random();
+  private final Object lock = new Object();
+  private final FrameWriter frameWriter;
+  private final InUseStateAggregator<ShmClientStream> inUseState =
+      new InUseStateAggregator<ShmClientStream>() {
+        @Override
+        protected void handleInUse() {
+          listener.transportInUse(true);
+        }
+
+        @Override
+        protected void handleNotInUse() {
+          listener.transportInUse(false);
+        }
+      };
+
+  private ManagedClientTransport.Listener listener;
+  @GuardedBy("lock")
+  private final Map<Integer, ShmClientStream> streams = new HashMap<>();
+  @GuardedBy("lock")
+  private int nextStreamId = 1;
+  @GuardedBy("lock")
+  private Status goAwayStatus;
+  @GuardedBy("lock")
+  private boolean goAwaySent;
+  @GuardedBy("lock")
+  private boolean stopped;
+  @GuardedBy("lock")
+  private Http2Ping ping;
+  @GuardedBy("lock")
+  @Nullable
+  private ShmConnection connection;
+
+  ShmClientTransport(
+      ShmSocketAddress address,
+      String authority,
+      @Nullable String userAgent,
+      Attributes eagAttrs,
+      int ringSize,
+      long spinNanos,
+      int maxMessageSize,
+      int maxInboundMetadataSize,
+      int flowControlWindow,
+      ObjectPool<? extends Executor> executorPool,
+      TransportTracer transportTracer) {
+    this.address = checkNotNull(address, "address");
+    this.authority = checkNotNull(authority, "authority");
+    this.userAgent = GrpcUtil.getGrpcUserAgent("shm", userAgent);
+    this.ringSize = ringSize;
+    this.spinNanos = spinNanos;
+    this.maxMessageSize = maxMessageSize;
+    this.maxInboundMetadataSize = maxInboundMetadataSize;
+    this.flowControlWindow = flowControlWindow;
+    this.executorPool = checkNotNull(executorPool, "executorPool");
+    this.executor = executorPool.getObject();
+    this.transportTracer = checkNotNull(transportTracer, "transportTracer");
+    this.frameWriter = new FrameWriter(lock, executor, ringSize / 4);
+    this.attributes = Attributes.newBuilder()
+        .set(GrpcAttributes.ATTR_SECURITY_LEVEL, SecurityLevel.NONE)
+        .set(GrpcAttributes.ATTR_CLIENT_EAG_ATTRS, eagAttrs)
+        .set(Grpc.TRANSPORT_ATTR_LOCAL_ADDR, address)
+        .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, address)
+        .build();
+    this.logId = InternalLogId.allocate(getClass(), address.toString());
+  }
+
+  @Override
+  public Runnable start(ManagedClientTransport.Listener listener) {
+    this.listener = checkNotNull(listener, "listener");
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        connectAndRead();
+      }
+    });
+    return null;
+  }
+
+  private void connectAndRead() {
+    ShmConnection connection;
+    try {
+      connection = ShmConnection.connect(
+          address.getDirectory(), ringSize, spinNanos, CONNECT_TIMEOUT_NANOS);
+    } catch (IOException | RuntimeException e) {
+      startGoAway(0, Status.UNAVAILABLE.withDescription("Failed connecting to " + address)
+          .withCause(e));
+      terminated();
+      return;
+    }
+    synchronized (lock) {
+      if (stopped) {
+        connection.close();
+        terminated();
+        return;
+      }
+      this.connection = connection;
+      frameWriter.setConnection(connection);
+      if (goAwayStatus == null) {
+        listener.transportReady();
+      }
+    }
+    Status status;
+    try {
+      connection.readFrames(new FrameHandler());
+      status = Status.UNAVAILABLE.withDescription("Connection closed by server");
+    } catch (Throwable t) {
+      log.log(Level.FINE, "Failed reading from " + address, t);
+      status = Status.UNAVAILABLE.withDescription("Failed reading from " + address).withCause(t);
+    }
+    try {
+      startGoAway(0, status);
+    } finally {
+      connection.close();
+      terminated();
+    }
+  }
+
+  private void terminated() {
+    synchronized (lock) {
+      frameWriter.close();
+    }
+    executorPool.returnObject(executor);
+    listener.transportTerminated();
+  }
+
+  @Override
+  public ShmClientStream newStream(
+      MethodDescriptor<?, ?> method, Metadata headers, CallOptions callOptions,
+      ClientStreamTracer[] tracers) {
+    checkNotNull(method, "method");
+    checkNotNull(headers, "headers");
+    StatsTraceContext statsTraceContext =
+        StatsTraceContext.newClientContext(tracers, getAttributes(), headers);
+    headers.discardAll(GrpcUtil.USER_AGENT_KEY);
+    headers.put(GrpcUtil.USER_AGENT_KEY, userAgent);
+    synchronized (lock) {
+      return new ShmClientStream(
+          method,
+          headers,
+          this,
+          lock,
+          maxMessageSize,
+          flowControlWindow,
+          authority,
+          statsTraceContext,
+          transportTracer,
+          callOptions);
+    }
+  }
+
+  @GuardedBy("lock")
+  void startStream(ShmClientStream stream, byte[] encodedHeaders) {
+    ShmClientStream.TransportState state = stream.transportState();
+    if (goAwayStatus != null) {
+      state.transportReportStatus(goAwayStatus, RpcProgress.MISCARRIED, true, new Metadata());
+      return;
+    }
+    if (encodedHeaders.length > frameWriter.maxFramePayload()) {
+      state.transportReportStatus(
+          Status.RESOURCE_EXHAUSTED.withDescription("Request metadata too large"),
+          RpcProgress.PROCESSED, true, new Metadata());
+      return;
+    }
+    int streamId = nextStreamId;
+    if (streamId < 0) {
+      startGoAway(Integer.MAX_VALUE,
+          Status.UNAVAILABLE.withDescription("Stream ids exhausted"));
+      state.transportReportStatus(goAwayStatus, RpcProgress.MISCARRIED, true, new Metadata());
+      return;
+    }
+    nextStreamId += 2;
+    streams.put(streamId, stream);
+    setInUse(stream);
+    frameWriter.write(ShmFrames.HEADERS, (byte) 0, streamId, encodedHeaders);
+    state.start(streamId, new OutboundFlow(frameWriter, streamId, flowControlWindow, state));
+  }
+
+  @GuardedBy("lock")
+  void windowUpdate(int streamId, int delta) {
+    frameWriter.write(ShmFrames.WINDOW_UPDATE, (byte) 0, streamId, ShmFrames.encodeInt(delta));
+  }
+
+  /**
+   * Removes a stream, optionally reporting its status and resetting it on the server.
+   *
+   * @param status the final status of the stream, or {@code null} if it was already reported
+   * @param stopDelivery interrupt queued messages in the deframer
+   * @param sendReset whether to reset the stream on the server
+   * @param trailers the trailers to report, or {@code null} for none
+   */
+  void finishStream(
+      int streamId,
+      @Nullable Status status,
+      RpcProgress rpcProgress,
+      boolean stopDelivery,
+      boolean sendReset,
+      @Nullable Metadata trailers) {
+    synchronized (lock) {
+      ShmClientStream stream = streams.remove(streamId);
+      if (stream == null) {
+        return;
+      }
+      stream.transportState().clearOutbound();
+      if (sendReset) {
+        Status reason = status != null && !status.isOk() ? status : Status.CANCELLED;
+        frameWriter.write(
+            ShmFrames.RST_STREAM, (byte) 0, streamId, ShmFrames.encodeStatus(reason));
+      }
+      if (status != null) {
+        stream.transportState().transportReportStatus(
+            status, rpcProgress, stopDelivery, trailers != null ? trailers : new Metadata());
+      }
+      maybeClearInUse(stream);
+      stopIfNecessary();
+    }
+  }
+
+  @Override
+  public void ping(final PingCallback callback, Executor executor) {
+    Http2Ping p;
+    synchronized (lock) {
+      if (stopped) {
+        Http2Ping.notifyFailed(callback, executor, getPingFailure());
+        return;
+      }
+      if (ping != null) {
+        p = ping;
+      } else {
+        long data = random.nextLong();
+        Stopwatch stopwatch = GrpcUtil.STOPWATCH_SUPPLIER.get();
+        stopwatch.start();
+        p = ping = new Http2Ping(data, stopwatch);
+        transportTracer.reportKeepAliveSent();
+        frameWriter.write(ShmFrames.PING, (byte) 0, 0, ShmFrames.encodeLong(data));
+      }
+    }
+    p.addCallback(callback, executor);
+  }
+
+  @Override
+  public void shutdown(Status reason) {
+    synchronized (lock) {
+      if (goAwayStatus != null) {
+        return;
+      }
+      goAwayStatus = reason;
+      listener.transportShutdown(reason);
+      stopIfNecessary();
+    }
+  }
+
+  @Override
+  public void shutdownNow(Status reason) {
+    shutdown(reason);
+    synchronized (lock) {
+      Iterator<Map.Entry<Integer, ShmClientStream>> it = streams.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Integer, ShmClientStream> entry = it.next();
+        it.remove();
+        entry.getValue().transportState().transportReportStatus(reason, false, new Metadata());
+        maybeClearInUse(entry.getValue());
+      }
+      stopIfNecessary();
+    }
+  }
+
+  private void startGoAway(int lastKnownStreamId, Status status) {
+    synchronized (lock) {
+      if (goAwayStatus == null) {
+        goAwayStatus = status;
+        listener.transportShutdown(status);
+      }
+      Iterator<Map.Entry<Integer, ShmClientStream>> it = streams.entrySet().iterator();
+      while (it.hasNext()) {
+        Map.Entry<Integer, ShmClientStream> entry = it.next();
+        if (entry.getKey() > lastKnownStreamId) {
+          it.remove();
+          entry.getValue().transportState().transportReportStatus(
+              status, RpcProgress.REFUSED, false, new Metadata());
+          maybeClearInUse(entry.getValue());
+        }
+      }
+      stopIfNecessary();
+    }
+  }
+
+  /**
+   * Once shut down and without streams, tells the server and shuts down the connection's output.
+   * The reader thread ends when the server does the same.
+   */
+  @GuardedBy("lock")
+  private void stopIfNecessary() {
+    if (goAwayStatus == null || !streams.isEmpty() || stopped) {
+      return;
+    }
+    stopped = true;
+    if (ping != null) {
+      ping.failed(getPingFailure());
+      ping = null;
+    }
+    if (!goAwaySent) {
+      goAwaySent = true;
+      frameWriter.write(ShmFrames.GOAWAY, (byte) 0, 0, ShmFrames.encodeInt(0));
+    }
+    frameWriter.shutdownWhenDrained();
+  }
+
+  @GuardedBy("lock")
+  private void maybeClearInUse(ShmClientStream stream) {
+    if (stream.shouldBeCountedForInUse()) {
+      inUseState.updateObjectInUse(stream, false);
+    }
+  }
+
+  @GuardedBy("lock")
+  private void setInUse(ShmClientStream stream) {
+    if (stream.shouldBeCountedForInUse()) {
+      inUseState.updateObjectInUse(stream, true);
+    }
+  }
+
+  private Throwable getPingFailure() {
+    synchronized (lock) {
+      if (goAwayStatus != null) {
+        return goAwayStatus.asException();
+      } else {
+        return Status.UNAVAILABLE.withDescription("Connection closed").asException();
+      }
+    }
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return attributes;
+  }
+
+  @Override
+  public InternalLogId getLogId() {
+    return logId;
+  }
+
+  @Override
+  public ListenableFuture<SocketStats> getStats() {
+    SettableFuture<SocketStats> ret = SettableFuture.create();
+    ret.set(new SocketStats(
+        transportTracer.getStats(),
+        address,
+        address,
+        new InternalChannelz.SocketOptions.Builder().build(),
+        /*security=*/ null));
+    return ret;
+  }
+
+  @Override
+  public String toString() {
+    return logId + "(" + address + ")";
+  }
+
+  /** Dispatches frames from the server; runs on the reader thread. */
+  private final class FrameHandler implements ShmConnection.FrameHandler {
+    @Override
+    public void frameReceived(byte type, byte flags, int streamId, byte[] payload)
+        throws IOException {
+      switch (type) {
+        case ShmFrames.HEADERS:
+        case ShmFrames.TRAILERS:
+          metadataReceived(type == ShmFrames.TRAILERS, streamId, payload);
+          break;
+        case ShmFrames.DATA:
+          synchronized (lock) {
+            ShmClientStream stream = streams.get(streamId);
+            if (stream != null) {
+              stream.transportState().transportDataReceived(payload);
+            }
+          }
+          break;
+        case ShmFrames.RST_STREAM:
+          finishStream(streamId, ShmFrames.decodeStatus(payload), RpcProgress.PROCESSED, false,
+              false, null);
+          break;
+        case ShmFrames.WINDOW_UPDATE:
+          int delta = ShmFrames.decodeInt(payload);
+          synchronized (lock) {
+            ShmClientStream stream = streams.get(streamId);
+            if (stream != null) {
+              stream.transportState().windowUpdate(delta);
+            }
+          }
+          break;
+        case ShmFrames.PING:
+          pingReceived((flags & ShmFrames.FLAG_ACK) != 0, payload);
+          break;
+        case ShmFrames.GOAWAY:
+          startGoAway(ShmFrames.decodeInt(payload),
+              Status.UNAVAILABLE.withDescription("Server is shutting down"));
+          break;
+        default:
+          // Ignore unknown frame types, for forward compatibility
+      }
+    }
+
+    private void metadataReceived(boolean trailers, int streamId, byte[] payload)
+        throws IOException {
+      Metadata metadata = ShmFrames.decodeMetadata(payload, maxInboundMetadataSize);
+      synchronized (lock) {
+        ShmClientStream stream = streams.get(streamId);
+        if (stream == null) {
+          return;
+        }
+        if (metadata == null) {
+          finishStream(streamId,
+              Status.RESOURCE_EXHAUSTED.withDescription(String.format(
+                  "Response %s metadata larger than %d", trailers ? "trailer" : "header",
+                  maxInboundMetadataSize)),
+              RpcProgress.PROCESSED, true, true, null);
+        } else if (trailers) {
+          stream.transportState().transportTrailersReceived(metadata);
+        } else {
+          stream.transportState().transportHeadersReceived(metadata);
+        }
+      }
+    }
+
+    private void pingReceived(boolean ack, byte[] payload) throws IOException {
+      long data = ShmFrames.decodeLong(payload);
+      if (!ack) {
+        synchronized (lock) {
+          frameWriter.write(ShmFrames.PING, ShmFrames.FLAG_ACK, 0, payload);
+        }
+        return;
+      }
+      Http2Ping p = null;
+      synchronized (lock) {
+        if (ping != null && ping.payload() == data) {
+          p = ping;
+          ping = null;
+        } else {
+          log.log(Level.WARNING, "Received unexpected ping ack");
+        }
+      }
+      // Don't complete it while holding the lock since callbacks could run immediately
+      if (p != null) {
+        p.complete();
+      }
+    }
+  }
+}
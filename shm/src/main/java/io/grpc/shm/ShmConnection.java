@@ -0,0 +1,399 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A connection between two processes: a memory-mapped file holding one {@link ShmRing} in each
+ * direction.
+ *
+ * <p>To connect, the client creates and initializes the file under a temporary name in the
+ * server's directory, then renames it to end in {@link #OFFER_SUFFIX}. The server watches the
+ * directory, maps each offered file, marks it accepted and unlinks it, so the memory is released
+ * once both processes are done with it.
+ *
+ * <p>Each side holds a lock on its own byte range of the file for as long as the connection is
+ * open. The operating system releases the lock if the process dies, which lets the other side
+ * notice without any cooperation from the dead process.
+ *
+ * <p>Waiting for the peer spins for a configurable time, then yields, then parks with exponential
+ * backoff. Spinning trades a CPU for wakeup latency while the connection is busy.
+ */
+final class ShmConnection {
+  static final String OFFER_SUFFIX = ".conn";
+  static final String SERVER_LOCK_FILE = "server.lock";
+
+  private static final int MAGIC = 0x67534d31; // "gSM1"
+  private static final int VERSION = 1;
+  private static final int MAGIC_OFFSET = 0;
+  private static final int VERSION_OFFSET = 4;
+  private static final int CAPACITY_OFFSET = 8;
+  private static final int STATE_OFFSET = 12;
+  private static final int STATE_ACCEPTED = 1;
+  private static final int CONTROL_SIZE = 4096;
+
+  private static final long CLIENT_LOCK_POSITION = Long.MAX_VALUE - 2;
+  private static final long SERVER_LOCK_POSITION = Long.MAX_VALUE - 1;
+
+  private static final long YIELD_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+  private static final long MIN_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(1);
+  private static final long MAX_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+  private static final long PEER_CHECK_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  static final int MIN_RING_SIZE = 64 * 1024;
+  static final int MAX_RING_SIZE = 1 << 30;
+
+  private final FileChannel channel;
+  private final ShmRing inbound;
+  private final ShmRing outbound;
+  private final long peerLockPosition;
+  private final long spinNanos;
+  private final byte[] writeHeader = new byte[ShmFrames.HEADER_SIZE];
+  private final byte[] readHeader = new byte[ShmFrames.HEADER_SIZE];
+  private volatile boolean closed;
+
+  /** Receives the frames read by {@link #readFrames}. */
+  interface FrameHandler {
+    void frameReceived(byte type, byte flags, int streamId, byte[] payload) throws IOException;
+  }
+
+  private ShmConnection(
+      FileChannel channel, MappedByteBuffer mapping, int capacity, boolean client,
+      long spinNanos) {
+    this.channel = channel;
+    ShmRing toServer = new ShmRing(mapping, CONTROL_SIZE, capacity);
+    ShmRing toClient = new ShmRing(mapping, CONTROL_SIZE + ringStride(capacity), capacity);
+    this.inbound = client ? toClient : toServer;
+    this.outbound = client ? toServer : toClient;
+    this.peerLockPosition = client ? SERVER_LOCK_POSITION : CLIENT_LOCK_POSITION;
+    this.spinNanos = spinNanos;
+  }
+
+  private static int ringStride(int capacity) {
+    return (ShmRing.size(capacity) + CONTROL_SIZE - 1) / CONTROL_SIZE * CONTROL_SIZE;
+  }
+
+  @VisibleForTesting
+  static long fileSize(int capacity) {
+    return CONTROL_SIZE + 2L * ringStride(capacity);
+  }
+
+  /**
+   * Offers a new connection to the server listening in {@code directory} and waits for it to be
+   * accepted.
+   */
+  static ShmConnection connect(File directory, int capacity, long spinNanos, long timeoutNanos)
+      throws IOException {
+    checkArgument(Integer.bitCount(capacity) == 1 && capacity >= MIN_RING_SIZE
+        && capacity <= MAX_RING_SIZE, "invalid ring size: %s", capacity);
+    Path dir = directory.toPath();
+    if (!isServerListening(dir)) {
+      throw new ConnectException("No server listening at " + directory);
+    }
+    String id = UUID.randomUUID().toString();
+    Path tmp = dir.resolve(id + ".tmp");
+    Path offer = dir.resolve(id + OFFER_SUFFIX);
+    FileChannel channel = FileChannel.open(
+        tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean success = false;
+    try {
+      channel.lock(CLIENT_LOCK_POSITION, 1, false);
+      MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+      mapping.putInt(MAGIC_OFFSET, MAGIC);
+      mapping.putInt(VERSION_OFFSET, VERSION);
+      mapping.putInt(CAPACITY_OFFSET, capacity);
+      long stateAddress = ShmRing.address(mapping) + STATE_OFFSET;
+      Files.move(tmp, offer, StandardCopyOption.ATOMIC_MOVE);
+
+      long deadline = System.nanoTime() + timeoutNanos;
+      long parkNanos = MIN_PARK_NANOS;
+      while (ShmRing.getIntVolatile(stateAddress) != STATE_ACCEPTED) {
+        if (System.nanoTime() - deadline > 0) {
+          Files.deleteIfExists(offer);
+          // The server may have opened the file just before it was deleted
+          if (ShmRing.getIntVolatile(stateAddress) == STATE_ACCEPTED) {
+            break;
+          }
+          throw new ConnectException("Timed out waiting for server at " + directory);
+        }
+        LockSupport.parkNanos(parkNanos);
+        parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+      }
+      success = true;
+      return new ShmConnection(channel, mapping, capacity, true, spinNanos);
+    } finally {
+      if (!success) {
+        channel.close();
+        Files.deleteIfExists(tmp);
+      }
+    }
+  }
+
+  /** Accepts a connection offered by a client. */
+  static ShmConnection accept(Path offer, long spinNanos) throws IOException {
+    FileChannel channel =
+        FileChannel.open(offer, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    boolean success = false;
+    try {
+      long size = channel.size();
+      if (size < CONTROL_SIZE) {
+        throw new IOException("Connection file too small: " + size);
+      }
+      MappedByteBuffer control = channel.map(FileChannel.MapMode.READ_ONLY, 0, CONTROL_SIZE);
+      if (control.getInt(MAGIC_OFFSET) != MAGIC || control.getInt(VERSION_OFFSET) != VERSION) {
+        throw new IOException("Unsupported connection file: " + offer);
+      }
+      int capacity = control.getInt(CAPACITY_OFFSET);
+      if (Integer.bitCount(capacity) != 1 || capacity < MIN_RING_SIZE
+          || capacity > MAX_RING_SIZE || size < fileSize(capacity)) {
+        throw new IOException("Invalid ring size " + capacity + " in " + offer);
+      }
+      MappedByteBuffer mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(capacity));
+      channel.lock(SERVER_LOCK_POSITION, 1, false);
+      ShmConnection connection = new ShmConnection(channel, mapping, capacity, false, spinNanos);
+      ShmRing.putIntVolatile(ShmRing.address(mapping) + STATE_OFFSET, STATE_ACCEPTED);
+      Files.deleteIfExists(offer);
+      success = true;
+      return connection;
+    } finally {
+      if (!success) {
+        channel.close();
+      }
+    }
+  }
+
+  /**
+   * Takes the lock that marks a server as listening in {@code directory}, or returns {@code null}
+   * if another server holds it.
+   */
+  static FileLock lockServerDirectory(File directory) throws IOException {
+    Files.createDirectories(directory.toPath());
+    FileChannel channel = FileChannel.open(
+        directory.toPath().resolve(SERVER_LOCK_FILE),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    FileLock lock = null;
+    try {
+      lock = channel.tryLock();
+    } catch (OverlappingFileLockException e) {
+      // Held by another server in this JVM
+    } finally {
+      if (lock == null) {
+        channel.close();
+      }
+    }
+    return lock;
+  }
+
+  private static boolean isServerListening(Path dir) throws IOException {
+    Path lockFile = dir.resolve(SERVER_LOCK_FILE);
+    if (!Files.exists(lockFile)) {
+      return false;
+    }
+    // Closing this channel drops the process's record locks on the file, including those of a
+    // server in this JVM. The JVM-wide lock table still guards against a second server here.
+    try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+      FileLock lock = channel.tryLock();
+      if (lock == null) {
+        return true;
+      }
+      lock.release();
+      return false;
+    } catch (OverlappingFileLockException e) {
+      return true;
+    }
+  }
+
+  private boolean isPeerAlive() throws IOException {
+    try {
+      FileLock lock = channel.tryLock(peerLockPosition, 1, false);
+      if (lock == null) {
+        return true;
+      }
+      lock.release();
+      return false;
+    } catch (OverlappingFileLockException e) {
+      return true;
+    }
+  }
+
+  /** Returns the largest payload a single frame may carry. */
+  int maxFramePayload() {
+    return outbound.capacity() / 4;
+  }
+
+  /**
+   * Writes a frame if the outbound ring has room for it. Callers must not write concurrently.
+   *
+   * @return {@code false} if the ring is full or the connection is closed
+   */
+  boolean tryWrite(byte type, byte flags, int streamId, byte[] payload, int offset, int length) {
+    checkArgument(length <= maxFramePayload(), "frame too large: %s", length);
+    if (closed || !outbound.canWrite(ShmFrames.HEADER_SIZE + length)) {
+      return false;
+    }
+    ShmFrames.writeHeader(writeHeader, length, type, flags, streamId);
+    outbound.write(writeHeader, 0, ShmFrames.HEADER_SIZE);
+    if (length > 0) {
+      outbound.write(payload, offset, length);
+    }
+    outbound.publish();
+    return true;
+  }
+
+  /**
+   * Waits until the peer has consumed enough of the outbound ring for a frame with the given
+   * payload length to fit. May be called concurrently with {@link #tryWrite}, in which case it
+   * only waits for an approximation.
+   *
+   * @return {@code false} if the connection was closed while waiting
+   */
+  boolean awaitWritable(int payloadLength) throws IOException {
+    Idler idler = new Idler(spinNanos);
+    while (outbound.publishedFreeBytes() < ShmFrames.HEADER_SIZE + payloadLength) {
+      if (closed) {
+        return false;
+      }
+      if (idler.idle() && !isPeerAlive()) {
+        throw new IOException("Peer process exited");
+      }
+    }
+    return !closed;
+  }
+
+  /**
+   * Reads frames and passes them to {@code handler} until the peer shuts down its output or this
+   * connection is closed. Blocks the calling thread.
+   */
+  void readFrames(FrameHandler handler) throws IOException {
+    Idler idler = new Idler(spinNanos);
+    try {
+      while (true) {
+        if (inbound.canRead(ShmFrames.HEADER_SIZE)) {
+          idler.reset();
+          inbound.read(readHeader, 0, ShmFrames.HEADER_SIZE);
+          int length = ShmFrames.getInt(readHeader, 0);
+          if (length < 0 || length > inbound.capacity() - ShmFrames.HEADER_SIZE
+              || !inbound.canRead(length)) {
+            throw new ShmFrames.ProtocolException("Invalid frame length: " + length);
+          }
+          byte[] payload = ShmFrames.EMPTY;
+          if (length > 0) {
+            payload = new byte[length];
+            inbound.read(payload, 0, length);
+          }
+          inbound.release();
+          handler.frameReceived(
+              readHeader[4], readHeader[5], ShmFrames.getInt(readHeader, 8), payload);
+          continue;
+        }
+        if (closed || (inbound.isClosed() && !inbound.canRead(1))) {
+          return;
+        }
+        if (idler.idle() && !isPeerAlive()) {
+          throw new IOException("Peer process exited");
+        }
+      }
+    } catch (IOException e) {
+      if (closed) {
+        return;
+      }
+      throw e;
+    }
+  }
+
+  /** Tells the peer that nothing more will be written. Frames already written are still read. */
+  void shutdownOutput() {
+    outbound.close();
+  }
+
+  /**
+   * Closes the connection. {@link #readFrames} returns, the peer sees the output shut down and
+   * this side's lock is released.
+   */
+  void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    outbound.close();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      // Nothing useful to do; the mapping stays valid until it is garbage collected
+    }
+  }
+
+  /**
+   * Waits for the peer: spins, then yields, then parks with exponential backoff. Returns
+   * {@code true} when the peer's liveness should be checked.
+   */
+  private static final class Idler {
+    private final long spinNanos;
+    private long idleStart = -1;
+    private long lastPeerCheck;
+    private long parkNanos;
+
+    Idler(long spinNanos) {
+      this.spinNanos = spinNanos;
+    }
+
+    void reset() {
+      idleStart = -1;
+    }
+
+    boolean idle() {
+      long now = System.nanoTime();
+      if (idleStart == -1) {
+        idleStart = now;
+        lastPeerCheck = now;
+        parkNanos = MIN_PARK_NANOS;
+        return false;
+      }
+      long idleNanos = now - idleStart;
+      if (idleNanos < spinNanos) {
+        // Busy spin
+      } else if (idleNanos < spinNanos + YIELD_NANOS) {
+        Thread.yield();
+      } else {
+        LockSupport.parkNanos(parkNanos);
+        parkNanos = Math.min(parkNanos * 2, MAX_PARK_NANOS);
+      }
+      if (now - lastPeerCheck > PEER_CHECK_INTERVAL_NANOS) {
+        lastPeerCheck = now;
+        return true;
+      }
+      return false;
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import io.grpc.InternalMetadata;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import javax.annotation.Nullable;
+
+/**
+ * Frame types and payload encodings of the shared-memory protocol.
+ *
+ * <p>Every frame is a 12 byte header followed by its payload:
+ *
+ * <pre>
+ *   int   payload length
+ *   byte  type
+ *   byte  flags
+ *   short reserved, zero
+ *   int   stream id (zero for connection-level frames)
+ * </pre>
+ *
+ * <p>The frames mirror their HTTP/2 counterparts, but metadata is sent as length-prefixed
+ * key/value pairs rather than HPACK, and request headers carry the method name and authority
+ * as fields instead of pseudo-headers. All integers are big-endian.
+ */
+final class ShmFrames {
+  static final int HEADER_SIZE = 12;
+
+  /** Request or response headers. Request headers start with the method name and authority. */
+  static final byte HEADERS = 1;
+  /** Message bytes. The client sets {@link #FLAG_END_STREAM} when it half-closes. */
+  static final byte DATA = 2;
+  /** Response trailers, including {@code grpc-status}. Ends the stream. */
+  static final byte TRAILERS = 3;
+  /** Abnormal stream termination, carrying a status code and description. */
+  static final byte RST_STREAM = 4;
+  /** Grants the peer more stream window; an int delta. */
+  static final byte WINDOW_UPDATE = 5;
+  /** An 8 byte opaque payload, echoed back with {@link #FLAG_ACK}. */
+  static final byte PING = 6;
+  /** No new streams above the int last stream id will be processed. */
+  static final byte GOAWAY = 7;
+
+  static final byte FLAG_END_STREAM = 0x1;
+  static final byte FLAG_ACK = 0x1;
+
+  /** HTTP/2 counts 32 bytes of overhead per header entry; do the same for size limits. */
+  private static final int METADATA_ENTRY_OVERHEAD = 32;
+
+  static final byte[] EMPTY = new byte[0];
+
+  private ShmFrames() {}
+
+  static void writeHeader(byte[] dest, int length, byte type, byte flags, int streamId) {
+    putInt(dest, 0, length);
+    dest[4] = type;
+    dest[5] = flags;
+    dest[6] = 0;
+    dest[7] = 0;
+    putInt(dest, 8, streamId);
+  }
+
+  static byte[] encodeRequestHeaders(String method, String authority, Metadata headers) {
+    PayloadWriter writer = new PayloadWriter();
+    writer.writeLengthPrefixed(method.getBytes(UTF_8));
+    writer.writeLengthPrefixed(authority.getBytes(UTF_8));
+    writer.writeMetadata(headers);
+    return writer.toByteArray();
+  }
+
+  static byte[] encodeMetadata(Metadata metadata) {
+    PayloadWriter writer = new PayloadWriter();
+    writer.writeMetadata(metadata);
+    return writer.toByteArray();
+  }
+
+  static byte[] encodeStatus(Status status) {
+    PayloadWriter writer = new PayloadWriter();
+    writer.writeInt(status.getCode().value());
+    String description = status.getDescription();
+    writer.writeLengthPrefixed(description == null ? EMPTY : description.getBytes(UTF_8));
+    return writer.toByteArray();
+  }
+
+  static byte[] encodeInt(int value) {
+    byte[] payload = new byte[4];
+    putInt(payload, 0, value);
+    return payload;
+  }
+
+  static byte[] encodeLong(long value) {
+    byte[] payload = new byte[8];
+    putInt(payload, 0, (int) (value >>> 32));
+    putInt(payload, 4, (int) value);
+    return payload;
+  }
+
+  static int decodeInt(byte[] payload) throws ProtocolException {
+    if (payload.length != 4) {
+      throw new ProtocolException("Expected 4 byte payload, got " + payload.length);
+    }
+    return getInt(payload, 0);
+  }
+
+  static long decodeLong(byte[] payload) throws ProtocolException {
+    if (payload.length != 8) {
+      throw new ProtocolException("Expected 8 byte payload, got " + payload.length);
+    }
+    return ((long) getInt(payload, 0) << 32) | (getInt(payload, 4) & 0xFFFFFFFFL);
+  }
+
+  static Status decodeStatus(byte[] payload) throws ProtocolException {
+    PayloadReader reader = new PayloadReader(payload);
+    Status status = Status.fromCodeValue(reader.readInt());
+    byte[] description = reader.readBytes();
+    if (description.length == 0) {
+      return status;
+    }
+    return status.withDescription(new String(description, UTF_8));
+  }
+
+  /**
+   * Decodes metadata, returning {@code null} if its size exceeds {@code maxSize} as computed by
+   * the HTTP/2 rules.
+   */
+  @Nullable
+  static Metadata decodeMetadata(byte[] payload, int maxSize) throws ProtocolException {
+    return new PayloadReader(payload).readMetadata(maxSize);
+  }
+
+  /** Decoded request HEADERS. {@code headers} is {@code null} if they were too large. */
+  static final class RequestHeaders {
+    final String method;
+    final String authority;
+    @Nullable final Metadata headers;
+
+    RequestHeaders(String method, String authority, @Nullable Metadata headers) {
+      this.method = method;
+      this.authority = authority;
+      this.headers = headers;
+    }
+  }
+
+  static RequestHeaders decodeRequestHeaders(byte[] payload, int maxMetadataSize)
+      throws ProtocolException {
+    PayloadReader reader = new PayloadReader(payload);
+    String method = new String(reader.readBytes(), UTF_8);
+    String authority = new String(reader.readBytes(), UTF_8);
+    return new RequestHeaders(method, authority, reader.readMetadata(maxMetadataSize));
+  }
+
+  private static void putInt(byte[] dest, int offset, int value) {
+    dest[offset] = (byte) (value >>> 24);
+    dest[offset + 1] = (byte) (value >>> 16);
+    dest[offset + 2] = (byte) (value >>> 8);
+    dest[offset + 3] = (byte) value;
+  }
+
+  static int getInt(byte[] src, int offset) {
+    return (src[offset] & 0xFF) << 24
+        | (src[offset + 1] & 0xFF) << 16
+        | (src[offset + 2] & 0xFF) << 8
+        | (src[offset + 3] & 0xFF);
+  }
+
+  /** The peer sent a frame that doesn't follow the protocol. */
+  static final class ProtocolException extends IOException {
+    private static final long serialVersionUID = 0L;
+
+    ProtocolException(String message) {
+      super(message);
+    }
+  }
+
+  private static final class PayloadWriter extends ByteArrayOutputStream {
+    PayloadWriter() {
+      super(128);
+    }
+
+    void writeInt(int value) {
+      ensureCapacity(count + 4);
+      putInt(buf, count, value);
+      count += 4;
+    }
+
+    void writeLengthPrefixed(byte[] bytes) {
+      writeInt(bytes.length);
+      write(bytes, 0, bytes.length);
+    }
+
+    void writeMetadata(Metadata metadata) {
+      byte[][] serialized = InternalMetadata.serialize(metadata);
+      writeInt(serialized.length / 2);
+      for (byte[] bytes : serialized) {
+        writeLengthPrefixed(bytes);
+      }
+    }
+
+    private void ensureCapacity(int minCapacity) {
+      if (minCapacity > buf.length) {
+        buf = Arrays.copyOf(buf, Math.max(buf.length * 2, minCapacity));
+      }
+    }
+  }
+
+  private static final class PayloadReader {
+    private final byte[] payload;
+    private int position;
+
+    PayloadReader(byte[] payload) {
+      this.payload = payload;
+    }
+
+    int readInt() throws ProtocolException {
+      if (payload.length - position < 4) {
+        throw new ProtocolException("Truncated frame payload");
+      }
+      int value = getInt(payload, position);
+      position += 4;
+      return value;
+    }
+
+    byte[] readBytes() throws ProtocolException {
+      int length = readInt();
+      if (length < 0 || length > payload.length - position) {
+        throw new ProtocolException("Truncated frame payload");
+      }
+      byte[] bytes = Arrays.copyOfRange(payload, position, position + length);
+      position += length;
+      return bytes;
+    }
+
+    @Nullable
+    Metadata readMetadata(int maxSize) throws ProtocolException {
+      int count = readInt();
+      if (count < 0 || count > (payload.length - position) / 8) {
+        throw new ProtocolException("Invalid metadata entry count: " + count);
+      }
+      byte[][] serialized = new byte[count * 2][];
+      long size = 0;
+      for (int i = 0; i < serialized.length; i++) {
+        serialized[i] = readBytes();
+        size += serialized[i].length;
+        if (i % 2 == 0) {
+          size += METADATA_ENTRY_OVERHEAD;
+        }
+      }
+      if (size > maxSize) {
+        return null;
+      }
+      return InternalMetadata.newMetadata(count, serialized);
+    }
+  }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+import io.grpc.EquivalentAddressGroup;
+import io.grpc.NameResolver;
+import java.util.Collections;
+import javax.annotation.Nullable;
+
+final class ShmNameResolver extends NameResolver {
+  private final String path;
+  private Listener2 listener;
+
+  ShmNameResolver(@Nullable String authority, String path) {
+    checkArgument(authority == null, "non-null authority not supported");
+    this.path = checkNotNull(path, "path");
+  }
+
+  @Override
+  public String getServiceAuthority() {
+    return "localhost";
+  }
+
+  @Override
+  public void start(Listener2 listener) {
+    checkState(this.listener == null, "already started");
+    this.listener = checkNotNull(listener, "listener");
+    resolve();
+  }
+
+  @Override
+  public void refresh() {
+    resolve();
+  }
+
+  private void resolve() {
+    listener.onResult(ResolutionResult.newBuilder()
+        .setAddresses(Collections.singletonList(
+            new EquivalentAddressGroup(new ShmSocketAddress(path))))
+        .build());
+  }
+
+  @Override
+  public void shutdown() {}
+}
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import javax.annotation.Nullable;
+
+/**
+ * A single-producer, single-consumer byte ring living in memory shared by two processes.
+ *
+ * <p>The ring starts with a header holding the consumer position ({@code head}), the producer
+ * position ({@code tail}) and a closed flag, each on its own cache line so the two sides don't
+ * contend. Positions increase monotonically; the index into the data area is the position modulo
+ * the capacity, which must be a power of two. The producer copies bytes in and then publishes its
+ * new position with an ordered store, so the consumer never observes partially written data.
+ *
+ * <p>Plain {@link ByteBuffer}s offer no ordered or volatile access on Java 8, so the ring uses
+ * {@code sun.misc.Unsafe} through method handles. Use {@link #isAvailable} to check whether that is
+ * possible on the running JVM.
+ *
+ * <p>Each side is not thread-safe: the producer methods must be called by one thread at a time,
+ * and likewise the consumer methods.
+ */
+final class ShmRing {
+  static final int HEADER_SIZE = 192;
+  private static final int HEAD_OFFSET = 0;
+  private static final int TAIL_OFFSET = 64;
+  private static final int CLOSED_OFFSET = 128;
+
+  private static final MethodHandle GET_INT_VOLATILE;
+  private static final MethodHandle PUT_INT_VOLATILE;
+  private static final MethodHandle GET_LONG_VOLATILE;
+  private static final MethodHandle PUT_ORDERED_LONG;
+  private static final MethodHandle COPY_MEMORY;
+  private static final MethodHandle GET_LONG;
+  private static final long BYTE_ARRAY_BASE_OFFSET;
+  private static final long ADDRESS_FIELD_OFFSET;
+  @Nullable
+  private static final Throwable UNAVAILABILITY_CAUSE;
+
+  static {
+    MethodHandle getIntVolatile = null;
+    MethodHandle putIntVolatile = null;
+    MethodHandle getLongVolatile = null;
+    MethodHandle putOrderedLong = null;
+    MethodHandle copyMemory = null;
+    MethodHandle getLong = null;
+    long byteArrayBaseOffset = -1;
+    long addressFieldOffset = -1;
+    Throwable cause = null;
+    try {
+      Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+      Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+      theUnsafe.setAccessible(true);
+      Object unsafe = theUnsafe.get(null);
+      MethodHandles.Lookup lookup = MethodHandles.lookup();
+      getIntVolatile = lookup.findVirtual(unsafeClass, "getIntVolatile",
+          MethodType.methodType(int.class, Object.class, long.class)).bindTo(unsafe);
+      putIntVolatile = lookup.findVirtual(unsafeClass, "putIntVolatile",
+          MethodType.methodType(void.class, Object.class, long.class, int.class)).bindTo(unsafe);
+      getLongVolatile = lookup.findVirtual(unsafeClass, "getLongVolatile",
+          MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+      putOrderedLong = lookup.findVirtual(unsafeClass, "putOrderedLong",
+          MethodType.methodType(void.class, Object.class, long.class, long.class)).bindTo(unsafe);
+      copyMemory = lookup.findVirtual(unsafeClass, "copyMemory",
+          MethodType.methodType(
+              void.class, Object.class, long.class, Object.class, long.class, long.class))
+          .bindTo(unsafe);
+      getLong = lookup.findVirtual(unsafeClass, "getLong",
+          MethodType.methodType(long.class, Object.class, long.class)).bindTo(unsafe);
+      byteArrayBaseOffset = ((Number) lookup.findVirtual(unsafeClass, "arrayBaseOffset",
+          MethodType.methodType(int.class, Class.class)).invoke(unsafe, byte[].class)).longValue();
+      addressFieldOffset = (long) lookup.findVirtual(unsafeClass, "objectFieldOffset",
+          MethodType.methodType(long.class, Field.class))
+          .invoke(unsafe, Buffer.class.getDeclaredField("address"));
+    } catch (Throwable t) {
+      cause = t;
+    }
+    GET_INT_VOLATILE = getIntVolatile;
+    PUT_INT_VOLATILE = putIntVolatile;
+    GET_LONG_VOLATILE = getLongVolatile;
+    PUT_ORDERED_LONG = putOrderedLong;
+    COPY_MEMORY = copyMemory;
+    GET_LONG = getLong;
+    BYTE_ARRAY_BASE_OFFSET = byteArrayBaseOffset;
+    ADDRESS_FIELD_OFFSET = addressFieldOffset;
+    UNAVAILABILITY_CAUSE = cause;
+  }
+
+  /** Returns whether the JVM supports the memory access the ring needs. */
+  static boolean isAvailable() {
+    return UNAVAILABILITY_CAUSE == null;
+  }
+
+  /** Returns why {@link #isAvailable} is {@code false}, or {@code null} if it is available. */
+  @Nullable
+  static Throwable unavailabilityCause() {
+    return UNAVAILABILITY_CAUSE;
+  }
+
+  /** Returns the number of bytes a ring with the given data capacity occupies. */
+  static int size(int capacity) {
+    return HEADER_SIZE + capacity;
+  }
+
+  /** Returns the native address of the first byte of a direct buffer. */
+  static long address(ByteBuffer directBuffer) {
+    checkArgument(directBuffer.isDirect(), "buffer must be direct");
+    try {
+      return (long) GET_LONG.invokeExact((Object) directBuffer, ADDRESS_FIELD_OFFSET);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  static int getIntVolatile(long address) {
+    try {
+      return (int) GET_INT_VOLATILE.invokeExact((Object) null, address);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  static void putIntVolatile(long address, int value) {
+    try {
+      PUT_INT_VOLATILE.invokeExact((Object) null, address, value);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  private static long getLongVolatile(long address) {
+    try {
+      return (long) GET_LONG_VOLATILE.invokeExact((Object) null, address);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  private static void putOrderedLong(long address, long value) {
+    try {
+      PUT_ORDERED_LONG.invokeExact((Object) null, address, value);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  private static void copyMemory(
+      Object srcBase, long srcOffset, Object destBase, long destOffset, long bytes) {
+    try {
+      COPY_MEMORY.invokeExact(srcBase, srcOffset, destBase, destOffset, bytes);
+    } catch (Throwable t) {
+      throw new AssertionError(t);
+    }
+  }
+
+  @SuppressWarnings("unused") // Keeps the mapping alive while the addresses below are in use
+  private final ByteBuffer mapping;
+  private final long headAddress;
+  private final long tailAddress;
+  private final long closedAddress;
+  private final long dataAddress;
+  private final int capacity;
+  private final int mask;
+
+  // Producer state
+  private long tail;
+  private long cachedHead;
+
+  // Consumer state
+  private long head;
+  private long cachedTail;
+
+  /**
+   * Creates a view of the ring that starts {@code offset} bytes into {@code mapping}. A ring whose
+   * memory is all zeros is empty and open.
+   */
+  ShmRing(ByteBuffer mapping, int offset, int capacity) {
+    checkArgument(capacity > 0 && Integer.bitCount(capacity) == 1,
+        "capacity must be a power of two: %s", capacity);
+    checkArgument(offset % 64 == 0, "offset must be cache line aligned: %s", offset);
+    checkArgument(mapping.capacity() >= offset + size(capacity), "mapping too small");
+    this.mapping = mapping;
+    long base = address(mapping) + offset;
+    this.headAddress = base + HEAD_OFFSET;
+    this.tailAddress = base + TAIL_OFFSET;
+    this.closedAddress = base + CLOSED_OFFSET;
+    this.dataAddress = base + HEADER_SIZE;
+    this.capacity = capacity;
+    this.mask = capacity - 1;
+    this.tail = getLongVolatile(tailAddress);
+    this.cachedHead = getLongVolatile(headAddress);
+    this.head = cachedHead;
+    this.cachedTail = tail;
+  }
+
+  int capacity() {
+    return capacity;
+  }
+
+  /** Returns whether {@code length} bytes can be written without overwriting unread data. */
+  boolean canWrite(int length) {
+    if (capacity - (int) (tail - cachedHead) >= length) {
+      return true;
+    }
+    cachedHead = getLongVolatile(headAddress);
+    return capacity - (int) (tail - cachedHead) >= length;
+  }
+
+  /**
+   * Returns the free space as of the last {@link #publish}, without touching producer state. Safe
+   * to call from a thread other than the producer's.
+   */
+  int publishedFreeBytes() {
+    long head = getLongVolatile(headAddress);
+    return capacity - (int) (getLongVolatile(tailAddress) - head);
+  }
+
+  /**
+   * Copies bytes into the ring. The caller must have checked {@link #canWrite}. The bytes are
+   * not visible to the consumer until {@link #publish}.
+   */
+  void write(byte[] src, int offset, int length) {
+    int index = (int) tail & mask;
+    int first = Math.min(length, capacity - index);
+    copyMemory(src, BYTE_ARRAY_BASE_OFFSET + offset, null, dataAddress + index, first);
+    if (first < length) {
+      copyMemory(src, BYTE_ARRAY_BASE_OFFSET + offset + first, null, dataAddress, length - first);
+    }
+    tail += length;
+  }
+
+  /** Makes everything written so far visible to the consumer. */
+  void publish() {
+    putOrderedLong(tailAddress, tail);
+  }
+
+  /** Returns whether at least {@code length} published bytes are waiting to be read. */
+  boolean canRead(int length) {
+    if ((int) (cachedTail - head) >= length) {
+      return true;
+    }
+    cachedTail = getLongVolatile(tailAddress);
+    return (int) (cachedTail - head) >= length;
+  }
+
+  /**
+   * Copies bytes out of the ring. The caller must have checked {@link #canRead}. The space is
+   * not returned to the producer until {@link #release}.
+   */
+  void read(byte[] dest, int offset, int length) {
+    int index = (int) head & mask;
+    int first = Math.min(length, capacity - index);
+    copyMemory(null, dataAddress + index, dest, BYTE_ARRAY_BASE_OFFSET + offset, first);
+    if (first < length) {
+      copyMemory(null, dataAddress, dest, BYTE_ARRAY_BASE_OFFSET + offset + first, length - first);
+    }
+    head += length;
+  }
+
+  /** Returns the space of everything read so far to the producer. */
+  void release() {
+    putOrderedLong(headAddress, head);
+  }
+
+  /** Marks that the producer will not write anything more. */
+  void close() {
+    putIntVolatile(closedAddress, 1);
+  }
+
+  boolean isClosed() {
+    return getIntVolatile(closedAddress) != 0;
+  }
+}
@@ -0,0 +1,232 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.base.MoreObjects;
+import io.grpc.InternalChannelz.SocketStats;
+import io.grpc.InternalInstrumented;
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.InternalServer;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.ServerListener;
+import io.grpc.internal.TransportTracer;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.channels.FileLock;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Accepts shared-memory connections offered in the server's directory. Only one server may listen
+ * in a directory at a time, enforced by a lock on a file in it.
+ */
+final class ShmServer implements InternalServer {
+  private static final Logger log = Logger.getLogger(ShmServer.class.getName());
+
+  private final ShmSocketAddress listenAddress;
+  private final Path directory;
+  private final List<? extends ServerStreamTracer.Factory> streamTracerFactories;
+  private final long spinNanos;
+  private final int maxMessageSize;
+  private final int maxInboundMetadataSize;
+  private final int flowControlWindow;
+  private final ObjectPool<? extends Executor> executorPool;
+  private final ObjectPool<ScheduledExecutorService> schedulerPool;
+  private final TransportTracer.Factory transportTracerFactory;
+
+  private Executor executor;
+  private FileLock directoryLock;
+  private WatchService watchService;
+  @GuardedBy("this")
+  private ServerListener listener;
+  @GuardedBy("this")
+  private boolean shutdown;
+
+  ShmServer(
+      ShmServerBuilder builder,
+      List<? extends ServerStreamTracer.Factory> streamTracerFactories) {
+    this.listenAddress = builder.listenAddress;
+    this.directory = listenAddress.getDirectory().toPath();
+    this.streamTracerFactories =
+        Collections.unmodifiableList(checkNotNull(streamTracerFactories, "streamTracerFactories"));
+    this.spinNanos = builder.spinNanos;
+    this.maxMessageSize = builder.maxInboundMessageSize;
+    this.maxInboundMetadataSize = builder.maxInboundMetadataSize;
+    this.flowControlWindow = builder.flowControlWindow;
+    this.executorPool = builder.executorPool;
+    this.schedulerPool = builder.schedulerPool;
+    this.transportTracerFactory = builder.transportTracerFactory;
+  }
+
+  @Override
+  public void start(ServerListener serverListener) throws IOException {
+    synchronized (this) {
+      this.listener = checkNotNull(serverListener, "serverListener");
+    }
+    directoryLock = ShmConnection.lockServerDirectory(listenAddress.getDirectory());
+    if (directoryLock == null) {
+      throw new IOException("Another server is already listening at " + directory);
+    }
+    try {
+      watchService = directory.getFileSystem().newWatchService();
+      directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE);
+    } catch (IOException e) {
+      directoryLock.channel().close();
+      throw e;
+    }
+    executor = executorPool.getObject();
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        acceptConnections();
+      }
+    });
+  }
+
+  private void acceptConnections() {
+    try {
+      // Offers made before the watch was registered
+      acceptExistingOffers();
+      while (true) {
+        WatchKey key = watchService.take();
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+            acceptExistingOffers();
+          } else {
+            Path name = (Path) event.context();
+            if (name.toString().endsWith(ShmConnection.OFFER_SUFFIX)) {
+              accept(directory.resolve(name));
+            }
+          }
+        }
+        if (!key.reset()) {
+          log.log(Level.WARNING, "{0} is no longer accessible", directory);
+          return;
+        }
+      }
+    } catch (ClosedWatchServiceException e) {
+      // Shut down
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (IOException e) {
+      log.log(Level.WARNING, "Failed listing " + directory, e);
+    }
+  }
+
+  private void acceptExistingOffers() throws IOException {
+    try (DirectoryStream<Path> offers =
+        Files.newDirectoryStream(directory, "*" + ShmConnection.OFFER_SUFFIX)) {
+      for (Path offer : offers) {
+        accept(offer);
+      }
+    }
+  }
+
+  private void accept(Path offer) {
+    ShmConnection connection;
+    try {
+      connection = ShmConnection.accept(offer, spinNanos);
+    } catch (IOException e) {
+      // Usually the client gave up and removed its offer
+      log.log(Level.FINE, "Failed accepting " + offer, e);
+      return;
+    }
+    ShmServerTransport transport = new ShmServerTransport(
+        listenAddress,
+        connection,
+        streamTracerFactories,
+        maxMessageSize,
+        maxInboundMetadataSize,
+        flowControlWindow,
+        executorPool,
+        schedulerPool,
+        transportTracerFactory.create());
+    synchronized (this) {
+      if (shutdown) {
+        connection.close();
+        return;
+      }
+      transport.start(listener.transportCreated(transport));
+    }
+  }
+
+  @Override
+  public SocketAddress getListenSocketAddress() {
+    return listenAddress;
+  }
+
+  @Override
+  public List<? extends SocketAddress> getListenSocketAddresses() {
+    return Collections.singletonList(getListenSocketAddress());
+  }
+
+  @Override
+  public InternalInstrumented<SocketStats> getListenSocketStats() {
+    return null;
+  }
+
+  @Override
+  public List<InternalInstrumented<SocketStats>> getListenSocketStatsList() {
+    return null;
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (this) {
+      if (shutdown) {
+        return;
+      }
+      shutdown = true;
+    }
+    if (watchService != null) {
+      try {
+        watchService.close();
+      } catch (IOException e) {
+        log.log(Level.FINE, "Failed closing watch service", e);
+      }
+      try {
+        directoryLock.channel().close();
+      } catch (IOException e) {
+        log.log(Level.FINE, "Failed releasing " + directory, e);
+      }
+      executor = executorPool.returnObject(executor);
+    }
+    synchronized (this) {
+      listener.serverShutdown();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return MoreObjects.toStringHelper(this).add("listenAddress", listenAddress).toString();
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.grpc.ExperimentalApi;
+import io.grpc.Internal;
+import io.grpc.ServerBuilder;
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.AbstractServerImplBuilder;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.InternalServer;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.ServerImplBuilder;
+import io.grpc.internal.ServerImplBuilder.ClientTransportServersBuilder;
+import io.grpc.internal.SharedResourcePool;
+import io.grpc.internal.TransportTracer;
+import java.io.File;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builder for a server that accepts {@link ShmChannelBuilder shared-memory channels} from other
+ * processes on the same host.
+ *
+ * <p>The server listens in a directory, which it creates if needed; clients offer connections by
+ * creating files in it. Only one server can listen in a directory at a time. Anyone allowed to
+ * create files in the directory can connect, so restrict its permissions accordingly.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1783")
+public final class ShmServerBuilder extends AbstractServerImplBuilder<ShmServerBuilder> {
+  /**
+   * Creates a server listening in the given directory, preferably on a memory-backed file system
+   * such as {@code /dev/shm}.
+   */
+  public static ShmServerBuilder forPath(String path) {
+    return forAddress(new ShmSocketAddress(checkNotNull(path, "path")));
+  }
+
+  /**
+   * Creates a server listening at the given address.
+   */
+  public static ShmServerBuilder forAddress(ShmSocketAddress address) {
+    return new ShmServerBuilder(checkNotNull(address, "address"));
+  }
+
+  /**
+   * Creates a server listening in {@code /dev/shm/grpc-<port>}. Clients must use the same path.
+   *
+   * <p>This transport is deliberately not registered as a {@link io.grpc.ServerProvider}, so
+   * {@link ServerBuilder#forPort} never returns a shared-memory server; it must be requested
+   * explicitly.
+   */
+  public static ShmServerBuilder forPort(int port) {
+    return forPath(pathForPort(port));
+  }
+
+  static String pathForPort(int port) {
+    return "/dev/shm/grpc-" + port;
+  }
+
+  private final ServerImplBuilder serverImplBuilder;
+  final ShmSocketAddress listenAddress;
+  long spinNanos = ShmChannelBuilder.DEFAULT_SPIN_NANOS;
+  int flowControlWindow = ShmChannelBuilder.DEFAULT_FLOW_CONTROL_WINDOW;
+  int maxInboundMessageSize = GrpcUtil.DEFAULT_MAX_MESSAGE_SIZE;
+  int maxInboundMetadataSize = GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE;
+  ObjectPool<? extends Executor> executorPool =
+      SharedResourcePool.forResource(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+  ObjectPool<ScheduledExecutorService> schedulerPool =
+      SharedResourcePool.forResource(GrpcUtil.TIMER_SERVICE);
+  TransportTracer.Factory transportTracerFactory = TransportTracer.getDefaultFactory();
+
+  private ShmServerBuilder(ShmSocketAddress listenAddress) {
+    this.listenAddress = listenAddress;
+
+    final class ShmClientTransportServersBuilder implements ClientTransportServersBuilder {
+      @Override
+      public InternalServer buildClientTransportServers(
+          List<? extends ServerStreamTracer.Factory> streamTracerFactories) {
+        return buildTransportServers(streamTracerFactories);
+      }
+    }
+
+    serverImplBuilder = new ServerImplBuilder(new ShmClientTransportServersBuilder());
+  }
+
+  @Internal
+  @Override
+  protected ServerBuilder<?> delegate() {
+    return serverImplBuilder;
+  }
+
+  /**
+   * Sets how long a thread waiting for a client busy-spins before it starts parking. Zero
+   * disables spinning. The default is 50 microseconds, or zero if the host has a single CPU.
+   */
+  public ShmServerBuilder spinTime(long time, TimeUnit unit) {
+    checkArgument(time >= 0, "spin time must be non-negative");
+    this.spinNanos = unit.toNanos(time);
+    return this;
+  }
+
+  /**
+   * Sets the per-stream flow control window in bytes. The default is 1 MiB.
+   */
+  public ShmServerBuilder flowControlWindow(int flowControlWindow) {
+    checkArgument(flowControlWindow > 0, "flowControlWindow must be positive");
+    this.flowControlWindow = flowControlWindow;
+    return this;
+  }
+
+  @Override
+  public ShmServerBuilder maxInboundMessageSize(int bytes) {
+    checkArgument(bytes >= 0, "bytes must be non-negative: %s", bytes);
+    this.maxInboundMessageSize = bytes;
+    return this;
+  }
+
+  @Override
+  public ShmServerBuilder maxInboundMetadataSize(int bytes) {
+    checkArgument(bytes > 0, "maxInboundMetadataSize must be > 0");
+    this.maxInboundMetadataSize = bytes;
+    return this;
+  }
+
+  @Override
+  public ShmServerBuilder useTransportSecurity(File certChain, File privateKey) {
+    throw new UnsupportedOperationException("TLS not supported by the shared-memory transport");
+  }
+
+  @Override
+  public ShmServerBuilder useTransportSecurity(InputStream certChain, InputStream privateKey) {
+    throw new UnsupportedOperationException("TLS not supported by the shared-memory transport");
+  }
+
+  @VisibleForTesting
+  ShmServerBuilder setTransportTracerFactory(TransportTracer.Factory transportTracerFactory) {
+    this.transportTracerFactory = transportTracerFactory;
+    return this;
+  }
+
+  ShmServer buildTransportServers(
+      List<? extends ServerStreamTracer.Factory> streamTracerFactories) {
+    return new ShmServer(this, streamTracerFactories);
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.Attributes;
+import io.grpc.Metadata;
+import io.grpc.Status;
+import io.grpc.internal.AbstractServerStream;
+import io.grpc.internal.ReadableBuffers;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.TransportTracer;
+import io.grpc.internal.WritableBuffer;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * Server stream for the shared-memory transport.
+ */
+final class ShmServerStream extends AbstractServerStream {
+  private final TransportState state;
+  private final Sink sink = new Sink();
+  private final TransportTracer transportTracer;
+  private final Attributes attributes;
+  private final String authority;
+
+  ShmServerStream(
+      ShmServerTransport transport,
+      Object lock,
+      FrameWriter frameWriter,
+      int streamId,
+      String authority,
+      Attributes attributes,
+      int maxMessageSize,
+      int flowControlWindow,
+      StatsTraceContext statsTraceCtx,
+      TransportTracer transportTracer) {
+    super(new ShmWritableBuffer.Allocator(), statsTraceCtx);
+    this.transportTracer = transportTracer;
+    this.attributes = attributes;
+    this.authority = authority;
+    this.state = new TransportState(transport, lock, frameWriter, streamId, maxMessageSize,
+        flowControlWindow, statsTraceCtx, transportTracer);
+  }
+
+  @Override
+  protected TransportState transportState() {
+    return state;
+  }
+
+  @Override
+  protected Sink abstractServerStreamSink() {
+    return sink;
+  }
+
+  @Override
+  public int streamId() {
+    return state.streamId;
+  }
+
+  @Override
+  public String getAuthority() {
+    return authority;
+  }
+
+  @Override
+  public Attributes getAttributes() {
+    return attributes;
+  }
+
+  private final class Sink implements AbstractServerStream.Sink {
+    @Override
+    public void writeHeaders(Metadata metadata) {
+      byte[] encoded = ShmFrames.encodeMetadata(metadata);
+      synchronized (state.lock) {
+        state.sendMetadata(ShmFrames.HEADERS, encoded);
+      }
+    }
+
+    @Override
+    public void writeFrame(WritableBuffer frame, boolean flush, int numMessages) {
+      int size = frame.readableBytes();
+      if (size > 0) {
+        onSendingBytes(size);
+      }
+      synchronized (state.lock) {
+        state.sendData(((ShmWritableBuffer) frame).array(), size);
+        transportTracer.reportMessageSent(numMessages);
+      }
+    }
+
+    @Override
+    public void writeTrailers(Metadata trailers, boolean headersSent, Status status) {
+      byte[] encoded = ShmFrames.encodeMetadata(trailers);
+      synchronized (state.lock) {
+        state.sendMetadata(ShmFrames.TRAILERS, encoded);
+      }
+    }
+
+    @Override
+    public void cancel(Status reason) {
+      synchronized (state.lock) {
+        state.cancel(reason);
+      }
+    }
+  }
+
+  static final class TransportState extends AbstractServerStream.TransportState
+      implements FrameWriter.WriteListener {
+    private final ShmServerTransport transport;
+    private final Object lock;
+    private final FrameWriter frameWriter;
+    private final int streamId;
+    private final int initialWindow;
+    @GuardedBy("lock")
+    private final OutboundFlow outboundFlow;
+    @GuardedBy("lock")
+    private int window;
+    @GuardedBy("lock")
+    private int processedWindow;
+    @GuardedBy("lock")
+    private boolean cancelSent;
+    @GuardedBy("lock")
+    private boolean receivedEndOfStream;
+
+    private TransportState(
+        ShmServerTransport transport,
+        Object lock,
+        FrameWriter frameWriter,
+        int streamId,
+        int maxMessageSize,
+        int flowControlWindow,
+        StatsTraceContext statsTraceCtx,
+        TransportTracer transportTracer) {
+      super(maxMessageSize, statsTraceCtx, transportTracer);
+      this.transport = transport;
+      this.lock = lock;
+      this.frameWriter = frameWriter;
+      this.streamId = streamId;
+      this.initialWindow = flowControlWindow;
+      this.window = flowControlWindow;
+      this.processedWindow = flowControlWindow;
+      this.outboundFlow = new OutboundFlow(frameWriter, streamId, flowControlWindow, this);
+    }
+
+    @Override
+    public void frameWritten(int payloadLength) {
+      if (payloadLength > 0) {
+        onSentBytes(payloadLength);
+      }
+    }
+
+    @GuardedBy("lock")
+    private void sendMetadata(final byte type, byte[] encoded) {
+      if (cancelSent) {
+        return;
+      }
+      if (encoded.length > frameWriter.maxFramePayload()) {
+        cancel(Status.INTERNAL.withDescription("Response metadata too large"));
+        return;
+      }
+      if (type == ShmFrames.HEADERS) {
+        frameWriter.write(ShmFrames.HEADERS, (byte) 0, streamId, encoded);
+        return;
+      }
+      outboundFlow.frameAfterData(type, encoded, new FrameWriter.WriteListener() {
+        @Override
+        public void frameWritten(int payloadLength) {
+          transport.streamClosed(streamId);
+          complete();
+        }
+      });
+    }
+
+    @GuardedBy("lock")
+    private void sendData(byte[] data, int length) {
+      if (cancelSent) {
+        return;
+      }
+      outboundFlow.data(data, 0, length, false);
+    }
+
+    @GuardedBy("lock")
+    void cancel(Status reason) {
+      if (cancelSent) {
+        return;
+      }
+      cancelSent = true;
+      outboundFlow.clear();
+      frameWriter.write(
+          ShmFrames.RST_STREAM, (byte) 0, streamId, ShmFrames.encodeStatus(reason));
+      transportReportStatus(reason);
+      transport.streamClosed(streamId);
+    }
+
+    /** The client reset the stream. */
+    @GuardedBy("lock")
+    void resetReceived(Status status) {
+      cancelSent = true;
+      outboundFlow.clear();
+      transportReportStatus(status);
+    }
+
+    @GuardedBy("lock")
+    void windowUpdate(int delta) {
+      outboundFlow.windowUpdate(delta);
+    }
+
+    @GuardedBy("lock")
+    void transportDataReceived(byte[] data, boolean endOfStream) {
+      if (receivedEndOfStream) {
+        cancel(Status.INTERNAL.withDescription("Received data after end of stream"));
+        return;
+      }
+      receivedEndOfStream = endOfStream;
+      window -= data.length;
+      if (window < 0) {
+        cancel(Status.INTERNAL.withDescription(
+            "Received data size exceeded our receiving window size"));
+        return;
+      }
+      inboundDataReceived(ReadableBuffers.wrap(data), endOfStream);
+    }
+
+    @Override
+    @GuardedBy("lock")
+    public void deframeFailed(Throwable cause) {
+      cancel(Status.fromThrowable(cause));
+    }
+
+    @Override
+    @GuardedBy("lock")
+    public void bytesRead(int processedBytes) {
+      processedWindow -= processedBytes;
+      if (processedWindow <= initialWindow / 2) {
+        int delta = initialWindow - processedWindow;
+        window += delta;
+        processedWindow += delta;
+        frameWriter.write(
+            ShmFrames.WINDOW_UPDATE, (byte) 0, streamId, ShmFrames.encodeInt(delta));
+      }
+    }
+
+    @Override
+    public void runOnTransportThread(Runnable r) {
+      synchronized (lock) {
+        r.run();
+      }
+    }
+  }
+}
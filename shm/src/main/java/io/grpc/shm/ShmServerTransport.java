@@ -0,0 +1,304 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.SettableFuture;
+import io.grpc.Attributes;
+import io.grpc.Grpc;
+import io.grpc.InternalChannelz;
+import io.grpc.InternalChannelz.SocketStats;
+import io.grpc.InternalLogId;
+import io.grpc.SecurityLevel;
+import io.grpc.ServerStreamTracer;
+import io.grpc.Status;
+import io.grpc.internal.GrpcAttributes;
+import io.grpc.internal.ObjectPool;
+import io.grpc.internal.ServerTransport;
+import io.grpc.internal.ServerTransportListener;
+import io.grpc.internal.StatsTraceContext;
+import io.grpc.internal.TransportTracer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.concurrent.GuardedBy;
+
+/**
+ * A server transport over a shared-memory {@link ShmConnection} accepted by {@link ShmServer}.
+ */
+final class ShmServerTransport implements ServerTransport {
+  private static final Logger log = Logger.getLogger(ShmServerTransport.class.getName());
+
+  private final InternalLogId logId;
+  private final ShmSocketAddress address;
+  private final ShmConnection connection;
+  private final List<? extends ServerStreamTracer.Factory> streamTracerFactories;
+  private final int maxMessageSize;
+  private final int maxInboundMetadataSize;
+  private final int flowControlWindow;
+  private final ObjectPool<? extends Executor> executorPool;
+  private final Executor executor;
+  private final ObjectPool<ScheduledExecutorService> schedulerPool;
+  private final ScheduledExecutorService scheduler;
+  private final TransportTracer transportTracer;
+  private final Object lock = new Object();
+  private final FrameWriter frameWriter;
+
+  private ServerTransportListener listener;
+  private Attributes attributes;
+  @GuardedBy("lock")
+  private final Map<Integer, ShmServerStream.TransportState> streams = new HashMap<>();
+  @GuardedBy("lock")
+  private int lastStreamId;
+  @GuardedBy("lock")
+  private boolean goAwaySent;
+
+  ShmServerTransport(
+      ShmSocketAddress address,
+      ShmConnection connection,
+      List<? extends ServerStreamTracer.Factory> streamTracerFactories,
+      int maxMessageSize,
+      int maxInboundMetadataSize,
+      int flowControlWindow,
+      ObjectPool<? extends Executor> executorPool,
+      ObjectPool<ScheduledExecutorService> schedulerPool,
+      TransportTracer transportTracer) {
+    this.address = checkNotNull(address, "address");
+    this.connection = checkNotNull(connection, "connection");
+    this.streamTracerFactories = checkNotNull(streamTracerFactories, "streamTracerFactories");
+    this.maxMessageSize = maxMessageSize;
+    this.maxInboundMetadataSize = maxInboundMetadataSize;
+    this.flowControlWindow = flowControlWindow;
+    this.executorPool = checkNotNull(executorPool, "executorPool");
+    this.executor = executorPool.getObject();
+    this.schedulerPool = checkNotNull(schedulerPool, "schedulerPool");
+    this.scheduler = schedulerPool.getObject();
+    this.transportTracer = checkNotNull(transportTracer, "transportTracer");
+    this.frameWriter = new FrameWriter(lock, executor, connection.maxFramePayload());
+    this.logId = InternalLogId.allocate(getClass(), address.toString());
+  }
+
+  void start(ServerTransportListener listener) {
+    this.listener = checkNotNull(listener, "listener");
+    synchronized (lock) {
+      frameWriter.setConnection(connection);
+    }
+    executor.execute(new Runnable() {
+      @Override
+      public void run() {
+        readFrames();
+      }
+    });
+  }
+
+  private void readFrames() {
+    attributes = listener.transportReady(Attributes.newBuilder()
+        .set(Grpc.TRANSPORT_ATTR_LOCAL_ADDR, address)
+        .set(Grpc.TRANSPORT_ATTR_REMOTE_ADDR, address)
+        .set(GrpcAttributes.ATTR_SECURITY_LEVEL, SecurityLevel.NONE)
+        .build());
+    Status status;
+    try {
+      connection.readFrames(new FrameHandler());
+      status = Status.UNAVAILABLE.withDescription("Connection closed by client");
+    } catch (Throwable t) {
+      log.log(Level.FINE, "Failed reading from client", t);
+      status = Status.UNAVAILABLE.withDescription("Failed reading from client").withCause(t);
+    }
+    try {
+      abruptShutdown(status);
+    } finally {
+      connection.close();
+      executorPool.returnObject(executor);
+      schedulerPool.returnObject(scheduler);
+      listener.transportTerminated();
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      if (goAwaySent) {
+        return;
+      }
+      goAwaySent = true;
+      frameWriter.write(ShmFrames.GOAWAY, (byte) 0, 0, ShmFrames.encodeInt(lastStreamId));
+      stopIfNecessary();
+    }
+  }
+
+  @Override
+  public void shutdownNow(Status reason) {
+    shutdown();
+    abruptShutdown(reason);
+    connection.close();
+  }
+
+  private void abruptShutdown(Status status) {
+    List<ShmServerStream.TransportState> streamsToFail;
+    synchronized (lock) {
+      streamsToFail = new ArrayList<>(streams.values());
+      streams.clear();
+      frameWriter.close();
+      for (ShmServerStream.TransportState stream : streamsToFail) {
+        stream.transportReportStatus(status);
+      }
+    }
+  }
+
+  @GuardedBy("lock")
+  private void stopIfNecessary() {
+    if (goAwaySent && streams.isEmpty()) {
+      frameWriter.shutdownWhenDrained();
+    }
+  }
+
+  @GuardedBy("lock")
+  void streamClosed(int streamId) {
+    if (streams.remove(streamId) != null) {
+      stopIfNecessary();
+    }
+  }
+
+  @Override
+  public ScheduledExecutorService getScheduledExecutorService() {
+    return scheduler;
+  }
+
+  @Override
+  public ListenableFuture<SocketStats> getStats() {
+    SettableFuture<SocketStats> ret = SettableFuture.create();
+    ret.set(new SocketStats(
+        transportTracer.getStats(),
+        address,
+        address,
+        new InternalChannelz.SocketOptions.Builder().build(),
+        /*security=*/ null));
+    return ret;
+  }
+
+  @Override
+  public InternalLogId getLogId() {
+    return logId;
+  }
+
+  /** Dispatches frames from the client; runs on the reader thread. */
+  private final class FrameHandler implements ShmConnection.FrameHandler {
+    @Override
+    public void frameReceived(byte type, byte flags, int streamId, byte[] payload)
+        throws IOException {
+      switch (type) {
+        case ShmFrames.HEADERS:
+          headersReceived(streamId, payload);
+          break;
+        case ShmFrames.DATA:
+          synchronized (lock) {
+            ShmServerStream.TransportState stream = streams.get(streamId);
+            if (stream != null) {
+              stream.transportDataReceived(payload, (flags & ShmFrames.FLAG_END_STREAM) != 0);
+            }
+          }
+          break;
+        case ShmFrames.RST_STREAM:
+          Status status = ShmFrames.decodeStatus(payload);
+          if (status.isOk()) {
+            status = Status.CANCELLED;
+          }
+          synchronized (lock) {
+            ShmServerStream.TransportState stream = streams.remove(streamId);
+            if (stream != null) {
+              stream.resetReceived(status);
+              stopIfNecessary();
+            }
+          }
+          break;
+        case ShmFrames.WINDOW_UPDATE:
+          int delta = ShmFrames.decodeInt(payload);
+          synchronized (lock) {
+            ShmServerStream.TransportState stream = streams.get(streamId);
+            if (stream != null) {
+              stream.windowUpdate(delta);
+            }
+          }
+          break;
+        case ShmFrames.PING:
+          if ((flags & ShmFrames.FLAG_ACK) == 0) {
+            ShmFrames.decodeLong(payload);
+            synchronized (lock) {
+              frameWriter.write(ShmFrames.PING, ShmFrames.FLAG_ACK, 0, payload);
+            }
+          }
+          break;
+        case ShmFrames.GOAWAY:
+          // The client closes its output once its streams are done
+          break;
+        default:
+          // Ignore unknown frame types, for forward compatibility
+      }
+    }
+
+    private void headersReceived(int streamId, byte[] payload) throws IOException {
+      if (streamId % 2 == 0) {
+        throw new ShmFrames.ProtocolException("Clients must use odd stream ids: " + streamId);
+      }
+      ShmFrames.RequestHeaders request =
+          ShmFrames.decodeRequestHeaders(payload, maxInboundMetadataSize);
+      synchronized (lock) {
+        if (streamId <= lastStreamId) {
+          throw new ShmFrames.ProtocolException("Stream id did not increase: " + streamId);
+        }
+        if (goAwaySent) {
+          // The client retries streams above the GOAWAY's last stream id elsewhere
+          return;
+        }
+        lastStreamId = streamId;
+        if (request.headers == null) {
+          frameWriter.write(ShmFrames.RST_STREAM, (byte) 0, streamId,
+              ShmFrames.encodeStatus(Status.RESOURCE_EXHAUSTED.withDescription(
+                  "Request metadata larger than " + maxInboundMetadataSize)));
+          return;
+        }
+      }
+      StatsTraceContext statsTraceCtx = StatsTraceContext.newServerContext(
+          streamTracerFactories, request.method, request.headers);
+      synchronized (lock) {
+        ShmServerStream stream = new ShmServerStream(
+            ShmServerTransport.this,
+            lock,
+            frameWriter,
+            streamId,
+            request.authority,
+            attributes,
+            maxMessageSize,
+            flowControlWindow,
+            statsTraceCtx,
+            transportTracer);
+        streams.put(streamId, stream.transportState());
+        listener.streamCreated(stream, request.method, request.headers);
+        stream.transportState().onStreamAllocated();
+      }
+    }
+  }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import io.grpc.ExperimentalApi;
+import java.io.File;
+import java.net.SocketAddress;
+
+/**
+ * Address of a shared-memory server: the directory in which the server accepts connections,
+ * typically on a memory-backed file system such as {@code /dev/shm}.
+ */
+@ExperimentalApi("https://github.com/grpc/grpc-java/issues/1783")
+public final class ShmSocketAddress extends SocketAddress {
+  private static final long serialVersionUID = 5132486345918437123L;
+
+  private final String path;
+
+  /**
+   * Creates an address for the given directory.
+   *
+   * @param path the directory shared by the client and server processes
+   */
+  public ShmSocketAddress(String path) {
+    this.path = checkNotNull(path, "path");
+  }
+
+  /**
+   * Returns the directory in which the server accepts connections.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  File getDirectory() {
+    return new File(path);
+  }
+
+  @Override
+  public String toString() {
+    return "shm:" + path;
+  }
+
+  @Override
+  public int hashCode() {
+    return path.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (!(obj instanceof ShmSocketAddress)) {
+      return false;
+    }
+    return path.equals(((ShmSocketAddress) obj).path);
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.internal.WritableBuffer;
+import io.grpc.internal.WritableBufferAllocator;
+import java.nio.ByteBuffer;
+
+/**
+ * A {@link WritableBuffer} backed by a byte array, which is copied into the ring as-is once the
+ * framer hands it to the transport.
+ */
+final class ShmWritableBuffer implements WritableBuffer {
+  private final byte[] array;
+  private int readableBytes;
+
+  ShmWritableBuffer(int capacity) {
+    this.array = new byte[capacity];
+  }
+
+  @Override
+  public void write(byte[] src, int srcIndex, int length) {
+    System.arraycopy(src, srcIndex, array, readableBytes, length);
+    readableBytes += length;
+  }
+
+  @Override
+  public void write(ByteBuffer src) {
+    int length = src.remaining();
+    src.get(array, readableBytes, length);
+    readableBytes += length;
+  }
+
+  @Override
+  public void write(byte b) {
+    array[readableBytes++] = b;
+  }
+
+  @Override
+  public int writableBytes() {
+    return array.length - readableBytes;
+  }
+
+  @Override
+  public int readableBytes() {
+    return readableBytes;
+  }
+
+  @Override
+  public void release() {}
+
+  byte[] array() {
+    return array;
+  }
+
+  /** Allocates buffers between 4 KiB and 1 MiB; larger messages span several buffers. */
+  static final class Allocator implements WritableBufferAllocator {
+    private static final int MIN_BUFFER = 4096;
+    private static final int MAX_BUFFER = 1024 * 1024;
+
+    @Override
+    public WritableBuffer allocate(int capacityHint) {
+      return new ShmWritableBuffer(Math.min(MAX_BUFFER, Math.max(MIN_BUFFER, capacityHint)));
+    }
+  }
+}
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Unit tests for {@link OutboundFlow}. Frames are written to a real connection and read back from
+ * its other end.
+ */
+@RunWith(JUnit4.class)
+public class OutboundFlowTest {
+  private static final int STREAM_ID = 3;
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final Object lock = new Object();
+  private final ExecutorService executor = Executors.newSingleThreadExecutor();
+  private final List<Integer> written = new ArrayList<>();
+  private final FrameWriter.WriteListener listener = new FrameWriter.WriteListener() {
+    @Override
+    public void frameWritten(int payloadLength) {
+      written.add(payloadLength);
+    }
+  };
+  private FileLock serverLock;
+  private ShmConnection client;
+  private ShmConnection server;
+  private FrameWriter writer;
+
+  @Before
+  public void setUp() throws Exception {
+    File directory = new File(tempFolder.getRoot(), "server");
+    serverLock = ShmConnection.lockServerDirectory(directory);
+    Future<ShmConnection> connecting = executor.submit(() -> ShmConnection.connect(
+        directory, ShmConnection.MIN_RING_SIZE, 0, TIMEOUT_NANOS));
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (server == null && System.nanoTime() - deadline < 0) {
+      try (DirectoryStream<Path> offers =
+          Files.newDirectoryStream(directory.toPath(), "*" + ShmConnection.OFFER_SUFFIX)) {
+        for (Path offer : offers) {
+          server = ShmConnection.accept(offer, 0);
+        }
+      }
+      Thread.sleep(1);
+    }
+    client = connecting.get(10, TimeUnit.SECONDS);
+    writer = new FrameWriter(lock, MoreExecutors.directExecutor(), client.maxFramePayload());
+    synchronized (lock) {
+      writer.setConnection(client);
+    }
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    client.close();
+    server.close();
+    serverLock.channel().close();
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void dataWithinWindow() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 100, listener);
+      flow.data(new byte[] {1, 2, 3, 4}, 1, 2, false);
+      flow.data(new byte[] {5}, 0, 1, true);
+    }
+
+    assertThat(written).containsExactly(2, 1).inOrder();
+    assertThat(readFrames()).containsExactly("2/0/2", "2/1/1").inOrder();
+  }
+
+  @Test
+  public void dataHeldUntilWindowUpdate() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 10, listener);
+      flow.data(new byte[25], 0, 25, true);
+      assertThat(written).containsExactly(10);
+
+      flow.windowUpdate(5);
+      assertThat(written).containsExactly(10, 5).inOrder();
+
+      // The window is used up, so later data waits behind the rest of the first message
+      flow.data(new byte[3], 0, 3, false);
+      assertThat(written).hasSize(2);
+
+      flow.windowUpdate(100);
+    }
+
+    assertThat(written).containsExactly(10, 5, 10, 3).inOrder();
+    // Only the last frame of the message ends the stream
+    assertThat(readFrames()).containsExactly("2/0/10", "2/0/5", "2/1/10", "2/0/3").inOrder();
+  }
+
+  @Test
+  public void negativeWindowAfterShrinking() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 10, listener);
+      flow.windowUpdate(-15);
+      flow.data(new byte[5], 0, 5, false);
+      assertThat(written).isEmpty();
+
+      flow.windowUpdate(5);
+      assertThat(written).isEmpty();
+
+      flow.windowUpdate(1);
+    }
+
+    assertThat(written).containsExactly(1);
+    assertThat(readFrames()).containsExactly("2/0/1");
+  }
+
+  @Test
+  public void dataSplitIntoMaxFramePayload() throws Exception {
+    int max = writer.maxFramePayload();
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, Integer.MAX_VALUE, listener);
+      flow.data(new byte[2 * max + 1], 0, 2 * max + 1, true);
+    }
+
+    assertThat(written).containsExactly(max, max, 1).inOrder();
+    assertThat(readFrames())
+        .containsExactly("2/0/" + max, "2/0/" + max, "2/1/1").inOrder();
+  }
+
+  @Test
+  public void emptyEndOfStreamSentWithoutWindow() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 0, listener);
+      flow.data(ShmFrames.EMPTY, 0, 0, true);
+    }
+
+    assertThat(written).containsExactly(0);
+    assertThat(readFrames()).containsExactly("2/1/0");
+  }
+
+  @Test
+  public void frameAfterDataWaitsForData() throws Exception {
+    List<Integer> trailersWritten = new ArrayList<>();
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 4, listener);
+      flow.data(new byte[6], 0, 6, false);
+      flow.frameAfterData(ShmFrames.TRAILERS, new byte[] {7, 7}, trailersWritten::add);
+      assertThat(trailersWritten).isEmpty();
+
+      flow.windowUpdate(2);
+    }
+
+    assertThat(written).containsExactly(4, 2).inOrder();
+    assertThat(trailersWritten).containsExactly(2);
+    assertThat(readFrames()).containsExactly("2/0/4", "2/0/2", "3/0/2").inOrder();
+  }
+
+  @Test
+  public void frameAfterDataDoesNotUseWindow() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 0, listener);
+      flow.frameAfterData(ShmFrames.RST_STREAM, new byte[8], null);
+      flow.data(new byte[1], 0, 1, false);
+    }
+
+    assertThat(written).isEmpty();
+    assertThat(readFrames()).containsExactly("4/0/8");
+  }
+
+  @Test
+  public void clearDropsPending() throws Exception {
+    synchronized (lock) {
+      OutboundFlow flow = new OutboundFlow(writer, STREAM_ID, 1, listener);
+      flow.data(new byte[3], 0, 3, false);
+      flow.frameAfterData(ShmFrames.TRAILERS, new byte[1], null);
+      flow.clear();
+
+      flow.windowUpdate(100);
+    }
+
+    assertThat(written).containsExactly(1);
+    assertThat(readFrames()).containsExactly("2/0/1");
+  }
+
+  /**
+   * Shuts down the client's output and returns the frames the server read, as
+   * "type/flags/payload length". All the frames must be for {@link #STREAM_ID}.
+   */
+  private List<String> readFrames() throws IOException {
+    synchronized (lock) {
+      writer.shutdownWhenDrained();
+    }
+    List<String> frames = new ArrayList<>();
+    server.readFrames(new ShmConnection.FrameHandler() {
+      @Override
+      public void frameReceived(byte type, byte flags, int streamId, byte[] payload) {
+        assertThat(streamId).isEqualTo(STREAM_ID);
+        frames.add(type + "/" + flags + "/" + payload.length);
+      }
+    });
+    return frames;
+  }
+}
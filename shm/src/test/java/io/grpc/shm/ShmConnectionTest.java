@@ -0,0 +1,285 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.truth.Truth.assertThat;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.net.ConnectException;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ShmConnection}. */
+@RunWith(JUnit4.class)
+public class ShmConnectionTest {
+  private static final int RING_SIZE = ShmConnection.MIN_RING_SIZE;
+  private static final long TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final List<ShmConnection> connections = new ArrayList<>();
+  private File directory;
+  private FileLock serverLock;
+
+  @Before
+  public void setUp() {
+    directory = new File(tempFolder.getRoot(), "server");
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    for (ShmConnection connection : connections) {
+      connection.close();
+    }
+    if (serverLock != null) {
+      serverLock.channel().close();
+    }
+    executor.shutdownNow();
+  }
+
+  @Test
+  public void connect_noServer() throws IOException {
+    Files.createDirectories(directory.toPath());
+
+    assertThrows(ConnectException.class,
+        () -> ShmConnection.connect(directory, RING_SIZE, 0, TIMEOUT_NANOS));
+    assertThat(listFiles(directory)).isEmpty();
+  }
+
+  @Test
+  public void connect_timeoutRemovesOffer() throws IOException {
+    serverLock = ShmConnection.lockServerDirectory(directory);
+
+    assertThrows(ConnectException.class, () -> ShmConnection.connect(
+        directory, RING_SIZE, 0, TimeUnit.MILLISECONDS.toNanos(50)));
+    assertThat(listFiles(directory)).containsExactly(ShmConnection.SERVER_LOCK_FILE);
+  }
+
+  @Test
+  public void connect_invalidRingSize() {
+    assertThrows(IllegalArgumentException.class,
+        () -> ShmConnection.connect(directory, RING_SIZE + 1, 0, TIMEOUT_NANOS));
+    assertThrows(IllegalArgumentException.class,
+        () -> ShmConnection.connect(directory, RING_SIZE / 2, 0, TIMEOUT_NANOS));
+  }
+
+  @Test
+  public void accept_unlinksConnectionFile() throws Exception {
+    connectPair();
+
+    // Only the mappings keep the memory alive, so nothing is left behind once both sides close
+    assertThat(listFiles(directory)).containsExactly(ShmConnection.SERVER_LOCK_FILE);
+  }
+
+  @Test
+  public void framesRoundTrip() throws Exception {
+    ShmConnection[] pair = connectPair();
+    ShmConnection client = pair[0];
+    ShmConnection server = pair[1];
+
+    assertThat(client.tryWrite(ShmFrames.HEADERS, (byte) 0, 1, new byte[] {1, 2, 3}, 0, 3))
+        .isTrue();
+    assertThat(client.tryWrite(ShmFrames.DATA, ShmFrames.FLAG_END_STREAM, 1,
+        new byte[] {9, 4, 5, 9}, 1, 2)).isTrue();
+    assertThat(client.tryWrite(ShmFrames.PING, (byte) 0, 0, ShmFrames.EMPTY, 0, 0)).isTrue();
+    client.shutdownOutput();
+
+    List<String> frames = new ArrayList<>();
+    server.readFrames(new ShmConnection.FrameHandler() {
+      @Override
+      public void frameReceived(byte type, byte flags, int streamId, byte[] payload) {
+        frames.add(type + "/" + flags + "/" + streamId + "/" + Arrays.toString(payload));
+      }
+    });
+
+    assertThat(frames).containsExactly("1/0/1/[1, 2, 3]", "2/1/1/[4, 5]", "6/0/0/[]").inOrder();
+  }
+
+  @Test
+  public void tryWrite_fullRingThenFreed() throws Exception {
+    ShmConnection[] pair = connectPair();
+    ShmConnection client = pair[0];
+    ShmConnection server = pair[1];
+    byte[] payload = new byte[client.maxFramePayload()];
+
+    int written = 0;
+    while (client.tryWrite(ShmFrames.DATA, (byte) 0, 1, payload, 0, payload.length)) {
+      written++;
+    }
+    // Each frame is a quarter of the ring plus its header, so only three fit
+    assertThat(written).isEqualTo(3);
+    assertThat(client.tryWrite(ShmFrames.DATA, (byte) 0, 1, payload, 0, 1)).isTrue();
+    assertThat(client.tryWrite(ShmFrames.DATA, (byte) 0, 1, payload, 0, payload.length))
+        .isFalse();
+
+    Future<Boolean> writable = executor.submit(() -> client.awaitWritable(payload.length));
+    Future<?> reader = executor.submit(() -> {
+      server.readFrames(new ShmConnection.FrameHandler() {
+        @Override
+        public void frameReceived(byte type, byte flags, int streamId, byte[] bytes) {}
+      });
+      return null;
+    });
+
+    assertThat(writable.get(10, TimeUnit.SECONDS)).isTrue();
+    assertThat(client.tryWrite(ShmFrames.DATA, (byte) 0, 1, payload, 0, payload.length))
+        .isTrue();
+    client.shutdownOutput();
+    reader.get(10, TimeUnit.SECONDS);
+  }
+
+  @Test
+  public void tryWrite_frameTooLarge() throws Exception {
+    ShmConnection client = connectPair()[0];
+    byte[] payload = new byte[client.maxFramePayload() + 1];
+
+    assertThrows(IllegalArgumentException.class,
+        () -> client.tryWrite(ShmFrames.DATA, (byte) 0, 1, payload, 0, payload.length));
+  }
+
+  @Test
+  public void close_stopsReadingAndWriting() throws Exception {
+    ShmConnection[] pair = connectPair();
+    ShmConnection client = pair[0];
+    ShmConnection server = pair[1];
+    Future<?> reader = executor.submit(() -> {
+      server.readFrames(new ShmConnection.FrameHandler() {
+        @Override
+        public void frameReceived(byte type, byte flags, int streamId, byte[] payload) {}
+      });
+      return null;
+    });
+
+    client.close();
+
+    // The server sees the client's output shut down
+    reader.get(10, TimeUnit.SECONDS);
+    assertThat(client.tryWrite(ShmFrames.PING, (byte) 0, 0, ShmFrames.EMPTY, 0, 0)).isFalse();
+    assertThat(client.awaitWritable(0)).isFalse();
+  }
+
+  @Test
+  public void peerProcessDeath() throws Exception {
+    serverLock = ShmConnection.lockServerDirectory(directory);
+    Process peer = new ProcessBuilder(
+        new File(System.getProperty("java.home"), "bin/java").getPath(),
+        "-cp", System.getProperty("java.class.path"),
+        Peer.class.getName(), directory.getPath())
+        .redirectErrorStream(true)
+        .start();
+    try {
+      ShmConnection server = accept();
+      BufferedReader peerOutput =
+          new BufferedReader(new InputStreamReader(peer.getInputStream(), UTF_8));
+      assertThat(peerOutput.readLine()).isEqualTo(Peer.CONNECTED);
+      Future<?> reader = executor.submit(() -> {
+        server.readFrames(new ShmConnection.FrameHandler() {
+          @Override
+          public void frameReceived(byte type, byte flags, int streamId, byte[] payload) {}
+        });
+        return null;
+      });
+
+      // The peer neither closes the connection nor shuts down its output
+      peer.destroyForcibly().waitFor();
+
+      try {
+        reader.get(10, TimeUnit.SECONDS);
+        fail("Expected peer death to be detected");
+      } catch (ExecutionException e) {
+        assertThat(e.getCause()).isInstanceOf(IOException.class);
+        assertThat(e.getCause()).hasMessageThat().isEqualTo("Peer process exited");
+      }
+      assertThat(listFiles(directory)).containsExactly(ShmConnection.SERVER_LOCK_FILE);
+    } finally {
+      peer.destroyForcibly();
+    }
+  }
+
+  /**
+   * Returns a connected client and server, in that order. They are closed after the test.
+   */
+  private ShmConnection[] connectPair() throws Exception {
+    serverLock = ShmConnection.lockServerDirectory(directory);
+    Future<ShmConnection> client =
+        executor.submit(() -> ShmConnection.connect(directory, RING_SIZE, 0, TIMEOUT_NANOS));
+    ShmConnection server = accept();
+    ShmConnection[] pair = {client.get(10, TimeUnit.SECONDS), server};
+    connections.add(pair[0]);
+    return pair;
+  }
+
+  /** Waits for a client to offer a connection and accepts it. */
+  private ShmConnection accept() throws Exception {
+    long deadline = System.nanoTime() + TIMEOUT_NANOS;
+    while (System.nanoTime() - deadline < 0) {
+      try (DirectoryStream<Path> offers =
+          Files.newDirectoryStream(directory.toPath(), "*" + ShmConnection.OFFER_SUFFIX)) {
+        for (Path offer : offers) {
+          ShmConnection connection = ShmConnection.accept(offer, 0);
+          connections.add(connection);
+          return connection;
+        }
+      }
+      Thread.sleep(1);
+    }
+    throw new AssertionError("No connection offered");
+  }
+
+  private static List<String> listFiles(File directory) {
+    String[] names = directory.list();
+    return names == null ? new ArrayList<String>() : Arrays.asList(names);
+  }
+
+  /** Connects to the server in the directory given as argument, then waits to be killed. */
+  public static final class Peer {
+    static final String CONNECTED = "connected";
+
+    public static void main(String[] args) throws Exception {
+      ShmConnection connection =
+          ShmConnection.connect(new File(args[0]), RING_SIZE, 0, TIMEOUT_NANOS);
+      System.out.println(CONNECTED);
+      System.out.flush();
+      Thread.sleep(TimeUnit.MINUTES.toMillis(1));
+      connection.close();
+    }
+  }
+}
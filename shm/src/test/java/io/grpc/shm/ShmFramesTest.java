@@ -0,0 +1,156 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import io.grpc.Metadata;
+import io.grpc.Status;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ShmFrames}. */
+@RunWith(JUnit4.class)
+public class ShmFramesTest {
+  private static final Metadata.Key<String> ASCII_KEY =
+      Metadata.Key.of("ascii", Metadata.ASCII_STRING_MARSHALLER);
+  private static final Metadata.Key<byte[]> BINARY_KEY =
+      Metadata.Key.of("binary-bin", Metadata.BINARY_BYTE_MARSHALLER);
+
+  @Test
+  public void writeHeader() {
+    byte[] header = new byte[ShmFrames.HEADER_SIZE];
+    Arrays.fill(header, (byte) 0xff);
+
+    ShmFrames.writeHeader(header, 0x01020304, ShmFrames.DATA, ShmFrames.FLAG_END_STREAM, 7);
+
+    assertThat(header).isEqualTo(new byte[] {1, 2, 3, 4, 2, 1, 0, 0, 0, 0, 0, 7});
+    assertThat(ShmFrames.getInt(header, 0)).isEqualTo(0x01020304);
+    assertThat(ShmFrames.getInt(header, 8)).isEqualTo(7);
+  }
+
+  @Test
+  public void requestHeaders_roundTrip() throws Exception {
+    Metadata headers = new Metadata();
+    headers.put(ASCII_KEY, "value");
+    headers.put(BINARY_KEY, new byte[] {0, 1, 2});
+
+    byte[] payload = ShmFrames.encodeRequestHeaders("service/method", "authority", headers);
+    ShmFrames.RequestHeaders decoded = ShmFrames.decodeRequestHeaders(payload, Integer.MAX_VALUE);
+
+    assertThat(decoded.method).isEqualTo("service/method");
+    assertThat(decoded.authority).isEqualTo("authority");
+    assertThat(decoded.headers.get(ASCII_KEY)).isEqualTo("value");
+    assertThat(decoded.headers.get(BINARY_KEY)).isEqualTo(new byte[] {0, 1, 2});
+  }
+
+  @Test
+  public void metadata_roundTripEmpty() throws Exception {
+    Metadata decoded =
+        ShmFrames.decodeMetadata(ShmFrames.encodeMetadata(new Metadata()), Integer.MAX_VALUE);
+
+    assertThat(decoded.keys()).isEmpty();
+  }
+
+  @Test
+  public void metadata_tooLarge() throws Exception {
+    Metadata metadata = new Metadata();
+    metadata.put(ASCII_KEY, "value");
+    byte[] payload = ShmFrames.encodeMetadata(metadata);
+    // "ascii" and "value" plus the 32 bytes of per-entry overhead
+    int size = 5 + 5 + 32;
+
+    assertThat(ShmFrames.decodeMetadata(payload, size)).isNotNull();
+    assertThat(ShmFrames.decodeMetadata(payload, size - 1)).isNull();
+  }
+
+  @Test
+  public void status_roundTrip() throws Exception {
+    Status decoded = ShmFrames.decodeStatus(
+        ShmFrames.encodeStatus(Status.UNAVAILABLE.withDescription("gone")));
+
+    assertThat(decoded.getCode()).isEqualTo(Status.Code.UNAVAILABLE);
+    assertThat(decoded.getDescription()).isEqualTo("gone");
+  }
+
+  @Test
+  public void status_roundTripWithoutDescription() throws Exception {
+    Status decoded = ShmFrames.decodeStatus(ShmFrames.encodeStatus(Status.CANCELLED));
+
+    assertThat(decoded.getCode()).isEqualTo(Status.Code.CANCELLED);
+    assertThat(decoded.getDescription()).isNull();
+  }
+
+  @Test
+  public void intAndLong_roundTrip() throws Exception {
+    assertThat(ShmFrames.decodeInt(ShmFrames.encodeInt(-2))).isEqualTo(-2);
+    assertThat(ShmFrames.decodeLong(ShmFrames.encodeLong(0x0123456789abcdefL)))
+        .isEqualTo(0x0123456789abcdefL);
+    assertThat(ShmFrames.decodeLong(ShmFrames.encodeLong(-1L))).isEqualTo(-1L);
+  }
+
+  @Test
+  public void intAndLong_wrongLength() {
+    assertThrows(ShmFrames.ProtocolException.class, () -> ShmFrames.decodeInt(new byte[3]));
+    assertThrows(ShmFrames.ProtocolException.class, () -> ShmFrames.decodeInt(new byte[5]));
+    assertThrows(ShmFrames.ProtocolException.class, () -> ShmFrames.decodeLong(new byte[4]));
+  }
+
+  @Test
+  public void status_truncated() {
+    byte[] payload = ShmFrames.encodeStatus(Status.INTERNAL.withDescription("description"));
+
+    for (int length = 0; length < payload.length; length++) {
+      byte[] truncated = Arrays.copyOf(payload, length);
+      assertThrows(ShmFrames.ProtocolException.class, () -> ShmFrames.decodeStatus(truncated));
+    }
+  }
+
+  @Test
+  public void requestHeaders_truncated() {
+    Metadata headers = new Metadata();
+    headers.put(ASCII_KEY, "value");
+    byte[] payload = ShmFrames.encodeRequestHeaders("service/method", "authority", headers);
+
+    for (int length = 0; length < payload.length; length++) {
+      byte[] truncated = Arrays.copyOf(payload, length);
+      assertThrows(ShmFrames.ProtocolException.class,
+          () -> ShmFrames.decodeRequestHeaders(truncated, Integer.MAX_VALUE));
+    }
+  }
+
+  @Test
+  public void negativeLength() {
+    byte[] payload = {0, 0, 0, 0, (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff};
+
+    assertThrows(ShmFrames.ProtocolException.class, () -> ShmFrames.decodeStatus(payload));
+  }
+
+  @Test
+  public void metadata_invalidEntryCount() {
+    // Claims more entries than the payload could hold
+    byte[] payload = {0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0};
+
+    assertThrows(ShmFrames.ProtocolException.class,
+        () -> ShmFrames.decodeMetadata(payload, Integer.MAX_VALUE));
+    assertThrows(ShmFrames.ProtocolException.class,
+        () -> ShmFrames.decodeMetadata(ShmFrames.encodeInt(-1), Integer.MAX_VALUE));
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertThrows;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link ShmRing}. */
+@RunWith(JUnit4.class)
+public class ShmRingTest {
+  private static final int CAPACITY = 64;
+
+  private final ByteBuffer memory = ByteBuffer.allocateDirect(ShmRing.size(CAPACITY));
+  // Separate views, like the two processes sharing the memory
+  private final ShmRing producer = new ShmRing(memory, 0, CAPACITY);
+  private final ShmRing consumer = new ShmRing(memory, 0, CAPACITY);
+
+  @Test
+  public void invalidCapacity() {
+    assertThrows(IllegalArgumentException.class, () -> new ShmRing(memory, 0, 48));
+    assertThrows(IllegalArgumentException.class, () -> new ShmRing(memory, 32, CAPACITY));
+    assertThrows(IllegalArgumentException.class, () -> new ShmRing(memory, 64, CAPACITY));
+  }
+
+  @Test
+  public void emptyRing() {
+    assertThat(consumer.canRead(1)).isFalse();
+    assertThat(producer.canWrite(CAPACITY)).isTrue();
+    assertThat(producer.canWrite(CAPACITY + 1)).isFalse();
+    assertThat(producer.publishedFreeBytes()).isEqualTo(CAPACITY);
+  }
+
+  @Test
+  public void fullRing() {
+    producer.write(bytes(0, CAPACITY), 0, CAPACITY);
+    producer.publish();
+
+    assertThat(producer.canWrite(1)).isFalse();
+    assertThat(producer.publishedFreeBytes()).isEqualTo(0);
+    assertThat(consumer.canRead(CAPACITY)).isTrue();
+    assertThat(consumer.canRead(CAPACITY + 1)).isFalse();
+
+    byte[] read = new byte[CAPACITY];
+    consumer.read(read, 0, CAPACITY);
+    assertThat(read).isEqualTo(bytes(0, CAPACITY));
+    // Reading does not free the space until it is released
+    assertThat(producer.canWrite(1)).isFalse();
+
+    consumer.release();
+    assertThat(producer.canWrite(CAPACITY)).isTrue();
+    assertThat(consumer.canRead(1)).isFalse();
+  }
+
+  @Test
+  public void wraparound() {
+    byte[] read = new byte[40];
+    for (int i = 0; i < 10; i++) {
+      // 40 bytes at a time, so most writes and reads straddle the end of the data area
+      assertThat(producer.canWrite(40)).isTrue();
+      producer.write(bytes(i, 40), 0, 40);
+      producer.publish();
+
+      assertThat(consumer.canRead(40)).isTrue();
+      consumer.read(read, 0, 40);
+      consumer.release();
+      assertThat(read).isEqualTo(bytes(i, 40));
+    }
+    assertThat(consumer.canRead(1)).isFalse();
+  }
+
+  @Test
+  public void wraparound_partialSlices() {
+    byte[] src = bytes(7, 50);
+    producer.write(src, 0, 50);
+    producer.publish();
+    consumer.read(new byte[50], 0, 50);
+    consumer.release();
+
+    producer.write(src, 10, 30);
+    producer.publish();
+
+    byte[] read = new byte[34];
+    consumer.read(read, 2, 30);
+    byte[] expected = new byte[34];
+    System.arraycopy(src, 10, expected, 2, 30);
+    assertThat(read).isEqualTo(expected);
+  }
+
+  @Test
+  public void writesInvisibleUntilPublished() {
+    producer.write(bytes(0, 8), 0, 8);
+
+    assertThat(consumer.canRead(1)).isFalse();
+    assertThat(producer.publishedFreeBytes()).isEqualTo(CAPACITY);
+
+    producer.write(bytes(8, 8), 0, 8);
+    producer.publish();
+
+    assertThat(consumer.canRead(16)).isTrue();
+    assertThat(producer.publishedFreeBytes()).isEqualTo(CAPACITY - 16);
+    byte[] read = new byte[16];
+    consumer.read(read, 0, 16);
+    assertThat(read).isEqualTo(concat(bytes(0, 8), bytes(8, 8)));
+  }
+
+  @Test
+  public void newViewSeesPublishedState() {
+    producer.write(bytes(0, 24), 0, 24);
+    producer.publish();
+    consumer.read(new byte[8], 0, 8);
+    consumer.release();
+
+    ShmRing reopened = new ShmRing(memory, 0, CAPACITY);
+    assertThat(reopened.canRead(16)).isTrue();
+    assertThat(reopened.canRead(17)).isFalse();
+    byte[] read = new byte[16];
+    reopened.read(read, 0, 16);
+    assertThat(read).isEqualTo(Arrays.copyOfRange(bytes(0, 24), 8, 24));
+  }
+
+  @Test
+  public void close() {
+    assertThat(consumer.isClosed()).isFalse();
+
+    producer.close();
+
+    assertThat(consumer.isClosed()).isTrue();
+  }
+
+  /** Returns {@code length} bytes counting up from {@code seed}. */
+  private static byte[] bytes(int seed, int length) {
+    byte[] bytes = new byte[length];
+    for (int i = 0; i < length; i++) {
+      bytes[i] = (byte) (seed * 31 + i);
+    }
+    return bytes;
+  }
+
+  private static byte[] concat(byte[] a, byte[] b) {
+    byte[] result = new byte[a.length + b.length];
+    System.arraycopy(a, 0, result, 0, a.length);
+    System.arraycopy(b, 0, result, a.length, b.length);
+    return result;
+  }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.shm;
+
+import io.grpc.ServerStreamTracer;
+import io.grpc.internal.AbstractTransportTest;
+import io.grpc.internal.ClientTransportFactory;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.InternalServer;
+import io.grpc.internal.ManagedClientTransport;
+import java.io.File;
+import java.util.List;
+import org.junit.After;
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for the shared-memory transport. */
+@RunWith(JUnit4.class)
+public class ShmTransportTest extends AbstractTransportTest {
+  @Rule public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private ClientTransportFactory clientFactory =
+      ShmChannelBuilder
+          // Although specified here, path is ignored because we never call build.
+          .forPath("unused")
+          .setTransportTracerFactory(fakeClockTransportTracer)
+          .maxInboundMetadataSize(GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE)
+          .buildTransportFactory();
+
+  @After
+  public void releaseClientFactory() {
+    clientFactory.close();
+  }
+
+  @Override
+  protected InternalServer newServer(
+      List<ServerStreamTracer.Factory> streamTracerFactories) {
+    return newServer(0, streamTracerFactories);
+  }
+
+  @Override
+  protected InternalServer newServer(
+      int port, List<ServerStreamTracer.Factory> streamTracerFactories) {
+    // There are no ports; every server in a test shares one directory, so a second server
+    // conflicts with the first just like a second server on the same port would.
+    return ShmServerBuilder
+        .forPath(new File(tempFolder.getRoot(), "server").getPath())
+        .flowControlWindow(AbstractTransportTest.TEST_FLOW_CONTROL_WINDOW)
+        .maxInboundMetadataSize(GrpcUtil.DEFAULT_MAX_HEADER_LIST_SIZE)
+        .setTransportTracerFactory(fakeClockTransportTracer)
+        .buildTransportServers(streamTracerFactories);
+  }
+
+  @Override
+  protected String testAuthority(InternalServer server) {
+    return "a-testing-authority";
+  }
+
+  @Override
+  protected ManagedClientTransport newClientTransport(InternalServer server) {
+    return clientFactory.newClientTransport(
+        server.getListenSocketAddress(),
+        new ClientTransportFactory.ClientTransportOptions()
+          .setAuthority(testAuthority(server))
+          .setEagAttributes(eagAttrs()),
+        transportLogger());
+  }
+
+  @Test
+  @Ignore
+  @Override
+  public void socketStats() throws Exception {
+    // test does not apply to shared memory
+  }
+}
@@ -131,4 +131,20 @@ public abstract class CallStreamObserver<V> implements StreamObserver<V> {
    * @param enable whether to enable compression.
    */
   public abstract void setMessageCompression(boolean enable);
+
+  /**
+   * Sends several values, in order, as if by calling {@link #onNext} for each of them. Where
+   * supported, the values are framed together and the transport is flushed once after the last
+   * value instead of once per value. This is useful for streams that produce bursts of small
+   * messages.
+   *
+   * <p>The default implementation calls {@link #onNext} for each value.
+   *
+   * @param values the values to send.
+   */
+  public void onNextAll(Iterable<? extends V> values) {
+    for (V value : values) {
+      onNext(value);
+    }
+  }
 }
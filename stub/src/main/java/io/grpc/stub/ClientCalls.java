@@ -151,8 +151,9 @@ public final class ClientCalls {
         callOptions.withOption(ClientCalls.STUB_TYPE_OPTION, StubType.BLOCKING)
             .withExecutor(executor));
     try {
-      ListenableFuture<RespT> responseFuture = futureUnaryCall(call, req);
-      while (!responseFuture.isDone()) {
+      BlockingUnaryListener<RespT> listener = new BlockingUnaryListener<>(call);
+      asyncUnaryRequestCall(call, req, listener);
+      while (!listener.closed) {
         try {
           executor.waitAndDrain();
         } catch (InterruptedException e) {
@@ -162,7 +163,7 @@ public final class ClientCalls {
         }
       }
       executor.shutdown();
-      return getUnchecked(responseFuture);
+      return listener.getResult();
     } catch (RuntimeException e) {
       // Something very bad happened. All bets are off; it may be dangerous to wait for onClose().
       throw cancelThrow(call, e);
@@ -374,6 +375,13 @@ public final class ClientCalls {
       call.sendMessage(value);
     }
 
+    @Override
+    public void onNextAll(Iterable<? extends ReqT> values) {
+      checkState(!aborted, "Stream was terminated by error, no further calls are allowed");
+      checkState(!completed, "Stream is already completed, no further calls are allowed");
+      call.sendMessages(values);
+    }
+
     @Override
     public void onError(Throwable t) {
       call.cancel("Cancelled by client with StreamObserver.onError()", t);
@@ -551,6 +559,61 @@ public final class ClientCalls {
     }
   }
 
+  /**
+   * Records the outcome of a blocking unary call. All callbacks run on the calling thread through
+   * its {@link ThreadlessExecutor}, so unlike {@link UnaryStreamToFuture} no synchronization is
+   * needed.
+   */
+  private static final class BlockingUnaryListener<RespT> extends StartableListener<RespT> {
+    private final ClientCall<?, RespT> call;
+    private RespT value;
+    private boolean isValueReceived;
+    private Status status;
+    private Metadata trailers;
+    boolean closed;
+
+    // Non private to avoid synthetic class
+    BlockingUnaryListener(ClientCall<?, RespT> call) {
+      this.call = call;
+    }
+
+    @Override
+    public void onHeaders(Metadata headers) {
+    }
+
+    @Override
+    public void onMessage(RespT value) {
+      if (this.isValueReceived) {
+        throw Status.INTERNAL.withDescription("More than one value received for unary call")
+            .asRuntimeException();
+      }
+      this.value = value;
+      this.isValueReceived = true;
+    }
+
+    @Override
+    public void onClose(Status status, Metadata trailers) {
+      if (status.isOk() && !isValueReceived) {
+        status = Status.INTERNAL.withDescription("No value received for unary call");
+      }
+      this.status = status;
+      this.trailers = trailers;
+      closed = true;
+    }
+
+    @Override
+    void onStart() {
+      call.request(2);
+    }
+
+    RespT getResult() {
+      if (!status.isOk()) {
+        throw status.asRuntimeException(trailers);
+      }
+      return value;
+    }
+  }
+
   private static final class GrpcFuture<RespT> extends AbstractFuture<RespT> {
     private final ClientCall<?, RespT> call;
 
@@ -736,7 +799,8 @@ public final class ClientCalls {
 
     /**
      * Waits until there is a Runnable, then executes it and all queued Runnables after it.
-     * Must only be called by one thread at a time.
+     * Must only be called by one thread at a time. Waits by parking rather than on a monitor, so a
+     * virtual thread releases its carrier thread while blocked here.
      */
     public void waitAndDrain() throws InterruptedException {
       throwIfInterrupted();
@@ -358,6 +358,29 @@ public final class ServerCalls {
 
     @Override
     public void onNext(RespT response) {
+      checkNotCancelledForSend();
+      checkState(!aborted, "Stream was terminated by error, no further calls are allowed");
+      checkState(!completed, "Stream is already completed, no further calls are allowed");
+      if (!sentHeaders) {
+        call.sendHeaders(new Metadata());
+        sentHeaders = true;
+      }
+      call.sendMessage(response);
+    }
+
+    @Override
+    public void onNextAll(Iterable<? extends RespT> responses) {
+      checkNotCancelledForSend();
+      checkState(!aborted, "Stream was terminated by error, no further calls are allowed");
+      checkState(!completed, "Stream is already completed, no further calls are allowed");
+      if (!sentHeaders) {
+        call.sendHeaders(new Metadata());
+        sentHeaders = true;
+      }
+      call.sendMessages(responses);
+    }
+
+    private void checkNotCancelledForSend() {
       if (cancelled) {
         if (serverStreamingOrBidi) {
           throw Status.CANCELLED
@@ -371,13 +394,6 @@ public final class ServerCalls {
           // complexity.
         }
       }
-      checkState(!aborted, "Stream was terminated by error, no further calls are allowed");
-      checkState(!completed, "Stream is already completed, no further calls are allowed");
-      if (!sentHeaders) {
-        call.sendHeaders(new Metadata());
-        sentHeaders = true;
-      }
-      call.sendMessage(response);
     }
 
     @Override
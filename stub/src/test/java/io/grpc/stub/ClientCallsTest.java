@@ -24,11 +24,13 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
 import io.grpc.CallOptions;
 import io.grpc.Channel;
@@ -52,6 +54,7 @@ import io.grpc.stub.ServerCalls.NoopStreamObserver;
 import io.grpc.stub.ServerCalls.ServerStreamingMethod;
 import io.grpc.stub.ServerCalls.UnaryMethod;
 import io.grpc.stub.ServerCallsTest.IntegerMarshaller;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
@@ -63,6 +66,7 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 import org.junit.After;
 import org.junit.Before;
@@ -288,6 +292,141 @@ public class ClientCallsTest {
         .isEquivalentAccordingToCompareTo(StubType.BLOCKING);
   }
 
+  @Test
+  public void blockingUnaryCall_platformThreadUsesThreadlessExecutor() {
+    NoopClientCall<Integer, Integer> call = new NoopClientCall<Integer, Integer>() {
+      @Override
+      public void start(io.grpc.ClientCall.Listener<Integer> listener, Metadata headers) {
+        listener.onMessage(1);
+        listener.onClose(Status.OK, new Metadata());
+      }
+    };
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), any(CallOptions.class)))
+        .thenReturn(call);
+
+    Integer unused =
+        ClientCalls.blockingUnaryCall(mockChannel, UNARY_METHOD, CallOptions.DEFAULT, 1);
+
+    verify(mockChannel).newCall(methodDescriptorCaptor.capture(), callOptionsCaptor.capture());
+    assertNotNull(callOptionsCaptor.getValue().getExecutor());
+    assertThat(callOptionsCaptor.getValue().getExecutor())
+        .isNotSameInstanceAs(MoreExecutors.directExecutor());
+  }
+
+  @Test
+  public void blockingUnaryCall_dropsCallbacksOfPreviousCall() {
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), any(CallOptions.class)))
+        .thenReturn(new RespondingClientCall(1));
+    Integer unused =
+        ClientCalls.blockingUnaryCall(mockChannel, UNARY_METHOD, CallOptions.DEFAULT, 1);
+    verify(mockChannel).newCall(methodDescriptorCaptor.capture(), callOptionsCaptor.capture());
+    final Executor previousExecutor = callOptionsCaptor.getValue().getExecutor();
+    final AtomicBoolean lateCallbackRan = new AtomicBoolean();
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), any(CallOptions.class)))
+        .thenReturn(new RespondingClientCall(2) {
+          @Override
+          public void start(io.grpc.ClientCall.Listener<Integer> listener, Metadata headers) {
+            previousExecutor.execute(() -> lateCallbackRan.set(true));
+            super.start(listener, headers);
+          }
+        });
+
+    assertEquals(
+        Integer.valueOf(2),
+        ClientCalls.blockingUnaryCall(mockChannel, UNARY_METHOD, CallOptions.DEFAULT, 1));
+    assertFalse(lateCallbackRan.get());
+  }
+
+  @Test
+  public void blockingUnaryCall_noValueReceived() {
+    NoopClientCall<Integer, Integer> call = new NoopClientCall<Integer, Integer>() {
+      @Override
+      public void start(io.grpc.ClientCall.Listener<Integer> listener, Metadata headers) {
+        listener.onClose(Status.OK, new Metadata());
+      }
+    };
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), any(CallOptions.class)))
+        .thenReturn(call);
+
+    try {
+      ClientCalls.blockingUnaryCall(mockChannel, UNARY_METHOD, CallOptions.DEFAULT, 1);
+      fail("Should fail");
+    } catch (StatusRuntimeException e) {
+      assertEquals(Status.Code.INTERNAL, e.getStatus().getCode());
+      assertEquals("No value received for unary call", e.getStatus().getDescription());
+    }
+  }
+
+  private static class RespondingClientCall extends NoopClientCall<Integer, Integer> {
+    private final int response;
+
+    RespondingClientCall(int response) {
+      this.response = response;
+    }
+
+    @Override
+    public void start(io.grpc.ClientCall.Listener<Integer> listener, Metadata headers) {
+      listener.onMessage(response);
+      listener.onClose(Status.OK, new Metadata());
+    }
+  }
+
+  @Test
+  public void blockingUnaryCall_virtualThreadUsesThreadlessExecutor() throws Exception {
+    Method startVirtualThread;
+    try {
+      startVirtualThread = Thread.class.getMethod("startVirtualThread", Runnable.class);
+    } catch (NoSuchMethodException e) {
+      startVirtualThread = null;
+    }
+    assumeTrue("Virtual threads require Java 21", startVirtualThread != null);
+    final AtomicReference<Thread> callbackThread = new AtomicReference<>();
+    NoopClientCall<Integer, Integer> call = new NoopClientCall<Integer, Integer>() {
+      @Override
+      public void start(final io.grpc.ClientCall.Listener<Integer> listener, Metadata headers) {
+        // Deliver from another thread, as a transport would.
+        new Thread(new Runnable() {
+          @Override
+          public void run() {
+            callOptionsCaptor.getValue().getExecutor().execute(new Runnable() {
+              @Override
+              public void run() {
+                callbackThread.set(Thread.currentThread());
+                listener.onMessage(1);
+                listener.onClose(Status.OK, new Metadata());
+              }
+            });
+          }
+        }).start();
+      }
+    };
+    when(mockChannel.newCall(
+        ArgumentMatchers.<MethodDescriptor<Integer, Integer>>any(), callOptionsCaptor.capture()))
+        .thenReturn(call);
+    final AtomicReference<Integer> response = new AtomicReference<>();
+    final AtomicReference<Thread> callerThread = new AtomicReference<>();
+
+    Thread thread = (Thread) startVirtualThread.invoke(null, new Runnable() {
+      @Override
+      public void run() {
+        callerThread.set(Thread.currentThread());
+        response.set(
+            ClientCalls.blockingUnaryCall(mockChannel, UNARY_METHOD, CallOptions.DEFAULT, 1));
+      }
+    });
+    thread.join(TimeUnit.SECONDS.toMillis(5));
+
+    assertEquals(Integer.valueOf(1), response.get());
+    assertThat(callOptionsCaptor.getValue().getExecutor())
+        .isNotSameInstanceAs(MoreExecutors.directExecutor());
+    // Callbacks still run on the caller, not on the thread that delivered them
+    assertSame(callerThread.get(), callbackThread.get());
+  }
+
   @Test
   public void blockingServerStreamingCall_HasBlockingStubType() {
     NoopClientCall<Integer, Integer> call = new NoopClientCall<Integer, Integer>() {
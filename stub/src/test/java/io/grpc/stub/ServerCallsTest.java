@@ -43,6 +43,7 @@ import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Semaphore;
@@ -530,6 +531,27 @@ public class ServerCallsTest {
     listener.onHalfClose();
   }
 
+  @Test
+  public void onNextAllSendsBatchToCall() {
+    ServerCallRecorder serverCall = new ServerCallRecorder(SERVER_STREAMING_METHOD);
+    ServerCallHandler<Integer, Integer> callHandler =
+        ServerCalls.asyncServerStreamingCall(
+            new ServerCalls.ServerStreamingMethod<Integer, Integer>() {
+              @Override
+              public void invoke(Integer req, StreamObserver<Integer> responseObserver) {
+                ((ServerCallStreamObserver<Integer>) responseObserver)
+                    .onNextAll(Arrays.asList(req, req + 1, req + 2));
+                responseObserver.onCompleted();
+              }
+            });
+    ServerCall.Listener<Integer> listener = callHandler.startCall(serverCall, new Metadata());
+    listener.onMessage(1);
+    listener.onHalfClose();
+    assertThat(serverCall.responses).containsExactly(1, 2, 3).inOrder();
+    assertEquals(1, serverCall.batches);
+    assertEquals(Status.Code.OK, serverCall.status.getCode());
+  }
+
   @Test
   public void inprocessTransportManualFlow() throws Exception {
     final Semaphore semaphore = new Semaphore(1);
@@ -623,6 +645,7 @@ public class ServerCallsTest {
     private final MethodDescriptor<Integer, Integer> methodDescriptor;
     private final List<Integer> requestCalls = new ArrayList<>();
     private final List<Integer> responses = new ArrayList<>();
+    private int batches;
     private Status status;
     private boolean isCancelled;
     private boolean isReady;
@@ -645,6 +668,12 @@ public class ServerCallsTest {
       this.responses.add(message);
     }
 
+    @Override
+    public void sendMessages(Iterable<? extends Integer> messages) {
+      batches++;
+      super.sendMessages(messages);
+    }
+
     @Override
     public void close(Status status, Metadata trailers) {
       this.status = status;
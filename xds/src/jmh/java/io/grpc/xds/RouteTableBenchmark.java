@@ -0,0 +1,147 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import com.google.common.collect.ImmutableMap;
+import io.grpc.Metadata;
+import io.grpc.xds.VirtualHost.Route;
+import io.grpc.xds.VirtualHost.Route.RouteAction;
+import io.grpc.xds.VirtualHost.Route.RouteMatch;
+import io.grpc.xds.VirtualHost.Route.RouteMatch.PathMatcher;
+import io.grpc.xds.internal.Matchers.HeaderMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmark for selecting the route of an RPC with {@link RouteTable}, compared with trying the
+ * routes in order.
+ *
+ * <p>The route table looks like one generated for many services: a route per method, with a
+ * header matched canary route for some of them, a route per service prefix, and a catch-all
+ * route.
+ */
+@State(Scope.Benchmark)
+public class RouteTableBenchmark {
+  private static final int METHODS_PER_SERVICE = 10;
+
+  @Param({"10", "100", "1000"})
+  public int routeCount;
+
+  private final Metadata headers = new Metadata();
+  private final ThreadSafeRandom random = ThreadSafeRandom.ThreadSafeRandomImpl.instance;
+  private List<Route> routes;
+  private RouteTable routeTable;
+  private String lastMethod;
+  private String unknownMethod;
+
+  /**
+   * Builds the route table.
+   */
+  @Setup
+  public void setUp() {
+    routes = new ArrayList<>();
+    RouteAction action = RouteAction.forCluster(
+        "cluster", Collections.<RouteAction.HashPolicy>emptyList(), null, null);
+    ImmutableMap<String, FilterConfig> noOverrides = ImmutableMap.of();
+    List<HeaderMatcher> canaryHeader = Collections.singletonList(
+        HeaderMatcher.forExactValue("x-canary", "true", false));
+    List<HeaderMatcher> noHeaders = Collections.emptyList();
+    for (int service = 0; routes.size() < routeCount - 1; service++) {
+      String serviceName = "/com.example.service" + service + ".Service/";
+      for (int method = 0; method < METHODS_PER_SERVICE && routes.size() < routeCount - 2;
+          method++) {
+        String path = serviceName + "Method" + method;
+        if (method % 3 == 0) {
+          routes.add(Route.forAction(
+              RouteMatch.create(PathMatcher.fromPath(path, true), canaryHeader, null),
+              action, noOverrides));
+        }
+        routes.add(Route.forAction(
+            RouteMatch.create(PathMatcher.fromPath(path, true), noHeaders, null),
+            action, noOverrides));
+        lastMethod = path;
+      }
+      routes.add(Route.forAction(
+          RouteMatch.create(PathMatcher.fromPrefix(serviceName, true), noHeaders, null),
+          action, noOverrides));
+    }
+    routes.add(Route.forAction(
+        RouteMatch.create(PathMatcher.fromPrefix("", true), noHeaders, null),
+        action, noOverrides));
+    routeTable = RouteTable.create(routes);
+    unknownMethod = "/com.example.Unknown/Method";
+  }
+
+  /**
+   * Selects the route of the last method of the table with a linear scan.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Route linearScan_lastMethod() {
+    return linearScan(lastMethod);
+  }
+
+  /**
+   * Selects the route of the last method of the table with the route table.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Route routeTable_lastMethod() {
+    return routeTable.match(lastMethod, headers, random);
+  }
+
+  /**
+   * Selects the catch-all route with a linear scan.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Route linearScan_unknownMethod() {
+    return linearScan(unknownMethod);
+  }
+
+  /**
+   * Selects the catch-all route with the route table.
+   */
+  @Benchmark
+  @BenchmarkMode(Mode.AverageTime)
+  @OutputTimeUnit(TimeUnit.NANOSECONDS)
+  public Route routeTable_unknownMethod() {
+    return routeTable.match(unknownMethod, headers, random);
+  }
+
+  private Route linearScan(String fullMethodName) {
+    for (Route route : routes) {
+      if (XdsNameResolver.matchRoute(route.routeMatch(), fullMethodName, headers, random)) {
+        return route;
+      }
+    }
+    return null;
+  }
+}
@@ -26,8 +26,11 @@ import com.google.common.base.Supplier;
 import com.google.protobuf.Any;
 import com.google.rpc.Code;
 import io.envoyproxy.envoy.service.discovery.v3.AggregatedDiscoveryServiceGrpc;
+import io.envoyproxy.envoy.service.discovery.v3.DeltaDiscoveryRequest;
+import io.envoyproxy.envoy.service.discovery.v3.DeltaDiscoveryResponse;
 import io.envoyproxy.envoy.service.discovery.v3.DiscoveryRequest;
 import io.envoyproxy.envoy.service.discovery.v3.DiscoveryResponse;
+import io.envoyproxy.envoy.service.discovery.v3.Resource;
 import io.grpc.Channel;
 import io.grpc.Context;
 import io.grpc.InternalLogId;
@@ -45,10 +48,12 @@ import io.grpc.xds.XdsClient.ResourceStore;
 import io.grpc.xds.XdsClient.XdsResponseHandler;
 import io.grpc.xds.XdsClientImpl.XdsChannelFactory;
 import io.grpc.xds.XdsLogger.XdsLogLevel;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -79,6 +84,14 @@ final class AbstractXdsClient {
   // A version_info is used to update management server with client's most recent knowledge of
   // resources.
   private final Map<XdsResourceType<?>, String> versions = new HashMap<>();
+  // Delta xDS only: the version of each resource accepted, for each resource type. Sent back
+  // when the stream is restarted, so that the server only resends the resources that changed.
+  private final Map<XdsResourceType<?>, Map<String, String>> resourceVersions = new HashMap<>();
+  // Delta xDS only: the resource versions in the response being validated, for each resource type.
+  // Only recorded in resourceVersions once the response is ACKed, so that a rejected version is
+  // never reported to the server as one the client has.
+  private final Map<XdsResourceType<?>, PendingResourceVersions> pendingResourceVersions =
+      new HashMap<>();
 
   private boolean shutdown;
   @Nullable
@@ -161,6 +174,9 @@ final class AbstractXdsClient {
     Collection<String> resources = resourceStore.getSubscribedResources(serverInfo, resourceType);
     if (resources != null) {
       adsStream.sendDiscoveryRequest(resourceType, resources);
+    } else if (serverInfo.useDeltaProtocol()) {
+      // Delta xDS streams must unsubscribe from the last resource explicitly.
+      adsStream.sendDiscoveryRequest(resourceType, Collections.<String>emptyList());
     }
   }
 
@@ -171,6 +187,15 @@ final class AbstractXdsClient {
   // Must be synchronized.
   void ackResponse(XdsResourceType<?> type, String versionInfo, String nonce) {
     versions.put(type, versionInfo);
+    PendingResourceVersions pending = pendingResourceVersions.remove(type);
+    if (pending != null && pending.nonce.equals(nonce)) {
+      Map<String, String> typeVersions = resourceVersions.get(type);
+      if (typeVersions == null) {
+        typeVersions = new HashMap<>();
+        resourceVersions.put(type, typeVersions);
+      }
+      typeVersions.putAll(pending.versions);
+    }
     logger.log(XdsLogLevel.INFO, "Sending ACK for {0} update, nonce: {1}, current version: {2}",
         type.typeName(), nonce, versionInfo);
     Collection<String> resources = resourceStore.getSubscribedResources(serverInfo, type);
@@ -186,6 +211,7 @@ final class AbstractXdsClient {
    */
   // Must be synchronized.
   void nackResponse(XdsResourceType<?> type, String nonce, String errorDetail) {
+    pendingResourceVersions.remove(type);
     String versionInfo = versions.getOrDefault(type, "");
     logger.log(XdsLogLevel.INFO, "Sending NACK for {0} update, nonce: {1}, current version: {2}",
         type.typeName(), nonce, versionInfo);
@@ -227,7 +253,9 @@ final class AbstractXdsClient {
   // Must be synchronized.
   private void startRpcStream() {
     checkState(adsStream == null, "Previous adsStream has not been cleared yet");
-    if (serverInfo.useProtocolV3()) {
+    if (serverInfo.useDeltaProtocol()) {
+      adsStream = new DeltaAdsStreamV3();
+    } else if (serverInfo.useProtocolV3()) {
       adsStream = new AdsStreamV3();
     } else {
       adsStream = new AdsStreamV2();
@@ -297,7 +325,7 @@ final class AbstractXdsClient {
     /**
      * Sends a client-initiated discovery request.
      */
-    final void sendDiscoveryRequest(XdsResourceType<?> type, Collection<String> resources) {
+    void sendDiscoveryRequest(XdsResourceType<?> type, Collection<String> resources) {
       logger.log(XdsLogLevel.INFO, "Sending {0} request for resources: {1}", type, resources);
       sendDiscoveryRequest(type, versions.getOrDefault(type, ""), resources,
           respNonces.getOrDefault(type, ""), null);
@@ -315,6 +343,38 @@ final class AbstractXdsClient {
       xdsResponseHandler.handleResourceResponse(type, serverInfo, versionInfo, resources, nonce);
     }
 
+    final void handleDeltaRpcResponse(XdsResourceType<?> type, String systemVersionInfo,
+                                      List<Resource> resources, List<String> removedResources,
+                                      String nonce) {
+      if (closed) {
+        return;
+      }
+      responseReceived = true;
+      List<Any> unpackedResources = new ArrayList<>(resources.size());
+      for (Resource resource : resources) {
+        if (resource.hasResource()) {
+          unpackedResources.add(resource.getResource());
+        }
+      }
+      if (type != null) {
+        respNonces.put(type, nonce);
+        Map<String, String> receivedVersions = new HashMap<>();
+        for (Resource resource : resources) {
+          if (!resource.getName().isEmpty()) {
+            receivedVersions.put(resource.getName(), resource.getVersion());
+          }
+        }
+        pendingResourceVersions.put(type, new PendingResourceVersions(nonce, receivedVersions));
+        // Removals are not validated, the resources are dropped whether or not the rest is ACKed.
+        Map<String, String> typeVersions = resourceVersions.get(type);
+        if (typeVersions != null) {
+          typeVersions.keySet().removeAll(removedResources);
+        }
+      }
+      xdsResponseHandler.handleDeltaResourceResponse(
+          type, serverInfo, systemVersionInfo, unpackedResources, removedResources, nonce);
+    }
+
     final void handleRpcError(Throwable t) {
       handleRpcStreamClosed(Status.fromThrowable(t));
     }
@@ -552,4 +612,158 @@ final class AbstractXdsClient {
       requestWriter.onError(error);
     }
   }
+
+  private static final class PendingResourceVersions {
+    final String nonce;
+    final Map<String, String> versions;
+
+    PendingResourceVersions(String nonce, Map<String, String> versions) {
+      this.nonce = nonce;
+      this.versions = versions;
+    }
+  }
+
+  /**
+   * An ADS stream speaking the incremental variant of the protocol. Subscriptions are sent as
+   * changes to the previous ones, and responses only carry the resources that changed.
+   */
+  private final class DeltaAdsStreamV3 extends AbstractAdsStream {
+    private StreamObserver<DeltaDiscoveryRequest> requestWriter;
+    private boolean nodeSent;
+    // The resources subscribed to on this stream, for each resource type.
+    private final Map<XdsResourceType<?>, Set<String>> subscribedResources = new HashMap<>();
+
+    @Override
+    public boolean isReady() {
+      return requestWriter != null && ((ClientCallStreamObserver<?>) requestWriter).isReady();
+    }
+
+    @Override
+    void start() {
+      AggregatedDiscoveryServiceGrpc.AggregatedDiscoveryServiceStub stub =
+          AggregatedDiscoveryServiceGrpc.newStub(channel);
+      StreamObserver<DeltaDiscoveryResponse> responseReader =
+          new ClientResponseObserver<DeltaDiscoveryRequest, DeltaDiscoveryResponse>() {
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<DeltaDiscoveryRequest> requestStream) {
+          requestStream.setOnReadyHandler(AbstractXdsClient.this::readyHandler);
+        }
+
+        @Override
+        public void onNext(final DeltaDiscoveryResponse response) {
+          syncContext.execute(new Runnable() {
+            @Override
+            public void run() {
+              XdsResourceType<?> type = fromTypeUrl(response.getTypeUrl());
+              if (logger.isLoggable(XdsLogLevel.DEBUG)) {
+                logger.log(
+                    XdsLogLevel.DEBUG, "Received {0} delta response:\n{1}", type,
+                    MessagePrinter.print(response));
+              }
+              handleDeltaRpcResponse(type, response.getSystemVersionInfo(),
+                  response.getResourcesList(), response.getRemovedResourcesList(),
+                  response.getNonce());
+            }
+          });
+        }
+
+        @Override
+        public void onError(final Throwable t) {
+          syncContext.execute(new Runnable() {
+            @Override
+            public void run() {
+              handleRpcError(t);
+            }
+          });
+        }
+
+        @Override
+        public void onCompleted() {
+          syncContext.execute(new Runnable() {
+            @Override
+            public void run() {
+              handleRpcCompleted();
+            }
+          });
+        }
+      };
+      requestWriter = stub.withWaitForReady().deltaAggregatedResources(responseReader);
+    }
+
+    @Override
+    void sendDiscoveryRequest(XdsResourceType<?> type, Collection<String> resources) {
+      // Unlike with state of the world, a nonce would make this an ACK of that response.
+      logger.log(XdsLogLevel.INFO, "Sending {0} request for resources: {1}", type, resources);
+      sendDiscoveryRequest(type, "", resources, "", null);
+    }
+
+    /**
+     * Sends the changes from the previous subscription to {@code resources}, along with the ACK
+     * or NACK of the response with the given {@code nonce}, if any. The version is not used, as
+     * the server tracks the version of each resource.
+     */
+    @Override
+    void sendDiscoveryRequest(XdsResourceType<?> type, String unusedVersionInfo,
+                              Collection<String> resources, String nonce,
+                              @Nullable String errorDetail) {
+      checkState(requestWriter != null, "ADS stream has not been started");
+      Set<String> previous = subscribedResources.get(type);
+      if (previous == null && resources.isEmpty()) {
+        // The first request of a type without resources would subscribe to all of them.
+        return;
+      }
+      Set<String> current = new LinkedHashSet<>(resources);
+      DeltaDiscoveryRequest.Builder builder =
+          DeltaDiscoveryRequest.newBuilder()
+              .setTypeUrl(type.typeUrl())
+              .setResponseNonce(nonce);
+      if (!nodeSent) {
+        builder.setNode(bootstrapNode.toEnvoyProtoNode());
+        nodeSent = true;
+      }
+      Map<String, String> typeVersions = resourceVersions.get(type);
+      if (previous == null) {
+        builder.addAllResourceNamesSubscribe(current);
+        if (typeVersions != null) {
+          typeVersions.keySet().retainAll(current);
+          builder.putAllInitialResourceVersions(typeVersions);
+        }
+      } else {
+        for (String resource : current) {
+          if (!previous.contains(resource)) {
+            builder.addResourceNamesSubscribe(resource);
+          }
+        }
+        for (String resource : previous) {
+          if (!current.contains(resource)) {
+            builder.addResourceNamesUnsubscribe(resource);
+            if (typeVersions != null) {
+              typeVersions.remove(resource);
+            }
+          }
+        }
+      }
+      subscribedResources.put(type, current);
+      if (errorDetail != null) {
+        com.google.rpc.Status error =
+            com.google.rpc.Status.newBuilder()
+                .setCode(Code.INVALID_ARGUMENT_VALUE)
+                .setMessage(errorDetail)
+                .build();
+        builder.setErrorDetail(error);
+      }
+      DeltaDiscoveryRequest request = builder.build();
+      requestWriter.onNext(request);
+      if (logger.isLoggable(XdsLogLevel.DEBUG)) {
+        logger.log(
+            XdsLogLevel.DEBUG, "Sent DeltaDiscoveryRequest\n{0}", MessagePrinter.print(request));
+      }
+    }
+
+    @Override
+    void sendError(Exception error) {
+      requestWriter.onError(error);
+    }
+  }
 }
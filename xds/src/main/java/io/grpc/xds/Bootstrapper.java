@@ -64,11 +64,17 @@ public abstract class Bootstrapper {
 
     abstract boolean ignoreResourceDeletion();
 
+    /**
+     * Whether to use the incremental (delta) variant of the xDS protocol, in which the server only
+     * sends the resources that changed. Only supported with protocol v3.
+     */
+    abstract boolean useDeltaProtocol();
+
     @VisibleForTesting
     static ServerInfo create(
         String target, ChannelCredentials channelCredentials, boolean useProtocolV3) {
       return new AutoValue_Bootstrapper_ServerInfo(target, channelCredentials, useProtocolV3,
-          false);
+          false, false);
     }
 
     @VisibleForTesting
@@ -76,7 +82,16 @@ public abstract class Bootstrapper {
         String target, ChannelCredentials channelCredentials, boolean useProtocolV3,
         boolean ignoreResourceDeletion) {
       return new AutoValue_Bootstrapper_ServerInfo(target, channelCredentials, useProtocolV3,
-          ignoreResourceDeletion);
+          ignoreResourceDeletion, false);
+    }
+
+    @VisibleForTesting
+    static ServerInfo create(
+        String target, ChannelCredentials channelCredentials, boolean useProtocolV3,
+        boolean ignoreResourceDeletion, boolean useDeltaProtocol) {
+      checkArgument(useProtocolV3 || !useDeltaProtocol, "delta xDS requires protocol v3");
+      return new AutoValue_Bootstrapper_ServerInfo(target, channelCredentials, useProtocolV3,
+          ignoreResourceDeletion, useDeltaProtocol);
     }
   }
 
@@ -201,6 +216,15 @@ public abstract class Bootstrapper {
      */
     abstract ImmutableMap<String, AuthorityInfo> authorities();
 
+    /**
+     * Path of a local file in which the last known good xDS resources are kept across process
+     * restarts. On startup they are served, marked as cached, while the ADS stream resyncs.
+     *
+     * <p>There is no default; if unset, resources are not persisted.
+     */
+    @Nullable
+    abstract String resourceCacheFile();
+
     @VisibleForTesting
     static Builder builder() {
       return new AutoValue_Bootstrapper_BootstrapInfo.Builder()
@@ -226,6 +250,8 @@ public abstract class Bootstrapper {
 
       abstract Builder authorities(Map<String, AuthorityInfo> authorities);
 
+      abstract Builder resourceCacheFile(@Nullable String resourceCacheFile);
+
       abstract BootstrapInfo build();
     }
   }
@@ -70,6 +70,8 @@ class BootstrapperImpl extends Bootstrapper {
   // Server features.
   private static final String SERVER_FEATURE_XDS_V3 = "xds_v3";
   private static final String SERVER_FEATURE_IGNORE_RESOURCE_DELETION = "ignore_resource_deletion";
+  @VisibleForTesting
+  static final String SERVER_FEATURE_DELTA_XDS = "delta_xds";
 
   private final XdsLogger logger;
   private FileReader reader = LocalFileReader.INSTANCE;
@@ -208,6 +210,10 @@ class BootstrapperImpl extends Bootstrapper {
         XdsLogLevel.INFO, "server_listener_resource_name_template: {0}", grpcServerResourceId);
     builder.serverListenerResourceNameTemplate(grpcServerResourceId);
 
+    String resourceCacheFile = JsonUtil.getString(rawData, "resource_cache_file");
+    logger.log(XdsLogLevel.INFO, "resource_cache_file: {0}", resourceCacheFile);
+    builder.resourceCacheFile(resourceCacheFile);
+
     if (!enableFederation) {
       return builder.build();
     }
@@ -283,14 +289,23 @@ class BootstrapperImpl extends Bootstrapper {
 
       boolean useProtocolV3 = false;
       boolean ignoreResourceDeletion = false;
+      boolean useDeltaProtocol = false;
       List<String> serverFeatures = JsonUtil.getListOfStrings(serverConfig, "server_features");
       if (serverFeatures != null) {
         logger.log(XdsLogLevel.INFO, "Server features: {0}", serverFeatures);
         useProtocolV3 = serverFeatures.contains(SERVER_FEATURE_XDS_V3);
         ignoreResourceDeletion = serverFeatures.contains(SERVER_FEATURE_IGNORE_RESOURCE_DELETION);
+        useDeltaProtocol = serverFeatures.contains(SERVER_FEATURE_DELTA_XDS);
+        if (useDeltaProtocol && !useProtocolV3) {
+          logger.log(XdsLogLevel.WARNING,
+              "Server {0}: ignoring {1}, which requires {2}", serverUri, SERVER_FEATURE_DELTA_XDS,
+              SERVER_FEATURE_XDS_V3);
+          useDeltaProtocol = false;
+        }
       }
       servers.add(
-          ServerInfo.create(serverUri, channelCredentials, useProtocolV3, ignoreResourceDeletion));
+          ServerInfo.create(serverUri, channelCredentials, useProtocolV3, ignoreResourceDeletion,
+              useDeltaProtocol));
     }
     return servers.build();
   }
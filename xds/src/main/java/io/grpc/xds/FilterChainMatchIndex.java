@@ -0,0 +1,326 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+import io.grpc.xds.EnvoyServerProtoData.CidrRange;
+import io.grpc.xds.EnvoyServerProtoData.ConnectionSourceType;
+import io.grpc.xds.EnvoyServerProtoData.FilterChain;
+import io.grpc.xds.EnvoyServerProtoData.FilterChainMatch;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Index of the filter chains of a listener, built once per listener update so that selecting the
+ * filter chain of a new connection only walks precomputed structures.
+ *
+ * <p>Matching narrows the filter chains in the same order as the per-connection passes it
+ * replaces: destination port, most specific destination prefix range, server names, transport
+ * protocol, application protocols, connection source type, most specific source prefix range and
+ * finally source port. Each step that depends on the connection is a lookup: the prefix ranges
+ * are binary tries over the address bits and the source ports a sorted array, and the chains left
+ * at every node are known in advance.
+ *
+ * @param <T> the value associated with each filter chain
+ */
+final class FilterChainMatchIndex<T> {
+  @Nullable
+  private final CidrTrie<SourceTypeIndex<T>> destinationTrie;
+
+  private FilterChainMatchIndex(@Nullable CidrTrie<SourceTypeIndex<T>> destinationTrie) {
+    this.destinationTrie = destinationTrie;
+  }
+
+  static <T> FilterChainMatchIndex<T> create(Map<FilterChain, T> filterChains) {
+    List<Entry<T>> entries = new ArrayList<>(filterChains.size());
+    for (Map.Entry<FilterChain, T> filterChain : filterChains.entrySet()) {
+      FilterChainMatch filterChainMatch = filterChain.getKey().filterChainMatch();
+      // destination_port present => Always fail match
+      if (filterChainMatch.destinationPort() == 0) {
+        entries.add(new Entry<T>(filterChainMatch, filterChain.getValue()));
+      }
+    }
+    return new FilterChainMatchIndex<>(CidrTrie.create(entries, true,
+        new NodeValueFactory<T, SourceTypeIndex<T>>() {
+          @Override
+          SourceTypeIndex<T> create(List<Entry<T>> entries) {
+            return SourceTypeIndex.create(entries);
+          }
+        }));
+  }
+
+  /**
+   * Returns the values of the filter chains matching the connection. More than one value means
+   * the filter chains are ambiguous for this connection.
+   */
+  List<T> match(InetAddress localAddress, InetAddress remoteAddress, int remotePort) {
+    SourceTypeIndex<T> sourceTypeIndex =
+        destinationTrie == null ? null : destinationTrie.lookup(localAddress);
+    if (sourceTypeIndex == null) {
+      return ImmutableList.of();
+    }
+    return sourceTypeIndex.match(localAddress, remoteAddress, remotePort);
+  }
+
+  private static final class Entry<T> {
+    final FilterChainMatch filterChainMatch;
+    final T value;
+
+    Entry(FilterChainMatch filterChainMatch, T value) {
+      this.filterChainMatch = filterChainMatch;
+      this.value = value;
+    }
+  }
+
+  private abstract static class NodeValueFactory<T, V> {
+    /** Creates the value for the filter chains at a node. */
+    abstract V create(List<Entry<T>> entries);
+  }
+
+  /**
+   * The chains left after the destination prefix ranges, indexed for the connection source type
+   * and source prefix ranges.
+   */
+  private static final class SourceTypeIndex<T> {
+    // Source addresses can be local, external, or both when equal to a non loopback destination.
+    @Nullable private final CidrTrie<SourcePortIndex<T>> localSource;
+    @Nullable private final CidrTrie<SourcePortIndex<T>> externalSource;
+    @Nullable private final CidrTrie<SourcePortIndex<T>> localAndExternalSource;
+
+    private SourceTypeIndex(@Nullable CidrTrie<SourcePortIndex<T>> localSource,
+        @Nullable CidrTrie<SourcePortIndex<T>> externalSource,
+        @Nullable CidrTrie<SourcePortIndex<T>> localAndExternalSource) {
+      this.localSource = localSource;
+      this.externalSource = externalSource;
+      this.localAndExternalSource = localAndExternalSource;
+    }
+
+    static <T> SourceTypeIndex<T> create(List<Entry<T>> entries) {
+      List<Entry<T>> filtered = new ArrayList<>(entries.size());
+      for (Entry<T> entry : entries) {
+        FilterChainMatch filterChainMatch = entry.filterChainMatch;
+        // reject if filer-chain-match has server_name(s), a transport protocol other than
+        // "raw_buffer", or application_protocols
+        String transportProtocol = filterChainMatch.transportProtocol();
+        if (filterChainMatch.serverNames().isEmpty()
+            && (Strings.isNullOrEmpty(transportProtocol)
+                || "raw_buffer".equals(transportProtocol))
+            && filterChainMatch.applicationProtocols().isEmpty()) {
+          filtered.add(entry);
+        }
+      }
+      return new SourceTypeIndex<>(
+          createSourceTrie(filtered, true, false),
+          createSourceTrie(filtered, false, true),
+          createSourceTrie(filtered, true, true));
+    }
+
+    @Nullable
+    private static <T> CidrTrie<SourcePortIndex<T>> createSourceTrie(
+        List<Entry<T>> entries, boolean local, boolean external) {
+      List<Entry<T>> filtered = new ArrayList<>(entries.size());
+      for (Entry<T> entry : entries) {
+        ConnectionSourceType sourceType = entry.filterChainMatch.connectionSourceType();
+        if ((sourceType == ConnectionSourceType.SAME_IP_OR_LOOPBACK && local)
+            || (sourceType == ConnectionSourceType.EXTERNAL && external)
+            || (sourceType != ConnectionSourceType.SAME_IP_OR_LOOPBACK
+                && sourceType != ConnectionSourceType.EXTERNAL)) { // ANY or null
+          filtered.add(entry);
+        }
+      }
+      return CidrTrie.create(filtered, false, new NodeValueFactory<T, SourcePortIndex<T>>() {
+        @Override
+        SourcePortIndex<T> create(List<Entry<T>> entries) {
+          return SourcePortIndex.create(entries);
+        }
+      });
+    }
+
+    List<T> match(InetAddress localAddress, InetAddress remoteAddress, int remotePort) {
+      boolean local = remoteAddress.isLoopbackAddress() || remoteAddress.isAnyLocalAddress()
+          || remoteAddress.equals(localAddress);
+      boolean external = !remoteAddress.isLoopbackAddress() && !remoteAddress.isAnyLocalAddress();
+      CidrTrie<SourcePortIndex<T>> sourceTrie =
+          local ? (external ? localAndExternalSource : localSource) : externalSource;
+      SourcePortIndex<T> sourcePortIndex =
+          sourceTrie == null ? null : sourceTrie.lookup(remoteAddress);
+      if (sourcePortIndex == null) {
+        return ImmutableList.of();
+      }
+      return sourcePortIndex.match(remotePort);
+    }
+  }
+
+  /** The chains left after the source prefix ranges, by source port. */
+  private static final class SourcePortIndex<T> {
+    private final int[] ports;
+    private final List<ImmutableList<T>> valuesByPort;
+    private final ImmutableList<T> anyPortValues;
+
+    private SourcePortIndex(int[] ports, List<ImmutableList<T>> valuesByPort,
+        ImmutableList<T> anyPortValues) {
+      this.ports = ports;
+      this.valuesByPort = valuesByPort;
+      this.anyPortValues = anyPortValues;
+    }
+
+    static <T> SourcePortIndex<T> create(List<Entry<T>> entries) {
+      TreeMap<Integer, ImmutableList.Builder<T>> byPort = new TreeMap<>();
+      ImmutableList.Builder<T> anyPort = ImmutableList.builder();
+      for (Entry<T> entry : entries) {
+        List<Integer> sourcePorts = entry.filterChainMatch.sourcePorts();
+        if (sourcePorts.isEmpty()) {
+          anyPort.add(entry.value);
+          continue;
+        }
+        for (Integer port : ImmutableSet.copyOf(sourcePorts)) {
+          if (!byPort.containsKey(port)) {
+            byPort.put(port, ImmutableList.<T>builder());
+          }
+          byPort.get(port).add(entry.value);
+        }
+      }
+      List<ImmutableList<T>> valuesByPort = new ArrayList<>(byPort.size());
+      for (ImmutableList.Builder<T> values : byPort.values()) {
+        valuesByPort.add(values.build());
+      }
+      return new SourcePortIndex<>(
+          Ints.toArray(byPort.keySet()), valuesByPort, anyPort.build());
+    }
+
+    List<T> match(int port) {
+      int index = Arrays.binarySearch(ports, port);
+      // match against source port is more specific than match against empty list
+      return index >= 0 ? valuesByPort.get(index) : anyPortValues;
+    }
+  }
+
+  /**
+   * Binary tries of IPv4 and IPv6 prefix ranges. Looking up an address finds the deepest node,
+   * i.e. the most specific prefix, holding filter chains. Chains without prefix ranges are at the
+   * roots, as a zero length prefix.
+   */
+  private static final class CidrTrie<V> {
+    @Nullable private final Node<V> ipv4Root;
+    @Nullable private final Node<V> ipv6Root;
+
+    private CidrTrie(@Nullable Node<V> ipv4Root, @Nullable Node<V> ipv6Root) {
+      this.ipv4Root = ipv4Root;
+      this.ipv6Root = ipv6Root;
+    }
+
+    /** Returns {@code null} when there is no entry. */
+    @Nullable
+    static <T, U> CidrTrie<U> create(List<Entry<T>> entries, boolean forDestination,
+        NodeValueFactory<T, U> valueFactory) {
+      if (entries.isEmpty()) {
+        return null;
+      }
+      Node<U> ipv4Root = new Node<>();
+      Node<U> ipv6Root = new Node<>();
+      Map<Node<U>, List<Entry<T>>> entriesByNode = new IdentityHashMap<>();
+      for (Entry<T> entry : entries) {
+        List<CidrRange> cidrRanges = forDestination
+            ? entry.filterChainMatch.prefixRanges()
+            : entry.filterChainMatch.sourcePrefixRanges();
+        if (cidrRanges.isEmpty()) { // if there is no CidrRange assume 0-length match
+          addEntry(entriesByNode, ipv4Root, entry);
+          addEntry(entriesByNode, ipv6Root, entry);
+          continue;
+        }
+        for (CidrRange cidrRange : cidrRanges) {
+          byte[] prefix = cidrRange.addressPrefix().getAddress();
+          Node<U> node = cidrRange.addressPrefix() instanceof Inet6Address ? ipv6Root : ipv4Root;
+          int prefixLen = Math.min(cidrRange.prefixLen(), prefix.length * 8);
+          for (int bit = 0; bit < prefixLen; bit++) {
+            node = node.child(bitAt(prefix, bit), true);
+          }
+          addEntry(entriesByNode, node, entry);
+        }
+      }
+      for (Map.Entry<Node<U>, List<Entry<T>>> nodeEntries : entriesByNode.entrySet()) {
+        nodeEntries.getKey().value = valueFactory.create(nodeEntries.getValue());
+      }
+      return new CidrTrie<>(ipv4Root, ipv6Root);
+    }
+
+    private static <T, U> void addEntry(
+        Map<Node<U>, List<Entry<T>>> entriesByNode, Node<U> node, Entry<T> entry) {
+      List<Entry<T>> nodeEntries = entriesByNode.get(node);
+      if (nodeEntries == null) {
+        nodeEntries = new ArrayList<>();
+        entriesByNode.put(node, nodeEntries);
+      }
+      if (!nodeEntries.contains(entry)) {
+        nodeEntries.add(entry);
+      }
+    }
+
+    /** Returns the value of the most specific node matching the address, if any. */
+    @Nullable
+    V lookup(InetAddress address) {
+      byte[] bytes = address.getAddress();
+      Node<V> node = address instanceof Inet6Address ? ipv6Root : ipv4Root;
+      V value = node.value;
+      for (int bit = 0; bit < bytes.length * 8; bit++) {
+        node = node.child(bitAt(bytes, bit), false);
+        if (node == null) {
+          break;
+        }
+        if (node.value != null) {
+          value = node.value;
+        }
+      }
+      return value;
+    }
+
+    private static int bitAt(byte[] bytes, int bit) {
+      return (bytes[bit / 8] >> (7 - bit % 8)) & 1;
+    }
+
+    private static final class Node<V> {
+      @Nullable Node<V> zero;
+      @Nullable Node<V> one;
+      // Set at the nodes holding filter chains.
+      @Nullable V value;
+
+      @Nullable
+      Node<V> child(int bit, boolean create) {
+        Node<V> child = bit == 0 ? zero : one;
+        if (child == null && create) {
+          child = new Node<>();
+          if (bit == 0) {
+            zero = child;
+          } else {
+            one = child;
+          }
+        }
+        return child;
+      }
+    }
+  }
+}
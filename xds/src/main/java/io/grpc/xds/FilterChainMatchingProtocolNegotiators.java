@@ -24,9 +24,6 @@ import static io.grpc.xds.internal.security.SecurityProtocolNegotiators.ATTR_SER
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.MoreObjects;
-import com.google.common.base.Strings;
-import com.google.common.collect.Iterables;
-import com.google.protobuf.UInt32Value;
 import io.grpc.Attributes;
 import io.grpc.internal.ObjectPool;
 import io.grpc.netty.GrpcHttp2ConnectionHandler;
@@ -35,12 +32,8 @@ import io.grpc.netty.InternalProtocolNegotiationEvent;
 import io.grpc.netty.InternalProtocolNegotiator;
 import io.grpc.netty.InternalProtocolNegotiator.ProtocolNegotiator;
 import io.grpc.netty.ProtocolNegotiationEvent;
-import io.grpc.xds.EnvoyServerProtoData.CidrRange;
-import io.grpc.xds.EnvoyServerProtoData.ConnectionSourceType;
 import io.grpc.xds.EnvoyServerProtoData.FilterChain;
-import io.grpc.xds.EnvoyServerProtoData.FilterChainMatch;
 import io.grpc.xds.XdsServerWrapper.ServerRoutingConfig;
-import io.grpc.xds.internal.Matchers.CidrMatcher;
 import io.grpc.xds.internal.security.SslContextProviderSupplier;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
@@ -49,12 +42,9 @@ import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.util.AsciiString;
-import java.net.Inet6Address;
-import java.net.InetAddress;
 import java.net.InetSocketAddress;
-import java.util.ArrayList;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Executor;
@@ -142,6 +132,10 @@ final class FilterChainMatchingProtocolNegotiators {
       @Nullable
       private final SslContextProviderSupplier defaultSslContextProviderSupplier;
       private final AtomicReference<ServerRoutingConfig> defaultRoutingConfig;
+      // Built once per listener update, so that selecting the chain of a connection only does
+      // lookups.
+      private final FilterChainMatchIndex<SelectedConfig> filterChainIndex;
+      private final SelectedConfig defaultSelectedConfig;
 
       FilterChainSelector(Map<FilterChain, AtomicReference<ServerRoutingConfig>> routingConfigs,
                           @Nullable SslContextProviderSupplier defaultSslContextProviderSupplier,
@@ -149,6 +143,15 @@ final class FilterChainMatchingProtocolNegotiators {
         this.routingConfigs = checkNotNull(routingConfigs, "routingConfigs");
         this.defaultSslContextProviderSupplier = defaultSslContextProviderSupplier;
         this.defaultRoutingConfig = checkNotNull(defaultRoutingConfig, "defaultRoutingConfig");
+        Map<FilterChain, SelectedConfig> selectedConfigs = new HashMap<>(routingConfigs.size());
+        for (Map.Entry<FilterChain, AtomicReference<ServerRoutingConfig>> entry
+            : routingConfigs.entrySet()) {
+          selectedConfigs.put(entry.getKey(),
+              new SelectedConfig(entry.getValue(), entry.getKey().sslContextProviderSupplier()));
+        }
+        this.filterChainIndex = FilterChainMatchIndex.create(selectedConfigs);
+        this.defaultSelectedConfig =
+            new SelectedConfig(defaultRoutingConfig, defaultSslContextProviderSupplier);
       }
 
       @VisibleForTesting
@@ -170,186 +173,21 @@ final class FilterChainMatchingProtocolNegotiators {
        * Throws IllegalStateException when no exact one match, and we should close the connection.
        */
       SelectedConfig select(InetSocketAddress localAddr, InetSocketAddress remoteAddr) {
-        Collection<FilterChain> filterChains = routingConfigs.keySet();
-        filterChains = filterOnDestinationPort(filterChains);
-        filterChains = filterOnIpAddress(filterChains, localAddr.getAddress(), true);
-        filterChains = filterOnServerNames(filterChains);
-        filterChains = filterOnTransportProtocol(filterChains);
-        filterChains = filterOnApplicationProtocols(filterChains);
-        filterChains =
-                filterOnSourceType(filterChains, remoteAddr.getAddress(), localAddr.getAddress());
-        filterChains = filterOnIpAddress(filterChains, remoteAddr.getAddress(), false);
-        filterChains = filterOnSourcePort(filterChains, remoteAddr.getPort());
-
-        if (filterChains.size() > 1) {
+        List<SelectedConfig> selected = filterChainIndex.match(
+            localAddr.getAddress(), remoteAddr.getAddress(), remoteAddr.getPort());
+        if (selected.size() > 1) {
           throw new IllegalStateException("Found more than one matching filter chains. This should "
               + "not be possible as ClientXdsClient validated the chains for uniqueness.");
         }
-        if (filterChains.size() == 1) {
-          FilterChain selected = Iterables.getOnlyElement(filterChains);
-          return new SelectedConfig(
-                  routingConfigs.get(selected), selected.sslContextProviderSupplier());
+        if (selected.size() == 1) {
+          return selected.get(0);
         }
         if (defaultRoutingConfig.get() != null) {
-          return new SelectedConfig(defaultRoutingConfig, defaultSslContextProviderSupplier);
+          return defaultSelectedConfig;
         }
         return null;
       }
 
-      // reject if filer-chain-match has non-empty application_protocols
-      private static Collection<FilterChain> filterOnApplicationProtocols(
-              Collection<FilterChain> filterChains) {
-        ArrayList<FilterChain> filtered = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-
-          if (filterChainMatch.applicationProtocols().isEmpty()) {
-            filtered.add(filterChain);
-          }
-        }
-        return filtered;
-      }
-
-      // reject if filer-chain-match has non-empty transport protocol other than "raw_buffer"
-      private static Collection<FilterChain> filterOnTransportProtocol(
-              Collection<FilterChain> filterChains) {
-        ArrayList<FilterChain> filtered = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-
-          String transportProtocol = filterChainMatch.transportProtocol();
-          if (Strings.isNullOrEmpty(transportProtocol) || "raw_buffer".equals(transportProtocol)) {
-            filtered.add(filterChain);
-          }
-        }
-        return filtered;
-      }
-
-      // reject if filer-chain-match has server_name(s)
-      private static Collection<FilterChain> filterOnServerNames(
-              Collection<FilterChain> filterChains) {
-        ArrayList<FilterChain> filtered = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-
-          if (filterChainMatch.serverNames().isEmpty()) {
-            filtered.add(filterChain);
-          }
-        }
-        return filtered;
-      }
-
-      // destination_port present => Always fail match
-      private static Collection<FilterChain> filterOnDestinationPort(
-              Collection<FilterChain> filterChains) {
-        ArrayList<FilterChain> filtered = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-
-          if (filterChainMatch.destinationPort()
-                  == UInt32Value.getDefaultInstance().getValue()) {
-            filtered.add(filterChain);
-          }
-        }
-        return filtered;
-      }
-
-      private static Collection<FilterChain> filterOnSourcePort(
-              Collection<FilterChain> filterChains, int sourcePort) {
-        ArrayList<FilterChain> filteredOnMatch = new ArrayList<>(filterChains.size());
-        ArrayList<FilterChain> filteredOnEmpty = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-
-          List<Integer> sourcePortsToMatch = filterChainMatch.sourcePorts();
-          if (sourcePortsToMatch.isEmpty()) {
-            filteredOnEmpty.add(filterChain);
-          } else if (sourcePortsToMatch.contains(sourcePort)) {
-            filteredOnMatch.add(filterChain);
-          }
-        }
-        // match against source port is more specific than match against empty list
-        return filteredOnMatch.isEmpty() ? filteredOnEmpty : filteredOnMatch;
-      }
-
-      private static Collection<FilterChain> filterOnSourceType(
-              Collection<FilterChain> filterChains, InetAddress sourceAddress,
-              InetAddress destAddress) {
-        ArrayList<FilterChain> filtered = new ArrayList<>(filterChains.size());
-        for (FilterChain filterChain : filterChains) {
-          FilterChainMatch filterChainMatch = filterChain.filterChainMatch();
-          ConnectionSourceType sourceType =
-                  filterChainMatch.connectionSourceType();
-
-          boolean matching = false;
-          if (sourceType == ConnectionSourceType.SAME_IP_OR_LOOPBACK) {
-            matching =
-                    sourceAddress.isLoopbackAddress()
-                            || sourceAddress.isAnyLocalAddress()
-                            || sourceAddress.equals(destAddress);
-          } else if (sourceType == ConnectionSourceType.EXTERNAL) {
-            matching = !sourceAddress.isLoopbackAddress() && !sourceAddress.isAnyLocalAddress();
-          } else { // ANY or null
-            matching = true;
-          }
-          if (matching) {
-            filtered.add(filterChain);
-          }
-        }
-        return filtered;
-      }
-
-      private static int getMatchingPrefixLength(
-              FilterChainMatch filterChainMatch, InetAddress address, boolean forDestination) {
-        boolean isIPv6 = address instanceof Inet6Address;
-        List<CidrRange> cidrRanges =
-                forDestination
-                        ? filterChainMatch.prefixRanges()
-                        : filterChainMatch.sourcePrefixRanges();
-        int matchingPrefixLength;
-        if (cidrRanges.isEmpty()) { // if there is no CidrRange assume 0-length match
-          matchingPrefixLength = 0;
-        } else {
-          matchingPrefixLength = -1;
-          for (CidrRange cidrRange : cidrRanges) {
-            InetAddress cidrAddr = cidrRange.addressPrefix();
-            boolean cidrIsIpv6 = cidrAddr instanceof Inet6Address;
-            if (isIPv6 == cidrIsIpv6) {
-              int prefixLen = cidrRange.prefixLen();
-              CidrMatcher matcher = CidrMatcher.create(cidrAddr, prefixLen);
-              if (matcher.matches(address) && prefixLen > matchingPrefixLength) {
-                matchingPrefixLength = prefixLen;
-              }
-            }
-          }
-        }
-        return matchingPrefixLength;
-      }
-
-      // use prefix_ranges (CIDR) and get the most specific matches
-      private static Collection<FilterChain> filterOnIpAddress(
-              Collection<FilterChain> filterChains, InetAddress address, boolean forDestination) {
-        // curent list of top ones
-        ArrayList<FilterChain> topOnes = new ArrayList<>(filterChains.size());
-        int topMatchingPrefixLen = -1;
-        for (FilterChain filterChain : filterChains) {
-          int currentMatchingPrefixLen = getMatchingPrefixLength(
-                  filterChain.filterChainMatch(), address, forDestination);
-
-          if (currentMatchingPrefixLen >= 0) {
-            if (currentMatchingPrefixLen < topMatchingPrefixLen) {
-              continue;
-            }
-            if (currentMatchingPrefixLen > topMatchingPrefixLen) {
-              topMatchingPrefixLen = currentMatchingPrefixLen;
-              topOnes.clear();
-            }
-            topOnes.add(filterChain);
-          }
-        }
-        return topOnes;
-      }
-
       @Override
       public String toString() {
         return MoreObjects.toStringHelper(this)
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import com.google.common.primitives.Ints;
+import io.grpc.Metadata;
+import io.grpc.xds.VirtualHost.Route;
+import io.grpc.xds.VirtualHost.Route.RouteMatch.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * The routes of a virtual host, indexed by their path matchers so that selecting the route of an
+ * RPC does not try every route in turn.
+ *
+ * <p>Exact paths are looked up in hash maps and prefixes in tries, each giving the indexes of the
+ * routes whose path matcher may accept the RPC's path. Regular expressions can not be indexed and
+ * are always candidates. Candidates are then tried in route order with
+ * {@link XdsNameResolver#matchRoute}, so the selected route is the same as with a linear scan.
+ */
+final class RouteTable {
+  private static final int[] NO_ROUTES = new int[0];
+
+  static final RouteTable EMPTY = create(Collections.<Route>emptyList());
+
+  private final List<Route> routes;
+  private final Map<String, int[]> exactPaths;
+  // Keyed by the lower case path.
+  private final Map<String, int[]> exactPathsIgnoreCase;
+  private final PrefixTrie prefixes;
+  // Holds the lower case prefixes.
+  private final PrefixTrie prefixesIgnoreCase;
+  private final int[] unindexedRoutes;
+
+  private RouteTable(List<Route> routes, Map<String, int[]> exactPaths,
+      Map<String, int[]> exactPathsIgnoreCase, PrefixTrie prefixes,
+      PrefixTrie prefixesIgnoreCase, int[] unindexedRoutes) {
+    this.routes = routes;
+    this.exactPaths = exactPaths;
+    this.exactPathsIgnoreCase = exactPathsIgnoreCase;
+    this.prefixes = prefixes;
+    this.prefixesIgnoreCase = prefixesIgnoreCase;
+    this.unindexedRoutes = unindexedRoutes;
+  }
+
+  static RouteTable create(List<Route> routes) {
+    Map<String, List<Integer>> exactPaths = new HashMap<>();
+    Map<String, List<Integer>> exactPathsIgnoreCase = new HashMap<>();
+    PrefixTrie prefixes = new PrefixTrie();
+    PrefixTrie prefixesIgnoreCase = new PrefixTrie();
+    List<Integer> unindexedRoutes = new ArrayList<>();
+    for (int i = 0; i < routes.size(); i++) {
+      PathMatcher pathMatcher = routes.get(i).routeMatch().pathMatcher();
+      if (pathMatcher.path() != null) {
+        if (pathMatcher.caseSensitive()) {
+          add(exactPaths, pathMatcher.path(), i);
+        } else if (isAscii(pathMatcher.path())) {
+          add(exactPathsIgnoreCase, toLowerCase(pathMatcher.path()), i);
+        } else {
+          unindexedRoutes.add(i);
+        }
+      } else if (pathMatcher.prefix() != null) {
+        if (pathMatcher.caseSensitive()) {
+          prefixes.add(pathMatcher.prefix(), i);
+        } else if (isAscii(pathMatcher.prefix())) {
+          prefixesIgnoreCase.add(toLowerCase(pathMatcher.prefix()), i);
+        } else {
+          unindexedRoutes.add(i);
+        }
+      } else {
+        unindexedRoutes.add(i);
+      }
+    }
+    return new RouteTable(Collections.unmodifiableList(new ArrayList<>(routes)),
+        toArrays(exactPaths), toArrays(exactPathsIgnoreCase), prefixes.compact(),
+        prefixesIgnoreCase.compact(), Ints.toArray(unindexedRoutes));
+  }
+
+  List<Route> routes() {
+    return routes;
+  }
+
+  /**
+   * Returns the first route matching the RPC, or {@code null} if none does.
+   *
+   * @param fullMethodName the path of the RPC, i.e. its full method name with a leading '/'
+   */
+  @Nullable
+  Route match(String fullMethodName, Metadata headers, ThreadSafeRandom random) {
+    List<int[]> candidates = new ArrayList<>(4);
+    addCandidates(candidates, exactPaths.get(fullMethodName));
+    prefixes.collect(fullMethodName, candidates);
+    if (!exactPathsIgnoreCase.isEmpty() || !prefixesIgnoreCase.isEmpty()) {
+      String lowerCaseName = toLowerCase(fullMethodName);
+      addCandidates(candidates, exactPathsIgnoreCase.get(lowerCaseName));
+      prefixesIgnoreCase.collect(lowerCaseName, candidates);
+    }
+    addCandidates(candidates, unindexedRoutes);
+
+    // Each candidate array is sorted and a route is in a single one: merge them in route order.
+    int[] positions = new int[candidates.size()];
+    while (true) {
+      int next = -1;
+      int nextArray = -1;
+      for (int i = 0; i < positions.length; i++) {
+        int[] array = candidates.get(i);
+        if (positions[i] < array.length && (next == -1 || array[positions[i]] < next)) {
+          next = array[positions[i]];
+          nextArray = i;
+        }
+      }
+      if (next == -1) {
+        return null;
+      }
+      positions[nextArray]++;
+      Route route = routes.get(next);
+      if (XdsNameResolver.matchRoute(route.routeMatch(), fullMethodName, headers, random)) {
+        return route;
+      }
+    }
+  }
+
+  private static void addCandidates(List<int[]> candidates, @Nullable int[] routeIndexes) {
+    if (routeIndexes != null && routeIndexes.length > 0) {
+      candidates.add(routeIndexes);
+    }
+  }
+
+  private static void add(Map<String, List<Integer>> map, String key, int routeIndex) {
+    List<Integer> routeIndexes = map.get(key);
+    if (routeIndexes == null) {
+      routeIndexes = new ArrayList<>(1);
+      map.put(key, routeIndexes);
+    }
+    routeIndexes.add(routeIndex);
+  }
+
+  private static Map<String, int[]> toArrays(Map<String, List<Integer>> map) {
+    Map<String, int[]> arrays = new HashMap<>(map.size() * 2);
+    for (Map.Entry<String, List<Integer>> entry : map.entrySet()) {
+      arrays.put(entry.getKey(), Ints.toArray(entry.getValue()));
+    }
+    return arrays;
+  }
+
+  // Case insensitive matchers with non ASCII text are left unindexed, where case folding may not
+  // agree with the matching done by XdsNameResolver.
+  private static boolean isAscii(String s) {
+    for (int i = 0; i < s.length(); i++) {
+      if (s.charAt(i) >= 0x80) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String toLowerCase(String s) {
+    return s.toLowerCase(Locale.ROOT);
+  }
+
+  /** A trie of path prefixes, whose nodes hold the routes for the prefix ending there. */
+  private static final class PrefixTrie {
+    private final Map<Character, PrefixTrie> children = new HashMap<>();
+    private List<Integer> pendingRoutes = new ArrayList<>();
+    private int[] routeIndexes = NO_ROUTES;
+
+    void add(String prefix, int routeIndex) {
+      PrefixTrie node = this;
+      for (int i = 0; i < prefix.length(); i++) {
+        Character c = prefix.charAt(i);
+        PrefixTrie child = node.children.get(c);
+        if (child == null) {
+          child = new PrefixTrie();
+          node.children.put(c, child);
+        }
+        node = child;
+      }
+      node.pendingRoutes.add(routeIndex);
+    }
+
+    /** Freezes the routes added so far into arrays. */
+    PrefixTrie compact() {
+      routeIndexes = Ints.toArray(pendingRoutes);
+      pendingRoutes = null;
+      for (PrefixTrie child : children.values()) {
+        child.compact();
+      }
+      return this;
+    }
+
+    boolean isEmpty() {
+      return children.isEmpty() && routeIndexes.length == 0;
+    }
+
+    /** Adds the routes of every prefix of {@code path} to {@code candidates}. */
+    void collect(String path, List<int[]> candidates) {
+      PrefixTrie node = this;
+      for (int i = 0; ; i++) {
+        addCandidates(candidates, node.routeIndexes);
+        if (i == path.length()) {
+          return;
+        }
+        node = node.children.get(path.charAt(i));
+        if (node == null) {
+          return;
+        }
+      }
+    }
+  }
+}
@@ -145,15 +145,23 @@ abstract class XdsClient {
     private final long updateTimeNanos;
     @Nullable private final Any rawResource;
     @Nullable private final UpdateFailureState errorState;
+    private final boolean cached;
 
     private ResourceMetadata(
         ResourceMetadataStatus status, String version, long updateTimeNanos,
         @Nullable Any rawResource, @Nullable UpdateFailureState errorState) {
+      this(status, version, updateTimeNanos, rawResource, errorState, false);
+    }
+
+    private ResourceMetadata(
+        ResourceMetadataStatus status, String version, long updateTimeNanos,
+        @Nullable Any rawResource, @Nullable UpdateFailureState errorState, boolean cached) {
       this.status = checkNotNull(status, "status");
       this.version = checkNotNull(version, "version");
       this.updateTimeNanos = updateTimeNanos;
       this.rawResource = rawResource;
       this.errorState = errorState;
+      this.cached = cached;
     }
 
     static ResourceMetadata newResourceMetadataUnknown() {
@@ -168,6 +176,17 @@ abstract class XdsClient {
       return new ResourceMetadata(ResourceMetadataStatus.DOES_NOT_EXIST, "", 0, null, null);
     }
 
+    /**
+     * The resource was loaded from the local resource cache, and is still requested from the
+     * server.
+     */
+    static ResourceMetadata newResourceMetadataCached(
+        Any rawResource, String version, long updateTimeNanos) {
+      checkNotNull(rawResource, "rawResource");
+      return new ResourceMetadata(
+          ResourceMetadataStatus.REQUESTED, version, updateTimeNanos, rawResource, null, true);
+    }
+
     static ResourceMetadata newResourceMetadataAcked(
         Any rawResource, String version, long updateTimeNanos) {
       checkNotNull(rawResource, "rawResource");
@@ -205,6 +224,14 @@ abstract class XdsClient {
       return rawResource;
     }
 
+    /**
+     * Whether the resource comes from the local resource cache and has not been confirmed by the
+     * server yet, i.e. it may be stale.
+     */
+    boolean isCached() {
+      return cached;
+    }
+
     /** The metadata capturing the error details of the last rejected update of the resource. */
     @Nullable
     UpdateFailureState getErrorState() {
@@ -349,6 +376,14 @@ abstract class XdsClient {
         XdsResourceType<?> resourceType, ServerInfo serverInfo, String versionInfo,
         List<Any> resources, String nonce);
 
+    /**
+     * Called when an incremental xds response is received. It only carries the resources that
+     * were added or changed, and the names of the resources that were removed.
+     */
+    void handleDeltaResourceResponse(
+        XdsResourceType<?> resourceType, ServerInfo serverInfo, String versionInfo,
+        List<Any> resources, List<String> removedResources, String nonce);
+
     /** Called when the ADS stream is closed passively. */
     // Must be synchronized.
     void handleStreamClosed(Status error);
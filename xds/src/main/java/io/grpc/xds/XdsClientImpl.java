@@ -20,6 +20,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static io.grpc.xds.Bootstrapper.XDSTP_SCHEME;
 import static io.grpc.xds.XdsResourceType.ParsedResource;
+import static io.grpc.xds.XdsResourceType.ParsedResourceCache;
 import static io.grpc.xds.XdsResourceType.ValidatedResourceUpdate;
 
 import com.google.common.annotations.VisibleForTesting;
@@ -31,6 +32,7 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.ListenableFuture;
 import com.google.common.util.concurrent.SettableFuture;
 import com.google.protobuf.Any;
+import io.envoyproxy.envoy.service.discovery.v3.Resource;
 import io.grpc.ChannelCredentials;
 import io.grpc.Context;
 import io.grpc.Grpc;
@@ -41,6 +43,9 @@ import io.grpc.Status;
 import io.grpc.SynchronizationContext;
 import io.grpc.SynchronizationContext.ScheduledHandle;
 import io.grpc.internal.BackoffPolicy;
+import io.grpc.internal.GrpcUtil;
+import io.grpc.internal.SerializingExecutor;
+import io.grpc.internal.SharedResourceHolder;
 import io.grpc.internal.TimeProvider;
 import io.grpc.xds.Bootstrapper.AuthorityInfo;
 import io.grpc.xds.Bootstrapper.ServerInfo;
@@ -50,7 +55,9 @@ import io.grpc.xds.XdsClient.ResourceStore;
 import io.grpc.xds.XdsClient.TimerLaunch;
 import io.grpc.xds.XdsClient.XdsResponseHandler;
 import io.grpc.xds.XdsLogger.XdsLogLevel;
+import java.io.IOException;
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -59,6 +66,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
@@ -78,6 +86,9 @@ final class XdsClientImpl extends XdsClient
   // Longest time to wait, since the subscription to some resource, for concluding its absence.
   @VisibleForTesting
   static final int INITIAL_RESOURCE_FETCH_TIMEOUT_SEC = 15;
+  // Delay for batching the writes of the resource cache file after resource updates.
+  @VisibleForTesting
+  static final int RESOURCE_CACHE_SAVE_DELAY_SEC = 1;
   private final SynchronizationContext syncContext = new SynchronizationContext(
       new Thread.UncaughtExceptionHandler() {
         @Override
@@ -98,6 +109,9 @@ final class XdsClientImpl extends XdsClient
       Map<String, ResourceSubscriber<? extends ResourceUpdate>>>
       resourceSubscribers = new HashMap<>();
   private final Map<String, XdsResourceType<?>> subscribedResourceTypeUrls = new HashMap<>();
+  // Unchanged resources in later responses reuse their parsed update instead of being reparsed.
+  private final Map<XdsResourceType<?>, ParsedResourceCache<?>> parsedResourceCaches =
+      new HashMap<>();
   private final LoadStatsManager2 loadStatsManager;
   private final Map<ServerInfo, LoadReportClient> serverLrsClientMap = new HashMap<>();
   private final XdsChannelFactory xdsChannelFactory;
@@ -112,6 +126,22 @@ final class XdsClientImpl extends XdsClient
   private final InternalLogId logId;
   private final XdsLogger logger;
   private volatile boolean isShutdown;
+  @Nullable
+  private final XdsResourceCacheFile resourceCacheFile;
+  // Reads and writes the resource cache file, one at a time, off the timer and syncContext.
+  @Nullable
+  private final Executor resourceCacheExecutor;
+  // The shared executor under resourceCacheExecutor, if it was taken from SharedResourceHolder.
+  @Nullable
+  private Executor sharedExecutor;
+  // Resources read from the resource cache file that no subscriber asked for yet, by type URL and
+  // resource name. Null until the file has been read.
+  @Nullable
+  private Map<String, Map<String, Resource>> cachedResources;
+  // A save was requested before the file was read, so it is scheduled once the file is read.
+  private boolean resourceCacheSaveRequested;
+  @Nullable
+  private ScheduledHandle resourceCacheSaveTimer;
 
   XdsClientImpl(
       XdsChannelFactory xdsChannelFactory,
@@ -122,6 +152,25 @@ final class XdsClientImpl extends XdsClient
       Supplier<Stopwatch> stopwatchSupplier,
       TimeProvider timeProvider,
       TlsContextManager tlsContextManager) {
+    this(xdsChannelFactory, bootstrapInfo, context, timeService, backoffPolicyProvider,
+        stopwatchSupplier, timeProvider, tlsContextManager, null);
+  }
+
+  /**
+   * Creates a client whose resource cache file, if any, is read and written on the given executor,
+   * or on the shared channel executor if it is {@code null}.
+   */
+  @VisibleForTesting
+  XdsClientImpl(
+      XdsChannelFactory xdsChannelFactory,
+      Bootstrapper.BootstrapInfo bootstrapInfo,
+      Context context,
+      ScheduledExecutorService timeService,
+      BackoffPolicy.Provider backoffPolicyProvider,
+      Supplier<Stopwatch> stopwatchSupplier,
+      TimeProvider timeProvider,
+      TlsContextManager tlsContextManager,
+      @Nullable Executor resourceCacheExecutor) {
     this.xdsChannelFactory = xdsChannelFactory;
     this.bootstrapInfo = bootstrapInfo;
     this.context = context;
@@ -137,6 +186,54 @@ final class XdsClientImpl extends XdsClient
     if (LOG_XDS_NODE_ID) {
       classLogger.log(Level.INFO, "xDS node ID: {0}", bootstrapInfo.node().getId());
     }
+    if (bootstrapInfo.resourceCacheFile() != null) {
+      resourceCacheFile = new XdsResourceCacheFile(bootstrapInfo.resourceCacheFile());
+      if (resourceCacheExecutor == null) {
+        sharedExecutor = SharedResourceHolder.get(GrpcUtil.SHARED_CHANNEL_EXECUTOR);
+        resourceCacheExecutor = sharedExecutor;
+      }
+      this.resourceCacheExecutor = new SerializingExecutor(resourceCacheExecutor);
+      loadResourceCache();
+    } else {
+      resourceCacheFile = null;
+      this.resourceCacheExecutor = null;
+      cachedResources = new HashMap<>();
+    }
+  }
+
+  private void loadResourceCache() {
+    resourceCacheExecutor.execute(new Runnable() {
+      @Override
+      public void run() {
+        final Map<String, Map<String, Resource>> loaded = resourceCacheFile.load();
+        syncContext.execute(new Runnable() {
+          @Override
+          public void run() {
+            handleResourceCacheLoaded(loaded);
+          }
+        });
+      }
+    });
+  }
+
+  private void handleResourceCacheLoaded(Map<String, Map<String, Resource>> loaded) {
+    if (isShutdown) {
+      return;
+    }
+    cachedResources = loaded;
+    // Resources subscribed to while the file was being read are served now, unless the server
+    // sent them first.
+    for (Map<String, ResourceSubscriber<?>> subscribers : resourceSubscribers.values()) {
+      for (ResourceSubscriber<?> subscriber : subscribers.values()) {
+        if (subscriber.data == null) {
+          maybeServeCachedResource(subscriber);
+        }
+      }
+    }
+    if (resourceCacheSaveRequested) {
+      resourceCacheSaveRequested = false;
+      scheduleResourceCacheSave();
+    }
   }
 
   private void maybeCreateXdsChannelWithLrs(ServerInfo serverInfo) {
@@ -181,7 +278,22 @@ final class XdsClientImpl extends XdsClient
     XdsResourceType.Args args = new XdsResourceType.Args(serverInfo, versionInfo, nonce,
         bootstrapInfo, filterRegistry, loadBalancerRegistry, tlsContextManager,
         toParseResourceNames);
-    handleResourceUpdate(args, resources, xdsResourceType);
+    handleResourceUpdate(args, resources, null, xdsResourceType);
+  }
+
+  @Override
+  public void handleDeltaResourceResponse(
+      XdsResourceType<?> xdsResourceType, ServerInfo serverInfo, String versionInfo,
+      List<Any> resources, List<String> removedResources, String nonce) {
+    syncContext.throwIfNotInThisSynchronizationContext();
+    if (xdsResourceType == null) {
+      logger.log(XdsLogLevel.WARNING, "Ignore an unknown type of DeltaDiscoveryResponse");
+      return;
+    }
+    // Only the changed resources are in the response, so all of them are parsed
+    XdsResourceType.Args args = new XdsResourceType.Args(serverInfo, versionInfo, nonce,
+        bootstrapInfo, filterRegistry, loadBalancerRegistry, tlsContextManager, null);
+    handleResourceUpdate(args, resources, ImmutableSet.copyOf(removedResources), xdsResourceType);
   }
 
   @Override
@@ -230,6 +342,14 @@ final class XdsClientImpl extends XdsClient
               }
             }
             cleanUpResourceTimers();
+            if (resourceCacheSaveTimer != null) {
+              resourceCacheSaveTimer.cancel();
+              resourceCacheSaveTimer = null;
+            }
+            if (sharedExecutor != null) {
+              sharedExecutor = SharedResourceHolder.release(
+                  GrpcUtil.SHARED_CHANNEL_EXECUTOR, sharedExecutor);
+            }
           }
         });
   }
@@ -310,6 +430,7 @@ final class XdsClientImpl extends XdsClient
           logger.log(XdsLogLevel.INFO, "Subscribe {0} resource {1}", type, resourceName);
           subscriber = new ResourceSubscriber<>(type, resourceName);
           resourceSubscribers.get(type).put(resourceName, subscriber);
+          maybeServeCachedResource(subscriber);
           if (subscriber.xdsChannel != null) {
             subscriber.xdsChannel.adjustResourceSubscription(type);
           }
@@ -333,6 +454,9 @@ final class XdsClientImpl extends XdsClient
         if (!subscriber.isWatched()) {
           subscriber.cancelResourceWatch();
           resourceSubscribers.get(type).remove(resourceName);
+          if (parsedResourceCaches.containsKey(type)) {
+            parsedResourceCaches.get(type).remove(resourceName);
+          }
           subscribedResourceTypeUrls.remove(type.typeUrl());
           subscribedResourceTypeUrls.remove(type.typeUrlV2());
           if (subscriber.xdsChannel != null) {
@@ -340,6 +464,7 @@ final class XdsClientImpl extends XdsClient
           }
           if (resourceSubscribers.get(type).isEmpty()) {
             resourceSubscribers.remove(type);
+            parsedResourceCaches.remove(type);
           }
         }
       }
@@ -426,8 +551,15 @@ final class XdsClientImpl extends XdsClient
   @SuppressWarnings("unchecked")
   private <T extends ResourceUpdate> void handleResourceUpdate(XdsResourceType.Args args,
                                                                List<Any> resources,
+                                                               @Nullable Set<String> removed,
                                                                XdsResourceType<T> xdsResourceType) {
-    ValidatedResourceUpdate<T> result = xdsResourceType.parse(args, resources);
+    ParsedResourceCache<T> cache = getParsedResourceCache(xdsResourceType);
+    if (removed != null) {
+      for (String resourceName : removed) {
+        cache.remove(resourceName);
+      }
+    }
+    ValidatedResourceUpdate<T> result = xdsResourceType.parse(args, resources, cache);
     logger.log(XdsLogger.XdsLogLevel.INFO,
         "Received {0} Response version {1} nonce {2}. Parsed resources: {3}",
          xdsResourceType.typeName(), args.versionInfo, args.nonce, result.unpackedResources);
@@ -465,6 +597,11 @@ final class XdsClientImpl extends XdsClient
         subscriber.onRejected(args.versionInfo, updateTime, errorDetail);
       }
 
+      if (removed != null && removed.contains(resourceName)) {
+        subscriber.onAbsent();
+        continue;
+      }
+
       // Nothing else to do for incremental ADS resources.
       if (!xdsResourceType.isFullStateOfTheWorld()) {
         continue;
@@ -480,10 +617,121 @@ final class XdsClientImpl extends XdsClient
         continue;
       }
 
+      // Delta xDS responses leave out unchanged resources, removals are explicit.
+      if (removed != null) {
+        continue;
+      }
+
       // For State of the World services, notify watchers when their watched resource is missing
       // from the ADS update.
       subscriber.onAbsent();
     }
+    scheduleResourceCacheSave();
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends ResourceUpdate> ParsedResourceCache<T> getParsedResourceCache(
+      XdsResourceType<T> xdsResourceType) {
+    ParsedResourceCache<T> cache =
+        (ParsedResourceCache<T>) parsedResourceCaches.get(xdsResourceType);
+    if (cache == null) {
+      cache = new ParsedResourceCache<>();
+      parsedResourceCaches.put(xdsResourceType, cache);
+    }
+    return cache;
+  }
+
+  /**
+   * Serves the resource from the resource cache file, if it is there, until the server sends it.
+   */
+  private <T extends ResourceUpdate> void maybeServeCachedResource(
+      ResourceSubscriber<T> subscriber) {
+    XdsResourceType<T> type = subscriber.type;
+    String resourceName = subscriber.resource;
+    Resource cached = removeCachedResource(type.typeUrl(), resourceName);
+    if (cached == null) {
+      cached = removeCachedResource(type.typeUrlV2(), resourceName);
+    }
+    if (cached == null || subscriber.serverInfo == null) {
+      return;
+    }
+    XdsResourceType.Args args = new XdsResourceType.Args(subscriber.serverInfo,
+        cached.getVersion(), "", bootstrapInfo, filterRegistry, loadBalancerRegistry,
+        tlsContextManager, Collections.singleton(resourceName));
+    // Parsing through the cache lets an identical resource from the server skip parsing.
+    ValidatedResourceUpdate<T> result = type.parse(
+        args, Collections.singletonList(cached.getResource()), getParsedResourceCache(type));
+    ParsedResource<T> parsedResource = result.parsedResources.get(resourceName);
+    if (parsedResource == null) {
+      logger.log(XdsLogLevel.WARNING, "Ignoring cached {0} resource {1}: {2}",
+          type, resourceName, result.errors);
+      return;
+    }
+    logger.log(XdsLogLevel.INFO, "Serving cached {0} resource {1} version {2}",
+        type, resourceName, cached.getVersion());
+    subscriber.onCachedData(parsedResource, cached.getVersion(), timeProvider.currentTimeNanos());
+  }
+
+  @Nullable
+  private Resource removeCachedResource(String typeUrl, String resourceName) {
+    if (cachedResources == null) {
+      // Not read yet. The resource is served once it is.
+      return null;
+    }
+    Map<String, Resource> resources = cachedResources.get(typeUrl);
+    return resources == null ? null : resources.remove(resourceName);
+  }
+
+  private void scheduleResourceCacheSave() {
+    if (resourceCacheFile == null || resourceCacheSaveTimer != null) {
+      return;
+    }
+    if (cachedResources == null) {
+      // Saving now would drop the resources in the file that nobody subscribed to yet.
+      resourceCacheSaveRequested = true;
+      return;
+    }
+    // Only the delay runs on the timer. The file is written on resourceCacheExecutor.
+    resourceCacheSaveTimer = syncContext.schedule(new Runnable() {
+      @Override
+      public void run() {
+        resourceCacheSaveTimer = null;
+        final List<Resource> resources = getResourcesToCache();
+        resourceCacheExecutor.execute(new Runnable() {
+          @Override
+          public void run() {
+            try {
+              resourceCacheFile.save(resources);
+            } catch (IOException e) {
+              logger.log(XdsLogLevel.WARNING, "Failed to save the xDS resource cache: {0}", e);
+            }
+          }
+        });
+      }
+    }, RESOURCE_CACHE_SAVE_DELAY_SEC, TimeUnit.SECONDS, timeService);
+  }
+
+  // The last known good version of the subscribed resources, plus the cached resources nobody
+  // asked for yet so they are still there the next time.
+  private List<Resource> getResourcesToCache() {
+    List<Resource> resources = new ArrayList<>();
+    for (Map<String, ResourceSubscriber<?>> subscribers : resourceSubscribers.values()) {
+      for (ResourceSubscriber<?> subscriber : subscribers.values()) {
+        if (subscriber.data == null || subscriber.metadata == null
+            || subscriber.metadata.getRawResource() == null) {
+          continue;
+        }
+        resources.add(Resource.newBuilder()
+            .setName(subscriber.resource)
+            .setVersion(subscriber.metadata.getVersion())
+            .setResource(subscriber.metadata.getRawResource())
+            .build());
+      }
+    }
+    for (Map<String, Resource> cached : cachedResources.values()) {
+      resources.addAll(cached.values());
+    }
+    return resources;
   }
 
   /**
@@ -646,6 +894,20 @@ final class XdsClientImpl extends XdsClient
       }
     }
 
+    void onCachedData(ParsedResource<T> parsedResource, String version, long updateTime) {
+      stopTimer();
+      metadata = ResourceMetadata.newResourceMetadataCached(
+          parsedResource.getRawResource(), version, updateTime);
+      ResourceUpdate oldData = data;
+      data = parsedResource.getResourceUpdate();
+      // The file may be read after watchers subscribed, so they are notified as for server data.
+      if (!Objects.equals(oldData, data)) {
+        for (ResourceWatcher<T> watcher : watchers) {
+          notifyWatcher(watcher, data);
+        }
+      }
+    }
+
     void onAbsent() {
       if (respTimer != null && respTimer.isPending()) {  // too early to conclude absence
         return;
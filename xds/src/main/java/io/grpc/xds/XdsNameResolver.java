@@ -418,18 +418,13 @@ final class XdsNameResolver extends NameResolver {
       do {
         routingCfg = routingConfig;
         selectedOverrideConfigs = new HashMap<>(routingCfg.virtualHostOverrideConfig);
-        for (Route route : routingCfg.routes) {
-          if (matchRoute(route.routeMatch(), "/" + args.getMethodDescriptor().getFullMethodName(),
-              headers, random)) {
-            selectedRoute = route;
-            selectedOverrideConfigs.putAll(route.filterConfigOverrides());
-            break;
-          }
-        }
+        selectedRoute = routingCfg.routeTable.match(
+            "/" + args.getMethodDescriptor().getFullMethodName(), headers, random);
         if (selectedRoute == null) {
           return Result.forError(
               Status.UNAVAILABLE.withDescription("Could not find xDS route matching RPC"));
         }
+        selectedOverrideConfigs.putAll(selectedRoute.filterConfigOverrides());
         if (selectedRoute.routeAction() == null) {
           return Result.forError(Status.UNAVAILABLE.withDescription(
               "Could not route RPC to Route with non-forwarding action"));
@@ -620,7 +615,6 @@ final class XdsNameResolver extends NameResolver {
     };
   }
 
-  @VisibleForTesting
   static boolean matchRoute(RouteMatch routeMatch, String fullMethodName,
       Metadata headers, ThreadSafeRandom random) {
     if (!matchPath(routeMatch.pathMatcher(), fullMethodName)) {
@@ -861,7 +855,7 @@ final class XdsNameResolver extends NameResolver {
       // selectable.
       routingConfig =
           new RoutingConfig(
-              httpMaxStreamDurationNano, routes, filterConfigs,
+              httpMaxStreamDurationNano, RouteTable.create(routes), filterConfigs,
               virtualHost.filterConfigOverrides());
       shouldUpdateResult = false;
       for (String cluster : deletedClusters) {
@@ -980,19 +974,20 @@ final class XdsNameResolver extends NameResolver {
    */
   private static class RoutingConfig {
     private final long fallbackTimeoutNano;
-    final List<Route> routes;
+    final RouteTable routeTable;
     // Null if HttpFilter is not supported.
     @Nullable final List<NamedFilterConfig> filterChain;
     final Map<String, FilterConfig> virtualHostOverrideConfig;
 
     private static RoutingConfig empty = new RoutingConfig(
-        0, Collections.emptyList(), null, Collections.emptyMap());
+        0, RouteTable.EMPTY, null, Collections.emptyMap());
 
     private RoutingConfig(
-        long fallbackTimeoutNano, List<Route> routes, @Nullable List<NamedFilterConfig> filterChain,
+        long fallbackTimeoutNano, RouteTable routeTable,
+        @Nullable List<NamedFilterConfig> filterChain,
         Map<String, FilterConfig> virtualHostOverrideConfig) {
       this.fallbackTimeoutNano = fallbackTimeoutNano;
-      this.routes = routes;
+      this.routeTable = routeTable;
       checkArgument(filterChain == null || !filterChain.isEmpty(), "filterChain is empty");
       this.filterChain = filterChain == null ? null : Collections.unmodifiableList(filterChain);
       this.virtualHostOverrideConfig = Collections.unmodifiableMap(virtualHostOverrideConfig);
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import io.envoyproxy.envoy.service.discovery.v3.Resource;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the last known good xDS resources in a local file, so that a restarted process can serve
+ * them before its ADS stream has synced, or while the management server is unreachable.
+ *
+ * <p>The file is a sequence of length-delimited {@link Resource} messages, each carrying the
+ * resource name and version, and the raw resource whose type URL tells the resource type.
+ */
+final class XdsResourceCacheFile {
+  private static final Logger logger = Logger.getLogger(XdsResourceCacheFile.class.getName());
+
+  private final Path path;
+
+  XdsResourceCacheFile(String path) {
+    this.path = Paths.get(path);
+  }
+
+  /**
+   * Reads the stored resources, keyed by type URL and resource name. A missing or unreadable file
+   * is treated as empty.
+   */
+  Map<String, Map<String, Resource>> load() {
+    Map<String, Map<String, Resource>> resources = new HashMap<>();
+    if (!Files.exists(path)) {
+      return resources;
+    }
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(path))) {
+      Resource resource;
+      while ((resource = Resource.parseDelimitedFrom(in)) != null) {
+        String typeUrl = resource.getResource().getTypeUrl();
+        if (!resources.containsKey(typeUrl)) {
+          resources.put(typeUrl, new HashMap<String, Resource>());
+        }
+        resources.get(typeUrl).put(resource.getName(), resource);
+      }
+    } catch (IOException e) {
+      logger.log(Level.WARNING, "Ignoring unreadable xDS resource cache " + path, e);
+      resources.clear();
+    }
+    return resources;
+  }
+
+  /**
+   * Replaces the content of the file with the given resources. The file is written next to the
+   * destination and then moved over it, so readers never see a partial file.
+   */
+  synchronized void save(Collection<Resource> resources) throws IOException {
+    Path tmpPath = path.resolveSibling(path.getFileName() + ".tmp");
+    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmpPath))) {
+      for (Resource resource : resources) {
+        resource.writeDelimitedTo(out);
+      }
+    }
+    Files.move(tmpPath, path, StandardCopyOption.REPLACE_EXISTING,
+        StandardCopyOption.ATOMIC_MOVE);
+  }
+}
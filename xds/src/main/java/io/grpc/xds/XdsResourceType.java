@@ -124,6 +124,15 @@ abstract class XdsResourceType<T extends ResourceUpdate> {
   }
 
   ValidatedResourceUpdate<T> parse(Args args, List<Any> resources) {
+    return parse(args, resources, null);
+  }
+
+  /**
+   * Parses the resources of a response. Resources found in {@code cache} with the same raw bytes
+   * are not unpacked or validated again, and keep their previously parsed {@link ResourceUpdate}.
+   */
+  ValidatedResourceUpdate<T> parse(Args args, List<Any> resources,
+                                   @Nullable ParsedResourceCache<T> cache) {
     Map<String, ParsedResource<T>> parsedResources = new HashMap<>(resources.size());
     Set<String> unpackedResources = new HashSet<>(resources.size());
     Set<String> invalidResources = new HashSet<>();
@@ -131,6 +140,17 @@ abstract class XdsResourceType<T extends ResourceUpdate> {
 
     for (int i = 0; i < resources.size(); i++) {
       Any resource = resources.get(i);
+      CachedResource<T> cached = cache == null ? null : cache.get(resource, args.serverInfo);
+      if (cached != null) {
+        if (args.subscribedResources != null
+            && !args.subscribedResources.contains(cached.name)) {
+          continue;
+        }
+        unpackedResources.add(cached.cname);
+        parsedResources.put(cached.cname, cached.parsedResource);
+        continue;
+      }
+      Any rawResource = resource;
 
       boolean isResourceV3;
       Message unpackedMessage;
@@ -163,11 +183,18 @@ abstract class XdsResourceType<T extends ResourceUpdate> {
         errors.add(String.format("%s response %s '%s' validation error: %s",
                 typeName(), unpackedClassName().getSimpleName(), cname, e.getMessage()));
         invalidResources.add(cname);
+        if (cache != null) {
+          cache.remove(cname);
+        }
         continue;
       }
 
       // Resource parsed successfully.
-      parsedResources.put(cname, new ParsedResource<T>(resourceUpdate, resource));
+      ParsedResource<T> parsedResource = new ParsedResource<T>(resourceUpdate, resource);
+      parsedResources.put(cname, parsedResource);
+      if (cache != null) {
+        cache.put(rawResource, name, cname, args.serverInfo, parsedResource);
+      }
     }
     return new ValidatedResourceUpdate<T>(parsedResources, unpackedResources, invalidResources,
         errors);
@@ -227,6 +254,60 @@ abstract class XdsResourceType<T extends ResourceUpdate> {
     }
   }
 
+  /**
+   * Remembers the last successfully parsed version of each resource, keyed by the raw resource as
+   * received. Only one version is kept per resource name. Must be used from a single thread.
+   */
+  static final class ParsedResourceCache<T extends ResourceUpdate> {
+    private final Map<Any, CachedResource<T>> resourcesByRaw = new HashMap<>();
+    private final Map<String, Any> rawByName = new HashMap<>();
+
+    @Nullable
+    private CachedResource<T> get(Any rawResource, ServerInfo serverInfo) {
+      CachedResource<T> cached = resourcesByRaw.get(rawResource);
+      // Parsing depends on the server the resource came from, e.g. for LRS.
+      if (cached == null || !cached.serverInfo.equals(serverInfo)) {
+        return null;
+      }
+      return cached;
+    }
+
+    private void put(Any rawResource, String name, String cname, ServerInfo serverInfo,
+                     ParsedResource<T> parsedResource) {
+      remove(cname);
+      resourcesByRaw.put(
+          rawResource, new CachedResource<T>(name, cname, serverInfo, parsedResource));
+      rawByName.put(cname, rawResource);
+    }
+
+    void remove(String cname) {
+      Any rawResource = rawByName.remove(cname);
+      if (rawResource != null) {
+        resourcesByRaw.remove(rawResource);
+      }
+    }
+
+    @VisibleForTesting
+    int size() {
+      return rawByName.size();
+    }
+  }
+
+  private static final class CachedResource<T extends ResourceUpdate> {
+    final String name;
+    final String cname;
+    final ServerInfo serverInfo;
+    final ParsedResource<T> parsedResource;
+
+    CachedResource(String name, String cname, ServerInfo serverInfo,
+                   ParsedResource<T> parsedResource) {
+      this.name = name;
+      this.cname = cname;
+      this.serverInfo = serverInfo;
+      this.parsedResource = parsedResource;
+    }
+  }
+
   static final class ValidatedResourceUpdate<T extends ResourceUpdate> {
     Map<String, ParsedResource<T>> parsedResources;
     Set<String> unpackedResources;
@@ -547,6 +547,18 @@ public class BootstrapperImplTest {
     }
   }
 
+  @Test
+  public void parseBootstrap_resourceCacheFile() throws XdsInitializationException {
+    String rawData = "{\n"
+            + "  \"xds_servers\": [],\n"
+            + "  \"resource_cache_file\": \"/var/cache/xds/resources.bin\"\n"
+            + "}";
+
+    bootstrapper.setFileReader(createFileReader(BOOTSTRAP_FILE_PATH, rawData));
+    BootstrapInfo info = bootstrapper.bootstrap();
+    assertThat(info.resourceCacheFile()).isEqualTo("/var/cache/xds/resources.bin");
+  }
+
   @Test
   public void parseBootstrap_grpcServerResourceId() throws XdsInitializationException {
     String rawData = "{\n"
@@ -655,6 +667,50 @@ public class BootstrapperImplTest {
     assertThat(serverInfo.ignoreResourceDeletion()).isTrue();
   }
 
+  @Test
+  public void serverFeatureDeltaXds_ignoredWithoutXdsV3() throws XdsInitializationException {
+    String rawData = "{\n"
+        + "  \"xds_servers\": [\n"
+        + "    {\n"
+        + "      \"server_uri\": \"" + SERVER_URI + "\",\n"
+        + "      \"channel_creds\": [\n"
+        + "        {\"type\": \"insecure\"}\n"
+        + "      ],\n"
+        + "      \"server_features\": [\"delta_xds\"]\n"
+        + "    }\n"
+        + "  ]\n"
+        + "}";
+
+    bootstrapper.setFileReader(createFileReader(BOOTSTRAP_FILE_PATH, rawData));
+    BootstrapInfo info = bootstrapper.bootstrap();
+    ServerInfo serverInfo = Iterables.getOnlyElement(info.servers());
+    // Delta xDS requires xds_v3: confirm it stays off when only delta_xds is listed.
+    assertThat(serverInfo.useProtocolV3()).isFalse();
+    assertThat(serverInfo.useDeltaProtocol()).isFalse();
+  }
+
+  @Test
+  public void serverFeatureDeltaXds_xdsV3() throws XdsInitializationException {
+    String rawData = "{\n"
+        + "  \"xds_servers\": [\n"
+        + "    {\n"
+        + "      \"server_uri\": \"" + SERVER_URI + "\",\n"
+        + "      \"channel_creds\": [\n"
+        + "        {\"type\": \"insecure\"}\n"
+        + "      ],\n"
+        + "      \"server_features\": [\"xds_v3\", \"delta_xds\"]\n"
+        + "    }\n"
+        + "  ]\n"
+        + "}";
+
+    bootstrapper.setFileReader(createFileReader(BOOTSTRAP_FILE_PATH, rawData));
+    BootstrapInfo info = bootstrapper.bootstrap();
+    ServerInfo serverInfo = Iterables.getOnlyElement(info.servers());
+    // xds_v3 and delta_xds features enabled: confirm both are on.
+    assertThat(serverInfo.useProtocolV3()).isTrue();
+    assertThat(serverInfo.useDeltaProtocol()).isTrue();
+  }
+
   @Test
   public void notFound() {
     BootstrapperImpl.bootstrapPathFromEnvVar = null;
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.grpc.xds.EnvoyServerProtoData.CidrRange;
+import io.grpc.xds.EnvoyServerProtoData.ConnectionSourceType;
+import io.grpc.xds.EnvoyServerProtoData.FilterChain;
+import io.grpc.xds.EnvoyServerProtoData.FilterChainMatch;
+import io.grpc.xds.Filter.NamedFilterConfig;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Collections;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link FilterChainMatchIndex}. */
+@RunWith(JUnit4.class)
+public class FilterChainMatchIndexTest {
+  private static final HttpConnectionManager HTTP_CONNECTION_MANAGER =
+      HttpConnectionManager.forRdsName(
+          0L, "routing-config", Collections.<NamedFilterConfig>emptyList());
+
+  @Test
+  public void empty() throws UnknownHostException {
+    FilterChainMatchIndex<String> index =
+        FilterChainMatchIndex.create(ImmutableMap.<FilterChain, String>of());
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7000)).isEmpty();
+  }
+
+  @Test
+  public void mostSpecificDestinationPrefixWins() throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.<Integer>of(), ""), "any",
+        chain(ImmutableList.of(CidrRange.create("10.1.0.0", 16)), ImmutableList.<Integer>of(),
+            ""), "10.1/16",
+        chain(ImmutableList.of(CidrRange.create("10.1.2.0", 24),
+            CidrRange.create("2001:db8::", 32)), ImmutableList.<Integer>of(), ""), "10.1.2/24"));
+
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7000))
+        .containsExactly("10.1.2/24");
+    assertThat(index.match(address("10.1.3.3"), address("10.4.2.3"), 7000))
+        .containsExactly("10.1/16");
+    assertThat(index.match(address("10.2.3.3"), address("10.4.2.3"), 7000))
+        .containsExactly("any");
+    assertThat(index.match(address("2001:db8::1"), address("2001:db8::2"), 7000))
+        .containsExactly("10.1.2/24");
+    assertThat(index.match(address("2001:db9::1"), address("2001:db8::2"), 7000))
+        .containsExactly("any");
+  }
+
+  @Test
+  public void mostSpecificDestinationPrefixRejectedLater_noFallback()
+      throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.<Integer>of(), ""), "any",
+        chain(ImmutableList.of(CidrRange.create("10.1.2.0", 24)), ImmutableList.<Integer>of(),
+            "tls"), "tls"));
+
+    // As with the filtering passes, the chains are narrowed to the most specific destination
+    // before the transport protocol rejects them.
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7000)).isEmpty();
+    assertThat(index.match(address("10.1.3.3"), address("10.4.2.3"), 7000))
+        .containsExactly("any");
+  }
+
+  @Test
+  public void sourcePortMatchPreferred() throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.<Integer>of(), ""), "any",
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.of(7000, 7000, 7001), ""), "ports"));
+
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7000))
+        .containsExactly("ports");
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7002))
+        .containsExactly("any");
+  }
+
+  @Test
+  public void ambiguousChains() throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.<Integer>of(), ""), "first",
+        chain(ImmutableList.<CidrRange>of(), ImmutableList.<Integer>of(), "raw_buffer"),
+        "second"));
+
+    assertThat(index.match(address("10.1.2.3"), address("10.4.2.3"), 7000))
+        .containsExactly("first", "second");
+  }
+
+  @Test
+  public void connectionSourceType() throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ConnectionSourceType.SAME_IP_OR_LOOPBACK, ImmutableList.<CidrRange>of(),
+            ImmutableList.<Integer>of()), "local",
+        chain(ConnectionSourceType.EXTERNAL, ImmutableList.<CidrRange>of(),
+            ImmutableList.<Integer>of()), "external"));
+
+    assertThat(index.match(address("10.4.2.3"), address("127.0.0.1"), 7000))
+        .containsExactly("local");
+    assertThat(index.match(address("10.4.2.3"), address("::1"), 7000))
+        .containsExactly("local");
+    assertThat(index.match(address("10.4.2.3"), address("10.1.2.3"), 7000))
+        .containsExactly("external");
+    // A peer on the same non loopback address is both local and external.
+    assertThat(index.match(address("10.4.2.3"), address("10.4.2.3"), 7000))
+        .containsExactly("local", "external");
+  }
+
+  @Test
+  public void mostSpecificSourcePrefixWins() throws UnknownHostException {
+    FilterChainMatchIndex<String> index = FilterChainMatchIndex.create(ImmutableMap.of(
+        chain(ConnectionSourceType.ANY, ImmutableList.<CidrRange>of(),
+            ImmutableList.<Integer>of()), "any",
+        chain(ConnectionSourceType.ANY, ImmutableList.of(CidrRange.create("10.1.0.0", 16)),
+            ImmutableList.<Integer>of()), "10.1/16",
+        chain(ConnectionSourceType.ANY, ImmutableList.of(CidrRange.create("10.1.2.0", 24)),
+            ImmutableList.<Integer>of()), "10.1.2/24",
+        chain(ConnectionSourceType.ANY, ImmutableList.of(CidrRange.create("10.1.3.0", 24)),
+            ImmutableList.of(9000)), "10.1.3/24:9000"));
+
+    assertThat(index.match(address("10.4.2.3"), address("10.1.2.3"), 7000))
+        .containsExactly("10.1.2/24");
+    assertThat(index.match(address("10.4.2.3"), address("10.1.4.3"), 7000))
+        .containsExactly("10.1/16");
+    assertThat(index.match(address("10.4.2.3"), address("10.2.2.3"), 7000))
+        .containsExactly("any");
+    assertThat(index.match(address("10.4.2.3"), address("10.1.3.3"), 9000))
+        .containsExactly("10.1.3/24:9000");
+    // The chains are narrowed to the most specific source prefix before the source port rejects
+    // them, without falling back to the less specific prefixes.
+    assertThat(index.match(address("10.4.2.3"), address("10.1.3.3"), 7000)).isEmpty();
+  }
+
+  private static InetAddress address(String address) throws UnknownHostException {
+    return InetAddress.getByName(address);
+  }
+
+  private static FilterChain chain(
+      ImmutableList<CidrRange> prefixRanges, ImmutableList<Integer> sourcePorts,
+      String transportProtocol) {
+    return chain(prefixRanges, ConnectionSourceType.ANY, ImmutableList.<CidrRange>of(),
+        sourcePorts, transportProtocol);
+  }
+
+  private static FilterChain chain(
+      ConnectionSourceType sourceType, ImmutableList<CidrRange> sourcePrefixRanges,
+      ImmutableList<Integer> sourcePorts) {
+    return chain(ImmutableList.<CidrRange>of(), sourceType, sourcePrefixRanges, sourcePorts, "");
+  }
+
+  private static FilterChain chain(
+      ImmutableList<CidrRange> prefixRanges, ConnectionSourceType sourceType,
+      ImmutableList<CidrRange> sourcePrefixRanges, ImmutableList<Integer> sourcePorts,
+      String transportProtocol) {
+    FilterChainMatch filterChainMatch = FilterChainMatch.create(
+        0,
+        prefixRanges,
+        ImmutableList.<String>of(),
+        sourcePrefixRanges,
+        sourceType,
+        sourcePorts,
+        ImmutableList.<String>of(),
+        transportProtocol);
+    return FilterChain.create(
+        "filter-chain-" + prefixRanges + sourceType + sourcePrefixRanges + sourcePorts
+            + transportProtocol,
+        filterChainMatch, HTTP_CONNECTION_MANAGER, null, null);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.mockito.Mockito.mock;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.re2j.Pattern;
+import io.grpc.Metadata;
+import io.grpc.xds.VirtualHost.Route;
+import io.grpc.xds.VirtualHost.Route.RouteAction;
+import io.grpc.xds.VirtualHost.Route.RouteMatch;
+import io.grpc.xds.VirtualHost.Route.RouteMatch.PathMatcher;
+import io.grpc.xds.internal.Matchers.HeaderMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/** Unit tests for {@link RouteTable}. */
+@RunWith(JUnit4.class)
+public class RouteTableTest {
+  private final ThreadSafeRandom random = mock(ThreadSafeRandom.class);
+  private final Metadata headers = new Metadata();
+
+  @Test
+  public void empty() {
+    assertThat(RouteTable.EMPTY.match("/foo.Bar/Baz", headers, random)).isNull();
+  }
+
+  @Test
+  public void firstMatchingRouteWins() {
+    Route prefix = route(PathMatcher.fromPrefix("/foo.Bar/", true));
+    Route exact = route(PathMatcher.fromPath("/foo.Bar/Baz", true));
+    Route catchAll = route(PathMatcher.fromPrefix("", true));
+    RouteTable table = RouteTable.create(Arrays.asList(prefix, exact, catchAll));
+
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(prefix);
+    assertThat(table.match("/foo.Qux/Baz", headers, random)).isSameInstanceAs(catchAll);
+
+    table = RouteTable.create(Arrays.asList(exact, prefix, catchAll));
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(exact);
+    assertThat(table.match("/foo.Bar/Qux", headers, random)).isSameInstanceAs(prefix);
+  }
+
+  @Test
+  public void longerPrefixLaterInTable() {
+    Route shortPrefix = route(PathMatcher.fromPrefix("/foo", true));
+    Route longPrefix = route(PathMatcher.fromPrefix("/foo.Bar/", true));
+    RouteTable table = RouteTable.create(Arrays.asList(shortPrefix, longPrefix));
+
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(shortPrefix);
+    assertThat(table.match("/fo", headers, random)).isNull();
+  }
+
+  @Test
+  public void caseInsensitive() {
+    Route exact = route(PathMatcher.fromPath("/FOO.bar/baz", false));
+    Route prefix = route(PathMatcher.fromPrefix("/Foo.BAR/", false));
+    RouteTable table = RouteTable.create(Arrays.asList(exact, prefix));
+
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(exact);
+    assertThat(table.match("/foo.bar/Qux", headers, random)).isSameInstanceAs(prefix);
+    assertThat(table.match("/foo.baz/Qux", headers, random)).isNull();
+  }
+
+  @Test
+  public void regExKeepsItsPlace() {
+    Route regEx = route(PathMatcher.fromRegEx(Pattern.compile("/foo\\..*/Baz")));
+    Route exact = route(PathMatcher.fromPath("/foo.Bar/Baz", true));
+    RouteTable table = RouteTable.create(Arrays.asList(regEx, exact));
+
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(regEx);
+    assertThat(table.match("/foo.Bar/Qux", headers, random)).isNull();
+  }
+
+  @Test
+  public void headerMismatchFallsThroughToNextRoute() {
+    Route withHeader = Route.forAction(
+        RouteMatch.create(PathMatcher.fromPath("/foo.Bar/Baz", true),
+            Collections.singletonList(HeaderMatcher.forExactValue("env", "canary", false)),
+            null),
+        action(), ImmutableMap.<String, FilterConfig>of());
+    Route fallback = route(PathMatcher.fromPrefix("/", true));
+    RouteTable table = RouteTable.create(Arrays.asList(withHeader, fallback));
+
+    assertThat(table.match("/foo.Bar/Baz", headers, random)).isSameInstanceAs(fallback);
+    Metadata canary = new Metadata();
+    canary.put(Metadata.Key.of("env", Metadata.ASCII_STRING_MARSHALLER), "canary");
+    assertThat(table.match("/foo.Bar/Baz", canary, random)).isSameInstanceAs(withHeader);
+  }
+
+  @Test
+  public void sameAsLinearScan() {
+    Random rand = new Random(1);
+    String[] services = {"/foo.Bar/", "/foo.Baz/", "/FOO.bar/", "/qux.Quux/"};
+    String[] methods = {"Get", "Put", "get", "List", ""};
+    List<Route> routes = new ArrayList<>();
+    for (int i = 0; i < 200; i++) {
+      String path = services[rand.nextInt(services.length)] + methods[rand.nextInt(methods.length)];
+      boolean caseSensitive = rand.nextBoolean();
+      switch (rand.nextInt(4)) {
+        case 0:
+          routes.add(route(PathMatcher.fromPath(path, caseSensitive)));
+          break;
+        case 1:
+          routes.add(route(PathMatcher.fromPrefix(
+              path.substring(0, rand.nextInt(path.length() + 1)), caseSensitive)));
+          break;
+        case 2:
+          routes.add(route(PathMatcher.fromRegEx(Pattern.compile(".*" + path.substring(1)))));
+          break;
+        default:
+          routes.add(Route.forAction(
+              RouteMatch.create(PathMatcher.fromPath(path, caseSensitive),
+                  Collections.singletonList(
+                      HeaderMatcher.forPresent("absent-header", true, false)),
+                  null),
+              action(), ImmutableMap.<String, FilterConfig>of()));
+      }
+    }
+    for (int size = 0; size <= routes.size(); size += 10) {
+      List<Route> subList = routes.subList(routes.size() - size, routes.size());
+      RouteTable table = RouteTable.create(subList);
+      for (String service : services) {
+        for (String method : methods) {
+          String path = service + method;
+          assertThat(table.match(path, headers, random)).isSameInstanceAs(
+              linearMatch(subList, path));
+        }
+      }
+    }
+  }
+
+  private Route linearMatch(List<Route> routes, String path) {
+    for (Route route : routes) {
+      if (XdsNameResolver.matchRoute(route.routeMatch(), path, headers, random)) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  private static Route route(PathMatcher pathMatcher) {
+    return Route.forAction(
+        RouteMatch.create(pathMatcher, Collections.<HeaderMatcher>emptyList(), null),
+        action(), ImmutableMap.<String, FilterConfig>of());
+  }
+
+  private static RouteAction action() {
+    return RouteAction.forCluster(
+        "cluster", Collections.<RouteAction.HashPolicy>emptyList(), null, null);
+  }
+}
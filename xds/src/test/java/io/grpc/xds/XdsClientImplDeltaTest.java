@@ -0,0 +1,250 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.grpc.xds.XdsTestControlPlaneService.ADS_TYPE_URL_CDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import io.envoyproxy.envoy.config.cluster.v3.Cluster;
+import io.envoyproxy.envoy.config.core.v3.AggregatedConfigSource;
+import io.envoyproxy.envoy.config.core.v3.ConfigSource;
+import io.grpc.Context;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.internal.BackoffPolicy;
+import io.grpc.internal.ExponentialBackoffPolicy;
+import io.grpc.internal.FakeClock;
+import io.grpc.internal.TimeProvider;
+import io.grpc.testing.GrpcCleanupRule;
+import io.grpc.xds.Bootstrapper.ServerInfo;
+import io.grpc.xds.EnvoyProtoData.Node;
+import io.grpc.xds.XdsClient.ResourceWatcher;
+import io.grpc.xds.XdsClientImpl.XdsChannelFactory;
+import io.grpc.xds.XdsClusterResource.CdsUpdate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Tests for {@link XdsClientImpl} speaking the delta xDS protocol to
+ * {@link XdsTestControlPlaneService}, compared with the state of the world protocol.
+ */
+@RunWith(JUnit4.class)
+public class XdsClientImplDeltaTest {
+  private static final String SERVER_NAME = "delta-xds-server";
+  private static final int CLUSTER_COUNT = 100;
+
+  @Rule
+  public final GrpcCleanupRule cleanupRule = new GrpcCleanupRule();
+
+  private final FakeClock fakeClock = new FakeClock();
+  private final TimeProvider timeProvider = fakeClock.getTimeProvider();
+  private final XdsTestControlPlaneService controlPlane = new XdsTestControlPlaneService();
+  private final Map<String, ResourceWatcher<CdsUpdate>> watchers = new HashMap<>();
+  private XdsClientImpl xdsClient;
+
+  @Before
+  public void setUp() throws Exception {
+    cleanupRule.register(InProcessServerBuilder.forName(SERVER_NAME)
+        .addService(controlPlane)
+        .directExecutor()
+        .build()
+        .start());
+  }
+
+  @After
+  public void tearDown() {
+    if (xdsClient != null) {
+      xdsClient.shutdown();
+    }
+  }
+
+  @Test
+  public void deltaSendsOnlyChangedResources() {
+    long[] sotw = updateOneOfManyClusters(false);
+    long[] delta = updateOneOfManyClusters(true);
+
+    // Delta sends each cluster once on the initial load.
+    assertThat(delta[0]).isEqualTo(CLUSTER_COUNT);
+    // Changing a single cluster resends all of them with the state of the world protocol, but
+    // only the changed one with delta.
+    assertThat(sotw[1]).isEqualTo(CLUSTER_COUNT);
+    assertThat(delta[1]).isEqualTo(1);
+    assertThat(delta[2]).isLessThan(sotw[2] / 10);
+  }
+
+  @Test
+  public void removedResourceIsReportedAbsent() {
+    Map<String, Cluster> clusters = buildClusters(2, 0);
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    createXdsClient(true);
+    watchAll(clusters.keySet());
+    ResourceWatcher<CdsUpdate> removedWatcher = watchers.get("cluster-0");
+    ResourceWatcher<CdsUpdate> keptWatcher = watchers.get("cluster-1");
+    verify(removedWatcher).onChanged(any(CdsUpdate.class));
+    verify(keptWatcher).onChanged(any(CdsUpdate.class));
+
+    clusters.remove("cluster-0");
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    verify(removedWatcher).onResourceDoesNotExist("cluster-0");
+    // The kept cluster is left out of the response, which does not make it absent.
+    verify(keptWatcher, never()).onResourceDoesNotExist("cluster-1");
+    verify(keptWatcher).onChanged(any(CdsUpdate.class));
+  }
+
+  @Test
+  public void unsubscribedResourceIsNoLongerSent() {
+    Map<String, Cluster> clusters = buildClusters(2, 0);
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    createXdsClient(true);
+    watchAll(clusters.keySet());
+    xdsClient.cancelXdsResourceWatch(
+        XdsClusterResource.getInstance(), "cluster-0", watchers.get("cluster-0"));
+    long resourcesSent = controlPlane.getResourcesSent();
+
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, buildClusters(2, 1));
+    assertThat(controlPlane.getResourcesSent() - resourcesSent).isEqualTo(1);
+    verify(watchers.get("cluster-1"), times(2)).onChanged(any(CdsUpdate.class));
+  }
+
+  @Test
+  public void nackedVersionIsNotSentBackOnReconnect() {
+    Map<String, Cluster> clusters = buildClusters(2, 0);
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    createXdsClient(true);
+    watchAll(clusters.keySet());
+    verify(watchers.get("cluster-0")).onChanged(any(CdsUpdate.class));
+    Map<String, String> ackedVersions = new HashMap<>();
+    for (Map.Entry<String, Cluster> entry : clusters.entrySet()) {
+      ackedVersions.put(entry.getKey(), String.valueOf(entry.getValue().hashCode()));
+    }
+
+    // An EDS cluster that does not say where to get its endpoints from is rejected.
+    Map<String, Cluster> invalidClusters = new HashMap<>(clusters);
+    invalidClusters.put("cluster-0", clusters.get("cluster-0").toBuilder()
+        .setEdsClusterConfig(Cluster.EdsClusterConfig.getDefaultInstance())
+        .build());
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, invalidClusters);
+    controlPlane.closeDeltaStreams();
+    fakeClock.forwardTime(1, TimeUnit.MINUTES);
+
+    assertThat(controlPlane.getInitialResourceVersions(ADS_TYPE_URL_CDS))
+        .containsExactlyEntriesIn(ackedVersions);
+  }
+
+  // Returns the number of resources sent for the initial load, the number of resources sent
+  // for the update of a single cluster, and the size of that update in bytes.
+  private long[] updateOneOfManyClusters(boolean useDeltaProtocol) {
+    if (xdsClient != null) {
+      xdsClient.shutdown();
+    }
+    Map<String, Cluster> clusters = buildClusters(CLUSTER_COUNT, 0);
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    createXdsClient(useDeltaProtocol);
+    long initialResources = controlPlane.getResourcesSent();
+    watchAll(clusters.keySet());
+    for (ResourceWatcher<CdsUpdate> watcher : watchers.values()) {
+      verify(watcher).onChanged(any(CdsUpdate.class));
+      reset(watcher);
+    }
+    long resourcesBefore = controlPlane.getResourcesSent();
+    long bytesBefore = controlPlane.getResponseBytesSent();
+    long initialLoad = resourcesBefore - initialResources;
+
+    clusters.put("cluster-0", buildCluster("cluster-0", 1));
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, clusters);
+    verify(watchers.get("cluster-0")).onChanged(any(CdsUpdate.class));
+    return new long[] {
+        initialLoad,
+        controlPlane.getResourcesSent() - resourcesBefore,
+        controlPlane.getResponseBytesSent() - bytesBefore};
+  }
+
+  @SuppressWarnings("unchecked")
+  private void watchAll(Iterable<String> names) {
+    watchers.clear();
+    for (String name : names) {
+      ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+      watchers.put(name, watcher);
+      xdsClient.watchXdsResource(XdsClusterResource.getInstance(), name, watcher);
+    }
+  }
+
+  private void createXdsClient(boolean useDeltaProtocol) {
+    ServerInfo serverInfo = ServerInfo.create(SERVER_NAME, InsecureChannelCredentials.create(),
+        true, false, useDeltaProtocol);
+    Bootstrapper.BootstrapInfo bootstrapInfo = Bootstrapper.BootstrapInfo.builder()
+        .servers(Collections.singletonList(serverInfo))
+        .node(Node.newBuilder().setId("delta-test-node").build())
+        .build();
+    XdsChannelFactory channelFactory = new XdsChannelFactory() {
+      @Override
+      ManagedChannel create(ServerInfo serverInfo) {
+        return cleanupRule.register(
+            InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build());
+      }
+    };
+    BackoffPolicy.Provider backoffPolicyProvider = new ExponentialBackoffPolicy.Provider();
+    xdsClient = new XdsClientImpl(
+        channelFactory,
+        bootstrapInfo,
+        Context.ROOT,
+        fakeClock.getScheduledExecutorService(),
+        backoffPolicyProvider,
+        fakeClock.getStopwatchSupplier(),
+        timeProvider,
+        mock(TlsContextManager.class));
+  }
+
+  private static Map<String, Cluster> buildClusters(int count, int generation) {
+    Map<String, Cluster> clusters = new HashMap<>();
+    for (int i = 0; i < count; i++) {
+      String name = "cluster-" + i;
+      clusters.put(name, buildCluster(name, generation));
+    }
+    return clusters;
+  }
+
+  private static Cluster buildCluster(String name, int generation) {
+    return Cluster.newBuilder()
+        .setName(name)
+        .setType(Cluster.DiscoveryType.EDS)
+        .setEdsClusterConfig(
+            Cluster.EdsClusterConfig.newBuilder()
+                .setServiceName(name + "-eds-" + generation)
+                .setEdsConfig(
+                    ConfigSource.newBuilder()
+                        .setAds(AggregatedConfigSource.getDefaultInstance())))
+        .setLbPolicy(Cluster.LbPolicy.ROUND_ROBIN)
+        .build();
+  }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright 2022 The gRPC Authors
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.grpc.xds;
+
+import static com.google.common.truth.Truth.assertThat;
+import static io.grpc.xds.XdsTestControlPlaneService.ADS_TYPE_URL_CDS;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.protobuf.Any;
+import io.envoyproxy.envoy.config.cluster.v3.Cluster;
+import io.envoyproxy.envoy.config.core.v3.AggregatedConfigSource;
+import io.envoyproxy.envoy.config.core.v3.ConfigSource;
+import io.envoyproxy.envoy.service.discovery.v3.Resource;
+import io.grpc.Context;
+import io.grpc.InsecureChannelCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.inprocess.InProcessChannelBuilder;
+import io.grpc.inprocess.InProcessServerBuilder;
+import io.grpc.internal.ExponentialBackoffPolicy;
+import io.grpc.internal.FakeClock;
+import io.grpc.testing.GrpcCleanupRule;
+import io.grpc.xds.Bootstrapper.ServerInfo;
+import io.grpc.xds.EnvoyProtoData.Node;
+import io.grpc.xds.XdsClient.ResourceMetadata;
+import io.grpc.xds.XdsClient.ResourceWatcher;
+import io.grpc.xds.XdsClientImpl.XdsChannelFactory;
+import io.grpc.xds.XdsClusterResource.CdsUpdate;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Tests for {@link XdsClientImpl} with a resource cache file, and for
+ * {@link XdsResourceCacheFile}.
+ */
+@RunWith(JUnit4.class)
+public class XdsClientImplResourceCacheTest {
+  private static final String SERVER_NAME = "resource-cache-xds-server";
+  private static final String CLUSTER = "cluster-foo";
+
+  @Rule
+  public final GrpcCleanupRule cleanupRule = new GrpcCleanupRule();
+  @Rule
+  public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private final FakeClock fakeClock = new FakeClock();
+  // Runs the reads and writes of the cache file.
+  private final FakeClock fileExecutor = new FakeClock();
+  private final XdsTestControlPlaneService controlPlane = new XdsTestControlPlaneService();
+  private File cacheFile;
+  private XdsClientImpl xdsClient;
+
+  @Before
+  public void setUp() throws IOException {
+    cacheFile = new File(tempFolder.getRoot(), "xds-resources.bin");
+  }
+
+  @After
+  public void tearDown() {
+    if (xdsClient != null) {
+      xdsClient.shutdown();
+    }
+  }
+
+  @Test
+  public void cacheFile_roundTrip() throws IOException {
+    XdsResourceCacheFile file = new XdsResourceCacheFile(cacheFile.getPath());
+    assertThat(file.load()).isEmpty();
+    Resource resource = cachedCluster("1", "eds-v1");
+    file.save(Collections.singletonList(resource));
+
+    Map<String, Map<String, Resource>> loaded = file.load();
+    assertThat(loaded).containsExactly(
+        ADS_TYPE_URL_CDS, ImmutableMap.of(CLUSTER, resource));
+  }
+
+  @Test
+  public void cacheFile_corruptedIsIgnored() throws IOException {
+    Files.write(cacheFile.toPath(), new byte[] {0x7f, 0x01, 0x02});
+    assertThat(new XdsResourceCacheFile(cacheFile.getPath()).load()).isEmpty();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void servesCachedResourceWhileServerIsUnreachable() throws Exception {
+    new XdsResourceCacheFile(cacheFile.getPath())
+        .save(Collections.singletonList(cachedCluster("1", "eds-v1")));
+    // No ADS service: every stream fails.
+    startServer(false);
+    createXdsClient();
+    fileExecutor.runDueTasks();
+
+    ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+    xdsClient.watchXdsResource(XdsClusterResource.getInstance(), CLUSTER, watcher);
+    ArgumentCaptor<CdsUpdate> captor = ArgumentCaptor.forClass(CdsUpdate.class);
+    verify(watcher).onChanged(captor.capture());
+    assertThat(captor.getValue().edsServiceName()).isEqualTo("eds-v1");
+
+    // The cached resource does not time out.
+    fakeClock.forwardTime(XdsClientImpl.INITIAL_RESOURCE_FETCH_TIMEOUT_SEC, TimeUnit.SECONDS);
+    verify(watcher, times(0)).onResourceDoesNotExist(CLUSTER);
+    ResourceMetadata metadata = getMetadata();
+    assertThat(metadata.isCached()).isTrue();
+    assertThat(metadata.getVersion()).isEqualTo("1");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void cachedResourceReplacedAndSaved() throws Exception {
+    new XdsResourceCacheFile(cacheFile.getPath())
+        .save(Collections.singletonList(cachedCluster("1", "eds-v1")));
+    Cluster serverCluster = buildCluster("eds-v2");
+    controlPlane.setXdsConfig(ADS_TYPE_URL_CDS, ImmutableMap.of(CLUSTER, serverCluster));
+    startServer(true);
+    createXdsClient();
+    fileExecutor.runDueTasks();
+
+    ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+    xdsClient.watchXdsResource(XdsClusterResource.getInstance(), CLUSTER, watcher);
+    ArgumentCaptor<CdsUpdate> captor = ArgumentCaptor.forClass(CdsUpdate.class);
+    verify(watcher, times(2)).onChanged(captor.capture());
+    assertThat(captor.getAllValues().get(0).edsServiceName()).isEqualTo("eds-v1");
+    assertThat(captor.getAllValues().get(1).edsServiceName()).isEqualTo("eds-v2");
+    assertThat(getMetadata().isCached()).isFalse();
+
+    fakeClock.forwardTime(XdsClientImpl.RESOURCE_CACHE_SAVE_DELAY_SEC, TimeUnit.SECONDS);
+    // The timer only hands the write over to the file executor.
+    assertThat(fileExecutor.runDueTasks()).isEqualTo(1);
+    Resource saved = new XdsResourceCacheFile(cacheFile.getPath()).load()
+        .get(ADS_TYPE_URL_CDS).get(CLUSTER);
+    assertThat(saved.getResource()).isEqualTo(Any.pack(serverCluster));
+    assertThat(saved.getVersion()).isEqualTo(getMetadata().getVersion());
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void cacheFileReadOffConstructor_servedOnceRead() throws Exception {
+    new XdsResourceCacheFile(cacheFile.getPath())
+        .save(Collections.singletonList(cachedCluster("1", "eds-v1")));
+    startServer(false);
+    createXdsClient();
+    assertThat(fileExecutor.numPendingTasks()).isEqualTo(1);
+
+    ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+    xdsClient.watchXdsResource(XdsClusterResource.getInstance(), CLUSTER, watcher);
+    verify(watcher, never()).onChanged(any(CdsUpdate.class));
+
+    fileExecutor.runDueTasks();
+    ArgumentCaptor<CdsUpdate> captor = ArgumentCaptor.forClass(CdsUpdate.class);
+    verify(watcher).onChanged(captor.capture());
+    assertThat(captor.getValue().edsServiceName()).isEqualTo("eds-v1");
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shutdownCancelsPendingSave() throws Exception {
+    controlPlane.setXdsConfig(
+        ADS_TYPE_URL_CDS, ImmutableMap.of(CLUSTER, buildCluster("eds-v1")));
+    startServer(true);
+    createXdsClient();
+    fileExecutor.runDueTasks();
+    ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+    xdsClient.watchXdsResource(XdsClusterResource.getInstance(), CLUSTER, watcher);
+    verify(watcher).onChanged(any(CdsUpdate.class));
+
+    xdsClient.shutdown();
+    fakeClock.forwardTime(XdsClientImpl.RESOURCE_CACHE_SAVE_DELAY_SEC, TimeUnit.SECONDS);
+    assertThat(fileExecutor.runDueTasks()).isEqualTo(0);
+    assertThat(cacheFile.exists()).isFalse();
+  }
+
+  private ResourceMetadata getMetadata() throws Exception {
+    return xdsClient.getSubscribedResourcesMetadataSnapshot().get(5, TimeUnit.SECONDS)
+        .get(XdsClusterResource.getInstance()).get(CLUSTER);
+  }
+
+  private void startServer(boolean withAdsService) throws IOException {
+    InProcessServerBuilder builder = InProcessServerBuilder.forName(SERVER_NAME).directExecutor();
+    if (withAdsService) {
+      builder.addService(controlPlane);
+    }
+    cleanupRule.register(builder.build().start());
+  }
+
+  private void createXdsClient() {
+    ServerInfo serverInfo =
+        ServerInfo.create(SERVER_NAME, InsecureChannelCredentials.create(), true);
+    Bootstrapper.BootstrapInfo bootstrapInfo = Bootstrapper.BootstrapInfo.builder()
+        .servers(Collections.singletonList(serverInfo))
+        .node(Node.newBuilder().setId("resource-cache-test-node").build())
+        .resourceCacheFile(cacheFile.getPath())
+        .build();
+    XdsChannelFactory channelFactory = new XdsChannelFactory() {
+      @Override
+      ManagedChannel create(ServerInfo serverInfo) {
+        return cleanupRule.register(
+            InProcessChannelBuilder.forName(SERVER_NAME).directExecutor().build());
+      }
+    };
+    xdsClient = new XdsClientImpl(
+        channelFactory,
+        bootstrapInfo,
+        Context.ROOT,
+        fakeClock.getScheduledExecutorService(),
+        new ExponentialBackoffPolicy.Provider(),
+        fakeClock.getStopwatchSupplier(),
+        fakeClock.getTimeProvider(),
+        mock(TlsContextManager.class),
+        fileExecutor.getScheduledExecutorService());
+  }
+
+  private static Resource cachedCluster(String version, String edsServiceName) {
+    return Resource.newBuilder()
+        .setName(CLUSTER)
+        .setVersion(version)
+        .setResource(Any.pack(buildCluster(edsServiceName)))
+        .build();
+  }
+
+  private static Cluster buildCluster(String edsServiceName) {
+    return Cluster.newBuilder()
+        .setName(CLUSTER)
+        .setType(Cluster.DiscoveryType.EDS)
+        .setEdsClusterConfig(
+            Cluster.EdsClusterConfig.newBuilder()
+                .setServiceName(edsServiceName)
+                .setEdsConfig(
+                    ConfigSource.newBuilder()
+                        .setAds(AggregatedConfigSource.getDefaultInstance())))
+        .setLbPolicy(Cluster.LbPolicy.ROUND_ROBIN)
+        .build();
+  }
+}
@@ -2488,6 +2488,27 @@ public abstract class XdsClientImplTestBase {
     verifySubscribedResourcesMetadataSizes(0, 1, 0, 0);
   }
 
+  @Test
+  @SuppressWarnings("unchecked")
+  public void cdsResourceUnchanged_reusesParsedUpdate() {
+    DiscoveryRpcCall call = startResourceWatcher(XdsClusterResource.getInstance(), CDS_RESOURCE,
+        cdsResourceWatcher);
+    call.sendResponse(CDS, testClusterRoundRobin, VERSION_1, "0000");
+    verify(cdsResourceWatcher).onChanged(cdsUpdateCaptor.capture());
+    CdsUpdate cdsUpdate = cdsUpdateCaptor.getValue();
+
+    // Same resource in a new response: the earlier parsed update is kept, watchers not notified.
+    call.sendResponse(CDS, testClusterRoundRobin, VERSION_2, "0001");
+    call.verifyRequest(CDS, CDS_RESOURCE, VERSION_2, "0001", NODE);
+    verifyNoMoreInteractions(cdsResourceWatcher);
+    verifyResourceMetadataAcked(CDS, CDS_RESOURCE, testClusterRoundRobin, VERSION_2,
+        TIME_INCREMENT * 2);
+    ResourceWatcher<CdsUpdate> watcher = mock(ResourceWatcher.class);
+    xdsClient.watchXdsResource(XdsClusterResource.getInstance(), CDS_RESOURCE, watcher);
+    verify(watcher).onChanged(cdsUpdateCaptor.capture());
+    assertThat(cdsUpdateCaptor.getValue()).isSameInstanceAs(cdsUpdate);
+  }
+
   @Test
   public void cdsResourceUpdated() {
     DiscoveryRpcCall call = startResourceWatcher(XdsClusterResource.getInstance(), CDS_RESOURCE,
@@ -21,15 +21,21 @@ import com.google.common.collect.ImmutableMap;
 import com.google.protobuf.Any;
 import com.google.protobuf.Message;
 import io.envoyproxy.envoy.service.discovery.v3.AggregatedDiscoveryServiceGrpc;
+import io.envoyproxy.envoy.service.discovery.v3.DeltaDiscoveryRequest;
+import io.envoyproxy.envoy.service.discovery.v3.DeltaDiscoveryResponse;
 import io.envoyproxy.envoy.service.discovery.v3.DiscoveryRequest;
 import io.envoyproxy.envoy.service.discovery.v3.DiscoveryResponse;
+import io.envoyproxy.envoy.service.discovery.v3.Resource;
+import io.grpc.Status;
 import io.grpc.SynchronizationContext;
 import io.grpc.stub.StreamObserver;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -52,6 +58,10 @@ import java.util.logging.Logger;
  * 2) NACK an xDS response.
  * 3) ACK an xDS response.
  * The service is capable of distinguish these cases when handling the request.
+ *
+ * <p>Delta (incremental) xDS streams are also supported. For those, the service tracks the version
+ * of each subscribed resource that the client has, and only sends the resources that changed.
+ * The version of a resource is the hash of its content.
  */
 final class XdsTestControlPlaneService extends
     AggregatedDiscoveryServiceGrpc.AggregatedDiscoveryServiceImplBase {
@@ -95,10 +105,56 @@ final class XdsTestControlPlaneService extends
       ADS_TYPE_URL_CDS, new HashMap<StreamObserver<DiscoveryResponse>, AtomicInteger>(),
       ADS_TYPE_URL_EDS, new HashMap<StreamObserver<DiscoveryResponse>, AtomicInteger>()
   );
+  // For each resource type, the delta streams subscribed to it, with the version of each subscribed
+  // resource that the client has, or null if it has none.
+  private final Map<String, HashMap<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>>>
+      deltaSubscribers = new HashMap<>();
+  private final AtomicInteger deltaNonce = new AtomicInteger();
+  private final AtomicLong responseBytesSent = new AtomicLong();
+  private final AtomicLong resourcesSent = new AtomicLong();
+  // The initial_resource_versions of the last delta request subscribing to each resource type.
+  private final Map<String, Map<String, String>> initialResourceVersions =
+      new ConcurrentHashMap<>();
+
+  /** Returns the serialized size of all the responses sent so far, of both protocols. */
+  long getResponseBytesSent() {
+    return responseBytesSent.get();
+  }
+
+  /** Returns the number of resources sent so far in responses of both protocols. */
+  long getResourcesSent() {
+    return resourcesSent.get();
+  }
+
+  /**
+   * Returns the initial_resource_versions of the last delta request that subscribed to resources
+   * of the given type, or null if there was none.
+   */
+  Map<String, String> getInitialResourceVersions(String type) {
+    return initialResourceVersions.get(type);
+  }
+
+  /** Fails all the delta streams, so that the clients restart them. */
+  void closeDeltaStreams() {
+    syncContext.execute(new Runnable() {
+      @Override
+      public void run() {
+        Set<StreamObserver<DeltaDiscoveryResponse>> streams = new HashSet<>();
+        for (Map<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>> typeStreams :
+            deltaSubscribers.values()) {
+          streams.addAll(typeStreams.keySet());
+          typeStreams.clear();
+        }
+        for (StreamObserver<DeltaDiscoveryResponse> stream : streams) {
+          stream.onError(Status.UNAVAILABLE.withDescription("closed for test").asException());
+        }
+      }
+    });
+  }
 
 
   // treat all the resource types as state-of-the-world, send back all resources of a particular
-  // type when any of them change.
+  // type when any of them change. Delta streams only get the changed resources.
   public <T extends Message> void setXdsConfig(final String type, final Map<String, T> resources) {
     logger.log(Level.FINE, "setting config {0} {1}", new Object[]{type, resources});
     syncContext.execute(new Runnable() {
@@ -115,6 +171,14 @@ final class XdsTestControlPlaneService extends
               entry.getValue());
           entry.getKey().onNext(response);
         }
+        Map<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>> deltaStreams =
+            deltaSubscribers.get(type);
+        if (deltaStreams != null) {
+          for (Map.Entry<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>> entry :
+              deltaStreams.entrySet()) {
+            sendDeltaResponse(type, entry.getKey(), entry.getValue());
+          }
+        }
       }
     });
   }
@@ -194,6 +258,106 @@ final class XdsTestControlPlaneService extends
             resourceType));
       }
     }
-    return responseBuilder.build();
+    DiscoveryResponse response = responseBuilder.build();
+    responseBytesSent.addAndGet(response.getSerializedSize());
+    resourcesSent.addAndGet(response.getResourcesCount());
+    return response;
+  }
+
+  @Override
+  public StreamObserver<DeltaDiscoveryRequest> deltaAggregatedResources(
+      final StreamObserver<DeltaDiscoveryResponse> responseObserver) {
+    return new StreamObserver<DeltaDiscoveryRequest>() {
+      @Override
+      public void onNext(final DeltaDiscoveryRequest value) {
+        syncContext.execute(new Runnable() {
+          @Override
+          public void run() {
+            logger.log(Level.FINEST, "control plane received delta request {0}", value);
+            if (value.hasErrorDetail()) {
+              logger.log(Level.FINE, "control plane received nack for nonce {0}, error {1}",
+                  new Object[]{value.getResponseNonce(), value.getErrorDetail()});
+              return;
+            }
+            String resourceType = value.getTypeUrl();
+            if (value.getResourceNamesSubscribeCount() > 0) {
+              initialResourceVersions.put(
+                  resourceType, new HashMap<>(value.getInitialResourceVersionsMap()));
+            }
+            if (!deltaSubscribers.containsKey(resourceType)) {
+              deltaSubscribers.put(resourceType,
+                  new HashMap<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>>());
+            }
+            Map<String, String> clientVersions =
+                deltaSubscribers.get(resourceType).get(responseObserver);
+            if (clientVersions == null) {
+              clientVersions = new HashMap<>();
+              deltaSubscribers.get(resourceType).put(responseObserver, clientVersions);
+            }
+            for (String resourceName : value.getResourceNamesSubscribeList()) {
+              clientVersions.put(resourceName,
+                  value.getInitialResourceVersionsMap().get(resourceName));
+            }
+            for (String resourceName : value.getResourceNamesUnsubscribeList()) {
+              clientVersions.remove(resourceName);
+            }
+            sendDeltaResponse(resourceType, responseObserver, clientVersions);
+          }
+        });
+      }
+
+      @Override
+      public void onError(Throwable t) {
+        logger.log(Level.FINE, "Control plane error: {0} ", t);
+        onCompleted();
+      }
+
+      @Override
+      public void onCompleted() {
+        responseObserver.onCompleted();
+        for (Map<StreamObserver<DeltaDiscoveryResponse>, Map<String, String>> streams :
+            deltaSubscribers.values()) {
+          streams.remove(responseObserver);
+        }
+      }
+    };
+  }
+
+  // Sends the subscribed resources whose version differs from the client's, and the names of the
+  // ones the client has but that no longer exist. Must run in syncContext.
+  private void sendDeltaResponse(String resourceType,
+                                 StreamObserver<DeltaDiscoveryResponse> responseObserver,
+                                 Map<String, String> clientVersions) {
+    Map<String, Message> resources = xdsResources.get(resourceType);
+    DeltaDiscoveryResponse.Builder responseBuilder = DeltaDiscoveryResponse.newBuilder()
+        .setTypeUrl(resourceType);
+    for (Map.Entry<String, String> entry : clientVersions.entrySet()) {
+      Message resource = resources == null ? null : resources.get(entry.getKey());
+      if (resource == null) {
+        if (entry.getValue() != null) {
+          responseBuilder.addRemovedResources(entry.getKey());
+          entry.setValue(null);
+        }
+        continue;
+      }
+      String version = String.valueOf(resource.hashCode());
+      if (!version.equals(entry.getValue())) {
+        responseBuilder.addResources(Resource.newBuilder()
+            .setName(entry.getKey())
+            .setVersion(version)
+            .setResource(Any.pack(resource, resourceType)));
+        entry.setValue(version);
+      }
+    }
+    if (responseBuilder.getResourcesCount() == 0
+        && responseBuilder.getRemovedResourcesCount() == 0) {
+      return;
+    }
+    DeltaDiscoveryResponse response = responseBuilder
+        .setNonce(String.valueOf(deltaNonce.incrementAndGet()))
+        .build();
+    responseBytesSent.addAndGet(response.getSerializedSize());
+    resourcesSent.addAndGet(response.getResourcesCount());
+    responseObserver.onNext(response);
   }
 }